@@ -33,7 +33,9 @@ import org.marketcetera.util.misc.ClassVersion;
  *      {@link #sendOrderRaw(FIXOrder)}</li>
  *      <li>{@link #addReportListener(ReportListener) receive reports}</li>
  *      <li>{@link #addBrokerStatusListener(BrokerStatusListener) receive broker status updates}</li>
- *      <li>{@link #getReportsSince(Date) fetch past reports} </li>
+ *      <li>{@link #getReportsSince(Date) fetch past reports},
+ *      {@link #getReportsSince(Date, ReportID, int) one page at a time},
+ *      see also {@link ReportPageRetriever} </li>
  *      <li>{@link #getEquityPositionAsOf(Date, Equity)}  fetch equity position} </li>
  *      <li>{@link #getAllEquityPositionsAsOf(Date)}  fetch all open equity positions} </li>
  *      <li>{@link #getOptionPositionAsOf(java.util.Date, Option)}  fetch option position} </li>
@@ -108,6 +110,11 @@ public interface Client {
     /**
      * Returns all the reports (execution report and order cancel rejects)
      * generated and received by the server since the supplied date in UTC.
+     * <p>
+     * The reports are retrieved from the server one page at a time, if
+     * the server supports it, but are returned in a single array. Use a
+     * {@link ReportPageRetriever} to process a large history one page at
+     * a time instead.
      *
      * @param inDate The date in UTC. Cannot be null.
      *
@@ -118,6 +125,36 @@ public interface Client {
      */
     public ReportBase[] getReportsSince(Date inDate) throws ConnectionException;
 
+    /**
+     * Returns one page of the reports (execution report and order cancel
+     * rejects) generated and received by the server since the supplied
+     * date in UTC. The reports are ordered as saved by the server, like
+     * those returned by {@link #getReportsSince(Date)}: to retrieve the
+     * next page, supply the report ID of the last report in this page.
+     * Report IDs are not necessarily increasing in that order. This
+     * allows a large history to be retrieved, and processed, one page
+     * at a time. A server that does not support paging returns all the
+     * reports in the first page, and no further pages.
+     *
+     * @param inDate The date in UTC. Cannot be null.
+     * @param inAfterReportID The page only includes reports saved after
+     * the report with this ID. If null, the page starts with the first
+     * report.
+     * @param inMaxReports The maximum number of reports in the page. If
+     * it is not positive, the page includes all the remaining reports.
+     *
+     * @return The reports in the page, may be empty. The page has fewer
+     * than the maximum number of reports only if there are no more
+     * reports.
+     *
+     * @throws ConnectionException if there were connection errors fetching
+     * data from the server.
+     */
+    public ReportBase[] getReportsSince(Date inDate,
+                                        ReportID inAfterReportID,
+                                        int inMaxReports)
+            throws ConnectionException;
+
     /**
      * Returns the position of the supplied equity based on reports,
      * generated and received on or before the supplied date in UTC.
@@ -6,6 +6,7 @@ import java.util.*;
 
 import javax.jms.JMSException;
 import javax.xml.bind.JAXBException;
+import javax.xml.ws.WebServiceException;
 
 import org.apache.commons.lang.ObjectUtils;
 import org.marketcetera.client.brokers.BrokerStatus;
@@ -29,6 +30,7 @@ import org.marketcetera.util.log.SLF4JLoggerProxy;
 import org.marketcetera.util.misc.ClassVersion;
 import org.marketcetera.util.spring.SpringUtils;
 import org.marketcetera.util.ws.stateful.ClientContext;
+import org.marketcetera.util.ws.tags.AppId;
 import org.marketcetera.util.ws.tags.SessionId;
 import org.marketcetera.util.ws.wrappers.DateWrapper;
 import org.marketcetera.util.ws.wrappers.RemoteException;
@@ -146,11 +148,56 @@ public class ClientImpl implements Client, javax.jms.ExceptionListener {
     {
         failIfClosed();
         failIfDisconnected();
+        // Retrieve the reports one page at a time, so that the server
+        // does not have to hold the entire history in a single response.
+        List<ReportBase> reports = new ArrayList<ReportBase>();
+        ReportPageRetriever pages = new ReportPageRetriever
+            (this,inDate,REPORTS_PAGE_SIZE);
+        ReportBase[] page;
+        while ((page = pages.next()) != null) {
+            reports.addAll(Arrays.asList(page));
+        }
+        return reports.toArray(new ReportBase[reports.size()]);
+    }
+
+    @Override
+    public ReportBase[] getReportsSince
+        (Date inDate,
+         ReportID inAfterReportID,
+         int inMaxReports)
+        throws ConnectionException
+    {
+        failIfClosed();
+        failIfDisconnected();
+        if (!mPagingUnsupported) {
+            try {
+                ReportBaseImpl[] reports = mService.getReportsSincePage
+                    (getServiceContext(),new DateWrapper(inDate),
+                     inAfterReportID,inMaxReports);
+                return reports == null ? new ReportBase[0] : reports;
+            } catch (RemoteException ex) {
+                throw new ConnectionException(ex,Messages.ERROR_REMOTE_EXECUTION);
+            } catch (WebServiceException ex) {
+                // A server that predates paging does not recognize the
+                // operation: retrieve the entire history instead, below.
+                if (inAfterReportID != null) {
+                    throw new ConnectionException(ex,Messages.ERROR_REMOTE_EXECUTION);
+                }
+            }
+        }
+        if (inAfterReportID != null) {
+            // The first page held all the reports.
+            return new ReportBase[0];
+        }
         try {
-            ReportBaseImpl[] reports = mService.getReportsSince(getServiceContext(),new DateWrapper(inDate));
+            ReportBaseImpl[] reports = mService.getReportsSince
+                (getServiceContext(),new DateWrapper(inDate));
+            mPagingUnsupported = true;
             return reports == null ? new ReportBase[0] : reports;
         } catch (RemoteException ex) {
             throw new ConnectionException(ex,Messages.ERROR_REMOTE_EXECUTION);
+        } catch (WebServiceException ex) {
+            throw new ConnectionException(ex,Messages.ERROR_REMOTE_EXECUTION);
         }
     }
 
@@ -810,7 +857,7 @@ public class ClientImpl implements Client, javax.jms.ExceptionListener {
 
             mServiceClient = new org.marketcetera.util.ws.stateful.Client
                 (mParameters.getHostname(), mParameters.getPort(),
-                 ClientVersion.APP_ID);
+                 getAppId());
             mServiceClient.login(mParameters.getUsername(),
                                  mParameters.getPassword());
             mService = mServiceClient.getService(Service.class);
@@ -848,7 +895,7 @@ public class ClientImpl implements Client, javax.jms.ExceptionListener {
                 throw new ConnectionException
                     (t,new I18NBoundMessage2P
                      (Messages.ERROR_CONNECT_INCOMPATIBLE_DIRECT,
-                      ClientVersion.APP_ID,
+                      getAppId(),
                       ex.getServerVersion()));
             }
             throw new ConnectionException(t, new I18NBoundMessage4P(
@@ -856,9 +903,24 @@ public class ClientImpl implements Client, javax.jms.ExceptionListener {
                     mParameters.getUsername(), mParameters.getHostname(),
                     mParameters.getPort()));
         }
+        mPagingUnsupported = false;
         mLastConnectTime = new Date();
     }
 
+    /**
+     * Returns the application ID with which the client identifies
+     * itself to the server. It advertises the binary wire format if
+     * the client configuration requests it.
+     *
+     * @return the application ID.
+     */
+    private static AppId getAppId() {
+        SpringConfig cfg = SpringConfig.getSingleton();
+        return (cfg != null && cfg.isBinaryWireFormat())
+                ? ClientVersion.APP_ID_BINARY
+                : ClientVersion.APP_ID;
+    }
+
     private void setContext(AbstractApplicationContext inContext) {
         mContext = inContext;
     }
@@ -975,8 +1037,10 @@ public class ClientImpl implements Client, javax.jms.ExceptionListener {
         if (mToServer!=null) {
             return;
         } 
+        // Replies may be sent in either format: the binary converter
+        // falls back to XML for messages it does not encode.
         mTradeMessageListener =
-            mJmsMgr.getIncomingJmsFactory().registerHandlerTMX
+            mJmsMgr.getIncomingJmsFactory().registerHandlerTMB
             (new TradeMessageReceiver(),
              JmsUtils.getReplyTopicName(getSessionId()),true);
         mBrokerStatusListener =
@@ -1020,6 +1084,12 @@ public class ClientImpl implements Client, javax.jms.ExceptionListener {
     private volatile ClientParameters mParameters;
     private volatile boolean mClosed = false;
     private volatile boolean mServerAlive = false;
+    /**
+     * Indicates if the server does not support retrieving reports one
+     * page at a time, in which case the entire history is retrieved at
+     * once.
+     */
+    private volatile boolean mPagingUnsupported = false;
     private final Deque<ReportListener> mReportListeners =
             new LinkedList<ReportListener>();
     private final Deque<BrokerStatusListener> mBrokerStatusListeners=
@@ -1036,6 +1106,11 @@ public class ClientImpl implements Client, javax.jms.ExceptionListener {
             new HashMap<String, Collection<String>>();
 
     private static final long RECONNECT_WAIT_INTERVAL = 30000;
+    /**
+     * The number of reports retrieved per request by
+     * {@link #getReportsSince(Date)}.
+     */
+    static final int REPORTS_PAGE_SIZE = ReportPageRetriever.DEFAULT_PAGE_SIZE;
 
     private volatile org.marketcetera.util.ws.stateful.Client mServiceClient;
     private Service mService;
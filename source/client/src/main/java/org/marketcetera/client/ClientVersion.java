@@ -38,4 +38,21 @@ public interface ClientVersion
      */
 
     public static final AppId APP_ID=Util.getAppId(APP_ID_NAME,APP_ID_VERSION);
+
+    /**
+     * The client's application ID name when the client accepts
+     * replies in the binary wire format. A server that recognizes
+     * this name sends the replies of the client's session using the
+     * binary format; otherwise, XML is used.
+     */
+
+    public static final String APP_ID_NAME_BINARY=APP_ID_NAME+"+Binary"; //$NON-NLS-1$
+
+    /**
+     * The client's application ID when the client accepts replies in
+     * the binary wire format.
+     */
+
+    public static final AppId APP_ID_BINARY=Util.getAppId
+        (APP_ID_NAME_BINARY,APP_ID_VERSION);
 }
@@ -0,0 +1,108 @@
+package org.marketcetera.client;
+
+import java.util.Date;
+
+import org.marketcetera.trade.ReportBase;
+import org.marketcetera.trade.ReportID;
+import org.marketcetera.util.misc.ClassVersion;
+
+/* $License$ */
+
+/**
+ * Retrieves the reports generated and received by the server since a
+ * given date one page at a time, using
+ * {@link Client#getReportsSince(Date, ReportID, int)}.
+ * <p>
+ * Unlike {@link Client#getReportsSince(Date)}, which gathers the entire
+ * history in a single array, this allows callers to process each page
+ * before the next one is retrieved.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+public class ReportPageRetriever
+{
+    /**
+     * The number of reports per page unless otherwise specified.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+    /**
+     * Creates an instance that retrieves pages of
+     * {@link #DEFAULT_PAGE_SIZE} reports.
+     *
+     * @param inClient a <code>Client</code> value
+     * @param inDate a <code>Date</code> value in UTC. Cannot be null.
+     */
+    public ReportPageRetriever(Client inClient,
+                               Date inDate)
+    {
+        this(inClient,
+             inDate,
+             DEFAULT_PAGE_SIZE);
+    }
+    /**
+     * Creates an instance.
+     *
+     * @param inClient a <code>Client</code> value
+     * @param inDate a <code>Date</code> value in UTC. Cannot be null.
+     * @param inPageSize an <code>int</code> value holding the maximum number of reports per page
+     * @throws IllegalArgumentException if <code>inPageSize</code> is not positive
+     */
+    public ReportPageRetriever(Client inClient,
+                               Date inDate,
+                               int inPageSize)
+    {
+        if(inPageSize <= 0) {
+            throw new IllegalArgumentException();
+        }
+        mClient = inClient;
+        mDate = inDate;
+        mPageSize = inPageSize;
+    }
+    /**
+     * Retrieves the next page of reports.
+     *
+     * @return a <code>ReportBase[]</code> value holding the reports in the page, ordered as saved by the server,
+     *  or <code>null</code> if all the pages have been retrieved
+     * @throws ConnectionException if there were connection errors fetching data from the server
+     */
+    public ReportBase[] next()
+            throws ConnectionException
+    {
+        if(mDone) {
+            return null;
+        }
+        ReportBase[] page = mClient.getReportsSince(mDate,
+                                                    mAfterReportID,
+                                                    mPageSize);
+        if(page.length < mPageSize) {
+            mDone = true;
+        } else {
+            mAfterReportID = page[page.length - 1].getReportID();
+        }
+        return page;
+    }
+    /**
+     * the client used to retrieve the pages
+     */
+    private final Client mClient;
+    /**
+     * the date since which reports are retrieved
+     */
+    private final Date mDate;
+    /**
+     * the maximum number of reports per page
+     */
+    private final int mPageSize;
+    /**
+     * the report ID of the last report retrieved, or <code>null</code> before the first page
+     */
+    private ReportID mAfterReportID;
+    /**
+     * indicates if the last page has been retrieved
+     */
+    private boolean mDone;
+}
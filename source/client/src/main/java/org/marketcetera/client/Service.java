@@ -112,6 +112,36 @@ public interface Service
          @WebParam(name= "date")DateWrapper date)
         throws RemoteException;
 
+    /**
+     * Returns one page of the reports (execution report and order
+     * cancel rejects) generated and received by the server since the
+     * supplied date to the client with the given context. The reports
+     * are ordered as saved by the server, like those returned by
+     * {@link #getReportsSince(ClientContext,DateWrapper)}, so the next
+     * page starts after the last report in this page.
+     *
+     * @param context The context.
+     * @param date The date, in UTC.
+     * @param afterReportID The page only includes reports saved after
+     * the report with this ID. If null, the page starts with the
+     * first report.
+     * @param maxReports The maximum number of reports in the page. If
+     * it is not positive, the page includes all the remaining reports.
+     *
+     * @return The reports. The page has fewer than the maximum number
+     * of reports only if there are no more reports.
+     *
+     * @throws RemoteException Thrown if the operation cannot be
+     * completed.
+     */
+
+    ReportBaseImpl[] getReportsSincePage
+        (@WebParam(name= "context")ClientContext context,
+         @WebParam(name= "date")DateWrapper date,
+         @WebParam(name= "afterReportID")ReportID afterReportID,
+         @WebParam(name= "maxReports")int maxReports)
+        throws RemoteException;
+
     /**
      * Returns the position of the supplied equity instrument based on reports,
      * generated and received on or before the supplied date in UTC to the
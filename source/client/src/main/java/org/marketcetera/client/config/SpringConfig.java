@@ -41,6 +41,7 @@ public class SpringConfig
     private ConnectionFactory mIncomingCF;
     private ConnectionFactory mOutgoingCF;
     private final Collection<OrderModifier> orderModifiers = new ArrayList<OrderModifier>();
+    private boolean mBinaryWireFormat=false;
 
 
     // CONSTRUCTORS.
@@ -180,6 +181,34 @@ public class SpringConfig
             }
         }
     }
+    /**
+     * Sets whether the client asks the server to send its replies
+     * using the binary wire format instead of XML. The format is
+     * requested via the application ID used to log in, which servers
+     * that predate the binary format reject; hence it should only be
+     * enabled if the server is known to support it.
+     *
+     * @param binaryWireFormat True if the binary format should be
+     * requested.
+     */
+
+    public void setBinaryWireFormat
+        (boolean binaryWireFormat)
+    {
+        mBinaryWireFormat=binaryWireFormat;
+    }
+
+    /**
+     * Returns whether the client asks the server to send its replies
+     * using the binary wire format instead of XML. Defaults to false.
+     *
+     * @return True if the binary format is requested.
+     */
+
+    public boolean isBinaryWireFormat()
+    {
+        return mBinaryWireFormat;
+    }
     // InitializingBean.
 
     @Override
@@ -348,6 +348,34 @@ public class IncomingJmsFactory
             (handler,inDstName,isInDstTopic,new JMSXMLMessageConverter());
     }
 
+    /**
+     * Registers the given message handler for messages that are
+     * received by the given incoming destination (and of the given
+     * type). The handler is expected to operate on FIX Agnostic trade
+     * messages transported using either the binary format or
+     * XML. Returns the Spring container of the handler (listener) for
+     * manual bean lifecycle management.
+     *
+     * @param handler The message handler.
+     * @param inDstName The incoming destination name.
+     * @param isInDstTopic True if the incoming destination is a topic.
+     *
+     * @return The container.
+     *
+     * @throws JAXBException Thrown if an error occurs in creating the
+     * JMS/XML converter used for fallback.
+     */
+
+    public SimpleMessageListenerContainer registerHandlerTMB
+        (ReceiveOnlyHandler<TradeMessage> handler,
+         String inDstName,
+         boolean isInDstTopic)
+        throws JAXBException
+    {
+        return registerHandler
+            (handler,inDstName,isInDstTopic,new JMSBinaryMessageConverter());
+    }
+
     /**
      * Registers the given message handler for messages that are
      * received by the given incoming destination (and of the given
@@ -0,0 +1,307 @@
+package org.marketcetera.client.jms;
+
+import java.io.*;
+
+import javax.jms.*;
+import javax.xml.bind.JAXBException;
+
+import org.marketcetera.client.brokers.BrokerStatus;
+import org.marketcetera.trade.*;
+import org.marketcetera.util.log.I18NBoundMessage1P;
+import org.marketcetera.util.log.SLF4JLoggerProxy;
+import org.marketcetera.util.misc.ClassVersion;
+
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.apache.commons.lang.ObjectUtils;
+
+import quickfix.InvalidMessage;
+
+/* $License$ */
+/**
+ * Converts messaging objects to a compact binary representation that
+ * can be sent over JMS as a {@link BytesMessage}. Reports, FIX
+ * responses and broker status messages are converted to binary; the
+ * FIX message of reports and responses is carried as its raw
+ * bytes. Order envelopes, as well as any received {@link TextMessage},
+ * are handled by a {@link JMSXMLMessageConverter}, so this converter
+ * can always read messages sent by a peer that uses XML.
+ * <p>
+ * Each binary message starts with the {@link #FORMAT_VERSION}, so
+ * that the format may evolve. This class is not meant to be used by
+ * clients of this package.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+public class JMSBinaryMessageConverter implements MessageConverter {
+    /**
+     * Creates an instance.
+     *
+     * @throws JAXBException if there were errors initializing the
+     * XML marshalling / unmarshalling system used for fallback.
+     */
+    public JMSBinaryMessageConverter() throws JAXBException {
+        mXMLConverter = new JMSXMLMessageConverter();
+    }
+
+    /**
+     * Converts a JMS Message to a messaging object.
+     *
+     * @param message the received JMS message. It should be of type
+     * {@link javax.jms.BytesMessage} or {@link javax.jms.TextMessage}.
+     *
+     * @return the messaging object converted from the supplied JMS message.
+     *
+     * @throws javax.jms.JMSException if there were errors extracting the contents
+     * of the JMS message.
+     * @throws org.springframework.jms.support.converter.MessageConversionException if there were errors converting
+     * the contents of the JMS message to a messaging object.
+     */
+    @Override
+    public Object fromMessage(Message message)
+            throws JMSException, MessageConversionException {
+        if(!(message instanceof BytesMessage)) {
+            return mXMLConverter.fromMessage(message);
+        }
+        SLF4JLoggerProxy.debug(this, "Converting from JMS {}", message);  //$NON-NLS-1$
+        BytesMessage bytesMessage = (BytesMessage) message;
+        byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
+        bytesMessage.readBytes(bytes);
+        try {
+            return fromBytes(bytes);
+        } catch (IOException e) {
+            throw new MessageConversionException(new I18NBoundMessage1P(
+                    Messages.ERROR_CONVERTING_MESSAGE_TO_OBJECT,
+                    ObjectUtils.toString(message)).getText(), e);
+        } catch (InvalidMessage e) {
+            throw new MessageConversionException(new I18NBoundMessage1P(
+                    Messages.ERROR_CONVERTING_MESSAGE_TO_OBJECT,
+                    ObjectUtils.toString(message)).getText(), e);
+        } catch (MessageCreationException e) {
+            throw new MessageConversionException(new I18NBoundMessage1P(
+                    Messages.ERROR_CONVERTING_MESSAGE_TO_OBJECT,
+                    ObjectUtils.toString(message)).getText(), e);
+        }
+    }
+
+    /**
+     * Converts a messaging object to a JMS Message.
+     *
+     * @param inObject the message to be converted. It should either be
+     * an order or a report.
+     * @param session the JMS Session instance.
+     *
+     * @return the JMS message.
+     *
+     * @throws javax.jms.JMSException if there were errors serializing the
+     * messaging object.
+     * @throws org.springframework.jms.support.converter.MessageConversionException if the supplied object was not
+     * an acceptable messaging object.
+     */
+    @Override
+    public Message toMessage(Object inObject, Session session)
+            throws JMSException, MessageConversionException {
+        if(!((inObject instanceof ReportBaseImpl) ||
+             (inObject instanceof FIXResponseImpl) ||
+             (inObject instanceof BrokerStatus))) {
+            return mXMLConverter.toMessage(inObject, session);
+        }
+        SLF4JLoggerProxy.debug(this, "Converting to JMS {}", inObject);  //$NON-NLS-1$
+        byte[] bytes;
+        try {
+            bytes = toBytes(inObject);
+        } catch (IOException e) {
+            throw new MessageConversionException(new I18NBoundMessage1P(
+                    Messages.ERROR_CONVERTING_OBJECT_TO_MESSAGE,
+                    ObjectUtils.toString(inObject)).getText(), e);
+        }
+        BytesMessage message = session.createBytesMessage();
+        message.writeBytes(bytes);
+        //Set the type property for consistency with XML messages.
+        message.setStringProperty(JMSXMLMessageConverter.JMS_TYPE_PROPERTY,
+                inObject.getClass().getSimpleName());
+        return message;
+    }
+
+    /**
+     * Encodes the supplied object in the binary format.
+     *
+     * @param inObject the object that needs to be encoded.
+     *
+     * @return the binary representation.
+     *
+     * @throws IOException if the object is not a supported messaging
+     * object, or there were errors encoding it.
+     */
+    byte[] toBytes(Object inObject) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(FORMAT_VERSION);
+        if(inObject instanceof ReportBaseImpl) {
+            ReportBaseImpl report = (ReportBaseImpl) inObject;
+            out.writeByte(report instanceof ExecutionReport
+                    ? TYPE_EXECUTION_REPORT
+                    : TYPE_CANCEL_REJECT);
+            writeResponse(out, report.getMessage(), report.getBrokerID(),
+                    report.getOriginator(), report.getActorID(),
+                    report.getViewerID());
+            writeLong(out, report.getReportID() == null
+                    ? null
+                    : report.getReportID().longValue());
+        } else if(inObject instanceof FIXResponseImpl) {
+            FIXResponseImpl response = (FIXResponseImpl) inObject;
+            out.writeByte(TYPE_FIX_RESPONSE);
+            writeResponse(out, response.getMessage(), response.getBrokerID(),
+                    response.getOriginator(), response.getActorID(),
+                    response.getViewerID());
+        } else if(inObject instanceof BrokerStatus) {
+            BrokerStatus status = (BrokerStatus) inObject;
+            out.writeByte(TYPE_BROKER_STATUS);
+            writeString(out, status.getName());
+            writeString(out, status.getId() == null
+                    ? null
+                    : status.getId().getValue());
+            out.writeBoolean(status.getLoggedOn());
+        } else {
+            throw new IOException(new I18NBoundMessage1P(
+                    Messages.UNEXPECTED_MESSAGE_TO_SEND,
+                    ObjectUtils.toString(inObject)).getText());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes an object from the binary format.
+     *
+     * @param inBytes the binary representation.
+     *
+     * @return the decoded object instance.
+     *
+     * @throws IOException if the representation is truncated, of an
+     * unsupported format version or of an unknown type.
+     * @throws InvalidMessage if the FIX message could not be parsed.
+     * @throws MessageCreationException if the report could not be
+     * created from its FIX message.
+     */
+    Object fromBytes(byte[] inBytes)
+            throws IOException, InvalidMessage, MessageCreationException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(inBytes));
+        byte version = in.readByte();
+        if(version != FORMAT_VERSION) {
+            throw new IOException(new I18NBoundMessage1P(
+                    Messages.UNSUPPORTED_FORMAT_VERSION, version).getText());
+        }
+        byte type = in.readByte();
+        switch(type) {
+            case TYPE_EXECUTION_REPORT:
+            case TYPE_CANCEL_REJECT:
+            case TYPE_FIX_RESPONSE:
+                quickfix.Message fixMessage = new quickfix.Message(readString(in));
+                String brokerID = readString(in);
+                Originator originator = Originator.values()[in.readByte()];
+                Long actorID = readLong(in);
+                Long viewerID = readLong(in);
+                BrokerID broker = brokerID == null ? null : new BrokerID(brokerID);
+                UserID actor = actorID == null ? null : new UserID(actorID);
+                UserID viewer = viewerID == null ? null : new UserID(viewerID);
+                if(type == TYPE_FIX_RESPONSE) {
+                    return Factory.getInstance().createFIXResponse(fixMessage,
+                            broker, originator, actor, viewer);
+                }
+                ReportBase report = type == TYPE_EXECUTION_REPORT
+                        ? Factory.getInstance().createExecutionReport(fixMessage,
+                                broker, originator, actor, viewer)
+                        : Factory.getInstance().createOrderCancelReject(fixMessage,
+                                broker, originator, actor, viewer);
+                Long reportID = readLong(in);
+                if(reportID != null) {
+                    ReportBaseImpl.assignReportID((ReportBaseImpl) report,
+                            new ReportID(reportID));
+                }
+                return report;
+            case TYPE_BROKER_STATUS:
+                String name = readString(in);
+                String id = readString(in);
+                return new BrokerStatus(name,
+                        id == null ? null : new BrokerID(id),
+                        in.readBoolean());
+            default:
+                throw new IOException(new I18NBoundMessage1P(
+                        Messages.UNEXPECTED_MESSAGE_RECEIVED, type).getText());
+        }
+    }
+
+    /**
+     * Writes the fields common to all FIX responses.
+     */
+    private static void writeResponse(DataOutputStream inOut,
+                                      quickfix.Message inMessage,
+                                      BrokerID inBrokerID,
+                                      Originator inOriginator,
+                                      UserID inActorID,
+                                      UserID inViewerID)
+            throws IOException {
+        writeString(inOut, inMessage.toString());
+        writeString(inOut, inBrokerID == null ? null : inBrokerID.getValue());
+        inOut.writeByte(inOriginator.ordinal());
+        writeLong(inOut, inActorID == null ? null : inActorID.getValue());
+        writeLong(inOut, inViewerID == null ? null : inViewerID.getValue());
+    }
+
+    /**
+     * Writes the supplied string as its raw ISO-8859-1 bytes, the
+     * encoding used by FIX, preceded by its length. A null string is
+     * written as a negative length.
+     */
+    private static void writeString(DataOutputStream inOut,
+                                    String inValue)
+            throws IOException {
+        if(inValue == null) {
+            inOut.writeInt(-1);
+            return;
+        }
+        byte[] bytes = inValue.getBytes(CHARSET);
+        inOut.writeInt(bytes.length);
+        inOut.write(bytes);
+    }
+
+    private static String readString(DataInputStream inIn)
+            throws IOException {
+        int length = inIn.readInt();
+        if(length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        inIn.readFully(bytes);
+        return new String(bytes, CHARSET);
+    }
+
+    private static void writeLong(DataOutputStream inOut,
+                                  Long inValue)
+            throws IOException {
+        inOut.writeBoolean(inValue != null);
+        if(inValue != null) {
+            inOut.writeLong(inValue);
+        }
+    }
+
+    private static Long readLong(DataInputStream inIn)
+            throws IOException {
+        return inIn.readBoolean() ? inIn.readLong() : null;
+    }
+
+    /**
+     * The version of the binary format written by this converter.
+     */
+    static final byte FORMAT_VERSION = 1;
+    private static final byte TYPE_EXECUTION_REPORT = 1;
+    private static final byte TYPE_CANCEL_REJECT = 2;
+    private static final byte TYPE_FIX_RESPONSE = 3;
+    private static final byte TYPE_BROKER_STATUS = 4;
+    private static final String CHARSET = "ISO-8859-1";  //$NON-NLS-1$
+    private static final int INITIAL_BUFFER_SIZE = 512;
+    private final JMSXMLMessageConverter mXMLConverter;
+}
@@ -35,6 +35,8 @@ public interface Messages {
             new I18NMessage1P(LOGGER, "error_converting_object_to_message");   //$NON-NLS-1$
     static final I18NMessage1P ERROR_JMS_MESSAGE_CONVERSION = 
         new I18NMessage1P(LOGGER,"error_jms_message_conversion"); //$NON-NLS-1$
+    static final I18NMessage1P UNSUPPORTED_FORMAT_VERSION =
+        new I18NMessage1P(LOGGER,"unsupported_format_version"); //$NON-NLS-1$
 
     static final I18NMessage2P ORDER_ENVELOPE_TO_STRING =
         new I18NMessage2P(LOGGER,"order_envelope_to_string"); //$NON-NLS-1$
@@ -128,4 +128,30 @@ public class OutgoingJmsFactory
         return createJmsTemplate
             (dstName,isDstTopic,new JMSXMLMessageConverter());
     }
+
+    /**
+     * Returns a new Spring JMS connection template for the given
+     * destination (and of the given type), and for a producer which
+     * emits FIX Agnostic trade messages or broker status messages,
+     * transported using the binary format; order message envelopes
+     * are transported using XML. Consumers must be able to read the
+     * binary format.
+     *
+     * @param dstName The destination name.
+     * @param isDstTopic True if the destination is a topic.
+     *
+     * @return The connection template.
+     *
+     * @throws JAXBException Thrown if an error occurs in creating the
+     * JMS/XML converter used for fallback.
+     */
+
+    public JmsTemplate createJmsTemplateB
+        (String dstName,
+         boolean isDstTopic)
+        throws JAXBException
+    {
+        return createJmsTemplate
+            (dstName,isDstTopic,new JMSBinaryMessageConverter());
+    }
 }
@@ -6,6 +6,7 @@ import java.util.LinkedList;
 import java.util.Map;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
 
 import org.marketcetera.client.Client;
 import org.marketcetera.client.ClientInitException;
@@ -62,6 +63,30 @@ public class LiveOrderHistoryManager
     public LiveOrderHistoryManager(Date inReportHistoryOrigin)
             throws ClientInitException
     {
+        this(inReportHistoryOrigin,
+             0,
+             TimeUnit.MILLISECONDS,
+             0);
+    }
+    /**
+     * Create a new LiveOrderHistoryManager instance which discards the history of closed orders.
+     * 
+     * @param inReportHistoryOrigin a <code>Date</code> value indicating the point from which to gather order history or <code>null</code>
+     * @param inClosedOrderRetention a <code>long</code> value indicating how long to keep the history of a closed order or <code>0</code> to keep it regardless of age
+     * @param inTimeUnit a <code>TimeUnit</code> value indicating the unit of <code>inClosedOrderRetention</code>
+     * @param inMaxClosedOrders an <code>int</code> value indicating how many closed orders to keep or <code>0</code> to keep any number
+     * @throws ClientInitException if a connection to the <code>Client</code> cannot be made 
+     * @see OrderHistoryManager#OrderHistoryManager(long, TimeUnit, int)
+     */
+    public LiveOrderHistoryManager(Date inReportHistoryOrigin,
+                                   long inClosedOrderRetention,
+                                   TimeUnit inTimeUnit,
+                                   int inMaxClosedOrders)
+            throws ClientInitException
+    {
+        super(inClosedOrderRetention,
+              inTimeUnit,
+              inMaxClosedOrders);
         if(inReportHistoryOrigin == null) {
             reportHistoryOrigin = new Date(0);
         } else {
@@ -365,6 +365,32 @@ public class ClientTest
         assertEquals(dID,crreport.getBrokerID());
         assertEquals("43",crreport.getOriginalOrderID().getValue());
         assertEquals(rejectID, crreport.getReportID());
+        //one page at a time
+        rs = getClient().getReportsSince(new Date(), null, 1);
+        assertEquals(1,rs.length);
+        assertEquals(reportID, rs[0].getReportID());
+        rs = getClient().getReportsSince(new Date(), reportID, 1);
+        assertEquals(1,rs.length);
+        assertEquals(rejectID, rs[0].getReportID());
+        rs = getClient().getReportsSince(new Date(), rejectID, 1);
+        assertEquals(0,rs.length);
+        rs = getClient().getReportsSince(new Date(), null, 0);
+        assertEquals(2,rs.length);
+
+        //a server that predates paging returns the entire history
+        MockServiceImpl.sPagingUnsupported = true;
+        try {
+            rs = getClient().getReportsSince(new Date());
+            assertEquals(2,rs.length);
+            assertEquals(reportID, rs[0].getReportID());
+            assertEquals(rejectID, rs[1].getReportID());
+            rs = getClient().getReportsSince(new Date(), null, 1);
+            assertEquals(2,rs.length);
+            rs = getClient().getReportsSince(new Date(), rejectID, 1);
+            assertEquals(0,rs.length);
+        } finally {
+            MockServiceImpl.sPagingUnsupported = false;
+        }
 
         MockServiceImpl.sReports = new ReportBaseImpl[0];
         rs = getClient().getReportsSince(new Date());
@@ -843,6 +869,11 @@ public class ClientTest
                 client.getReportsSince(null);
             }
         };
+        new ExpectedFailure<IllegalStateException>(expectedMsg){
+            protected void run() throws Exception {
+                client.getReportsSince(null, null, 1);
+            }
+        };
         new ExpectedFailure<IllegalStateException>(expectedMsg){
             protected void run() throws Exception {
                 client.getBrokersStatus();
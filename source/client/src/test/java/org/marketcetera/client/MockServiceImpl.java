@@ -76,6 +76,32 @@ public class MockServiceImpl
         return sReports;
     }
 
+    private ReportBaseImpl[] getReportsSincePageImpl
+        (Date date,
+         ReportID afterReportID,
+         int maxReports)
+        throws MessageCreationException
+    {
+        if (sReports==null) {
+            return null;
+        }
+        List<ReportBaseImpl> page=new ArrayList<ReportBaseImpl>();
+        // The page starts after the given report, in the order in
+        // which the reports were saved.
+        boolean after=(afterReportID==null);
+        for (ReportBaseImpl report:sReports) {
+            if ((maxReports>0) && (page.size()==maxReports)) {
+                break;
+            }
+            if (after) {
+                page.add(report);
+            } else {
+                after=afterReportID.equals(report.getReportID());
+            }
+        }
+        return page.toArray(new ReportBaseImpl[page.size()]);
+    }
+
     private BigDecimal getPositionAsOfImpl
         (Date date,
          Equity equity)
@@ -227,6 +253,33 @@ public class MockServiceImpl
             }}).execute(context);
     }
 
+    @Override
+    public ReportBaseImpl[] getReportsSincePage
+        (ClientContext context,
+         final DateWrapper date,
+         final ReportID afterReportID,
+         final int maxReports)
+        throws RemoteException
+    {
+        if (sPagingUnsupported) {
+            // Fails outside the remote caller, so that the client
+            // receives a SOAP fault, as from a server that predates
+            // the operation.
+            throw new UnsupportedOperationException();
+        }
+        return (new RemoteCaller<Object,ReportBaseImpl[]>
+                (getSessionManager()) {
+            @Override
+            protected ReportBaseImpl[] call
+                (ClientContext context,
+                 SessionHolder<Object> sessionHolder)
+                throws MessageCreationException
+            {
+                return getReportsSincePageImpl
+                    (date.getRaw(),afterReportID,maxReports);
+            }}).execute(context);
+    }
+
     @Override
     public BigDecimal getEquityPositionAsOf
         (ClientContext context,
@@ -440,6 +493,11 @@ public class MockServiceImpl
 
     static ReportBaseImpl[] sReports = null;
     static boolean sActive = true;
+    /**
+     * Indicates if paged report retrieval fails, as it does on a
+     * server that predates it.
+     */
+    static boolean sPagingUnsupported = false;
     static final Map<PositionKey<Equity>, BigDecimal> POSITIONS;
     static final Map<PositionKey<Future>,BigDecimal> FUTURES_POSITIONS;
     static {
@@ -0,0 +1,107 @@
+package org.marketcetera.client.jms;
+
+import org.marketcetera.util.misc.ClassVersion;
+import org.marketcetera.util.ws.tags.SessionId;
+import org.marketcetera.trade.*;
+import org.marketcetera.client.ClientTest;
+import org.marketcetera.core.LoggerConfiguration;
+import org.marketcetera.module.ExpectedFailure;
+import org.marketcetera.client.brokers.BrokerStatus;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+/* $License$ */
+/**
+ * Tests {@link JMSBinaryMessageConverter}
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+public class JMSBinaryConverterTest {
+    @BeforeClass
+    public static void setup() throws Exception {
+        sConverter = new JMSBinaryMessageConverter();
+        LoggerConfiguration.logSetup();
+    }
+    @Test
+    public void verifyExecReport() throws Exception {
+        ExecutionReport executionReport = ClientTest.createExecutionReport();
+        ExecutionReport result = (ExecutionReport) roundTrip(executionReport);
+        TypesTestBase.assertExecReportEquals(executionReport, result);
+        assertEquals(executionReport.getReportID(), result.getReportID());
+    }
+    @Test
+    public void verifyCancelReject() throws Exception {
+        OrderCancelReject cancelReject = ClientTest.createCancelReject();
+        TypesTestBase.assertCancelRejectEquals(cancelReject,
+                (OrderCancelReject) roundTrip(cancelReject));
+    }
+    @Test
+    public void verifyFIXResponse() throws Exception {
+        FIXResponse fixResponse = ClientTest.createFIXResponse();
+        TypesTestBase.assertFIXResponseEquals(fixResponse,
+                (FIXResponse) roundTrip(fixResponse));
+    }
+    @Test
+    public void verifyBrokerStatus() throws Exception {
+        BrokerStatus i = new BrokerStatus("me", new BrokerID("broke"), true);
+        BrokerStatus o = (BrokerStatus) roundTrip(i);
+        assertEquals(i.getName(), o.getName());
+        assertEquals(i.getId(), o.getId());
+        assertEquals(i.getLoggedOn(), o.getLoggedOn());
+        o = (BrokerStatus) roundTrip(new BrokerStatus(null, null, false));
+        assertNull(o.getName());
+        assertNull(o.getId());
+        assertFalse(o.getLoggedOn());
+    }
+    @Test
+    public void smallerThanXML() throws Exception {
+        ExecutionReport executionReport = ClientTest.createExecutionReport();
+        assertTrue(sConverter.toBytes(executionReport).length <
+                new JMSXMLMessageConverter().toXML(executionReport).length());
+    }
+    @Test
+    public void encodeFailure() throws Exception {
+        new ExpectedFailure<IOException>(){
+            protected void run() throws Exception {
+                sConverter.toBytes(new OrderEnvelope
+                        (ClientTest.createOrderSingle(), SessionId.generate()));
+            }
+        };
+    }
+    @Test
+    public void decodeFailure() throws Exception {
+        //unsupported version
+        new ExpectedFailure<IOException>(){
+            protected void run() throws Exception {
+                sConverter.fromBytes(new byte[]{
+                        JMSBinaryMessageConverter.FORMAT_VERSION + 1, 1});
+            }
+        };
+        //unknown type
+        new ExpectedFailure<IOException>(){
+            protected void run() throws Exception {
+                sConverter.fromBytes(new byte[]{
+                        JMSBinaryMessageConverter.FORMAT_VERSION, 99});
+            }
+        };
+        //truncated
+        final byte[] bytes = sConverter.toBytes(ClientTest.createExecutionReport());
+        new ExpectedFailure<IOException>(){
+            protected void run() throws Exception {
+                byte[] truncated = new byte[bytes.length / 2];
+                System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+                sConverter.fromBytes(truncated);
+            }
+        };
+    }
+    static Object roundTrip(Object inObject) throws Exception {
+        return sConverter.fromBytes(sConverter.toBytes(inObject));
+    }
+
+    private static JMSBinaryMessageConverter sConverter;
+}
@@ -0,0 +1,105 @@
+package org.marketcetera.client.jms;
+
+import org.marketcetera.util.misc.ClassVersion;
+import org.marketcetera.util.log.SLF4JLoggerProxy;
+import org.marketcetera.trade.ExecutionReport;
+import org.marketcetera.client.ClientTest;
+import org.marketcetera.core.LoggerConfiguration;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/* $License$ */
+/**
+ * Compares the throughput and payload size of
+ * {@link JMSBinaryMessageConverter} against
+ * {@link JMSXMLMessageConverter} for execution reports, the bulk of
+ * the traffic sent by the server to its clients.
+ * <p>
+ * {@link #jitCompilation()} is a test that is ran to allow JIT compilation
+ * of the code exercised in this unit test.
+ * <p>
+ * {@link #xml()} and {@link #binary()} measure the time taken to
+ * encode and decode {@link #NUM_ITERATIONS} execution reports with
+ * each converter, and log the results along with the payload size.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+public class JMSConverterPerformanceTest {
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        LoggerConfiguration.logSetup();
+        sReport = ClientTest.createExecutionReport();
+        sXMLConverter = new JMSXMLMessageConverter();
+        sBinaryConverter = new JMSBinaryMessageConverter();
+    }
+
+    /**
+     * This test does not test anything. It's just executed first
+     * to let the jit compilation kick in.
+     *
+     * @throws Exception if there were errors.
+     */
+    @Test
+    public void jitCompilation() throws Exception {
+        runXML();
+        runBinary();
+    }
+
+    /**
+     * Measures the XML converter.
+     *
+     * @throws Exception if there were errors.
+     */
+    @Test
+    public void xml() throws Exception {
+        long time = runXML();
+        report("xml", time,  //$NON-NLS-1$
+                sXMLConverter.toXML(sReport).getBytes("UTF-8").length);  //$NON-NLS-1$
+    }
+
+    /**
+     * Measures the binary converter.
+     *
+     * @throws Exception if there were errors.
+     */
+    @Test
+    public void binary() throws Exception {
+        long time = runBinary();
+        report("binary", time,  //$NON-NLS-1$
+                sBinaryConverter.toBytes(sReport).length);
+    }
+
+    private static long runXML() throws Exception {
+        long start = System.nanoTime();
+        for(int i = 0; i < NUM_ITERATIONS; i++) {
+            sXMLConverter.fromXML(sXMLConverter.toXML(sReport));
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long runBinary() throws Exception {
+        long start = System.nanoTime();
+        for(int i = 0; i < NUM_ITERATIONS; i++) {
+            sBinaryConverter.fromBytes(sBinaryConverter.toBytes(sReport));
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String inName,
+                               long inNanos,
+                               int inPayloadSize) {
+        SLF4JLoggerProxy.info(JMSConverterPerformanceTest.class,
+                "{}: {} round trips in {}ms ({} per second), payload {} bytes",  //$NON-NLS-1$
+                inName, NUM_ITERATIONS, inNanos / 1000000,
+                NUM_ITERATIONS * 1000000000L / Math.max(1, inNanos),
+                inPayloadSize);
+    }
+
+    private static final int NUM_ITERATIONS = 10000;
+    private static ExecutionReport sReport;
+    private static JMSXMLMessageConverter sXMLConverter;
+    private static JMSBinaryMessageConverter sBinaryConverter;
+}
@@ -25,6 +25,15 @@ public class DatabaseIDFactory extends DBBackedIDFactory {
         this(ds,TABLE_NAME, COL_NAME, NUM_IDS_GRABBED);
     }
 
+    /**
+     * Initializes the ID factory with default table and column.
+     * @param ds the data source to connect to the database.
+     * @param quantity the quantity of IDs to fetch per database round trip
+     */
+    public DatabaseIDFactory(DataSource ds, long quantity) {
+        this(ds,TABLE_NAME, COL_NAME, quantity);
+    }
+
     /**
      * Creates an instance
      * @param ds The data source to connect to the database.
@@ -14,6 +14,11 @@ import org.marketcetera.util.misc.ClassVersion;
 
 /**
  * An implementation of {@link PositionMetricsCalculator}.
+ * <p>
+ * Profit and loss values are computed on market data ticks with fixed-point
+ * arithmetic on scaled <code>long</code> values whenever the quantities, costs
+ * and price fit, falling back to <code>BigDecimal</code> arithmetic otherwise.
+ * Both produce the same values, with the same scale.
  * 
  * @author <a href="mailto:will@marketcetera.com">Will Horn</a>
  * @version $Id$
@@ -28,6 +33,7 @@ public final class PositionMetricsCalculatorImpl implements PositionMetricsCalcu
     private final CostElement mUnrealizedCost = new CostElement();
     private final LinkedList<PositionElement> mPositionElements = new LinkedList<PositionElement>();
     private final boolean mClosingPriceAvailable;
+    private final ScaledValue mScaledLastTradePrice = new ScaledValue();
     private BigDecimal mLastTradePrice;
     private BigDecimal mPosition;
     private BigDecimal mRealizedPL = BigDecimal.ZERO;
@@ -56,6 +62,7 @@ public final class PositionMetricsCalculatorImpl implements PositionMetricsCalcu
     @Override
     public synchronized PositionMetrics tick(final BigDecimal tradePrice) {
         mLastTradePrice = tradePrice;
+        mScaledLastTradePrice.set(tradePrice);
         return createPositionMetrics();
     }
 
@@ -150,9 +157,9 @@ public final class PositionMetricsCalculatorImpl implements PositionMetricsCalcu
         if (mClosingPriceAvailable) {
             realizedPL = mRealizedPL;
             if (mLastTradePrice != null) {
-                positionPL = mPositionCost.getPL(mLastTradePrice);
-                unrealizedPL = mUnrealizedCost.getPL(mLastTradePrice);
-                tradingPL = tradingCost.getPL(mLastTradePrice);
+                positionPL = mPositionCost.getPL(mLastTradePrice, mScaledLastTradePrice);
+                unrealizedPL = mUnrealizedCost.getPL(mLastTradePrice, mScaledLastTradePrice);
+                tradingPL = tradingCost.getPL(mLastTradePrice, mScaledLastTradePrice);
                 totalPL = realizedPL.add(unrealizedPL);
             }
         }
@@ -173,13 +180,52 @@ public final class PositionMetricsCalculatorImpl implements PositionMetricsCalcu
     private static class CostElement {
         private BigDecimal quantity = BigDecimal.ZERO;
         private BigDecimal cost = BigDecimal.ZERO;
+        private final ScaledValue scaledQuantity = new ScaledValue();
+        private final ScaledValue scaledCost = new ScaledValue();
+
+        public CostElement() {
+            scaledQuantity.set(quantity);
+            scaledCost.set(cost);
+        }
 
         public void add(BigDecimal quantity, BigDecimal price) {
             this.quantity = this.quantity.add(quantity);
             cost = cost.add(quantity.multiply(price));
+            scaledQuantity.set(this.quantity);
+            scaledCost.set(cost);
         }
 
-        public BigDecimal getPL(BigDecimal lastTradePrice) {
+        /**
+         * Computes the profit and loss at the given price, i.e. quantity *
+         * lastTradePrice - cost.
+         * 
+         * @param lastTradePrice
+         *            the price
+         * @param scaledLastTradePrice
+         *            the same price as a scaled value
+         * @return the profit and loss, identical in value and scale to the
+         *         result of the equivalent <code>BigDecimal</code> operations
+         */
+        public BigDecimal getPL(BigDecimal lastTradePrice, ScaledValue scaledLastTradePrice) {
+            if (scaledQuantity.compact && scaledCost.compact && scaledLastTradePrice.compact) {
+                long product = multiply(scaledQuantity.unscaled, scaledLastTradePrice.unscaled);
+                long productScale = (long) scaledQuantity.scale + scaledLastTradePrice.scale;
+                if (product != OVERFLOW && productScale == (int) productScale) {
+                    // align the scales as BigDecimal.subtract does
+                    int scale = Math.max((int) productScale, scaledCost.scale);
+                    long minuend = rescale(product, scale - (int) productScale);
+                    long subtrahend = rescale(scaledCost.unscaled, scale - scaledCost.scale);
+                    if (minuend != OVERFLOW && subtrahend != OVERFLOW) {
+                        long difference = minuend - subtrahend;
+                        // overflow if the operands have different signs and the result
+                        // does not have the sign of the minuend
+                        if (((minuend ^ subtrahend) & (minuend ^ difference)) >= 0
+                                && difference != OVERFLOW) {
+                            return BigDecimal.valueOf(difference, scale);
+                        }
+                    }
+                }
+            }
             return quantity.multiply(lastTradePrice).subtract(cost);
         }
 
@@ -189,6 +235,84 @@ public final class PositionMetricsCalculatorImpl implements PositionMetricsCalcu
 
     }
 
+    /**
+     * A <code>BigDecimal</code> value as an unscaled <code>long</code> and a
+     * scale, if the unscaled value fits.
+     */
+    private static class ScaledValue {
+        private long unscaled;
+        private int scale;
+        private boolean compact;
+
+        public void set(BigDecimal value) {
+            compact = value != null && value.precision() <= MAX_COMPACT_PRECISION;
+            if (compact) {
+                unscaled = value.unscaledValue().longValue();
+                scale = value.scale();
+                // reserve OVERFLOW so it cannot be mistaken for a result
+                compact = unscaled != OVERFLOW;
+            }
+        }
+    }
+
+    /**
+     * Marker returned by the scaled arithmetic on overflow.
+     */
+    private static final long OVERFLOW = Long.MIN_VALUE;
+
+    /**
+     * The largest precision whose unscaled values always fit in a
+     * <code>long</code>.
+     */
+    private static final int MAX_COMPACT_PRECISION = 18;
+
+    /**
+     * Powers of ten that fit in a <code>long</code>.
+     */
+    private static final long[] POWERS_OF_TEN = new long[MAX_COMPACT_PRECISION + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * Multiplies two values.
+     * 
+     * @return the product, or {@link #OVERFLOW} if it does not fit
+     */
+    private static long multiply(long a, long b) {
+        if (a == 0 || b == 0) {
+            return 0;
+        }
+        if (a == OVERFLOW || b == OVERFLOW || Math.abs(a) > Long.MAX_VALUE / Math.abs(b)) {
+            return OVERFLOW;
+        }
+        return a * b;
+    }
+
+    /**
+     * Increases the scale of an unscaled value.
+     * 
+     * @param unscaled
+     *            the unscaled value
+     * @param increase
+     *            the non-negative increase in scale
+     * @return the unscaled value at the new scale, or {@link #OVERFLOW} if it
+     *         does not fit
+     */
+    private static long rescale(long unscaled, int increase) {
+        if (increase == 0) {
+            return unscaled;
+        }
+        if (increase >= POWERS_OF_TEN.length) {
+            return unscaled == 0 ? 0 : OVERFLOW;
+        }
+        return multiply(unscaled, POWERS_OF_TEN[increase]);
+    }
+
     private class PositionElement {
         public BigDecimal quantity;
         public BigDecimal price;
@@ -1,8 +1,11 @@
 package org.marketcetera.core.position.impl;
 
 import java.math.BigDecimal;
-import java.util.concurrent.ExecutorService;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.lang.Validate;
@@ -25,6 +28,10 @@ import ca.odell.glazedlists.event.ListEventListener;
 
 /**
  * Responsible for updating a PositionRow when trade or market data events occur.
+ * <p>
+ * Market data ticks are coalesced: positions are updated with the latest tick
+ * at most once every {@link #TICK_INTERVAL} milliseconds, a period that can be
+ * set with the system property {@link #TICK_INTERVAL_PROPERTY}.
  * 
  * @author <a href="mailto:will@marketcetera.com">Will Horn</a>
  * @version $Id$
@@ -33,13 +40,34 @@ import ca.odell.glazedlists.event.ListEventListener;
 @ClassVersion("$Id$")
 public final class PositionRowUpdater {
 
+    /**
+     * The system property that sets the interval, in milliseconds, at which
+     * ticks are applied to positions.
+     */
+    public static final String TICK_INTERVAL_PROPERTY = "metc.positions.tickInterval"; //$NON-NLS-1$
+    /**
+     * The interval, in milliseconds, at which ticks are applied to positions.
+     */
+    static final long TICK_INTERVAL = Long.getLong(TICK_INTERVAL_PROPERTY, 50);
     private final ListEventListener<Trade<?>> mListChangeListener;
     private EventList<Trade<?>> mTrades;
     private final PositionRowImpl mPositionRow;
     private final MarketDataSupport mMarketDataSupport;
     private final InstrumentMarketDataListener mSymbolChangeListener;
-    private static final ExecutorService sMarketDataUpdateExecutor = Executors
-            .newSingleThreadExecutor(new NamedThreadFactory("PositionRowUpdater"));  //$NON-NLS-1$
+    private static final ScheduledExecutorService sMarketDataUpdateExecutor = Executors
+            .newSingleThreadScheduledExecutor(new NamedThreadFactory("PositionRowUpdater"));  //$NON-NLS-1$
+    private static final Queue<PositionRowUpdater> sPendingTicks = new ConcurrentLinkedQueue<PositionRowUpdater>();
+    private static final AtomicBoolean sTicksScheduled = new AtomicBoolean();
+    private static final Runnable sTickProcessor = new Runnable() {
+        @Override
+        public void run() {
+            sTicksScheduled.set(false);
+            PositionRowUpdater updater;
+            while ((updater = sPendingTicks.poll()) != null) {
+                updater.processTick();
+            }
+        }
+    };
     private final AtomicBoolean mTickPending = new AtomicBoolean();
     private final AtomicBoolean mClosingPricePending = new AtomicBoolean();
     private final AtomicBoolean mMultiplierPending = new AtomicBoolean();
@@ -143,19 +171,24 @@ public final class PositionRowUpdater {
         /*
          * Since this modifies the position and will need a lock, the update
          * happens in a separate thread. mTickPending is used to avoid queuing
-         * multiple updates since the runnable always uses the latest value.
+         * multiple updates since the update always uses the latest value.
+         * Pending updates of all positions are processed together once per
+         * interval, so a busy instrument updates its positions at most once
+         * per interval.
          */
         if (mTickPending.compareAndSet(false, true)) {
-            sMarketDataUpdateExecutor.execute(new Runnable() {
-                @Override
-                public void run() {
-                    mTickPending.set(false);
-                    if (mCalculator != null) {
-                        mPositionRow.setPositionMetrics(mCalculator
-                                .tick(mLastTradePrice));
-                    }
-                }
-            });
+            sPendingTicks.add(this);
+            if (sTicksScheduled.compareAndSet(false, true)) {
+                sMarketDataUpdateExecutor.schedule(sTickProcessor, TICK_INTERVAL,
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void processTick() {
+        mTickPending.set(false);
+        if (mCalculator != null) {
+            mPositionRow.setPositionMetrics(mCalculator.tick(mLastTradePrice));
         }
     }
 
@@ -1,6 +1,9 @@
 package org.marketcetera.core.position.impl;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
 
 import org.apache.commons.lang.Validate;
 import org.marketcetera.core.position.PositionMetrics;
@@ -15,6 +18,12 @@ import ca.odell.glazedlists.event.ListEventListener;
 
 /**
  * This class maintains a summary position row based on its child positions.
+ * <p>
+ * The summary is updated with the difference between the old and new metrics
+ * of the children that change, rather than recomputed from all the children. A
+ * summary value is unknown (null) while the value of any child is unknown.
+ * Each summary value has the same scale as if it were recomputed from all the
+ * children, that is the largest scale of the known child values.
  * 
  * @author <a href="mailto:will@marketcetera.com">Will Horn</a>
  * @version $Id$
@@ -23,9 +32,19 @@ import ca.odell.glazedlists.event.ListEventListener;
 @ClassVersion("$Id$")
 public class SummaryRowUpdater {
 
+    private static final int METRIC_COUNT = 7;
     private final EventList<PositionRow> mChildren;
     private final PositionRowImpl mPositionRow;
     private final ListEventListener<PositionRow> listChangeListener;
+    // the metrics included in the summary for each child, in the order of the children
+    private final List<PositionMetrics> mContributions = new ArrayList<PositionMetrics>();
+    // the sum of the known values of each metric
+    private final BigDecimal[] mSums = new BigDecimal[METRIC_COUNT];
+    // the number of children for which each metric is unknown
+    private final int[] mUnknownCounts = new int[METRIC_COUNT];
+    // the number of known values of each metric with each scale
+    private final List<TreeMap<Integer, Integer>> mScaleCounts = new ArrayList<TreeMap<Integer, Integer>>(
+            METRIC_COUNT);
 
     /**
      * Constructor.
@@ -71,47 +90,144 @@ public class SummaryRowUpdater {
         if (listChanges.getSourceList() != mChildren) {
             throw new IllegalStateException();
         }
+        boolean changed = false;
         while (listChanges.next()) {
             final int changeIndex = listChanges.getIndex();
             final int changeType = listChanges.getType();
             if (changeType == ListEvent.INSERT) {
-                // we can optimize on insert
-                PositionRow row = mChildren.get(changeIndex);
-                mPositionRow.setPositionMetrics(add(mPositionRow.getPositionMetrics(), row
-                        .getPositionMetrics()));
+                PositionMetrics metrics = mChildren.get(changeIndex).getPositionMetrics();
+                mContributions.add(changeIndex, metrics);
+                apply(metrics, true);
+            } else if (changeType == ListEvent.DELETE) {
+                apply(mContributions.remove(changeIndex), false);
             } else {
-                // recompute summary from scratch
-                recalculate();
+                PositionMetrics metrics = mChildren.get(changeIndex).getPositionMetrics();
+                PositionMetrics old = mContributions.set(changeIndex, metrics);
+                if (old == metrics) {
+                    continue;
+                }
+                apply(old, false);
+                apply(metrics, true);
             }
+            changed = true;
+        }
+        if (changed) {
+            publish();
         }
     }
 
     private void recalculate() {
-        PositionMetrics metrics = new PositionMetricsImpl(BigDecimal.ZERO, BigDecimal.ZERO,
-                BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
-
+        mContributions.clear();
+        mScaleCounts.clear();
+        for (int i = 0; i < METRIC_COUNT; i++) {
+            mSums[i] = BigDecimal.ZERO;
+            mUnknownCounts[i] = 0;
+            mScaleCounts.add(new TreeMap<Integer, Integer>());
+        }
         for (PositionRow row : mChildren) {
-            metrics = add(metrics, row.getPositionMetrics());
+            PositionMetrics metrics = row.getPositionMetrics();
+            mContributions.add(metrics);
+            apply(metrics, true);
+        }
+        publish();
+    }
+
+    /**
+     * Adds the metrics of a child to, or removes them from, the sums.
+     * 
+     * @param metrics
+     *            the metrics of the child
+     * @param add
+     *            true to add the metrics, false to remove them
+     */
+    private void apply(PositionMetrics metrics, boolean add) {
+        for (int i = 0; i < METRIC_COUNT; i++) {
+            apply(i, getMetric(metrics, i), add);
+        }
+    }
+
+    private void apply(int index, BigDecimal value, boolean add) {
+        if (value == null) {
+            // an unknown value makes the sum unknown
+            mUnknownCounts[index] += add ? 1 : -1;
+        } else if (add) {
+            mSums[index] = mSums[index].add(value);
+            countScale(index, value.scale(), 1);
+        } else {
+            countScale(index, value.scale(), -1);
+            BigDecimal sum = mSums[index].subtract(value);
+            if (value.scale() == sum.scale()) {
+                // the value removed may have been the only one with the
+                // largest scale, reduce the scale to that of the remaining
+                // values (which is exact, since none has more digits)
+                sum = sum.setScale(getLargestScale(index));
+            }
+            mSums[index] = sum;
+        }
+    }
+
+    /**
+     * Updates the number of known values of a metric with the given scale.
+     * 
+     * @param index
+     *            the index of the metric
+     * @param scale
+     *            the scale of the value
+     * @param delta
+     *            1 if a value was added, -1 if one was removed
+     */
+    private void countScale(int index, int scale, int delta) {
+        TreeMap<Integer, Integer> counts = mScaleCounts.get(index);
+        Integer count = counts.get(scale);
+        int updated = (count == null ? 0 : count) + delta;
+        if (updated == 0) {
+            counts.remove(scale);
+        } else {
+            counts.put(scale, updated);
+        }
+    }
+
+    /**
+     * Returns the largest scale of the known values of a metric, or zero if
+     * no value is known.
+     * 
+     * @param index
+     *            the index of the metric
+     * @return the largest scale
+     */
+    private int getLargestScale(int index) {
+        TreeMap<Integer, Integer> counts = mScaleCounts.get(index);
+        return counts.isEmpty() ? 0 : Math.max(0, counts.lastKey());
+    }
+
+    private static BigDecimal getMetric(PositionMetrics metrics, int index) {
+        switch (index) {
+        case 0:
+            return metrics.getIncomingPosition();
+        case 1:
+            return metrics.getPosition();
+        case 2:
+            return metrics.getPositionPL();
+        case 3:
+            return metrics.getTradingPL();
+        case 4:
+            return metrics.getRealizedPL();
+        case 5:
+            return metrics.getUnrealizedPL();
+        case 6:
+            return metrics.getTotalPL();
+        default:
+            throw new IllegalArgumentException();
         }
-        mPositionRow.setPositionMetrics(metrics);
     }
 
-    private PositionMetrics add(PositionMetrics current, PositionMetrics augend) {
-        BigDecimal incomingPosition = add(current.getIncomingPosition(), augend
-                .getIncomingPosition());
-        BigDecimal position = add(current.getPosition(), augend.getPosition());
-        BigDecimal positionPL = add(current.getPositionPL(), augend.getPositionPL());
-        BigDecimal tradingPL = add(current.getTradingPL(), augend.getTradingPL());
-        BigDecimal realizedPL = add(current.getRealizedPL(), augend.getRealizedPL());
-        BigDecimal unrealizedPL = add(current.getUnrealizedPL(), augend.getUnrealizedPL());
-        BigDecimal totalPL = add(current.getTotalPL(), augend.getTotalPL());
-        return new PositionMetricsImpl(incomingPosition, position, positionPL, tradingPL,
-                realizedPL, unrealizedPL, totalPL);
+    private void publish() {
+        mPositionRow.setPositionMetrics(new PositionMetricsImpl(getSum(0), getSum(1),
+                getSum(2), getSum(3), getSum(4), getSum(5), getSum(6)));
     }
 
-    private BigDecimal add(BigDecimal current, BigDecimal augend) {
-        // if either is null (unknown), the result is also unknown
-        return current == null || augend == null ? null : current.add(augend);
+    private BigDecimal getSum(int index) {
+        return mUnknownCounts[index] > 0 ? null : mSums[index];
     }
 
 }
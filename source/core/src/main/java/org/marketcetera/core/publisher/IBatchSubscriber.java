@@ -0,0 +1,37 @@
+package org.marketcetera.core.publisher;
+
+import java.util.List;
+
+import org.marketcetera.core.ClassVersion;
+
+/* $License$ */
+
+/**
+ * Capable of receiving a batch of publications in one call.
+ *
+ * <p>When a batch is published with {@link PublisherEngine#publishAll(List)}, a
+ * synchronous {@link PublisherEngine} passes the whole batch to
+ * {@link #publishAllTo(List)} instead of passing each element to
+ * {@link #isInteresting(Object)} and {@link #publishTo(Object)}.  Publications made
+ * one at a time are still received by {@link #publishTo(Object)}.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ * @see PublisherEngine#publishAll(List)
+ */
+@ClassVersion("$Id$")
+public interface IBatchSubscriber
+        extends ISubscriber
+{
+    /**
+     * Receives a batch of updates from the <code>Publisher</code>.
+     *
+     * <p>The elements of the batch have not been passed to {@link #isInteresting(Object)}:
+     * the <code>Subscriber</code> is responsible for ignoring the elements it is not
+     * interested in.  The list is owned by the <code>Publisher</code>, which may reuse it
+     * once this method returns, so it must not be modified or retained.
+     *
+     * @param inData a <code>List&lt;?&gt;</code> value containing the implementation-dependent updates
+     */
+    public void publishAllTo(List<?> inData);
+}
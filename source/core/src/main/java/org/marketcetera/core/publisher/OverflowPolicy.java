@@ -0,0 +1,32 @@
+package org.marketcetera.core.publisher;
+
+import org.marketcetera.core.ClassVersion;
+
+/* $License$ */
+
+/**
+ * Determines what an ordered {@link PublisherEngine} does with a published
+ * event when its queue of undelivered events is full.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+public enum OverflowPolicy
+{
+    /**
+     * the publishing thread waits until there is room in the queue, unless it is
+     *  delivering events for an ordered engine, in which case the event being
+     *  published is discarded
+     */
+    BLOCK,
+    /**
+     * the event being published is discarded
+     */
+    DROP_NEWEST,
+    /**
+     * the oldest undelivered event is discarded to make room for the event
+     *  being published
+     */
+    DROP_OLDEST
+}
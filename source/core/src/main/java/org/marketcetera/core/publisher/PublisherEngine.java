@@ -1,7 +1,12 @@
 package org.marketcetera.core.publisher;
 
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.marketcetera.core.ClassVersion;
 import org.marketcetera.util.log.SLF4JLoggerProxy;
@@ -39,6 +44,56 @@ public final class PublisherEngine
      * indicates whether this publisher should do all publications synchronously or not
      */
     private final boolean mSynchronousNotification;
+    /**
+     * the pool of notifiers common to all ordered <code>PublisherEngine</code> objects.
+     * The pool is never shut down, so its threads are daemon threads, which do not
+     * keep the JVM alive.
+     */
+    private static final ExecutorService sOrderedNotifierPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                                                                                             new NamedThreadFactory("OrderedPublisher-",  //$NON-NLS-1$
+                                                                                                                    true));
+    /**
+     * indicates whether the current thread is delivering events for an ordered <code>PublisherEngine</code>
+     */
+    private static final ThreadLocal<Boolean> sDelivering = new ThreadLocal<Boolean>();
+    /**
+     * the maximum number of queued events delivered by one task of the ordered notifier pool
+     */
+    private static final int MAX_BATCH_SIZE = 256;
+    /**
+     * the events awaiting delivery, null unless this publisher is ordered
+     */
+    private final BlockingQueue<PendingEvent> mQueue;
+    /**
+     * determines what to do with published events when {@link #mQueue} is full
+     */
+    private final OverflowPolicy mOverflowPolicy;
+    /**
+     * indicates whether a task of the ordered notifier pool is scheduled to deliver queued events
+     */
+    private final AtomicBoolean mDeliveryScheduled = new AtomicBoolean(false);
+    /**
+     * delivers queued events, at most one batch at a time
+     */
+    private final Runnable mDeliveryTask = new Runnable() {
+        @Override
+        public void run()
+        {
+            deliverQueuedEvents();
+        }
+    };
+    /**
+     * the number of events discarded because {@link #mQueue} was full
+     */
+    private final AtomicLong mDroppedEvents = new AtomicLong();
+    /**
+     * the largest number of events observed awaiting delivery
+     */
+    private final AtomicInteger mPeakQueueDepth = new AtomicInteger();
+    /**
+     * the subscribers of events published before any subscription
+     */
+    private static final ISubscriber[] NO_SUBSCRIBERS = new ISubscriber[0];
     /**
      * Create a new <code>PublisherEngine</code> object.
      * <p>
@@ -55,7 +110,8 @@ public final class PublisherEngine
      * after the subscribers have been notified. Moreover, the subscribers
      * may receive events in a different order from which they have been
      * published as the events are received by subscribers in different
-     * threads.
+     * threads. Use {@link #PublisherEngine(int, OverflowPolicy)} to have
+     * events delivered asynchronously in order.
      *
      * @param inSynchronousNotification if the publisher engine should
      * publish events synchronously or not.
@@ -63,7 +119,41 @@ public final class PublisherEngine
     public PublisherEngine(boolean inSynchronousNotification)
     {
         mSynchronousNotification = inSynchronousNotification;
+        mQueue = null;
+        mOverflowPolicy = null;
     }    
+    /**
+     * Create a new ordered <code>PublisherEngine</code> object.
+     * <p>
+     * An ordered engine does publications asynchronously, but each subscriber
+     * receives events in the order in which they have been published. Published
+     * events are queued, and delivered in batches by a bounded pool of threads
+     * shared by all ordered engines, so a burst of events does not create
+     * additional threads.
+     * <p>
+     * When the queue is full, the supplied overflow policy applies. Note that with
+     * {@link OverflowPolicy#BLOCK}, a subscriber notified by an ordered engine, which
+     * publishes to an ordered engine (the same or another one) whose queue is full,
+     * does not wait: it would hold one of the shared delivery threads, which may be
+     * needed to make room in the queue. The event is discarded instead, as with
+     * {@link OverflowPolicy#DROP_NEWEST}.
+     *
+     * @param inQueueCapacity an <code>int</code> value containing the maximum number of
+     *  events awaiting delivery
+     * @param inOverflowPolicy an <code>OverflowPolicy</code> value
+     * @throws IllegalArgumentException if the capacity is not positive
+     * @throws NullPointerException if the policy is null
+     */
+    public PublisherEngine(int inQueueCapacity,
+                           OverflowPolicy inOverflowPolicy)
+    {
+        if(inOverflowPolicy == null) {
+            throw new NullPointerException();
+        }
+        mSynchronousNotification = false;
+        mQueue = new LinkedBlockingQueue<PendingEvent>(inQueueCapacity);
+        mOverflowPolicy = inOverflowPolicy;
+    }
     /**
      * Create a new <code>PublisherEngine</code> object.
      * <p>
@@ -83,6 +173,43 @@ public final class PublisherEngine
     {
         return mSynchronousNotification;
     }
+    /**
+     * Indicates whether the publisher delivers events asynchronously in the order
+     * in which they have been published.
+     *
+     * @return a <code>boolean</code> value
+     */
+    public boolean isOrdered()
+    {
+        return mQueue != null;
+    }
+    /**
+     * Gets the number of published events awaiting delivery.
+     *
+     * @return an <code>int</code> value, always zero unless the publisher is ordered
+     */
+    public int getQueueDepth()
+    {
+        return mQueue == null ? 0 : mQueue.size();
+    }
+    /**
+     * Gets the largest number of published events observed awaiting delivery.
+     *
+     * @return an <code>int</code> value, always zero unless the publisher is ordered
+     */
+    public int getPeakQueueDepth()
+    {
+        return mPeakQueueDepth.get();
+    }
+    /**
+     * Gets the number of published events discarded by the overflow policy.
+     *
+     * @return a <code>long</code> value, always zero unless the publisher is ordered
+     */
+    public long getDroppedEventCount()
+    {
+        return mDroppedEvents.get();
+    }
     /**
      * Advertise for publication the given object to all subscribers.
      * 
@@ -92,6 +219,56 @@ public final class PublisherEngine
     {
         doPublish(inData);
     }
+    /**
+     * Advertise for publication each of the given objects, in order, to all subscribers.
+     * <p>
+     * When the publisher is notifying synchronously, each {@link IBatchSubscriber}
+     * receives the whole list in one call, and every other subscriber receives each
+     * object in turn, as if published by {@link #publish(Object)}.  Otherwise, each
+     * object is published in turn.
+     * <p>
+     * The list is not retained once this method returns, so the caller may reuse it.
+     *
+     * @param inData a <code>List&lt;?&gt;</code> value
+     */
+    public void publishAll(List<?> inData)
+    {
+        if(inData.isEmpty()) {
+            return;
+        }
+        if(isOrdered() ||
+           !isSynchronousNotification()) {
+            // the list may be reused as soon as this method returns, so publish each object
+            for(Object data : inData) {
+                doPublish(data);
+            }
+            return;
+        }
+        ISubscriber[] subscribers = mSubscriberArray;
+        SLF4JLoggerProxy.debug(this,
+                               "Publishing {} object(s) to {} subscriber(s)", //$NON-NLS-1$
+                               inData.size(),
+                               (subscribers == null ? 0 : subscribers.length));
+        if(subscribers == null) {
+            return;
+        }
+        for(ISubscriber subscriber : subscribers) {
+            if(subscriber instanceof IBatchSubscriber) {
+                try {
+                    ((IBatchSubscriber)subscriber).publishAllTo(inData);
+                } catch (Throwable t) {
+                    SLF4JLoggerProxy.debug(PublisherEngine.class, t,
+                            "Subscriber {} threw an exception during publication, skipping", //$NON-NLS-1$
+                            subscriber);
+                }
+            } else {
+                for(int i=0;i<inData.size();i++) {
+                    publishToSubscriber(subscriber,
+                                        inData.get(i));
+                }
+            }
+        }
+    }
     /**
      * Advertise for publication the given object to all subscribers and wait
      * until all publications are done.
@@ -166,10 +343,13 @@ public final class PublisherEngine
      * @param inData an <code>Object</code> value.
      *
      * @return a non-null future value if {@link #isSynchronousNotification()}
-     * is true, a null value otherwise. 
+     * is false, a null value otherwise. 
      */
     private Future<?> doPublish(final Object inData)
     {
+        if(isOrdered()) {
+            return enqueue(inData);
+        }
         final ISubscriber[] subscribers = mSubscriberArray;
         
         SLF4JLoggerProxy.debug(this,
@@ -192,6 +372,144 @@ public final class PublisherEngine
         }
     }
 
+    /**
+     * Queues the supplied data object for delivery to the current subscribers,
+     * applying the overflow policy if the queue is full.
+     *
+     * @param inData an <code>Object</code> value
+     * @return a <code>Future&lt;?&gt;</code> value that completes once the data object
+     *  has been delivered or discarded
+     */
+    private Future<?> enqueue(Object inData)
+    {
+        ISubscriber[] subscribers = mSubscriberArray;
+        SLF4JLoggerProxy.debug(this,
+                               "Queueing {} for {} subscriber(s)", //$NON-NLS-1$
+                               inData,
+                               (subscribers == null ? 0 : subscribers.length));
+        PendingEvent event = new PendingEvent(inData,
+                                              subscribers == null ? NO_SUBSCRIBERS : subscribers);
+        switch(mOverflowPolicy) {
+            case BLOCK:
+                if(sDelivering.get() != null) {
+                    // waiting on a delivery thread may deadlock the shared pool
+                    if(!mQueue.offer(event)) {
+                        drop(event);
+                        return event;
+                    }
+                    break;
+                }
+                try {
+                    mQueue.put(event);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    drop(event);
+                    return event;
+                }
+                break;
+            case DROP_NEWEST:
+                if(!mQueue.offer(event)) {
+                    drop(event);
+                    return event;
+                }
+                break;
+            case DROP_OLDEST:
+                while(!mQueue.offer(event)) {
+                    PendingEvent oldest = mQueue.poll();
+                    if(oldest != null) {
+                        drop(oldest);
+                    }
+                }
+                break;
+        }
+        int depth = mQueue.size();
+        int peak = mPeakQueueDepth.get();
+        while(depth > peak &&
+              !mPeakQueueDepth.compareAndSet(peak,
+                                             depth)) {
+            peak = mPeakQueueDepth.get();
+        }
+        scheduleDelivery();
+        return event;
+    }
+    /**
+     * Discards the supplied event.
+     *
+     * @param inEvent a <code>PendingEvent</code> value
+     */
+    private void drop(PendingEvent inEvent)
+    {
+        mDroppedEvents.incrementAndGet();
+        SLF4JLoggerProxy.debug(this,
+                               "Dropping {}, publication queue is full", //$NON-NLS-1$
+                               inEvent.mData);
+        inEvent.run();
+    }
+    /**
+     * Schedules the delivery of queued events, unless it is already scheduled.
+     */
+    private void scheduleDelivery()
+    {
+        if(mDeliveryScheduled.compareAndSet(false,
+                                            true)) {
+            sOrderedNotifierPool.execute(mDeliveryTask);
+        }
+    }
+    /**
+     * Delivers a batch of queued events in the order in which they have been published,
+     * and then reschedules delivery if more events are queued.
+     * <p>
+     * Only one delivery task per publisher is scheduled at any time, which guarantees
+     * the ordering. Rescheduling after each batch lets the other ordered publishers
+     * share the pool.
+     */
+    private void deliverQueuedEvents()
+    {
+        List<PendingEvent> batch = new ArrayList<PendingEvent>();
+        sDelivering.set(Boolean.TRUE);
+        try {
+            mQueue.drainTo(batch,
+                           MAX_BATCH_SIZE);
+            deliver(batch);
+        } finally {
+            sDelivering.remove();
+            mDeliveryScheduled.set(false);
+            if(!mQueue.isEmpty()) {
+                scheduleDelivery();
+            }
+        }
+    }
+    /**
+     * Delivers the supplied events in order.
+     * <p>
+     * Consecutive events published to the same subscribers are delivered to one
+     * subscriber after the other, so each subscriber receives the whole run of
+     * events at once.
+     *
+     * @param inBatch a <code>List&lt;PendingEvent&gt;</code> value
+     */
+    private static void deliver(List<PendingEvent> inBatch)
+    {
+        int start = 0;
+        while(start < inBatch.size()) {
+            ISubscriber[] subscribers = inBatch.get(start).mSubscribers;
+            int end = start + 1;
+            while(end < inBatch.size() &&
+                  inBatch.get(end).mSubscribers == subscribers) {
+                end += 1;
+            }
+            for(ISubscriber subscriber : subscribers) {
+                for(int i=start;i<end;i++) {
+                    publishToSubscriber(subscriber,
+                                        inBatch.get(i).mData);
+                }
+            }
+            for(int i=start;i<end;i++) {
+                inBatch.get(i).run();
+            }
+            start = end;
+        }
+    }
     /**
      * Publishes the supplied data object to the specified list of subscribers.
      *
@@ -202,15 +520,67 @@ public final class PublisherEngine
                                              Object inData)
     {
         for (ISubscriber subscriber: inSubscribers) {
-            try {
-                if (subscriber.isInteresting(inData)) {
-                    subscriber.publishTo(inData);
-                }
-            } catch (Throwable t) {
-                SLF4JLoggerProxy.debug(PublisherEngine.class, t,
-                        "Subscriber {} threw an exception during publication, skipping", //$NON-NLS-1$
-                        subscriber);
+            publishToSubscriber(subscriber, inData);
+        }
+    }
+    /**
+     * Publishes the supplied data object to the specified subscriber.
+     *
+     * @param inSubscriber The subscriber that needs to be notified.
+     * @param inData the data to publish to the subscriber.
+     */
+    private static void publishToSubscriber(ISubscriber inSubscriber,
+                                            Object inData)
+    {
+        try {
+            if (inSubscriber.isInteresting(inData)) {
+                inSubscriber.publishTo(inData);
             }
+        } catch (Throwable t) {
+            SLF4JLoggerProxy.debug(PublisherEngine.class, t,
+                    "Subscriber {} threw an exception during publication, skipping", //$NON-NLS-1$
+                    inSubscriber);
         }
     }
+    /**
+     * An event queued for delivery by an ordered publisher.
+     * <p>
+     * The event completes, as a <code>Future</code>, once it has been delivered
+     * or discarded.
+     */
+    private static final class PendingEvent
+        extends FutureTask<Object>
+    {
+        /**
+         * the published data
+         */
+        private final Object mData;
+        /**
+         * the subscribers at the time of publication
+         */
+        private final ISubscriber[] mSubscribers;
+        /**
+         * Create a new PendingEvent instance.
+         *
+         * @param inData an <code>Object</code> value
+         * @param inSubscribers an <code>ISubscriber[]</code> value
+         */
+        private PendingEvent(Object inData,
+                             ISubscriber[] inSubscribers)
+        {
+            super(NO_OP,
+                  null);
+            mData = inData;
+            mSubscribers = inSubscribers;
+        }
+        /**
+         * completes the event without doing anything else
+         */
+        private static final Runnable NO_OP = new Runnable() {
+            @Override
+            public void run()
+            {
+            }
+        };
+    }
 }
@@ -0,0 +1,41 @@
+package org.marketcetera.event;
+
+import java.util.List;
+
+import org.marketcetera.core.CoreException;
+import org.marketcetera.util.misc.ClassVersion;
+
+/**
+ * Translates to {@link Event} format by appending to a list supplied by the caller.
+ *
+ * <p>Market data feeds whose translator implements this interface translate each message
+ * received into a list that is reused from one message to the next, instead of into a
+ * list allocated by the translator.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+public interface BatchEventTranslator
+        extends EventTranslator
+{
+    /**
+     * Translates from an unspecified format to <code>Event</code> objects.
+     *
+     * <p>The events are appended to the given list in the same order in which
+     * {@link #toEvent(Object, String)} would return them.  The list must not be
+     * retained by the translator.
+     *
+     * @param inData an <code>Object</code> value
+     * @param inHandle a <code>String</code> value containing the handle indicating the request to which
+     *   the response applies
+     * @param outEvents a <code>List&lt;Event&gt;</code> value to which to append the events
+     * @throws UnsupportedEventException if the object cannot be translated to an object
+     *   of type <code>Event</code>
+     * @throws CoreException if another error occurs
+     */
+    public void toEvents(Object inData,
+                         String inHandle,
+                         List<Event> outEvents)
+        throws CoreException;
+}
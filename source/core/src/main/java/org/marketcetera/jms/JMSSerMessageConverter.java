@@ -2,6 +2,7 @@ package org.marketcetera.jms;
 
 import java.io.Serializable;
 
+import javax.jms.BytesMessage;
 import javax.jms.ObjectMessage;
 import javax.jms.JMSException;
 import javax.jms.Message;
@@ -19,6 +20,10 @@ import org.apache.commons.lang.ObjectUtils;
 /**
  * Serializes objects using Java serialization to be able to send them over JMS.
  * This class is not meant to be used by clients of this package.
+ * <p>
+ * Single objects are sent as {@link ObjectMessage}s. An {@link ObjectBatch}
+ * is sent as a single {@link BytesMessage} and converted back to an
+ * {@link ObjectBatch} when received.
  *
  * @author anshul@marketcetera.com
  * @version $Id$
@@ -31,7 +36,8 @@ public class JMSSerMessageConverter implements MessageConverter {
      * Converts a JMS Message to an object.
      *
      * @param message the received JMS message. It should be of type
-     * {@link ObjectMessage}.
+     * {@link ObjectMessage}, or a {@link BytesMessage} containing an
+     * {@link ObjectBatch}.
      *
      * @return the object converted from the supplied JMS message.
      *
@@ -46,6 +52,18 @@ public class JMSSerMessageConverter implements MessageConverter {
         SLF4JLoggerProxy.debug(this, "Converting from JMS {}", message);  //$NON-NLS-1$
         if(message instanceof ObjectMessage) {
             return ((ObjectMessage) message).getObject();
+        } else if(message instanceof BytesMessage &&
+                message.propertyExists(BATCH_SIZE_PROPERTY)) {
+            BytesMessage bytesMessage = (BytesMessage) message;
+            byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
+            bytesMessage.readBytes(bytes);
+            try {
+                return ObjectBatch.fromBytes(bytes);
+            } catch (Exception e) {
+                throw new MessageConversionException(new I18NBoundMessage1P(
+                        Messages.UNEXPECTED_MESSAGE_RECEIVED,
+                        ObjectUtils.toString(message)).getText(), e);
+            }
         } else {
             throw new MessageConversionException(new I18NBoundMessage1P(
                     Messages.UNEXPECTED_MESSAGE_RECEIVED,
@@ -57,7 +75,7 @@ public class JMSSerMessageConverter implements MessageConverter {
      * Converts an object to a JMS Message by serializing it.
      *
      * @param inObject the object to be converted. The object should be
-     * serializable.
+     * serializable, or an {@link ObjectBatch} of serializable objects.
      * @param session the JMS Session instance.
      *
      * @return the JMS message.
@@ -70,7 +88,21 @@ public class JMSSerMessageConverter implements MessageConverter {
     public Message toMessage(Object inObject, Session session)
             throws JMSException, MessageConversionException {
         SLF4JLoggerProxy.debug(this, "Converting to JMS {}", inObject);  //$NON-NLS-1$
-        if (inObject instanceof Serializable) {
+        if (inObject instanceof ObjectBatch) {
+            ObjectBatch batch = (ObjectBatch) inObject;
+            byte[] bytes;
+            try {
+                bytes = batch.toBytes();
+            } catch (Exception e) {
+                throw new MessageConversionException(new I18NBoundMessage1P(
+                        Messages.UNEXPECTED_MESSAGE_TO_SEND,
+                        ObjectUtils.toString(inObject)).getText(), e);
+            }
+            BytesMessage message = session.createBytesMessage();
+            message.setIntProperty(BATCH_SIZE_PROPERTY, batch.size());
+            message.writeBytes(bytes);
+            return message;
+        } else if (inObject instanceof Serializable) {
             try {
                 return session.createObjectMessage((Serializable) inObject);
             } catch (RuntimeException e) {
@@ -84,4 +116,10 @@ public class JMSSerMessageConverter implements MessageConverter {
                     ObjectUtils.toString(inObject)).getText());
         }
     }
+
+    /**
+     * The JMS property that identifies a {@link BytesMessage} containing
+     * an {@link ObjectBatch}, and holds the number of objects in it.
+     */
+    static final String BATCH_SIZE_PROPERTY = "metcBatchSize";  //$NON-NLS-1$
 }
\ No newline at end of file
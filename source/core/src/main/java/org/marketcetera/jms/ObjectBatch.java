@@ -0,0 +1,149 @@
+package org.marketcetera.jms;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.marketcetera.util.misc.ClassVersion;
+
+/* $License$ */
+/**
+ * A batch of objects that are sent over JMS in a single
+ * {@link javax.jms.BytesMessage} by {@link JMSSerMessageConverter}.
+ * This class is not meant to be used by clients of this package.
+ * <p>
+ * The objects of a batch are serialized into a single object stream,
+ * so that the description of each class is written once per batch
+ * rather than once per object, and the cost of a JMS message is paid
+ * once per batch.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+public final class ObjectBatch {
+    /**
+     * Creates an instance.
+     *
+     * @param inObjects the objects in the batch. Cannot be null. The
+     * list is not copied.
+     */
+    public ObjectBatch(List<?> inObjects) {
+        if(inObjects == null) {
+            throw new NullPointerException();
+        }
+        mObjects = Collections.unmodifiableList(inObjects);
+    }
+
+    /**
+     * Returns the objects in the batch.
+     *
+     * @return the objects in the batch, in the order they were added.
+     */
+    public List<?> getObjects() {
+        return mObjects;
+    }
+
+    /**
+     * Returns the number of objects in the batch.
+     *
+     * @return the number of objects in the batch.
+     */
+    public int size() {
+        return mObjects.size();
+    }
+
+    @Override
+    public String toString() {
+        return "ObjectBatch" + mObjects;  //$NON-NLS-1$
+    }
+
+    /**
+     * Serializes the objects in the batch.
+     *
+     * @return the serialized batch.
+     *
+     * @throws IOException if there were errors serializing the objects.
+     * @throws ClassCastException if an object is not serializable.
+     */
+    byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream os = new ObjectOutputStream(bytes);
+        os.writeInt(mObjects.size());
+        for(Object o: mObjects) {
+            os.writeObject((Serializable)o);
+        }
+        os.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserializes a batch serialized by {@link #toBytes()}.
+     *
+     * @param inBytes the serialized batch.
+     *
+     * @return the batch.
+     *
+     * @throws IOException if there were errors deserializing the batch.
+     * @throws ClassNotFoundException if the class of an object in the
+     * batch cannot be found.
+     */
+    static ObjectBatch fromBytes(byte[] inBytes)
+            throws IOException, ClassNotFoundException {
+        ObjectInputStream is = new ContextObjectInputStream(
+                new ByteArrayInputStream(inBytes));
+        try {
+            int size = is.readInt();
+            List<Object> objects = new ArrayList<Object>(size);
+            for(int i = 0; i < size; i++) {
+                objects.add(is.readObject());
+            }
+            return new ObjectBatch(objects);
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * An object input stream that resolves classes using the context
+     * class loader of the current thread, like
+     * {@link javax.jms.ObjectMessage#getObject()} does, so that
+     * batches can be deserialized wherever single objects can.
+     */
+    private static class ContextObjectInputStream extends ObjectInputStream {
+        /**
+         * Creates an instance.
+         *
+         * @param inStream the underlying stream.
+         *
+         * @throws IOException if the stream header cannot be read.
+         */
+        ContextObjectInputStream(InputStream inStream) throws IOException {
+            super(inStream);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass inDesc)
+                throws IOException, ClassNotFoundException {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            if(loader != null) {
+                try {
+                    return Class.forName(inDesc.getName(), false, loader);
+                } catch (ClassNotFoundException ignore) {
+                    //fall back to the default resolution.
+                }
+            }
+            return super.resolveClass(inDesc);
+        }
+    }
+
+    private final List<?> mObjects;
+}
@@ -10,6 +10,7 @@ import org.marketcetera.core.NoMoreIDsException;
 import org.marketcetera.core.publisher.ISubscriber;
 import org.marketcetera.core.publisher.PublisherEngine;
 import org.marketcetera.event.AggregateEvent;
+import org.marketcetera.event.BatchEventTranslator;
 import org.marketcetera.event.Event;
 import org.marketcetera.event.EventTranslator;
 import org.marketcetera.marketdata.MarketDataFeedToken.Status;
@@ -109,6 +110,16 @@ public abstract class AbstractMarketDataFeed<T extends AbstractMarketDataFeedTok
      */
     private static final Callable<Boolean> PUBLISHING_CONDITION = ConditionsFactory.createSamplingCondition(100,
                                                                                                             "metc.metrics.marketdata.sampling.interval");  //$NON-NLS-1$
+    /**
+     * the lists used by {@link #dataReceived(String, Object)} on each thread
+     */
+    private static final ThreadLocal<EventSink> sEventSinks = new ThreadLocal<EventSink>() {
+        @Override
+        protected EventSink initialValue()
+        {
+            return new EventSink();
+        }
+    };
     /**
      * Indicates if the feed is allowed to simulate market data if the normal source is not
      * available.
@@ -515,15 +526,24 @@ public abstract class AbstractMarketDataFeed<T extends AbstractMarketDataFeedTok
                 Messages.WARNING_MARKET_DATA_FEED_DATA_IGNORED.debug(this,
                                                                      inData);
             } else {
+                // the lists used to translate the data are reused for each data received on this thread
+                EventSink sink = EventSink.acquire();
                 try {
                     E eventTranslator = getEventTranslator();
-                    List<Event> events = eventTranslator.toEvent(inData,
-                                                                 inHandle);
+                    List<Event> events = sink.getTranslatedEvents();
+                    if(eventTranslator instanceof BatchEventTranslator) {
+                        ((BatchEventTranslator)eventTranslator).toEvents(inData,
+                                                                         inHandle,
+                                                                         events);
+                    } else {
+                        events.addAll(eventTranslator.toEvent(inData,
+                                                              inHandle));
+                    }
                     // events returned may contain aggregate events, which further need to be decomposed
-                    // create a list of actual events
-                    List<Event> actualEvents = new ArrayList<Event>();
+                    List<Event> actualEvents = sink.getActualEvents();
                     // check the events returned to find aggregate events, if any
-                    for(Event event : events) {
+                    for(int i=0;i<events.size();i++) {
+                        Event event = events.get(i);
                         if(event instanceof AggregateEvent) {
                             AggregateEvent ae = (AggregateEvent)event;
                             actualEvents.addAll(ae.decompose());
@@ -533,14 +553,16 @@ public abstract class AbstractMarketDataFeed<T extends AbstractMarketDataFeedTok
                     }
                     ThreadedMetric.event("mdata-translated");  //$NON-NLS-1$
                     // now publish the complete list of events in the proper order
-                    for(Event event : actualEvents) {
-                        event.setSource(token);
-                        token.publish(event);
+                    for(int i=0;i<actualEvents.size();i++) {
+                        actualEvents.get(i).setSource(token);
                     }
+                    token.publishAll(actualEvents);
                 } catch (Exception e) {
                     Messages.WARNING_MARKET_DATA_FEED_DATA_IGNORED.warn(this,
                                                                         e,
                                                                         inData);
+                } finally {
+                    sink.release();
                 }
             }
         } finally {
@@ -1150,4 +1172,74 @@ public abstract class AbstractMarketDataFeed<T extends AbstractMarketDataFeedTok
             return true;
         }
     }
+    /**
+     * Holds the lists used to translate and decompose the data received on a single thread.
+     *
+     * <p>The lists are cleared and reused for each data received, so that translating data
+     * does not allocate new lists.
+     *
+     * @version $Id$
+     * @since 2.1.4
+     */
+    @ClassVersion("$Id$") //$NON-NLS-1$
+    private static final class EventSink
+    {
+        /**
+         * Gets the sink for the current thread, marking it in use.
+         *
+         * <p>If the sink for the current thread is already in use, which happens if data
+         * is received while the current thread is publishing data received earlier, a new
+         * sink is returned.
+         *
+         * @return an <code>EventSink</code> value
+         */
+        private static EventSink acquire()
+        {
+            EventSink sink = sEventSinks.get();
+            if(sink.inUse) {
+                sink = new EventSink();
+            }
+            sink.inUse = true;
+            return sink;
+        }
+        /**
+         * Clears the lists and marks the sink available for reuse.
+         */
+        private void release()
+        {
+            translatedEvents.clear();
+            actualEvents.clear();
+            inUse = false;
+        }
+        /**
+         * Gets the list to which to translate the data.
+         *
+         * @return a <code>List&lt;Event&gt;</code> value
+         */
+        private List<Event> getTranslatedEvents()
+        {
+            return translatedEvents;
+        }
+        /**
+         * Gets the list of translated events with aggregate events decomposed.
+         *
+         * @return a <code>List&lt;Event&gt;</code> value
+         */
+        private List<Event> getActualEvents()
+        {
+            return actualEvents;
+        }
+        /**
+         * the events translated from the data
+         */
+        private final List<Event> translatedEvents = new ArrayList<Event>();
+        /**
+         * the events to publish
+         */
+        private final List<Event> actualEvents = new ArrayList<Event>();
+        /**
+         * indicates whether the sink is being used
+         */
+        private boolean inUse;
+    }
 }
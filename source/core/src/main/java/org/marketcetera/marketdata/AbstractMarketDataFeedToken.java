@@ -1,5 +1,6 @@
 package org.marketcetera.marketdata;
 
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 import org.marketcetera.core.publisher.ISubscriber;
@@ -68,6 +69,16 @@ public abstract class AbstractMarketDataFeedToken<F extends AbstractMarketDataFe
     {
         getPublisher().publish(inData);
     }
+    /**
+     * Publishes each of the given data objects, in order, to all subscribers.
+     *
+     * @param inData a <code>List&lt;?&gt;</code> value which may be reused once this method returns
+     * @see PublisherEngine#publishAll(List)
+     */
+    public final void publishAll(List<?> inData)
+    {
+        getPublisher().publishAll(inData);
+    }
     /* (non-Javadoc)
      * @see org.marketcetera.core.publisher.IPublisher#publishAndWait(java.lang.Object)
      */
@@ -4,6 +4,7 @@ import static org.marketcetera.marketdata.Messages.BEAN_ATTRIBUTE_CHANGED;
 import static org.marketcetera.marketdata.Messages.FEED_STATUS_CHANGED;
 
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -18,6 +19,7 @@ import javax.management.NotificationListener;
 import org.marketcetera.core.CoreException;
 import org.marketcetera.core.IFeedComponentListener;
 import org.marketcetera.core.LockHelper;
+import org.marketcetera.core.publisher.IBatchSubscriber;
 import org.marketcetera.core.publisher.ISubscriber;
 import org.marketcetera.event.Event;
 import org.marketcetera.metrics.ThreadedMetric;
@@ -144,7 +146,7 @@ public abstract class AbstractMarketDataModule<T extends MarketDataFeedToken,
                                                       requestPayload);
         }
         try {
-            ISubscriber subscriber = new ISubscriber() {
+            ISubscriber subscriber = new IBatchSubscriber() {
                 @Override
                 public boolean isInteresting(Object inData)
                 {
@@ -168,6 +170,31 @@ public abstract class AbstractMarketDataModule<T extends MarketDataFeedToken,
                     ThreadedMetric.event("mdata-OUT");  //$NON-NLS-1$
                     inSupport.send(inEvent);
                 }
+                @Override
+                public void publishAllTo(final List<?> inEvents)
+                {
+                    // translate the sources of the whole batch under a single acquisition of the lock
+                    requestLock.executeRead(new Runnable() {
+                        @Override
+                        public void run()
+                        {
+                            for(int i=0;i<inEvents.size();i++) {
+                                Object data = inEvents.get(i);
+                                if(data instanceof Event) {
+                                    Event event = (Event)data;
+                                    event.setSource(requests.get(event.getSource()));
+                                }
+                            }
+                        }
+                    });
+                    for(int i=0;i<inEvents.size();i++) {
+                        Object data = inEvents.get(i);
+                        if(data instanceof Event) {
+                            ThreadedMetric.event("mdata-OUT");  //$NON-NLS-1$
+                            inSupport.send(data);
+                        }
+                    }
+                }
             };
             MarketDataFeedTokenSpec spec = MarketDataFeedTokenSpec.generateTokenSpec(request,
                                                                                      subscriber);
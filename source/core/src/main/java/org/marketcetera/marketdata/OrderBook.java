@@ -1,15 +1,16 @@
 package org.marketcetera.marketdata;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
-import java.util.Deque;
-import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
 
 import org.apache.commons.lang.SystemUtils;
 import org.marketcetera.event.AskEvent;
@@ -43,6 +44,10 @@ import org.marketcetera.util.misc.ClassVersion;
  * The <code>Action</code> attribute dictates whether the event is inserted
  * into the book, or changes or deletes an existing order.
  * 
+ * <p>Each side of the book is kept in price-time priority and indexed by
+ * event, so adding, changing, or deleting an order is <em>O(log n)</em>
+ * and the top of the book is available in constant time.
+ * 
  * @author <a href="mailto:colin@marketcetera.com">Colin DuPlantis</a>
  * @version $Id$
  * @since 0.6.0
@@ -109,10 +114,8 @@ public class OrderBook
      */
     public final TopOfBookEvent getTopOfBook()
     {
-        List<BidEvent> bidBook = getBidBook();
-        List<AskEvent> askBook = getAskBook();
-        return TopOfBookEventBuilder.topOfBookEvent().withBid(bidBook.isEmpty() ? null : bidBook.get(0))
-                                                     .withAsk(askBook.isEmpty() ? null : askBook.get(0))
+        return TopOfBookEventBuilder.topOfBookEvent().withBid(getBestBid())
+                                                     .withAsk(getBestAsk())
                                                      .withInstrument(getInstrument())
                                                      .withTimestamp(new Date()).create();
     }
@@ -134,7 +137,7 @@ public class OrderBook
      */
     public final List<BidEvent> getBidBook()
     {
-        return mBidBook.getSortedView(BookPriceComparator.bidComparator);
+        return mBidBook.getSortedView();
     }
     /**
      * Gets the current state of the <code>Ask</code> book.
@@ -143,7 +146,57 @@ public class OrderBook
      */
     public final List<AskEvent> getAskBook()
     {
-        return mAskBook.getSortedView(BookPriceComparator.askComparator);
+        return mAskBook.getSortedView();
+    }
+    /**
+     * Gets the best bid on the book.
+     *
+     * @return a <code>BidEvent</code> value or null if the bid side of the book is empty
+     */
+    public final BidEvent getBestBid()
+    {
+        return mBidBook.getBest();
+    }
+    /**
+     * Gets the best ask on the book.
+     *
+     * @return an <code>AskEvent</code> value or null if the ask side of the book is empty
+     */
+    public final AskEvent getBestAsk()
+    {
+        return mAskBook.getBest();
+    }
+    /**
+     * Copies the best bids on the book, in order, to the given collection.
+     * 
+     * <p>Unlike {@link #getBidBook()}, this method does not allocate, so it is suitable
+     * for generating incremental updates into a reused collection.
+     *
+     * @param inDestination a <code>Collection&lt;? super BidEvent&gt;</code> value to which to add the bids
+     * @param inMaxDepth an <code>int</code> value indicating the maximum number of bids to copy or {@link #UNLIMITED_DEPTH}
+     * @return an <code>int</code> value containing the number of bids copied
+     */
+    public final int copyBidBook(Collection<? super BidEvent> inDestination,
+                                 int inMaxDepth)
+    {
+        return mBidBook.copyTo(inDestination,
+                               inMaxDepth);
+    }
+    /**
+     * Copies the best asks on the book, in order, to the given collection.
+     * 
+     * <p>Unlike {@link #getAskBook()}, this method does not allocate, so it is suitable
+     * for generating incremental updates into a reused collection.
+     *
+     * @param inDestination a <code>Collection&lt;? super AskEvent&gt;</code> value to which to add the asks
+     * @param inMaxDepth an <code>int</code> value indicating the maximum number of asks to copy or {@link #UNLIMITED_DEPTH}
+     * @return an <code>int</code> value containing the number of asks copied
+     */
+    public final int copyAskBook(Collection<? super AskEvent> inDestination,
+                                 int inMaxDepth)
+    {
+        return mAskBook.copyTo(inDestination,
+                               inMaxDepth);
     }
     /**
      * Processes the given event for the order book.
@@ -337,8 +390,10 @@ public class OrderBook
         }
         validateMaximumBookDepth(inMaxDepth);
         mInstrument = inInstrument;
-        mAskBook = new BookCollection<AskEvent>(inMaxDepth);
-        mBidBook = new BookCollection<BidEvent>(inMaxDepth);
+        mAskBook = new BookCollection<AskEvent>(inMaxDepth,
+                                                BookPriceComparator.askComparator);
+        mBidBook = new BookCollection<BidEvent>(inMaxDepth,
+                                                BookPriceComparator.bidComparator);
         mMaxDepth = inMaxDepth;
     }
     /**
@@ -419,6 +474,10 @@ public class OrderBook
     }
     /**
      * Stores the orders of one side of a book.
+     * 
+     * <p>The orders are held in a set sorted in book order, which groups them by price level, and
+     * in an index that maps each order to the stored version of it.  The index keeps orders in the
+     * order in which they were added to the book, which is used to prune the book to its maximum depth.
      *
      * @author <a href="mailto:colin@marketcetera.com">Colin DuPlantis</a>
      * @version $Id$
@@ -428,59 +487,89 @@ public class OrderBook
     private static class BookCollection<E extends QuoteEvent>
     {
         /**
-         * the set of events that make of the book
+         * the events that make up the book sorted in book order
          */
-        private final Set<E> mBook;
+        private final NavigableSet<E> mBook;
         /**
-         * if a max book depth is set, this collection tracks the order events were added to the book - note that this collection must not
-         * be used to retrieve values for events - use {@link #mBook} instead
+         * the events that make up the book keyed by event identity in the order they were added to the book.
+         * the value is the current version of the event which is the one stored in {@link #mBook}.
          */
-        private final Deque<E> mBookOrder;
+        private final Map<E,E> mIndex;
         /**
          * the maximum depth of the book.  if set to {@link OrderBook#UNLIMITED_DEPTH}, the book has no maximum depth. 
          */
         private final int mMaxDepth;
+        /**
+         * the best event on the book or null if the book is empty
+         */
+        private E mBest;
+        /**
+         * the sorted view of the book, created on demand, or null if the book has changed since the view was last created
+         */
+        private List<E> mSortedView;
         /**
          * Create a new BookCollection instance.
          *
          * @param inMaxDepth an <code>int</code> value indicating the maximum depth of the book or {@link OrderBook#UNLIMITED_DEPTH} if the book is to have no depth limit 
+         * @param inComparator a <code>Comparator&lt;QuoteEvent&gt;</code> value which orders the events by price
          */
-        private BookCollection(int inMaxDepth)
+        private BookCollection(int inMaxDepth,
+                               final Comparator<QuoteEvent> inComparator)
         {
             mMaxDepth = inMaxDepth;
+            // the price comparator ranks events of equal price and time the same, so break ties
+            //  with the message id to allow both events on the book
+            mBook = new TreeSet<E>(new Comparator<E>() {
+                @Override
+                public int compare(E inO1,
+                                   E inO2)
+                {
+                    int result = inComparator.compare(inO1,
+                                                      inO2);
+                    if(result != 0) {
+                        return result;
+                    }
+                    long id1 = inO1.getMessageId();
+                    long id2 = inO2.getMessageId();
+                    return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+                }
+            });
             if(inMaxDepth == UNLIMITED_DEPTH) {
-                mBook = new HashSet<E>();
-                mBookOrder = null;
+                mIndex = new LinkedHashMap<E,E>();
             } else {
                 // an order book will generally fill to its max depth, so pre-allocate the memory, if a max depth is set
-                mBook = new HashSet<E>(mMaxDepth);
-                mBookOrder = new LinkedList<E>();
+                mIndex = new LinkedHashMap<E,E>(mMaxDepth * 2);
             }
         }
         /**
          * Adds the given event to the book.
+         * 
+         * <p>If the event is already present in the order book, this method does nothing.
          *
          * @param inEvent an <code>E</code> value to add to the book
          * @return an <code>E</code> value if the incoming event displaced an existing event because the book is already at its maximum depth or null if no event was displaced
          */
         private synchronized E add(E inEvent)
         {
+            if(mIndex.containsKey(inEvent)) {
+                return null;
+            }
             // holds the value to return, if any
             E oldestEvent = null;
-            // if we are tracking depth, extra work needs to be done
-            if(mMaxDepth != UNLIMITED_DEPTH) {
-                // add the new event to the front of the deque tracking event age
-                mBookOrder.addFirst(inEvent);
-                // check to see if the max depth will be exceeded
-                if(mBook.size() >= mMaxDepth) {
-                    // remove the event on the back of the deque (oldest event)
-                    oldestEvent = mBookOrder.removeLast();
-                    // remove the same event from the actual book
-                    mBook.remove(oldestEvent);
-                }
+            // check to see if the max depth will be exceeded
+            if(mMaxDepth != UNLIMITED_DEPTH &&
+               mIndex.size() >= mMaxDepth) {
+                // remove the oldest event, which is the first in the index
+                Iterator<E> oldest = mIndex.values().iterator();
+                oldestEvent = oldest.next();
+                oldest.remove();
+                mBook.remove(oldestEvent);
             }
             // add the new event to the book
+            mIndex.put(inEvent,
+                       inEvent);
             mBook.add(inEvent);
+            bookChanged();
             // return the displaced event, if any
             return oldestEvent;
         }
@@ -494,9 +583,14 @@ public class OrderBook
          */
         private synchronized void change(E inEvent)
         {
-            if(mBook.contains(inEvent)) {
-                mBook.remove(inEvent);
+            E existingEvent = mIndex.get(inEvent);
+            if(existingEvent != null) {
+                // replacing the value of an existing key leaves its position in the index unchanged
+                mIndex.put(inEvent,
+                           inEvent);
+                mBook.remove(existingEvent);
                 mBook.add(inEvent);
+                bookChanged();
             }
         }
         /**
@@ -508,35 +602,63 @@ public class OrderBook
          */
         private synchronized void remove(E inEvent)
         {
-            // remove the event from the book.  this operation is O(1).
-            mBook.remove(inEvent);
-            // if the book has a maximum depth, 
-            if(mMaxDepth != UNLIMITED_DEPTH) {
-                // this operation is O(n) which is clearly not ideal, but you'd get the same behavior in a LinkedHashMap which is what this class essentially
-                //  emulates.  further, if an order book has a depth set, by definition this suggests a maximum value of n which is small enough that this
-                //  operation is not likely to be overly punitive.  so there.
-                mBookOrder.remove(inEvent);
+            // the stored version of the event determines where it is in the book
+            E existingEvent = mIndex.remove(inEvent);
+            if(existingEvent != null) {
+                mBook.remove(existingEvent);
+                bookChanged();
             }
         }
         /**
-         * Returns a view of the book sorted by the given comparator.
+         * Gets the best event on the book.
          *
-         * @param inComparator a <code>Comparator&lt;BidAskEvent&gt;</code> value to sort the list
-         * @return a <code>List&lt;E&gt;</code> value
+         * @return an <code>E</code> value or null if the book is empty
          */
-        private synchronized List<E> getSortedView(Comparator<QuoteEvent> inComparator)
+        private synchronized E getBest()
         {
-            List<E> events = new ArrayList<E>();
+            return mBest;
+        }
+        /**
+         * Adds the best events on the book, in book order, to the given collection.
+         *
+         * @param inDestination a <code>Collection&lt;? super E&gt;</code> value
+         * @param inMaxDepth an <code>int</code> value indicating the maximum number of events to add or {@link OrderBook#UNLIMITED_DEPTH}
+         * @return an <code>int</code> value containing the number of events added
+         */
+        private synchronized int copyTo(Collection<? super E> inDestination,
+                                        int inMaxDepth)
+        {
+            int count = 0;
             for(E event : mBook) {
-                events.add(event);
+                if(count == inMaxDepth) {
+                    break;
+                }
+                inDestination.add(event);
+                count += 1;
             }
-            // before you ask, the reason why the book has to be re-sorted in a list with a special comparator as opposed to
-            //  using a TreeSet with the comparator baked in to store the book in the first place, is that the book needs
-            //  to use the messageId on the event as the key in order to support CRUD properly.  the results of the book, though
-            //  are displayed sorted in a user-sensible order.
-            Collections.sort(events,
-                             inComparator);
-            return Collections.unmodifiableList(events);
+            return count;
+        }
+        /**
+         * Returns a view of the book sorted in book order.
+         * 
+         * <p>The view is shared by callers until the book changes.
+         *
+         * @return a <code>List&lt;E&gt;</code> value
+         */
+        private synchronized List<E> getSortedView()
+        {
+            if(mSortedView == null) {
+                mSortedView = Collections.unmodifiableList(new ArrayList<E>(mBook));
+            }
+            return mSortedView;
+        }
+        /**
+         * Updates the cached state of the book after the book has changed.
+         */
+        private void bookChanged()
+        {
+            mBest = mBook.isEmpty() ? null : mBook.first();
+            mSortedView = null;
         }
     }
     /**
@@ -5,6 +5,11 @@ import static org.marketcetera.marketdata.Messages.*;
 import java.math.BigDecimal;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -27,6 +32,7 @@ import org.marketcetera.options.ExpirationType;
 import org.marketcetera.trade.*;
 import org.marketcetera.util.log.SLF4JLoggerProxy;
 import org.marketcetera.util.misc.ClassVersion;
+import org.marketcetera.util.misc.NamedThreadFactory;
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
@@ -59,6 +65,15 @@ import com.google.common.collect.Multimaps;
  * {@link SimulatedExchange#start(List)} with a null or empty list.  In random mode, the exchange will
  * continue to simulate behavior in a modified Monte Carlo method.  The exchange will continue simulating
  * market data until stopped. 
+ * 
+ * <p>By default, random mode generates one tick per second for all the instruments of an exchange on
+ * a timer shared by all exchanges.  To generate market data at a higher rate, set the number of
+ * {@link #setWorkerThreads(int) worker threads} and the {@link #setTickRate(int) tick rate} before
+ * starting the exchange.  The instruments of the exchange are then sharded across its worker threads,
+ * and each instrument ticks at its own rate on the worker thread that owns it.
+ * 
+ * <p>In scripted mode, the events are executed as fast as possible unless
+ * {@link #setScriptedPlayback(ScriptedPlayback) wall-clock playback} is requested.
  *
  * @author <a href="mailto:colin@marketcetera.com">Colin DuPlantis</a>
  * @version $Id$
@@ -447,6 +462,21 @@ public class SimulatedExchange
         } else {
             STARTING_RANDOM_EXCHANGE.info(SimulatedExchange.class,
                                           getName());
+            if(workerThreads > 0) {
+                // the shards must exist before the status changes so that books created from now on
+                //  are scheduled on them
+                Shard[] newShards = new Shard[workerThreads];
+                for(int i=0;i<newShards.length;i++) {
+                    newShards[i] = new Shard(i);
+                }
+                shards = newShards;
+                setStatus(Status.RANDOM);
+                // schedule the books created before the exchange started
+                for(PrivateInstrumentInfo book : books.values()) {
+                    startTicking(book);
+                }
+                return;
+            }
             setStatus(Status.RANDOM);
             // set up a job to run a tick every second until stopped
             ticker = executor.scheduleAtFixedRate(new Runnable()
@@ -486,6 +516,13 @@ public class SimulatedExchange
                 ticker.cancel(true);
                 executor.purge();
             }
+            Shard[] currentShards = shards;
+            shards = null;
+            if(currentShards != null) {
+                for(Shard shard : currentShards) {
+                    shard.stop();
+                }
+            }
             books.clear();
         } finally {
             setStatus(Status.STOPPED);
@@ -519,6 +556,134 @@ public class SimulatedExchange
     {
         return maxDepth;
     }
+    /**
+     * Sets the number of worker threads which generate market data in {@link Status#RANDOM} mode.
+     * 
+     * <p>If the value is zero, the default, the exchange generates one tick per second for all
+     * its instruments on the timer shared by all exchanges.  Otherwise, the instruments of the exchange
+     * are sharded across the given number of worker threads, and each instrument ticks at its
+     * {@link #getTickRate(Instrument) tick rate}.  Only the worker thread that owns an instrument updates
+     * its book, so book updates require no locks.
+     *
+     * @param inWorkerThreads an <code>int</code> value
+     * @throws IllegalArgumentException if the given value is negative
+     * @throws IllegalStateException if the exchange is running
+     */
+    public synchronized void setWorkerThreads(int inWorkerThreads)
+    {
+        if(inWorkerThreads < 0) {
+            throw new IllegalArgumentException();
+        }
+        if(getStatus().isRunning()) {
+            throw new IllegalStateException();
+        }
+        workerThreads = inWorkerThreads;
+    }
+    /**
+     * Get the workerThreads value.
+     *
+     * @return an <code>int</code> value
+     */
+    public int getWorkerThreads()
+    {
+        return workerThreads;
+    }
+    /**
+     * Sets the number of ticks per second generated for each instrument without a specific tick rate.
+     * 
+     * <p>The tick rate is observed only if the exchange has {@link #setWorkerThreads(int) worker threads}.
+     *
+     * @param inTicksPerSecond an <code>int</code> value
+     * @throws IllegalArgumentException if the given value is not positive
+     * @throws IllegalStateException if the exchange is running
+     */
+    public synchronized void setTickRate(int inTicksPerSecond)
+    {
+        if(inTicksPerSecond <= 0) {
+            throw new IllegalArgumentException();
+        }
+        if(getStatus().isRunning()) {
+            throw new IllegalStateException();
+        }
+        tickRate = inTicksPerSecond;
+    }
+    /**
+     * Sets the number of ticks per second generated for the given instrument.
+     * 
+     * <p>The tick rate is observed only if the exchange has {@link #setWorkerThreads(int) worker threads}.
+     *
+     * @param inInstrument an <code>Instrument</code> value
+     * @param inTicksPerSecond an <code>int</code> value
+     * @throws IllegalArgumentException if the given value is not positive
+     * @throws IllegalStateException if the exchange is running
+     */
+    public synchronized void setTickRate(Instrument inInstrument,
+                                         int inTicksPerSecond)
+    {
+        if(inInstrument == null) {
+            throw new NullPointerException();
+        }
+        if(inTicksPerSecond <= 0) {
+            throw new IllegalArgumentException();
+        }
+        if(getStatus().isRunning()) {
+            throw new IllegalStateException();
+        }
+        tickRates.put(inInstrument,
+                      inTicksPerSecond);
+    }
+    /**
+     * Gets the number of ticks per second generated for the given instrument.
+     *
+     * @param inInstrument an <code>Instrument</code> value
+     * @return an <code>int</code> value
+     */
+    public int getTickRate(Instrument inInstrument)
+    {
+        Integer rate = tickRates.get(inInstrument);
+        return rate == null ? tickRate : rate;
+    }
+    /**
+     * Sets the speed at which scripted events are executed.
+     *
+     * @param inScriptedPlayback a <code>ScriptedPlayback</code> value
+     * @throws IllegalStateException if the exchange is running
+     */
+    public synchronized void setScriptedPlayback(ScriptedPlayback inScriptedPlayback)
+    {
+        if(inScriptedPlayback == null) {
+            throw new NullPointerException();
+        }
+        if(getStatus().isRunning()) {
+            throw new IllegalStateException();
+        }
+        scriptedPlayback = inScriptedPlayback;
+    }
+    /**
+     * Get the scriptedPlayback value.
+     *
+     * @return a <code>ScriptedPlayback</code> value
+     */
+    public ScriptedPlayback getScriptedPlayback()
+    {
+        return scriptedPlayback;
+    }
+    /**
+     * Gets the number of book ticks executed in {@link Status#RANDOM} mode.
+     *
+     * @return a <code>long</code> value
+     */
+    public long getTickCount()
+    {
+        long count = tickCounter.get();
+        Shard[] currentShards = shards;
+        if(currentShards != null) {
+            for(Shard shard : currentShards) {
+                count += shard.getTicks();
+            }
+        }
+        return count;
+    }
     /**
      * Executes an asynchronous request with the given parameters. 
      *
@@ -718,9 +883,9 @@ public class SimulatedExchange
      *
      * @param inInstrumentProvider a <code>HasInstrument</code> value
      */
-    private synchronized void updatePrivateInfo(HasInstrument inInstrumentProvider)
+    private void updatePrivateInfo(HasInstrument inInstrumentProvider)
     {
-        // this method is synchronized because of the put-if-absent performed on books
+        // books are added with put-if-absent so that concurrent callers create one book per instrument
         Instrument primaryInstrument = inInstrumentProvider.getInstrument();
         // the instrument might be null if we're dealing with underlying-only
         if(primaryInstrument != null) {
@@ -731,12 +896,9 @@ public class SimulatedExchange
                                        this,
                                        inInstrumentProvider.getInstrument());
                 book = new PrivateInstrumentInfo(inInstrumentProvider.getInstrument());
-                books.put(inInstrumentProvider.getInstrument(),
-                          book);
-                if(getStatus().isRunning() &&
-                   getStatus() == Status.RANDOM) {
-                    // set some initial data in the book
-                    doRandomBookTick(book);
+                if(books.putIfAbsent(inInstrumentProvider.getInstrument(),
+                                     book) == null) {
+                    startTicking(book);
                 }
             }
         }
@@ -748,12 +910,9 @@ public class SimulatedExchange
                 PrivateInstrumentInfo underlyingBook = books.get(underlyingInstrument);
                 if(underlyingBook == null) {
                     underlyingBook = new PrivateInstrumentInfo(underlyingInstrument);
-                    books.put(underlyingInstrument,
-                              underlyingBook);
-                    if(getStatus().isRunning() &&
-                       getStatus() == Status.RANDOM) {
-                        // set some initial data in the book
-                        doRandomBookTick(underlyingBook);
+                    if(books.putIfAbsent(underlyingInstrument,
+                                         underlyingBook) == null) {
+                        startTicking(underlyingBook);
                     }
                 }
                 // there may be entries in the option chain for the underlying that do
@@ -786,6 +945,29 @@ public class SimulatedExchange
             }
         }
     }
+    /**
+     * Starts generating market data for the given new book if the exchange is in
+     * {@link Status#RANDOM} mode.
+     * 
+     * <p>Without worker threads, the book is given some initial data, and the shared timer
+     * ticks it from then on.  With worker threads, the book is scheduled on the shard that owns
+     * its instrument.
+     *
+     * @param inBook a <code>PrivateInstrumentInfo</code> value
+     */
+    private void startTicking(PrivateInstrumentInfo inBook)
+    {
+        if(getStatus() != Status.RANDOM) {
+            return;
+        }
+        Shard[] currentShards = shards;
+        if(currentShards == null) {
+            // set some initial data in the book
+            doRandomBookTick(inBook);
+        } else if(inBook.markScheduled()) {
+            currentShards[(inBook.getInstrument().hashCode() & Integer.MAX_VALUE) % currentShards.length].add(inBook);
+        }
+    }
     /**
      * Executes all the ticks of the exchange script in <code>SCRIPTED</code> mode.
      * 
@@ -793,7 +975,29 @@ public class SimulatedExchange
      */
     private void doScriptedTicks(List<QuoteEvent> inScriptedEvents)
     {
+        boolean wallClock = getScriptedPlayback() == ScriptedPlayback.WALL_CLOCK;
+        long playbackStart = System.currentTimeMillis();
+        Date firstTimestamp = null;
         for(QuoteEvent event : inScriptedEvents) {
+            if(wallClock &&
+               event.getTimestamp() != null) {
+                // execute the event as long after the start of playback as it occurred after the first event
+                if(firstTimestamp == null) {
+                    firstTimestamp = event.getTimestamp();
+                }
+                long delay = (event.getTimestamp().getTime() - firstTimestamp.getTime()) - (System.currentTimeMillis() - playbackStart);
+                if(delay > 0) {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        SLF4JLoggerProxy.debug(SimulatedExchange.class,
+                                               "{} interrupted during scripted playback", //$NON-NLS-1$
+                                               this);
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
             try {
                 // verify the event is for this exchange
                 if(!getCode().equals(event.getExchange())) {
@@ -861,6 +1065,7 @@ public class SimulatedExchange
             try {
                 for(PrivateInstrumentInfo book : books.values()) {
                     doRandomBookTick(book);
+                    tickCounter.incrementAndGet();
                 }
             } finally {
                 // indicate that we're ready for the next tick
@@ -935,9 +1140,9 @@ public class SimulatedExchange
      *
      * @param inInstrumentProvider a <code>HasInstrument</code> value
      */
-    private static synchronized void updateSharedInfo(HasInstrument inInstrumentProvider)
+    private static void updateSharedInfo(HasInstrument inInstrumentProvider)
     {
-        // this method is synchronized because of the put-if-absent performed on sharedInstruments
+        // shared info is added with put-if-absent so that concurrent callers create one info per instrument
         // figure out what information we have
         Instrument instrument = inInstrumentProvider.getInstrument();
         Instrument underlyingInstrument = null;
@@ -955,8 +1160,8 @@ public class SimulatedExchange
                 // this instrument is new, update the shared info (underlyingInstrument may be null, that's OK)
                 info = new SharedInstrumentInfo(instrument,
                                                 underlyingInstrument);
-                sharedInstruments.put(instrument,
-                                      info);
+                sharedInstruments.putIfAbsent(instrument,
+                                              info);
             }
             // sharedInstruments is updated and info is non-null
         }
@@ -975,8 +1180,11 @@ public class SimulatedExchange
                 // the info for the underlying instrument doesn't exist yet - create it
                 underlyingInfo = new SharedInstrumentInfo(underlyingInstrument,
                                                           null);
-                sharedInstruments.put(underlyingInstrument,
-                                      underlyingInfo);
+                SharedInstrumentInfo existingInfo = sharedInstruments.putIfAbsent(underlyingInstrument,
+                                                                                  underlyingInfo);
+                if(existingInfo != null) {
+                    underlyingInfo = existingInfo;
+                }
                 SLF4JLoggerProxy.debug(SimulatedExchange.class,
                                        "Created new underlying info {}", //$NON-NLS-1$
                                        underlyingInfo);
@@ -1132,6 +1340,18 @@ public class SimulatedExchange
                                    inBook.getBook());
         }
     }
+    /**
+     * Gets the random generator of the calling thread.
+     * 
+     * <p>Each thread has its own generator so that the worker threads of high-rate exchanges
+     * do not contend for one.
+     *
+     * @return a <code>Random</code> value
+     */
+    private static Random random()
+    {
+        return random.get();
+    }
     /**
      * Generates a random decimal value in the interval (-(inUpperBound-1).99,+(inUpperBound-1).99).
      *
@@ -1140,7 +1360,7 @@ public class SimulatedExchange
      */
     private static BigDecimal randomDecimalDifference(int inUpperBound)
     {
-        if(random.nextBoolean()) {
+        if(random().nextBoolean()) {
             // higher
             return BigDecimal.ZERO.add(randomDecimal(inUpperBound));
         } else {
@@ -1156,7 +1376,7 @@ public class SimulatedExchange
      */
     private static BigDecimal randomInteger(int inUpperBound)
     {
-        return new BigDecimal(random.nextInt(inUpperBound));
+        return new BigDecimal(random().nextInt(inUpperBound));
     }
     /**
      * Generates a random decimal value in the interval (0.00,(inUpperBound-1).99).
@@ -1167,8 +1387,8 @@ public class SimulatedExchange
     private static BigDecimal randomDecimal(int inUpperBound)
     {
         return new BigDecimal(String.format("%s.%s", //$NON-NLS-1$
-                                            random.nextInt(inUpperBound),
-                                            random.nextInt(100)));
+                                            random().nextInt(inUpperBound),
+                                            random().nextInt(100)));
     }
     // immutable state of this exchange
     /**
@@ -1190,7 +1410,7 @@ public class SimulatedExchange
     /**
      * the order books for the instruments managed by this exchange
      */
-    private final Map<Instrument,PrivateInstrumentInfo> books = new ConcurrentHashMap<Instrument,PrivateInstrumentInfo>();
+    private final ConcurrentMap<Instrument,PrivateInstrumentInfo> books = new ConcurrentHashMap<Instrument,PrivateInstrumentInfo>();
     /**
      * counter used to identify ticks in {@link Status#RANDOM} mode 
      */
@@ -1212,6 +1432,30 @@ public class SimulatedExchange
      * stores the handle for the task submitted to the scheduler to run updates on this exchange
      */
     private volatile ScheduledFuture<?> ticker = null;
+    /**
+     * the number of worker threads which generate market data in {@link Status#RANDOM} mode, zero to use the shared timer
+     */
+    private volatile int workerThreads = 0;
+    /**
+     * the number of ticks per second generated for instruments without a specific tick rate
+     */
+    private volatile int tickRate = 1;
+    /**
+     * the number of ticks per second generated for specific instruments
+     */
+    private final Map<Instrument,Integer> tickRates = new ConcurrentHashMap<Instrument,Integer>();
+    /**
+     * the speed at which scripted events are executed
+     */
+    private volatile ScriptedPlayback scriptedPlayback = ScriptedPlayback.AS_FAST_AS_POSSIBLE;
+    /**
+     * the worker threads of this exchange while it is running in {@link Status#RANDOM} mode, or <code>null</code>
+     */
+    private volatile Shard[] shards = null;
+    /**
+     * the number of book ticks executed by the shared timer and by stopped shards
+     */
+    private final AtomicLong tickCounter = new AtomicLong(0);
     // common to all exchanges
     // immutable state of all exchanges
     /**
@@ -1227,13 +1471,19 @@ public class SimulatedExchange
      */
     private static final long DAYms = HOURms * 24l;
     /**
-     * random generator used to manipulate prices
+     * random generators used to manipulate prices, by thread
      */
-    private static final Random random = new Random(System.nanoTime());
+    private static final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue()
+        {
+            return new Random(System.nanoTime() + Thread.currentThread().getId());
+        }
+    };
     /**
      * data for instruments shared across exchanges
      */
-    private static final Map<Instrument,SharedInstrumentInfo> sharedInstruments = new ConcurrentHashMap<Instrument,SharedInstrumentInfo>();
+    private static final ConcurrentMap<Instrument,SharedInstrumentInfo> sharedInstruments = new ConcurrentHashMap<Instrument,SharedInstrumentInfo>();
     /**
      * mechanism which manages the threads that create the market data
      */
@@ -1280,6 +1530,25 @@ public class SimulatedExchange
             return this == RANDOM || this == SCRIPTED || this == COMPLETE;
         }
     }
+    /**
+     * The speed at which an exchange executes scripted events.
+     *
+     * @version $Id$
+     * @since 2.1.4
+     */
+    @ClassVersion("$Id$")
+    @ThreadSafe
+    public static enum ScriptedPlayback
+    {
+        /**
+         * events are executed one after the other without delay
+         */
+        AS_FAST_AS_POSSIBLE,
+        /**
+         * events are executed at the intervals given by their timestamps
+         */
+        WALL_CLOCK
+    }
     /**
      * Compares <code>Instrument</code> values in the context of their use
      * as underlying instruments and option chain instruments.
@@ -1409,7 +1678,7 @@ public class SimulatedExchange
          */
         private void adjustPrice()
         {
-            if(random.nextBoolean()) {
+            if(random().nextBoolean()) {
                 value = value.add(PENNY);
             } else {
                 if(!value.equals(PENNY)) {
@@ -1523,6 +1792,105 @@ public class SimulatedExchange
          * the most recent trade of the instrument
          */
         private volatile TradeEvent latestTrade;
+        /**
+         * indicates if the book has been scheduled on a shard
+         */
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        /**
+         * Marks the book as scheduled on a shard.
+         *
+         * @return a <code>boolean</code> value indicating if the book was not already scheduled
+         */
+        private boolean markScheduled()
+        {
+            return scheduled.compareAndSet(false,
+                                           true);
+        }
+    }
+    /**
+     * A worker thread which generates market data for a subset of the instruments of a high-rate exchange.
+     * 
+     * <p>Each book is ticked only by the shard that owns its instrument, one tick at a time.
+     *
+     * @version $Id$
+     * @since 2.1.4
+     */
+    @ThreadSafe
+    @ClassVersion("$Id$")
+    private class Shard
+    {
+        /**
+         * Create a new Shard instance.
+         *
+         * @param inIndex an <code>int</code> value identifying the shard within the exchange
+         */
+        private Shard(int inIndex)
+        {
+            shardExecutor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(String.format("%s-Shard%d-", //$NON-NLS-1$
+                                                                                                            getName(),
+                                                                                                            inIndex)));
+        }
+        /**
+         * Starts ticking the given book at the tick rate of its instrument.
+         *
+         * @param inBook a <code>PrivateInstrumentInfo</code> value
+         */
+        private void add(final PrivateInstrumentInfo inBook)
+        {
+            long period = TimeUnit.SECONDS.toNanos(1) / getTickRate(inBook.getInstrument());
+            try {
+                shardExecutor.scheduleAtFixedRate(new Runnable() {
+                    @Override
+                    public void run()
+                    {
+                        try {
+                            doRandomBookTick(inBook);
+                            // only this thread writes the count
+                            ticks++;
+                        } catch (Exception e) {
+                            SIMULATED_EXCHANGE_TICK_ERROR.warn(SimulatedExchange.class,
+                                                               e,
+                                                               getName());
+                        }
+                    }
+                },
+                                                  0,
+                                                  Math.max(1,
+                                                           period),
+                                                  TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // the exchange stopped after the book was created
+                SLF4JLoggerProxy.debug(SimulatedExchange.class,
+                                       "{} not ticking {}, the exchange stopped", //$NON-NLS-1$
+                                       SimulatedExchange.this,
+                                       inBook);
+            }
+        }
+        /**
+         * Stops ticking the books of this shard.
+         */
+        private void stop()
+        {
+            shardExecutor.shutdownNow();
+            tickCounter.addAndGet(ticks);
+        }
+        /**
+         * Gets the number of ticks executed by this shard.
+         *
+         * @return a <code>long</code> value
+         */
+        private long getTicks()
+        {
+            return ticks;
+        }
+        /**
+         * the thread on which the books of this shard are ticked
+         */
+        private final ScheduledExecutorService shardExecutor;
+        /**
+         * the number of ticks executed by this shard
+         */
+        private volatile long ticks;
     }
     /**
      * Holds information common to all exchanges for a given <code>Instrument</code>.
@@ -1563,7 +1931,7 @@ public class SimulatedExchange
             List<DividendEvent> tempDividends = new ArrayList<DividendEvent>();
             if(inInstrument instanceof Equity) {
                 // decide what, if any, dividends should be issued
-                if(random.nextBoolean()) {
+                if(random().nextBoolean()) {
                     // as luck would have it, there be dividends
                     // there is always a current (most recent) dividend
                     long timestamp = System.currentTimeMillis();
@@ -1619,6 +1987,8 @@ public class SimulatedExchange
         }
         /**
          * Gets the current option chain for this instrument.
+         * 
+         * <p>The returned set may be iterated while instruments are added to the option chain.
          *
          * @return a <code>SortedSet&lt;Instrument&gt;</code> value (may be empty)
          */
@@ -1677,9 +2047,9 @@ public class SimulatedExchange
          */
         private volatile BigDecimal mostRecentValue;
         /**
-         * option chain of this instrument (may be empty)
+         * option chain of this instrument (may be empty), iterated while shards add to it
          */
-        private final SortedSet<Instrument> optionChain = Collections.synchronizedSortedSet(new TreeSet<Instrument>(InstrumentComparator.INSTANCE));
+        private final SortedSet<Instrument> optionChain = new ConcurrentSkipListSet<Instrument>(InstrumentComparator.INSTANCE);
         /**
          * contains the dividends, if any, issued for this instrument
          */
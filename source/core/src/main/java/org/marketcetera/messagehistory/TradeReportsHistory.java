@@ -1,13 +1,20 @@
 package org.marketcetera.messagehistory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.marketcetera.core.instruments.UnderlyingSymbolSupport;
 import org.marketcetera.quickfix.FIXMessageFactory;
@@ -51,10 +58,6 @@ public class TradeReportsHistory {
 
     private final EventList<ReportHolder> mReadOnlyAveragePriceList;
 
-    private final FilterList<ReportHolder> mLatestExecutionReportsList;
-
-    private final FilterList<ReportHolder> mLatestMessageList;
-
     private final EventList<ReportHolder> mOpenOrderList;
 
     private final EventList<ReportHolder> mReadOnlyOpenOrderList;
@@ -65,6 +68,38 @@ public class TradeReportsHistory {
 
     private final Set<ReportID> mUniqueReportIds = new HashSet<ReportID>();
 
+    /**
+     * The reports of each group of orders, in the order they were added, by group ID.
+     */
+    private final Map<OrderID, List<ReportHolder>> mReportsByGroup = new HashMap<OrderID, List<ReportHolder>>();
+
+    /**
+     * The latest report of each group of orders, by group ID.
+     */
+    private final Map<OrderID, ReportHolder> mLatestReports = new HashMap<OrderID, ReportHolder>();
+
+    /**
+     * The latest execution report of each group of orders, by group ID.
+     */
+    private final Map<OrderID, ReportHolder> mLatestExecutionReports = new HashMap<OrderID, ReportHolder>();
+
+    /**
+     * The report representing each open group of orders, by group ID. This mirrors
+     * {@link #getOpenOrdersList()}.
+     */
+    private final Map<OrderID, ReportHolder> mOpenOrders = new LinkedHashMap<OrderID, ReportHolder>();
+
+    /**
+     * The IDs of the groups of orders for each instrument.
+     */
+    private final Map<Instrument, Set<OrderID>> mGroupsByInstrument = new HashMap<Instrument, Set<OrderID>>();
+
+    private final LatestReportFunction mLatestReportFunction = new LatestReportFunction();
+
+    private final LatestExecutionReportFunction mLatestExecutionReportFunction = new LatestExecutionReportFunction();
+
+    private final OpenOrderListFunction mOpenOrderFunction = new OpenOrderListFunction();
+
     private final ca.odell.glazedlists.util.concurrent.Lock mReadLock;
 
     private final ca.odell.glazedlists.util.concurrent.Lock mWriteLock;
@@ -104,12 +139,6 @@ public class TradeReportsHistory {
                 new ReportFillMatcher()));
         GroupingList<ReportHolder> orderIDList = new GroupingList<ReportHolder>(mAllMessages,
                 new ReportGroupIDComparator());
-        mLatestExecutionReportsList = new FilterList<ReportHolder>(
-                new FunctionList<List<ReportHolder>, ReportHolder>(orderIDList,
-                        new LatestExecutionReportFunction()), new NotNullReportMatcher());
-        mLatestMessageList = new FilterList<ReportHolder>(
-                new FunctionList<List<ReportHolder>, ReportHolder>(orderIDList,
-                        new LatestReportFunction()), new NotNullReportMatcher());
         mAveragePriceList = new AveragePriceReportList(messageFactory, mAllMessages);
         mReadOnlyAveragePriceList = GlazedLists.readOnlyList(mAveragePriceList);
         mOpenOrderList = new FilterList<ReportHolder>(
@@ -126,13 +155,50 @@ public class TradeReportsHistory {
      * effectively clears the lists and adds the given reports as if they were added using
      * {@link #addIncomingMessage(ReportBase)}.
      * <p>
+     * The new reports are added in bulk: their holders are built without holding the write
+     * lock, with the underlying symbols of their instruments resolved in parallel, and are then
+     * inserted into the lists at once, which fires a single list event.
+     * <p>
      * <strong>All reports added before this method call will be lost.</strong>
      * 
      * @param reportsRetriever
      *            retrieves the new reports
-     * @throws Exception if reportsRetriever throws an exception
+     * @throws Exception if reportsRetriever throws an exception, or the underlying symbols of the
+     *             instruments of the new reports could not be resolved
      */
     public void resetMessages(Callable<ReportBase[]> reportsRetriever) throws Exception {
+        reset(reportsRetriever, false);
+    }
+
+    /**
+     * Resets the history to a new set of reports retrieved one page at a time using the provided
+     * Callable. The Callable is called repeatedly until it returns null, each call returning the
+     * next page of reports. This method otherwise behaves like {@link #resetMessages(Callable)}.
+     * <p>
+     * Each page is added in bulk as soon as it is retrieved, firing one list event per page, so the
+     * whole history never has to be held in a single array.
+     * <p>
+     * <strong>All reports added before this method call will be lost.</strong>
+     * 
+     * @param pageRetriever
+     *            retrieves the next page of new reports, or null if there are no more pages
+     * @throws Exception if pageRetriever throws an exception, or the underlying symbols of the
+     *             instruments of the new reports could not be resolved
+     */
+    public void resetMessagesByPage(Callable<ReportBase[]> pageRetriever) throws Exception {
+        reset(pageRetriever, true);
+    }
+
+    /**
+     * Resets the history to a new set of reports.
+     * 
+     * @param inRetriever retrieves the new reports
+     * @param inPaged true if inRetriever is called until it returns null, false if it is called
+     *            once
+     * @throws Exception if inRetriever throws an exception, or the underlying symbols of the
+     *             instruments of the new reports could not be resolved
+     */
+    private void reset(Callable<ReportBase[]> inRetriever, boolean inPaged) throws Exception {
         // queue new incoming messages
         synchronized (mQueuedReports) {
             mQueueMessages = true;
@@ -146,16 +212,23 @@ public class TradeReportsHistory {
                 mUniqueReportIds.clear();
                 mOriginalOrderACKs.clear();
                 mOrderIDToGroupMap.clear();
+                mReportsByGroup.clear();
+                mLatestReports.clear();
+                mLatestExecutionReports.clear();
+                mOpenOrders.clear();
+                mGroupsByInstrument.clear();
             } finally {
                 mWriteLock.unlock();
             }
             // retrieve new reports and add them
-            ReportBase[] reports = new ReportBase[0];
-            reports = reportsRetriever.call();
-            for (ReportBase report : reports) {
-                // this call gets the write lock
-                internalAddIncomingMessage(report);
-            }
+            ReportBase[] reports;
+            do {
+                reports = inRetriever.call();
+                if (reports != null) {
+                    // this call gets the write lock
+                    internalAddIncomingMessages(reports);
+                }
+            } while (inPaged && reports != null);
         } finally {
             // flush the queue
             synchronized (mQueuedReports) {
@@ -217,7 +290,7 @@ public class TradeReportsHistory {
                                         Thread.currentThread().getName(), diff);
                 }
             }
-            updateOrderIDMappings(inReport);
+            updateOrderIDMappings(mOrderIDToGroupMap, inReport);
             OrderID groupID = getGroupID(inReport);
             String underlying = null;
             if (inReport instanceof ExecutionReport) {
@@ -225,29 +298,206 @@ public class TradeReportsHistory {
                 underlying = mUnderlyingSymbolSupport.getUnderlying(instrument);
             }
             ReportHolder messageHolder = new ReportHolder(inReport, underlying, groupID);
-    
-            // The first message that comes in with a specific order id gets stored in a map.  This
-            // map is used by #getFirstReport(String) to facilitate CancelReplace
-            if (inReport instanceof ExecutionReport
-                    && inReport.getOrderID() != null) {
-                OrderID id = inReport.getOrderID();
-                OrderStatus status = inReport.getOrderStatus();
-                if (Originator.Server == ((ExecutionReport) inReport)
-                        .getOriginator()
-                        && (status == OrderStatus.PendingNew || status == OrderStatus.PendingReplace)) {
-                   if (!mOriginalOrderACKs.containsKey(id)) {
-                        mOriginalOrderACKs.put(id, messageHolder);
+            index(messageHolder);
+            mAllMessages.add(messageHolder);
+            updateOpenOrder(groupID);
+        } finally {
+            mWriteLock.unlock();
+        }
+    }
+
+    /**
+     * Adds the given reports to the base list at once. Duplicates are ignored.
+     * <p>
+     * The holders of the reports are built before the write lock is acquired. This is only safe
+     * while a reset is in progress, since no other reports may be added meanwhile. The reports may
+     * belong to the same groups as, or duplicate, reports of earlier pages of the reset.
+     * 
+     * @param inReports the reports
+     * @throws Exception if the underlying symbols of the instruments of the reports could not be
+     *             resolved
+     */
+    private void internalAddIncomingMessages(ReportBase[] inReports) throws Exception {
+        Map<Instrument, String> underlyings = getUnderlyings(inReports);
+        Set<ReportID> uniqueReportIds = new HashSet<ReportID>();
+        Map<OrderID, OrderID> orderIDToGroupMap = new HashMap<OrderID, OrderID>();
+        List<ReportHolder> holders = new ArrayList<ReportHolder>(inReports.length);
+        for (ReportBase report : inReports) {
+            // check for duplicates
+            ReportID uniqueID = report.getReportID();
+            if (uniqueID == null) {
+                SLF4JLoggerProxy.debug(this, "Recieved report without report id: {}", report); //$NON-NLS-1$
+            } else if (mUniqueReportIds.contains(uniqueID) || !uniqueReportIds.add(uniqueID)) {
+                SLF4JLoggerProxy.debug(this, "Skipping duplicate report: {}", report); //$NON-NLS-1$
+                continue;
+            }
+            // the report may belong to a group of an earlier page
+            inheritGroupID(orderIDToGroupMap, report.getOrderID());
+            inheritGroupID(orderIDToGroupMap, report.getOriginalOrderID());
+            updateOrderIDMappings(orderIDToGroupMap, report);
+            String underlying = null;
+            if (report instanceof ExecutionReport) {
+                underlying = underlyings.get(((ExecutionReport) report).getInstrument());
+            }
+            holders.add(new ReportHolder(report, underlying, getGroupID(orderIDToGroupMap,
+                    report.getOrderID())));
+        }
+        mWriteLock.lock();
+        try {
+            mUniqueReportIds.addAll(uniqueReportIds);
+            mOrderIDToGroupMap.putAll(orderIDToGroupMap);
+            Set<OrderID> groupIDs = new LinkedHashSet<OrderID>();
+            for (ReportHolder holder : holders) {
+                index(holder);
+                groupIDs.add(holder.getGroupID());
+            }
+            mAllMessages.addAll(holders);
+            for (OrderID groupID : groupIDs) {
+                updateOpenOrder(groupID);
+            }
+        } finally {
+            mWriteLock.unlock();
+        }
+    }
+
+    /**
+     * Copies the group ID of the given order ID, if it has been recorded, to the given map, unless
+     * it already maps the order ID. Like {@link #internalAddIncomingMessages(ReportBase[])}, this
+     * method must only be called while a reset is in progress.
+     * 
+     * @param inOrderIDToGroupMap the map
+     * @param inOrderID the order ID, may be null
+     */
+    private void inheritGroupID(Map<OrderID, OrderID> inOrderIDToGroupMap, OrderID inOrderID) {
+        if (inOrderID != null && !inOrderIDToGroupMap.containsKey(inOrderID)
+                && mOrderIDToGroupMap.containsKey(inOrderID)) {
+            inOrderIDToGroupMap.put(inOrderID, mOrderIDToGroupMap.get(inOrderID));
+        }
+    }
+
+    /**
+     * Resolves the underlying symbols of the instruments of the given execution reports, each
+     * instrument once, in parallel.
+     * 
+     * @param inReports the reports
+     * @return the underlying symbols by instrument
+     * @throws Exception if an underlying symbol could not be resolved
+     */
+    private Map<Instrument, String> getUnderlyings(ReportBase[] inReports) throws Exception {
+        Set<Instrument> instruments = new HashSet<Instrument>();
+        for (ReportBase report : inReports) {
+            if (report instanceof ExecutionReport) {
+                instruments.add(((ExecutionReport) report).getInstrument());
+            }
+        }
+        Map<Instrument, String> underlyings = new HashMap<Instrument, String>();
+        int threads = Math.min(instruments.size(), Runtime.getRuntime().availableProcessors());
+        if (threads <= 1) {
+            for (Instrument instrument : instruments) {
+                underlyings.put(instrument, mUnderlyingSymbolSupport.getUnderlying(instrument));
+            }
+            return underlyings;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Map<Instrument, Future<String>> results = new HashMap<Instrument, Future<String>>();
+            for (final Instrument instrument : instruments) {
+                results.put(instrument, executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return mUnderlyingSymbolSupport.getUnderlying(instrument);
+                    }
+                }));
+            }
+            for (Map.Entry<Instrument, Future<String>> result : results.entrySet()) {
+                try {
+                    underlyings.put(result.getKey(), result.getValue().get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
                     }
+                    throw (Error) e.getCause();
                 }
             }
-    
-            mAllMessages.add(messageHolder);
         } finally {
-            mWriteLock.unlock();
+            executor.shutdownNow();
+        }
+        return underlyings;
+    }
+
+    /**
+     * Records the given report holder in the indexes. Must be called with the write lock held.
+     * 
+     * @param inHolder the report holder
+     */
+    private void index(ReportHolder inHolder) {
+        ReportBase report = inHolder.getReport();
+        // The first message that comes in with a specific order id gets stored in a map.  This
+        // map is used by #getFirstReport(String) to facilitate CancelReplace
+        if (report instanceof ExecutionReport
+                && report.getOrderID() != null) {
+            OrderID id = report.getOrderID();
+            OrderStatus status = report.getOrderStatus();
+            if (Originator.Server == ((ExecutionReport) report)
+                    .getOriginator()
+                    && (status == OrderStatus.PendingNew || status == OrderStatus.PendingReplace)) {
+               if (!mOriginalOrderACKs.containsKey(id)) {
+                    mOriginalOrderACKs.put(id, inHolder);
+                }
+            }
+        }
+        OrderID groupID = inHolder.getGroupID();
+        if (groupID == null) {
+            return;
+        }
+        List<ReportHolder> group = mReportsByGroup.get(groupID);
+        if (group == null) {
+            group = new ArrayList<ReportHolder>();
+            mReportsByGroup.put(groupID, group);
+        }
+        group.add(inHolder);
+        ReportHolder latest = mLatestReports.get(groupID);
+        if (latest == null || mLatestReportFunction.isLater(inHolder, latest)) {
+            mLatestReports.put(groupID, inHolder);
+        }
+        if (report instanceof ExecutionReport) {
+            latest = mLatestExecutionReports.get(groupID);
+            if (latest == null || mLatestExecutionReportFunction.isLater(inHolder, latest)) {
+                mLatestExecutionReports.put(groupID, inHolder);
+            }
+            Instrument instrument = ((ExecutionReport) report).getInstrument();
+            if (instrument != null) {
+                Set<OrderID> groupIDs = mGroupsByInstrument.get(instrument);
+                if (groupIDs == null) {
+                    groupIDs = new LinkedHashSet<OrderID>();
+                    mGroupsByInstrument.put(instrument, groupIDs);
+                }
+                groupIDs.add(groupID);
+            }
         }
     }
 
-    private void updateOrderIDMappings(ReportBase inReport) {
+    /**
+     * Updates the report representing the given group of orders in the open orders index. Must be
+     * called with the write lock held.
+     * 
+     * @param inGroupID the group ID, may be null
+     */
+    private void updateOpenOrder(OrderID inGroupID) {
+        List<ReportHolder> group = inGroupID == null ? null : mReportsByGroup.get(inGroupID);
+        if (group == null) {
+            return;
+        }
+        ReportHolder openOrder = mOpenOrderFunction.evaluate(group);
+        if (openOrder == null) {
+            mOpenOrders.remove(inGroupID);
+        } else {
+            mOpenOrders.put(inGroupID, openOrder);
+        }
+    }
+
+    private static void updateOrderIDMappings(Map<OrderID, OrderID> inOrderIDToGroupMap,
+            ReportBase inReport) {
         if (inReport.getOrderID() != null && inReport.getOriginalOrderID() != null)
         {
             OrderID origOrderID = inReport.getOriginalOrderID();
@@ -255,13 +505,13 @@ public class TradeReportsHistory {
             OrderID groupID;
             // first check to see if the orig is in the map, and if so, use
             // whatever it maps to as the groupID
-            if (mOrderIDToGroupMap.containsKey(origOrderID)){
-                groupID = getGroupID(origOrderID);
+            if (inOrderIDToGroupMap.containsKey(origOrderID)){
+                groupID = getGroupID(inOrderIDToGroupMap, origOrderID);
             } else {
                 // otherwise, do a mapping from clOrdId -> origOrderID
                 groupID = origOrderID;
             }
-            mOrderIDToGroupMap.put(orderID, groupID);
+            inOrderIDToGroupMap.put(orderID, groupID);
         }
     }
 
@@ -270,8 +520,12 @@ public class TradeReportsHistory {
     }
 
     private OrderID getGroupID(OrderID clOrdID) {
-        if (mOrderIDToGroupMap.containsKey(clOrdID)){
-            return mOrderIDToGroupMap.get(clOrdID);
+        return getGroupID(mOrderIDToGroupMap, clOrdID);
+    }
+
+    private static OrderID getGroupID(Map<OrderID, OrderID> inOrderIDToGroupMap, OrderID clOrdID) {
+        if (inOrderIDToGroupMap.containsKey(clOrdID)){
+            return inOrderIDToGroupMap.get(clOrdID);
         } else {
             return clOrdID;
         }
@@ -297,21 +551,15 @@ public class TradeReportsHistory {
     }
 
     public ExecutionReport getLatestExecutionReport(OrderID clOrdID) {
-        return (ExecutionReport) getReport(mLatestExecutionReportsList, clOrdID);
+        ReportHolder holder = getLatest(mLatestExecutionReports, clOrdID);
+        return holder == null ? null : (ExecutionReport) holder.getReport();
     }
     
-    private ReportBase getReport(EventList<ReportHolder> list, OrderID clOrdID) {
+    private ReportHolder getLatest(Map<OrderID, ReportHolder> inIndex, OrderID clOrdID) {
         mReadLock.lock();
         try {
             OrderID groupID = getGroupID(clOrdID);
-            if (groupID != null){
-                for (ReportHolder holder : list) {
-                    if (groupID.equals(holder.getGroupID())){
-                        return holder.getReport();
-                    }
-                }
-            }
-            return null;
+            return groupID == null ? null : inIndex.get(groupID);
         } finally {
             mReadLock.unlock();
         }
@@ -322,34 +570,50 @@ public class TradeReportsHistory {
     }
 
     public Message getLatestMessage(OrderID inOrderID) {
+        ReportHolder holder = getLatest(mLatestReports, inOrderID);
+        return holder == null ? null : holder.getMessage();
+    }
+
+    public EventList<ReportHolder> getOpenOrdersList() {
+        return mReadOnlyOpenOrderList;
+    }
+
+    public void visitOpenOrdersExecutionReports(MessageVisitor visitor)
+    {
         mReadLock.lock();
         try {
-            OrderID groupID = getGroupID(inOrderID);
-            if (groupID != null)
+            ReportHolder[] holders = mOpenOrders.values().toArray(new ReportHolder[mOpenOrders.size()]);
+            for(ReportHolder holder : holders)
             {
-                for (ReportHolder holder : mLatestMessageList)
-                {
-                    OrderID holderGroupID = holder.getGroupID();
-                    if (holderGroupID != null && groupID.equals(holderGroupID)){
-                        return holder.getMessage();
-                    }
-                }
+                visitor.visitOpenOrderExecutionReports(holder.getReport());
             }
-            return null;
         } finally {
             mReadLock.unlock();
         }
     }
 
-    public EventList<ReportHolder> getOpenOrdersList() {
-        return mReadOnlyOpenOrderList;
-    }
-
-    public void visitOpenOrdersExecutionReports(MessageVisitor visitor)
+    /**
+     * Visits the reports representing the open orders for the given instrument, as
+     * {@link #visitOpenOrdersExecutionReports(MessageVisitor)} does for all open orders.
+     *
+     * @param inInstrument the instrument.
+     * @param visitor the visitor.
+     */
+    public void visitOpenOrdersExecutionReports(Instrument inInstrument,
+            MessageVisitor visitor)
     {
         mReadLock.lock();
         try {
-            ReportHolder[] holders = mOpenOrderList.toArray(new ReportHolder[mOpenOrderList.size()]);
+            List<ReportHolder> holders = new ArrayList<ReportHolder>();
+            Set<OrderID> groupIDs = mGroupsByInstrument.get(inInstrument);
+            if (groupIDs != null) {
+                for (OrderID groupID : groupIDs) {
+                    ReportHolder holder = mOpenOrders.get(groupID);
+                    if (holder != null) {
+                        holders.add(holder);
+                    }
+                }
+            }
             for(ReportHolder holder : holders)
             {
                 visitor.visitOpenOrderExecutionReports(holder.getReport());
@@ -39,6 +39,31 @@ public abstract class Configurator {
      */
     public static final String PROPERTY_METRICS_ENABLE =
             "metc.metrics.enable";  //$NON-NLS-1$
+    /**
+     * The property name used to enable / disable aggregation of
+     * checkpoint latencies into histograms.
+     */
+    public static final String PROPERTY_METRICS_AGGREGATE =
+            "metc.metrics.aggregate";  //$NON-NLS-1$
+    /**
+     * The property name used to specify the length, in seconds, of each
+     * latency aggregation window. Defaults to 60. Windows are not rolled
+     * automatically if the value is zero or less.
+     */
+    public static final String PROPERTY_METRICS_WINDOW_SECONDS =
+            "metc.metrics.window.seconds";  //$NON-NLS-1$
+    /**
+     * The property name used to enable / disable logging the latencies
+     * aggregated during each window.
+     */
+    public static final String PROPERTY_METRICS_REPORT_LOG =
+            "metc.metrics.report.log";  //$NON-NLS-1$
+    /**
+     * The property name used to specify the file to which the latencies
+     * aggregated during each window are appended.
+     */
+    public static final String PROPERTY_METRICS_REPORT_FILE =
+            "metc.metrics.report.file";  //$NON-NLS-1$
 
     /**
      * Returns the value for the supplied property name.
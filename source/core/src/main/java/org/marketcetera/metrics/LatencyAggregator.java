@@ -0,0 +1,382 @@
+package org.marketcetera.metrics;
+
+import org.marketcetera.util.misc.ClassVersion;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/* $License$ */
+/**
+ * Aggregates the latencies between consecutive checkpoints of the
+ * iterations instrumented by {@link ThreadedMetric} into
+ * {@link LatencyHistogram histograms}, one for every pair of checkpoint
+ * identifiers.
+ * <p>
+ * Every pair has a cumulative histogram, that covers all the iterations
+ * since the aggregator was last cleared, and a histogram for each rolling
+ * window of time. Once the first latency is recorded, a daemon thread
+ * completes a window at fixed intervals and, if configured, reports the
+ * latencies for the completed window to the log and / or appends them to
+ * a CSV file.
+ * <p>
+ * Recording a latency does not allocate any memory, once the histograms
+ * for its pair of checkpoints have been created.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+final class LatencyAggregator {
+
+    /**
+     * Records the latencies between the consecutive checkpoints of the
+     * live iteration of the supplied thread info. If the iteration has
+     * intermediate checkpoints, the latency between its first and last
+     * checkpoints is recorded as well.
+     *
+     * @param inInfo the thread info.
+     */
+    void record(PerThreadInfo inInfo) {
+        int count = inInfo.getLiveCount();
+        for(int i = 1; i < count; i++) {
+            record(inInfo.getLiveIdentifier(i - 1),
+                    inInfo.getLiveIdentifier(i),
+                    inInfo.getLiveTimestamp(i) - inInfo.getLiveTimestamp(i - 1));
+        }
+        if(count > 2) {
+            record(inInfo.getLiveIdentifier(0),
+                    inInfo.getLiveIdentifier(count - 1),
+                    inInfo.getLiveTimestamp(count - 1) - inInfo.getLiveTimestamp(0));
+        }
+    }
+
+    /**
+     * Records the latency between the supplied checkpoints.
+     *
+     * @param inFrom the identifier of the earlier checkpoint.
+     * @param inTo the identifier of the later checkpoint.
+     * @param inLatency the latency in nanoseconds.
+     */
+    void record(String inFrom, String inTo, long inLatency) {
+        getStats(inFrom, inTo).record(inLatency);
+    }
+
+    /**
+     * Completes the current window for every pair of checkpoints and
+     * reports the latencies for the completed window, if configured.
+     */
+    void roll() {
+        for(Map<String,PairStats> to : mStats.values()) {
+            for(PairStats stats : to.values()) {
+                stats.roll();
+            }
+        }
+        if(mLogReport) {
+            for(Map.Entry<String,String> entry :
+                    getWindowSummary().entrySet()) {
+                Messages.LOG_LATENCY_WINDOW.info(this,
+                        entry.getKey(), entry.getValue());
+            }
+        }
+        if(mReportFile != null) {
+            try {
+                writeReport(System.currentTimeMillis());
+            } catch (IOException e) {
+                Messages.LOG_ERROR_REPORTING_LATENCIES.warn(this, e,
+                        mReportFile);
+            }
+        }
+    }
+
+    /**
+     * Returns a summary of the latencies recorded for every pair of
+     * checkpoints since the aggregator was last cleared.
+     *
+     * @return the summaries, keyed by the pair of checkpoints.
+     */
+    Map<String,String> getSummary() {
+        return summarize(false);
+    }
+
+    /**
+     * Returns a summary of the latencies recorded for every pair of
+     * checkpoints during the last completed window.
+     *
+     * @return the summaries, keyed by the pair of checkpoints.
+     */
+    Map<String,String> getWindowSummary() {
+        return summarize(true);
+    }
+
+    /**
+     * Discards all the recorded latencies.
+     */
+    void clear() {
+        mStats.clear();
+    }
+
+    /**
+     * Creates an instance.
+     *
+     * @param inWindowMillis the length of each rolling window in
+     * milliseconds.
+     * @param inLogReport true, if the latencies for each completed window
+     * should be logged.
+     * @param inReportFile the path of the file to which the latencies for
+     * each completed window should be appended, null if they should not
+     * be written to a file.
+     */
+    LatencyAggregator(long inWindowMillis, boolean inLogReport,
+                      String inReportFile) {
+        mWindowMillis = inWindowMillis;
+        mLogReport = inLogReport;
+        mReportFile = inReportFile;
+    }
+
+    /**
+     * Returns the statistics for the supplied pair of checkpoints,
+     * creating them if necessary.
+     *
+     * @param inFrom the identifier of the earlier checkpoint.
+     * @param inTo the identifier of the later checkpoint.
+     *
+     * @return the statistics for the pair.
+     */
+    private PairStats getStats(String inFrom, String inTo) {
+        ConcurrentMap<String,PairStats> to = mStats.get(inFrom);
+        if(to == null) {
+            to = new ConcurrentHashMap<String,PairStats>();
+            ConcurrentMap<String,PairStats> existing = mStats.putIfAbsent(
+                    inFrom, to);
+            if(existing != null) {
+                to = existing;
+            }
+        }
+        PairStats stats = to.get(inTo);
+        if(stats == null) {
+            stats = new PairStats();
+            PairStats existing = to.putIfAbsent(inTo, stats);
+            if(existing != null) {
+                stats = existing;
+            } else {
+                startWindows();
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Starts completing windows at fixed intervals, unless already started.
+     */
+    private void startWindows() {
+        if(mWindowMillis > 0 && mStarted.compareAndSet(false, true)) {
+            ScheduledExecutorService timer =
+                    Executors.newSingleThreadScheduledExecutor(
+                            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "MetricsLatencyWindow");  //$NON-NLS-1$
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            timer.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    roll();
+                }
+            }, mWindowMillis, mWindowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Summarizes the cumulative or last window histograms of every
+     * pair of checkpoints.
+     *
+     * @param inWindow true, if the last window should be summarized.
+     *
+     * @return the summaries, keyed by the pair of checkpoints.
+     */
+    private Map<String,String> summarize(boolean inWindow) {
+        Map<String,String> summary = new TreeMap<String,String>();
+        for(Map.Entry<String,ConcurrentMap<String,PairStats>> from :
+                mStats.entrySet()) {
+            for(Map.Entry<String,PairStats> to : from.getValue().entrySet()) {
+                LatencyHistogram histogram = inWindow
+                        ? to.getValue().getLastWindow()
+                        : to.getValue().getTotal();
+                summary.put(from.getKey() + PAIR_SEPARATOR + to.getKey(),
+                        String.format(SUMMARY_FORMAT,
+                                histogram.getCount(),
+                                toMicros(histogram.getValueAtPercentile(50)),
+                                toMicros(histogram.getValueAtPercentile(99)),
+                                toMicros(histogram.getValueAtPercentile(99.9)),
+                                toMicros(histogram.getMax())));
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Appends the latencies for the last window of every pair of
+     * checkpoints to the report file as comma separated values.
+     *
+     * @param inTimestamp the time at which the window was completed.
+     *
+     * @throws IOException if there were errors writing to the file.
+     */
+    private void writeReport(long inTimestamp) throws IOException {
+        PrintStream stream = new PrintStream(new FileOutputStream(
+                mReportFile, true));
+        try {
+            for(Map.Entry<String,ConcurrentMap<String,PairStats>> from :
+                    mStats.entrySet()) {
+                for(Map.Entry<String,PairStats> to :
+                        from.getValue().entrySet()) {
+                    LatencyHistogram histogram = to.getValue().getLastWindow();
+                    stream.print(inTimestamp);
+                    stream.print(SEPARATOR);
+                    stream.print(from.getKey());
+                    stream.print(SEPARATOR);
+                    stream.print(to.getKey());
+                    stream.print(SEPARATOR);
+                    stream.print(histogram.getCount());
+                    stream.print(SEPARATOR);
+                    stream.print(toMicros(histogram.getValueAtPercentile(50)));
+                    stream.print(SEPARATOR);
+                    stream.print(toMicros(histogram.getValueAtPercentile(99)));
+                    stream.print(SEPARATOR);
+                    stream.print(toMicros(histogram.getValueAtPercentile(99.9)));
+                    stream.print(SEPARATOR);
+                    stream.print(toMicros(histogram.getMax()));
+                    stream.println();
+                }
+            }
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Converts the supplied nanoseconds value to microseconds.
+     *
+     * @param inNanos the value in nanoseconds.
+     *
+     * @return the value in microseconds.
+     */
+    private static long toMicros(long inNanos) {
+        return TimeUnit.NANOSECONDS.toMicros(inNanos);
+    }
+
+    /**
+     * The latency statistics for a pair of checkpoints.
+     */
+    private static final class PairStats {
+        /**
+         * Records the supplied latency.
+         *
+         * @param inLatency the latency in nanoseconds.
+         */
+        void record(long inLatency) {
+            mTotal.record(inLatency);
+            mWindow.record(inLatency);
+        }
+
+        /**
+         * Completes the current window and starts a new one.
+         */
+        synchronized void roll() {
+            LatencyHistogram completed = mWindow;
+            mSpare.clear();
+            mWindow = mSpare;
+            mSpare = mLastWindow;
+            mLastWindow = completed;
+        }
+
+        /**
+         * Returns the histogram of all the latencies recorded.
+         *
+         * @return the cumulative histogram.
+         */
+        LatencyHistogram getTotal() {
+            return mTotal;
+        }
+
+        /**
+         * Returns the histogram of the latencies recorded during the
+         * last completed window.
+         *
+         * @return the last window's histogram.
+         */
+        LatencyHistogram getLastWindow() {
+            return mLastWindow;
+        }
+
+        /**
+         * The histogram of all the latencies recorded.
+         */
+        private final LatencyHistogram mTotal = new LatencyHistogram();
+        /**
+         * The histogram for the current window.
+         */
+        private volatile LatencyHistogram mWindow = new LatencyHistogram();
+        /**
+         * The histogram for the last completed window.
+         */
+        private volatile LatencyHistogram mLastWindow = new LatencyHistogram();
+        /**
+         * The histogram reused for the window after the current one. Only
+         * accessed when rolling windows.
+         */
+        private LatencyHistogram mSpare = new LatencyHistogram();
+    }
+
+    /**
+     * The separator between the checkpoint identifiers of a pair in the
+     * summary keys.
+     */
+    static final String PAIR_SEPARATOR = "->";  //$NON-NLS-1$
+    /**
+     * The format of the summary of a histogram.
+     */
+    private static final String SUMMARY_FORMAT =
+            "count=%d p50=%dus p99=%dus p99.9=%dus max=%dus";  //$NON-NLS-1$
+    /**
+     * The separator used in the report file.
+     */
+    private static final char SEPARATOR = ',';  //$NON-NLS-1$
+    /**
+     * The statistics for every pair of checkpoints, keyed by the
+     * identifier of the earlier checkpoint and then the identifier of
+     * the later checkpoint.
+     */
+    private final ConcurrentMap<String,ConcurrentMap<String,PairStats>> mStats =
+            new ConcurrentHashMap<String,ConcurrentMap<String,PairStats>>();
+    /**
+     * Whether windows are being completed at fixed intervals.
+     */
+    private final AtomicBoolean mStarted = new AtomicBoolean(false);
+    /**
+     * The length of each window in milliseconds.
+     */
+    private final long mWindowMillis;
+    /**
+     * Whether the latencies for each completed window should be logged.
+     */
+    private final boolean mLogReport;
+    /**
+     * The file to which the latencies for each completed window are
+     * appended, null if none.
+     */
+    private final String mReportFile;
+}
@@ -0,0 +1,158 @@
+package org.marketcetera.metrics;
+
+import org.marketcetera.util.misc.ClassVersion;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/* $License$ */
+/**
+ * A fixed-memory histogram of latency values.
+ * <p>
+ * Values are counted in log-linear buckets: values below
+ * {@link #SUB_BUCKET_COUNT} have a bucket of their own, and every larger
+ * power of two range is split into {@link #SUB_BUCKET_COUNT}/2 equal
+ * buckets. The percentiles reported are hence within about 3% of the
+ * recorded values, across the whole range of <code>long</code> values,
+ * while the memory used by the histogram never changes.
+ * <p>
+ * Values can be recorded concurrently from multiple threads without
+ * locking. The values reported while values are being recorded reflect
+ * most, but not necessarily all, of the values recorded so far.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+final class LatencyHistogram {
+
+    /**
+     * Records the supplied value.
+     *
+     * @param inValue the value to record. Negative values are recorded
+     * as zero.
+     */
+    public void record(long inValue) {
+        long value = Math.max(0, inValue);
+        mCounts.incrementAndGet(indexOf(value));
+        mCount.incrementAndGet();
+        long max;
+        while(value > (max = mMax.get()) && !mMax.compareAndSet(max, value)) {
+        }
+    }
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return the number of values recorded.
+     */
+    public long getCount() {
+        return mCount.get();
+    }
+
+    /**
+     * Returns the largest value recorded.
+     *
+     * @return the largest value recorded, zero if no values were recorded.
+     */
+    public long getMax() {
+        return mMax.get();
+    }
+
+    /**
+     * Returns the value at the supplied percentile of the recorded values.
+     *
+     * @param inPercentile the percentile, between 0 and 100.
+     *
+     * @return the value at the percentile, zero if no values were recorded.
+     */
+    public long getValueAtPercentile(double inPercentile) {
+        long count = getCount();
+        if(count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long)Math.ceil(inPercentile / 100 * count));
+        long seen = 0;
+        for(int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mCounts.get(i);
+            if(seen >= rank) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Clears all the recorded values.
+     */
+    public void clear() {
+        for(int i = 0; i < BUCKET_COUNT; i++) {
+            mCounts.set(i, 0);
+        }
+        mCount.set(0);
+        mMax.set(0);
+    }
+
+    /**
+     * Returns the index of the bucket that counts the supplied value.
+     *
+     * @param inValue the non-negative value.
+     *
+     * @return the bucket index.
+     */
+    static int indexOf(long inValue) {
+        if(inValue < SUB_BUCKET_COUNT) {
+            return (int)inValue;
+        }
+        //the number of low order bits that do not distinguish buckets
+        int shift = 64 - Long.numberOfLeadingZeros(inValue) - SUB_BUCKET_BITS;
+        return SUB_BUCKET_COUNT + (shift - 1) * HALF_COUNT +
+                (int)(inValue >>> shift) - HALF_COUNT;
+    }
+
+    /**
+     * Returns the largest value counted by the supplied bucket.
+     *
+     * @param inIndex the bucket index.
+     *
+     * @return the largest value counted by the bucket.
+     */
+    static long highestValueOf(int inIndex) {
+        if(inIndex < SUB_BUCKET_COUNT) {
+            return inIndex;
+        }
+        int shift = (inIndex - SUB_BUCKET_COUNT) / HALF_COUNT + 1;
+        long top = (inIndex - SUB_BUCKET_COUNT) % HALF_COUNT + HALF_COUNT;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * The number of bits that distinguish buckets.
+     */
+    private static final int SUB_BUCKET_BITS = 6;
+    /**
+     * The number of values that have a bucket each.
+     */
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /**
+     * The number of buckets for each larger power of two range.
+     */
+    private static final int HALF_COUNT = SUB_BUCKET_COUNT / 2;
+    /**
+     * The total number of buckets.
+     */
+    static final int BUCKET_COUNT = SUB_BUCKET_COUNT +
+            (63 - SUB_BUCKET_BITS) * HALF_COUNT;
+    /**
+     * The count of values in each bucket.
+     */
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKET_COUNT);
+    /**
+     * The total number of values recorded.
+     */
+    private final AtomicLong mCount = new AtomicLong();
+    /**
+     * The largest value recorded.
+     */
+    private final AtomicLong mMax = new AtomicLong();
+}
@@ -43,6 +43,10 @@ public interface Messages {
             new I18NMessage0P(LOGGER, "log_error_register_mxbean");   //$NON-NLS-1$
     static final I18NMessage0P LOG_ERROR_UNREGISTER_MXBEAN =
             new I18NMessage0P(LOGGER, "log_error_unregister_mxbean");   //$NON-NLS-1$
+    static final I18NMessage2P LOG_LATENCY_WINDOW =
+            new I18NMessage2P(LOGGER, "log_latency_window");   //$NON-NLS-1$
+    static final I18NMessage1P LOG_ERROR_REPORTING_LATENCIES =
+            new I18NMessage1P(LOGGER, "log_error_reporting_latencies");   //$NON-NLS-1$
 
 
 }
\ No newline at end of file
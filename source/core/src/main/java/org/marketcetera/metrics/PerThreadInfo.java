@@ -6,6 +6,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.Queue;
 import java.util.Iterator;
+import java.util.Arrays;
 
 /**
  * Instances of this class keep track of per thread metrics. Following metrics
@@ -14,6 +15,9 @@ import java.util.Iterator;
  * <li>Current: The metrics for the current iteration of the thread.</li>
  * <li>Saved: The metrics saved from the previous iterations of the thread.</li>
  * <li>Iterations: Total number of iterations.</li>
+ * <li>Live: The checkpoint identifiers and timestamps of the current
+ * iteration, for aggregating latencies. These are kept in arrays that are
+ * reused across iterations to avoid allocating memory.</li>
  * </ol>
  * <p>
  * The {@link ThreadedMetric} class keeps an instance of this class for
@@ -79,6 +83,65 @@ final class PerThreadInfo implements Iterable<IterationInfo> {
         mCurrent = new IterationInfo();
     }
 
+    /**
+     * Adds the supplied checkpoint to the live iteration. The checkpoint
+     * is ignored if the live iteration already has
+     * {@link #MAX_LIVE_CHECKPOINTS} checkpoints.
+     *
+     * @param inIdentifier the checkpoint identifier.
+     * @param inTimestamp the checkpoint timestamp in nanoseconds.
+     */
+    public void addLive(String inIdentifier, long inTimestamp) {
+        if (mLiveCount == mLiveIdentifiers.length) {
+            if (mLiveCount >= MAX_LIVE_CHECKPOINTS) {
+                return;
+            }
+            mLiveIdentifiers = Arrays.copyOf(mLiveIdentifiers, mLiveCount * 2);
+            mLiveTimestamps = Arrays.copyOf(mLiveTimestamps, mLiveCount * 2);
+        }
+        mLiveIdentifiers[mLiveCount] = inIdentifier;
+        mLiveTimestamps[mLiveCount] = inTimestamp;
+        mLiveCount++;
+    }
+
+    /**
+     * Clears the live iteration. Resets it for the next iteration.
+     */
+    public void clearLive() {
+        mLiveCount = 0;
+    }
+
+    /**
+     * Returns the number of checkpoints in the live iteration.
+     *
+     * @return the number of live checkpoints.
+     */
+    public int getLiveCount() {
+        return mLiveCount;
+    }
+
+    /**
+     * Returns the identifier of the live checkpoint at the supplied index.
+     *
+     * @param inIndex the checkpoint index.
+     *
+     * @return the checkpoint identifier.
+     */
+    public String getLiveIdentifier(int inIndex) {
+        return mLiveIdentifiers[inIndex];
+    }
+
+    /**
+     * Returns the timestamp of the live checkpoint at the supplied index.
+     *
+     * @param inIndex the checkpoint index.
+     *
+     * @return the checkpoint timestamp in nanoseconds.
+     */
+    public long getLiveTimestamp(int inIndex) {
+        return mLiveTimestamps[inIndex];
+    }
+
     /**
      * Increments the total/cumulative number of iterations.
      */
@@ -144,6 +207,28 @@ final class PerThreadInfo implements Iterable<IterationInfo> {
      */
 
     private IterationInfo mCurrent = new IterationInfo();
+    /**
+     * The identifiers of the live checkpoints. Need not be volatile, as
+     * the live checkpoints are always written to & read from the same
+     * thread.
+     */
+    private String[] mLiveIdentifiers = new String[INITIAL_LIVE_CHECKPOINTS];
+    /**
+     * The timestamps of the live checkpoints.
+     */
+    private long[] mLiveTimestamps = new long[INITIAL_LIVE_CHECKPOINTS];
+    /**
+     * The number of live checkpoints.
+     */
+    private int mLiveCount;
+    /**
+     * The initial capacity of the live checkpoint arrays.
+     */
+    private static final int INITIAL_LIVE_CHECKPOINTS = 16;
+    /**
+     * The maximum number of live checkpoints kept for an iteration.
+     */
+    static final int MAX_LIVE_CHECKPOINTS = 1024;
     /**
      * The iteration counter.
      */
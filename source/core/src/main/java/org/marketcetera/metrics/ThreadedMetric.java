@@ -3,6 +3,7 @@ package org.marketcetera.metrics;
 
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 import java.io.PrintStream;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
@@ -127,6 +128,26 @@ import javax.management.*;
  *   iteration that the row represents. OR they may contain extra checkpoint
  *   time deltas resulting from <code>event()</code> invocations within a loop. 
  * </p>
+ * <h4>Latency Histograms</h4>
+ * <p>
+ *   When latency aggregation is turned on, the latencies between every
+ *   pair of consecutive checkpoints of every iteration, and between the
+ *   first and the last checkpoint of iterations with intermediate
+ *   checkpoints, are recorded into fixed-memory histograms, regardless of
+ *   the condition supplied to {@link #end(Callable, Object[])}. The 50th,
+ *   99th & 99.9th percentile and maximum latencies, for all the iterations
+ *   and for the last completed window of time, are available via JMX while
+ *   the system is running. The latencies for each completed window can
+ *   also be logged and / or appended to a CSV file with the columns
+ *   <code>timestamp,from,to,count,p50,p99,p99.9,max</code>, the latencies
+ *   being in microseconds. See {@link Configurator} for the properties
+ *   that configure the aggregation.
+ * </p>
+ * <p>
+ *   Latency aggregation can be turned on independently of the
+ *   instrumentation that records every iteration for the CSV summary.
+ *   Recording the latencies of an iteration does not allocate any memory.
+ * </p>
  * <h4>Configuration & Management</h4>
  * <p>
  *   The instrumentation is disabled by default. It can be turned on via JMX
@@ -148,7 +169,7 @@ public final class ThreadedMetric {
      * @param inParams any extra information to include in the summary.
      */
     public static void begin(Object ... inParams) {
-        if (isEnabled()) {
+        if (isEnabled() || isAggregating()) {
             DEFAULT.first(inParams);
         }
     }
@@ -162,7 +183,7 @@ public final class ThreadedMetric {
      * @param inParams any extra information to include in the summary.
      */
     public static void event(String inIdentifier, Object... inParams) {
-        if (isEnabled()) {
+        if (isEnabled() || isAggregating()) {
             DEFAULT.checkpoint(inIdentifier, inParams);
         }
     }
@@ -178,7 +199,7 @@ public final class ThreadedMetric {
      */
     public static void end(Callable<Boolean> inRecordCondition,
                            Object... inParams) {
-        if (isEnabled()) {
+        if (isEnabled() || isAggregating()) {
             DEFAULT.last(inRecordCondition, inParams);
         }
     }
@@ -200,6 +221,51 @@ public final class ThreadedMetric {
     static void setEnabled(boolean inEnabled) {
         sEnabled = inEnabled;
     }
+
+    /**
+     * Returns true if latency aggregation is enabled.
+     *
+     * @return true, if latency aggregation is enabled.
+     */
+    static boolean isAggregating() {
+        return sAggregating;
+    }
+
+    /**
+     * Sets whether latency aggregation should be enabled.
+     *
+     * @param inAggregating whether latency aggregation should be enabled.
+     */
+    static void setAggregating(boolean inAggregating) {
+        sAggregating = inAggregating;
+    }
+
+    /**
+     * Returns a summary of the latencies aggregated for every pair of
+     * checkpoints since the metrics were last cleared.
+     *
+     * @return the summaries, keyed by the pair of checkpoints.
+     */
+    static Map<String,String> getLatencySummary() {
+        return DEFAULT.mAggregator.getSummary();
+    }
+
+    /**
+     * Returns a summary of the latencies aggregated for every pair of
+     * checkpoints during the last completed window.
+     *
+     * @return the summaries, keyed by the pair of checkpoints.
+     */
+    static Map<String,String> getWindowLatencySummary() {
+        return DEFAULT.mAggregator.getWindowSummary();
+    }
+
+    /**
+     * Completes the current latency aggregation window.
+     */
+    static void rollLatencyWindow() {
+        DEFAULT.mAggregator.roll();
+    }
     /**
      * Summarizes the collected metrics onto the supplied stream as a set
      * of comma separated values.
@@ -228,7 +294,9 @@ public final class ThreadedMetric {
      * @param inParams any extra information to include in the summary.
      */
     private void first(Object ...inParams) {
-        getThreadInfo().clearCurrent();
+        PerThreadInfo info = getThreadInfo();
+        info.clearCurrent();
+        info.clearLive();
         checkpoint(BEGIN_IDENTIFIER, inParams);
     }
 
@@ -241,8 +309,15 @@ public final class ThreadedMetric {
      * @param inParams any extra information to include in the summary.
      */
     private void checkpoint(String inIdentifier, Object ...inParams) {
-        getThreadInfo().addCurrent(new CheckpointInfo(inIdentifier,
-                System.nanoTime(), inParams));
+        long timestamp = System.nanoTime();
+        PerThreadInfo info = getThreadInfo();
+        if (isEnabled()) {
+            info.addCurrent(new CheckpointInfo(inIdentifier,
+                    timestamp, inParams));
+        }
+        if (isAggregating()) {
+            info.addLive(inIdentifier, timestamp);
+        }
     }
 
     /**
@@ -255,11 +330,21 @@ public final class ThreadedMetric {
      */
     private void last(Callable<Boolean> inRecordCondition, Object ...inParams) {
         PerThreadInfo info = getThreadInfo();
+        //Aggregate the latencies of every iteration.
+        if (isAggregating()) {
+            info.addLive(END_IDENTIFIER, System.nanoTime());
+            mAggregator.record(info);
+            info.clearLive();
+        }
+        if (!isEnabled()) {
+            return;
+        }
         info.addIteration();
         try {
             //Save the metrics if the condition evaluates to true.
             if (inRecordCondition.call()) {
-                checkpoint(END_IDENTIFIER, inParams);
+                info.addCurrent(new CheckpointInfo(END_IDENTIFIER,
+                        System.nanoTime(), inParams));
                 info.saveCurrent();
                 return;
             }
@@ -472,6 +557,7 @@ public final class ThreadedMetric {
         for (PerThreadInfo info : mAllInfos) {
             info.clearSaved();
         }
+        mAggregator.clear();
     }
     /**
      * Creates an instance.
@@ -484,6 +570,16 @@ public final class ThreadedMetric {
                 Configurator.getProperty(JmxUtils.METC_METRICS_JMX_ENABLE,
                         "false"));  //$NON-NLS-1$
         final MBeanServer mbServer = ManagementFactory.getPlatformMBeanServer();
+        String reportFile = Configurator.getProperty(
+                Configurator.PROPERTY_METRICS_REPORT_FILE, null);
+        mAggregator = new LatencyAggregator(
+                TimeUnit.SECONDS.toMillis(getWindowSeconds()),
+                Boolean.parseBoolean(Configurator.getProperty(
+                        Configurator.PROPERTY_METRICS_REPORT_LOG,
+                        "false")),  //$NON-NLS-1$
+                reportFile == null || reportFile.trim().isEmpty()
+                        ? null
+                        : reportFile.trim());
         //Add a shutdown hook to summarize the results.
         Runtime.getRuntime().addShutdownHook(new Thread(){
             @Override
@@ -511,6 +607,25 @@ public final class ThreadedMetric {
         }
     }
 
+    /**
+     * Returns the length of the latency aggregation window, as configured
+     * via {@link Configurator#PROPERTY_METRICS_WINDOW_SECONDS}.
+     *
+     * @return the window length in seconds.
+     */
+    private static long getWindowSeconds() {
+        String value = Configurator.getProperty(
+                Configurator.PROPERTY_METRICS_WINDOW_SECONDS,
+                String.valueOf(DEFAULT_WINDOW_SECONDS));
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            Messages.LOG_NON_NUMERIC_PROPERTY.warn(ThreadedMetric.class, e,
+                    Configurator.PROPERTY_METRICS_WINDOW_SECONDS, value,
+                    DEFAULT_WINDOW_SECONDS);
+            return DEFAULT_WINDOW_SECONDS;
+        }
+    }
 
     /**
      * Returns the data structure that holds instrumentation information
@@ -534,6 +649,10 @@ public final class ThreadedMetric {
      * The header used to identify the column containing the number of iterations.
      */
     public static final String ITERATIONS_HEADER = "ITERATIONS";  //$NON-NLS-1$
+    /**
+     * The default length of the latency aggregation window in seconds.
+     */
+    private static final long DEFAULT_WINDOW_SECONDS = 60;
 
     /**
      * The singleton instance.
@@ -553,6 +672,16 @@ public final class ThreadedMetric {
     private static volatile boolean sEnabled = Boolean.parseBoolean(
             Configurator.getProperty(Configurator.PROPERTY_METRICS_ENABLE,
                     "false"));  //$NON-NLS-1$
+    /**
+     * The variable that indicates if latency aggregation is enabled.
+     */
+    private static volatile boolean sAggregating = Boolean.parseBoolean(
+            Configurator.getProperty(Configurator.PROPERTY_METRICS_AGGREGATE,
+                    "false"));  //$NON-NLS-1$
+    /**
+     * Aggregates the latencies between checkpoints into histograms.
+     */
+    private final LatencyAggregator mAggregator;
     /**
      * A list of all per-thread data structures in existence..
      */
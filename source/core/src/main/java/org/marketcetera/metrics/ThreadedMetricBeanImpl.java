@@ -29,6 +29,26 @@ class ThreadedMetricBeanImpl implements ThreadedMetricMXBean {
         ThreadedMetric.setEnabled(inValue);
     }
 
+    @Override
+    public boolean isAggregating() {
+        return ThreadedMetric.isAggregating();
+    }
+
+    @Override
+    public void setAggregating(boolean inValue) {
+        ThreadedMetric.setAggregating(inValue);
+    }
+
+    @Override
+    public Map<String, String> getLatencies() {
+        return ThreadedMetric.getLatencySummary();
+    }
+
+    @Override
+    public Map<String, String> getWindowLatencies() {
+        return ThreadedMetric.getWindowLatencySummary();
+    }
+
     @Override
     public void clear() {
         ThreadedMetric.clear();
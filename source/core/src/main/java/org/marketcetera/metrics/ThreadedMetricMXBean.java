@@ -36,6 +36,43 @@ public interface ThreadedMetricMXBean {
      */
     public void setEnabled(boolean inValue);
 
+    /**
+     * Returns true if the aggregation of checkpoint latencies into
+     * histograms is enabled, false otherwise.
+     *
+     * @return true, if latency aggregation is enabled.
+     */
+    public boolean isAggregating();
+
+    /**
+     * Enable/Disable the aggregation of checkpoint latencies into
+     * histograms. Latency aggregation can be enabled independently of
+     * the performance instrumentation.
+     *
+     * @param inValue true, if latency aggregation should be enabled.
+     */
+    public void setAggregating(boolean inValue);
+
+    /**
+     * Returns the count, 50th, 99th & 99.9th percentile and maximum
+     * latencies, in microseconds, aggregated for every pair of checkpoints
+     * since the metrics were last cleared.
+     *
+     * @return the latency summaries keyed by the pair of checkpoints,
+     * <code>from-&gt;to</code>.
+     */
+    public Map<String,String> getLatencies();
+
+    /**
+     * Returns the count, 50th, 99th & 99.9th percentile and maximum
+     * latencies, in microseconds, aggregated for every pair of checkpoints
+     * during the last completed window.
+     *
+     * @return the latency summaries keyed by the pair of checkpoints,
+     * <code>from-&gt;to</code>.
+     */
+    public Map<String,String> getWindowLatencies();
+
     /**
      * Clears all the saved performance instrumentation data collected.
      */
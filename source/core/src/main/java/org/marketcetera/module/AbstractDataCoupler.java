@@ -135,6 +135,60 @@ abstract class AbstractDataCoupler implements DataEmitterSupport {
         return mLastEmitError;
     }
 
+    /**
+     * The number of data instances currently queued in this coupler
+     * awaiting delivery to the receiver. Couplers that deliver data
+     * within the emitter's thread always return zero.
+     *
+     * @return number of data instances awaiting delivery.
+     */
+    public int getQueueSize() {
+        return 0;
+    }
+
+    /**
+     * The maximum number of data instances that can be queued in this
+     * coupler. Couplers that deliver data within the emitter's thread
+     * always return zero.
+     *
+     * @return the capacity of the coupler's queue.
+     */
+    public int getQueueCapacity() {
+        return 0;
+    }
+
+    /**
+     * The number of data instances emitted to this coupler that were
+     * discarded without being delivered to the receiver.
+     *
+     * @return number of data instances discarded.
+     */
+    public long getDropped() {
+        return 0;
+    }
+
+    /**
+     * The mean time, in nanoseconds, that data instances spent in
+     * this coupler between being emitted and being supplied to the
+     * receiver.
+     *
+     * @return the mean delivery latency in nanoseconds.
+     */
+    public long getMeanDeliveryLatency() {
+        return 0;
+    }
+
+    /**
+     * The maximum time, in nanoseconds, that a data instance spent in
+     * this coupler between being emitted and being supplied to the
+     * receiver.
+     *
+     * @return the maximum delivery latency in nanoseconds.
+     */
+    public long getMaxDeliveryLatency() {
+        return 0;
+    }
+
     /**
      * This method is implemented by the subclasses to receive
      * the data emitted by the emitter module. The implementation
@@ -186,6 +240,26 @@ abstract class AbstractDataCoupler implements DataEmitterSupport {
         }
     }
 
+    /**
+     * Invoked before the request is initiated with the emitter. Subclasses
+     * that deliver data in a separate thread override this method to
+     * get ready to accept data, as the emitter may start emitting data
+     * from within its <code>requestData()</code> invocation.
+     */
+    protected void startDelivery() {
+        //do nothing
+    }
+
+    /**
+     * Invoked after the request has been canceled with the emitter or
+     * if the request could not be initiated. Subclasses that deliver data
+     * in a separate thread override this method to release resources
+     * that were acquired in {@link #startDelivery()}.
+     */
+    protected void stopDelivery() {
+        //do nothing
+    }
+
     /**
      * Creates new instance.
      *
@@ -217,11 +291,17 @@ abstract class AbstractDataCoupler implements DataEmitterSupport {
     final void initiateRequest(RequestID inRequestID, DataRequest inRequest)
             throws RequestDataException {
         mRequestID = inRequestID;
+        startDelivery();
+        boolean failed = true;
         sNestedFlowCall.set(Boolean.TRUE);
         try {
             ((DataEmitter)mEmitter).requestData(inRequest, this);
+            failed = false;
         } finally {
             sNestedFlowCall.set(Boolean.FALSE);
+            if(failed) {
+                stopDelivery();
+            }
         }
     }
 
@@ -242,6 +322,7 @@ abstract class AbstractDataCoupler implements DataEmitterSupport {
                     this,t, mRequestID);
         } finally {
             mRequestCanceled = true;
+            stopDelivery();
         }
     }
 
@@ -0,0 +1,381 @@
+package org.marketcetera.module;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.marketcetera.event.QuoteEvent;
+import org.marketcetera.event.TopOfBookEvent;
+import org.marketcetera.util.log.SLF4JLoggerProxy;
+import org.marketcetera.util.misc.ClassVersion;
+
+/* $License$ */
+/**
+ * A coupler that delivers data to the next module in a separate thread.
+ * The emitter module's invocation to emit data only adds the data to
+ * a bounded ring buffer, a delivery thread dedicated to this coupler
+ * drains the buffer and supplies the data to the receiving module.
+ * <p>
+ * The ring buffer is allocated once, when the coupler is created, and
+ * its capacity never changes. The {@link Policy} supplied when creating
+ * the coupler determines what happens when the emitter emits data faster
+ * than the receiver is able to consume it.
+ * <p>
+ * When the data flow is canceled, the coupler does not wait for the
+ * queued data to be delivered, any undelivered data is discarded.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")  //$NON-NLS-1$
+class AsyncCoupler extends AbstractDataCoupler implements Runnable {
+    /**
+     * The policy to apply when the ring buffer is full.
+     */
+    enum Policy {
+        /**
+         * The emitter's thread is blocked until the receiver
+         * consumes data and space becomes available in the buffer.
+         */
+        BLOCK,
+        /**
+         * The oldest undelivered data item is discarded to make room
+         * for the newly emitted one. The emitter is never blocked.
+         */
+        DROP_OLDEST,
+        /**
+         * A newly emitted {@link TopOfBookEvent} replaces any undelivered
+         * top of book event for the same instrument and exchanges, in
+         * place, such that the receiver only sees the latest top of book
+         * for an instrument. All other data, including trades and depth
+         * of book quotes, whose loss would corrupt the receiver's view,
+         * is queued. If the buffer is full, the oldest undelivered item
+         * is discarded. The emitter is never blocked.
+         */
+        CONFLATE
+    }
+
+    /**
+     * Creates an instance.
+     *
+     * @param inManager the module manager instance.
+     * @param inEmitter the emitter module instance.
+     * @param inReceiver the receiving module instance.
+     * @param inFlowID the data flow ID for this data flow.
+     * @param inPolicy the policy to apply when the buffer is full.
+     * @param inCapacity the capacity of the ring buffer.
+     */
+    AsyncCoupler(ModuleManager inManager,
+                 Module inEmitter,
+                 Module inReceiver,
+                 DataFlowID inFlowID,
+                 Policy inPolicy,
+                 int inCapacity) {
+        super(inManager, inEmitter, inReceiver, inFlowID);
+        if(inCapacity < 1) {
+            throw new IllegalArgumentException(String.valueOf(inCapacity));
+        }
+        mPolicy = inPolicy;
+        mCapacity = inCapacity;
+        mSlots = new Object[inCapacity];
+        mTimestamps = new long[inCapacity];
+        mKeys = inPolicy == Policy.CONFLATE
+                ? new Object[inCapacity]
+                : null;
+        mBatch = new Object[inCapacity];
+        mBatchTimestamps = new long[inCapacity];
+    }
+
+    @Override
+    public int getQueueSize() {
+        mLock.lock();
+        try {
+            return (int)(mTail - mHead);
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return mCapacity;
+    }
+
+    @Override
+    public long getDropped() {
+        return mDropped;
+    }
+
+    @Override
+    public long getMeanDeliveryLatency() {
+        long delivered = mDelivered;
+        return delivered == 0
+                ? 0
+                : mTotalLatency / delivered;
+    }
+
+    @Override
+    public long getMaxDeliveryLatency() {
+        return mMaxLatency;
+    }
+
+    @Override
+    protected void process(Object inData) {
+        long now = System.nanoTime();
+        Object key = mKeys == null
+                ? null
+                : getConflationKey(inData);
+        mLock.lock();
+        try {
+            if(mStopped) {
+                return;
+            }
+            if(key != null) {
+                Long seq = mConflated.get(key);
+                if(seq != null) {
+                    //replace the undelivered item in place, retaining
+                    //its timestamp so that latency reflects the wait
+                    //of the oldest conflated item.
+                    mSlots[index(seq)] = inData;
+                    mDropped++;
+                    return;
+                }
+            }
+            while(mTail - mHead == mCapacity) {
+                if(mPolicy == Policy.BLOCK) {
+                    mNotFull.await();
+                    if(mStopped) {
+                        return;
+                    }
+                } else {
+                    discardHead();
+                }
+            }
+            int idx = index(mTail);
+            mSlots[idx] = inData;
+            mTimestamps[idx] = now;
+            if(key != null) {
+                mKeys[idx] = key;
+                mConflated.put(key, mTail);
+            }
+            mTail++;
+            mNotEmpty.signal();
+        } catch (InterruptedException e) {
+            mDropped++;
+            SLF4JLoggerProxy.debug(this, e,
+                    "Interrupted when emitting data into flow {}, discarding {}",  //$NON-NLS-1$
+                    getFlowID(), inData);
+            Thread.currentThread().interrupt();
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    @Override
+    public void run() {
+        while(true) {
+            int count;
+            mLock.lock();
+            try {
+                while(mHead == mTail) {
+                    if(mStopped) {
+                        return;
+                    }
+                    mNotEmpty.await();
+                }
+                if(mStopped) {
+                    return;
+                }
+                count = 0;
+                while(mHead != mTail) {
+                    int idx = index(mHead);
+                    mBatch[count] = mSlots[idx];
+                    mBatchTimestamps[count] = mTimestamps[idx];
+                    count++;
+                    release(idx, mHead);
+                    mHead++;
+                }
+                mNotFull.signalAll();
+            } catch (InterruptedException e) {
+                SLF4JLoggerProxy.debug(this, e,
+                        "Data delivery interrupted. Discarding {} undelivered items",  //$NON-NLS-1$
+                        getQueueSize());
+                return;
+            } finally {
+                mLock.unlock();
+            }
+            for(int i = 0; i < count && !mStopped; i++) {
+                Object data = mBatch[i];
+                mBatch[i] = null;
+                long latency = System.nanoTime() - mBatchTimestamps[i];
+                mTotalLatency += latency;
+                if(latency > mMaxLatency) {
+                    mMaxLatency = latency;
+                }
+                mDelivered++;
+                receive(data);
+            }
+        }
+    }
+
+    @Override
+    protected void startDelivery() {
+        mThread = new Thread(this, new StringBuilder(THREAD_NAME_PREFIX).
+                append('-').append(getFlowID()).append('-').append(  //$NON-NLS-1$
+                getReceiverURN()).toString());
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    @Override
+    protected void stopDelivery() {
+        mLock.lock();
+        try {
+            mStopped = true;
+            mNotEmpty.signalAll();
+            mNotFull.signalAll();
+        } finally {
+            mLock.unlock();
+        }
+        //Do not interrupt the delivery thread if the flow is being
+        //canceled from within the delivery thread, it will exit
+        //once the receiver returns.
+        Thread thread = mThread;
+        if(thread != null && thread != Thread.currentThread()) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Returns the key used to conflate the supplied data item. Only
+     * top of book events are conflated, they're keyed by their type,
+     * instrument and the exchanges of their bid and ask.
+     *
+     * @param inData the data item.
+     *
+     * @return the conflation key, null if the data item cannot be
+     * conflated.
+     */
+    private static Object getConflationKey(Object inData) {
+        if(!(inData instanceof TopOfBookEvent)) {
+            return null;
+        }
+        TopOfBookEvent event = (TopOfBookEvent)inData;
+        return Arrays.asList(TopOfBookEvent.class,
+                             event.getInstrument(),
+                             getExchange(event.getBid()),
+                             getExchange(event.getAsk()));
+    }
+
+    /**
+     * Returns the exchange of the supplied quote.
+     *
+     * @param inQuote the quote, may be null.
+     *
+     * @return the exchange, null if the quote is null.
+     */
+    private static String getExchange(QuoteEvent inQuote) {
+        return inQuote == null
+                ? null
+                : inQuote.getExchange();
+    }
+
+    /**
+     * Discards the oldest undelivered item in the buffer.
+     * Should be invoked with the lock held.
+     */
+    private void discardHead() {
+        release(index(mHead), mHead);
+        mHead++;
+        mDropped++;
+    }
+
+    /**
+     * Clears the buffer slot so that the data it refers to can be
+     * garbage collected. Should be invoked with the lock held.
+     *
+     * @param inIndex the slot index.
+     * @param inSequence the sequence number of the item in the slot.
+     */
+    private void release(int inIndex, long inSequence) {
+        mSlots[inIndex] = null;
+        if(mKeys != null && mKeys[inIndex] != null) {
+            Long seq = mConflated.get(mKeys[inIndex]);
+            if(seq != null && seq == inSequence) {
+                mConflated.remove(mKeys[inIndex]);
+            }
+            mKeys[inIndex] = null;
+        }
+    }
+
+    /**
+     * Returns the buffer slot index for the supplied sequence number.
+     *
+     * @param inSequence the sequence number.
+     *
+     * @return the slot index.
+     */
+    private int index(long inSequence) {
+        return (int)(inSequence % mCapacity);
+    }
+
+    /**
+     * Name prefix for the delivery threads created by this coupler.
+     */
+    static final String THREAD_NAME_PREFIX = "AsyncCoupler";  //$NON-NLS-1$
+
+    private final Policy mPolicy;
+    private final int mCapacity;
+    /**
+     * The ring buffer slots. All the buffer fields are guarded by
+     * <code>mLock</code>.
+     */
+    private final Object[] mSlots;
+    /**
+     * The {@link System#nanoTime()} at which the item in the
+     * corresponding slot was emitted.
+     */
+    private final long[] mTimestamps;
+    /**
+     * The conflation key of the item in the corresponding slot.
+     * Null, if the coupler does not conflate.
+     */
+    private final Object[] mKeys;
+    /**
+     * The sequence number of the undelivered item for each
+     * conflation key.
+     */
+    private final Map<Object,Long> mConflated = new HashMap<Object, Long>();
+    /**
+     * The sequence number of the oldest undelivered item.
+     */
+    private long mHead = 0;
+    /**
+     * The sequence number that will be assigned to the next item.
+     */
+    private long mTail = 0;
+    private final ReentrantLock mLock = new ReentrantLock();
+    private final Condition mNotEmpty = mLock.newCondition();
+    private final Condition mNotFull = mLock.newCondition();
+    /**
+     * The items drained from the buffer by the delivery thread.
+     * Only accessed by the delivery thread.
+     */
+    private final Object[] mBatch;
+    private final long[] mBatchTimestamps;
+    private volatile Thread mThread;
+    private volatile boolean mStopped = false;
+
+    /*
+     * The following statistics are only updated by a single thread,
+     * either the delivery thread or the emitter thread holding the lock,
+     * and may be read from multiple threads.
+     */
+
+    private volatile long mDropped = 0;
+    private volatile long mDelivered = 0;
+    private volatile long mTotalLatency = 0;
+    private volatile long mMaxLatency = 0;
+}
@@ -29,20 +29,59 @@ public enum DataCoupling {
     },
     /**
      * Data is communicated asynchronously, ie. the data receiver
-     * receivers the data in a separate thread from the one emitting
+     * receives the data in a separate thread from the one emitting
      * data.
-     *
-     * <b>this coupling is currently not supported, attempts to use
-     * this coupling will result in {@link UnsupportedOperationException}</b>
-
-     *
+     * <p>
+     * Emitted data is queued in a bounded buffer, whose capacity is
+     * determined by {@link ModuleManager#getAsyncCouplerCapacity()}.
+     * If the buffer is full, the emitter is blocked until the receiver
+     * consumes data from the buffer.
      */
     ASYNC {
         AbstractDataCoupler createCoupler(ModuleManager inManager,
                                           Module inEmitter,
                                           Module inReceiver,
                                           DataFlowID inFlowID) {
-            throw new UnsupportedOperationException();
+            return new AsyncCoupler(inManager, inEmitter, inReceiver,
+                    inFlowID, AsyncCoupler.Policy.BLOCK,
+                    inManager.getAsyncCouplerCapacity());
+        }
+    },
+    /**
+     * Data is communicated asynchronously, same as {@link #ASYNC},
+     * except that if the buffer is full, the oldest undelivered data
+     * is discarded to make room for the newly emitted data. The
+     * emitter is never blocked.
+     */
+    ASYNC_DROP_OLDEST {
+        AbstractDataCoupler createCoupler(ModuleManager inManager,
+                                          Module inEmitter,
+                                          Module inReceiver,
+                                          DataFlowID inFlowID) {
+            return new AsyncCoupler(inManager, inEmitter, inReceiver,
+                    inFlowID, AsyncCoupler.Policy.DROP_OLDEST,
+                    inManager.getAsyncCouplerCapacity());
+        }
+    },
+    /**
+     * Data is communicated asynchronously, same as {@link #ASYNC},
+     * except that an emitted top of book event replaces any undelivered
+     * top of book event for the same instrument and exchanges, such that
+     * the receiver only receives the latest top of book for each
+     * instrument. Other data, such as trades, is never replaced. If the
+     * buffer is full, the oldest undelivered data is discarded. The
+     * emitter is never blocked.
+     *
+     * @see org.marketcetera.event.TopOfBookEvent
+     */
+    ASYNC_CONFLATE {
+        AbstractDataCoupler createCoupler(ModuleManager inManager,
+                                          Module inEmitter,
+                                          Module inReceiver,
+                                          DataFlowID inFlowID) {
+            return new AsyncCoupler(inManager, inEmitter, inReceiver,
+                    inFlowID, AsyncCoupler.Policy.CONFLATE,
+                    inManager.getAsyncCouplerCapacity());
         }
     };
 
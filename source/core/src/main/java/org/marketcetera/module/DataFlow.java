@@ -80,7 +80,22 @@ class DataFlow {
                             : null,
                     isReceiver
                             ? mCouplers[i - 1].getLastReceiveError()
-                            : null);
+                            : null,
+                    isReceiver
+                            ? mCouplers[i - 1].getQueueSize()
+                            : 0,
+                    isReceiver
+                            ? mCouplers[i - 1].getQueueCapacity()
+                            : 0,
+                    isReceiver
+                            ? mCouplers[i - 1].getDropped()
+                            : 0,
+                    isReceiver
+                            ? mCouplers[i - 1].getMeanDeliveryLatency()
+                            : 0,
+                    isReceiver
+                            ? mCouplers[i - 1].getMaxDeliveryLatency()
+                            : 0);
         }
         return new DataFlowInfo(steps, mFlowID, mRequesterURN,
                 mStopRequesterURN, mCreated, mStopped);
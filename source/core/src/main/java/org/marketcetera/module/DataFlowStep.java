@@ -123,6 +123,101 @@ public final class DataFlowStep implements Serializable {
         return mLastEmitError;
     }
 
+    /**
+     * Returns the number of data objects that have been emitted to
+     * this module and are queued awaiting delivery. This value is
+     * valid only if {@link #isReceiver()} is true and the module
+     * receives data through an asynchronous coupling.
+     *
+     * @return the number of data objects awaiting delivery.
+     *
+     * @see DataCoupling#ASYNC
+     */
+    public int getQueueSize() {
+        return mQueueSize;
+    }
+
+    /**
+     * Returns the maximum number of data objects that can be queued
+     * awaiting delivery to this module. This value is valid only if
+     * {@link #isReceiver()} is true and the module receives data
+     * through an asynchronous coupling.
+     *
+     * @return the capacity of the queue, zero if the module does not
+     * receive data through an asynchronous coupling.
+     */
+    public int getQueueCapacity() {
+        return mQueueCapacity;
+    }
+
+    /**
+     * Returns the number of data objects emitted to this module that
+     * were discarded without being delivered to it. This value is
+     * valid only if {@link #isReceiver()} is true.
+     *
+     * @return the number of data objects discarded.
+     *
+     * @see DataCoupling#ASYNC_DROP_OLDEST
+     * @see DataCoupling#ASYNC_CONFLATE
+     */
+    public long getNumDropped() {
+        return mNumDropped;
+    }
+
+    /**
+     * Returns the mean time, in nanoseconds, data objects spent queued
+     * before being delivered to this module. This value is valid only
+     * if {@link #isReceiver()} is true.
+     *
+     * @return the mean delivery latency in nanoseconds.
+     */
+    public long getMeanDeliveryLatency() {
+        return mMeanDeliveryLatency;
+    }
+
+    /**
+     * Returns the maximum time, in nanoseconds, a data object spent
+     * queued before being delivered to this module. This value is valid
+     * only if {@link #isReceiver()} is true.
+     *
+     * @return the maximum delivery latency in nanoseconds.
+     */
+    public long getMaxDeliveryLatency() {
+        return mMaxDeliveryLatency;
+    }
+
+    /**
+     * Creates an instance for a module that does not receive data
+     * through an asynchronous coupling.
+     *
+     * @param inRequest The original data request
+     * @param inModuleURN the module instance URN
+     * @param inEmitter if this module is emitting data in this data flow
+     * @param inReceiver if this module is receiving data in this data flow
+     * @param inNumEmitted number of data objects emitted
+     * @param inNumReceived number of data objects received
+     * @param inNumEmitErrors number of errors encountered when emitting
+     * data.
+     * @param inNumReceiveErrors number of errors encountered when
+     * receiving data
+     * @param inLastEmitError last error encountered when emitting data.
+     * @param inLastReceiveError last error encountered when receiving data
+     */
+    public DataFlowStep(StringDataRequest inRequest,
+                        ModuleURN inModuleURN,
+                        boolean inEmitter,
+                        boolean inReceiver,
+                        long inNumEmitted,
+                        long inNumReceived,
+                        long inNumEmitErrors,
+                        long inNumReceiveErrors,
+                        String inLastEmitError,
+                        String inLastReceiveError) {
+        this(inRequest, inModuleURN, inEmitter, inReceiver, inNumEmitted,
+                inNumReceived, inNumEmitErrors, inNumReceiveErrors,
+                inLastEmitError, inLastReceiveError, 0, 0, 0, 0, 0);
+    }
+
     /**
      * Creates an instance.
      *
@@ -138,6 +233,13 @@ public final class DataFlowStep implements Serializable {
      * receiving data
      * @param inLastEmitError last error encountered when emitting data.
      * @param inLastReceiveError last error encountered when receiving data
+     * @param inQueueSize number of data objects awaiting delivery
+     * @param inQueueCapacity capacity of the queue of data objects awaiting
+     * delivery
+     * @param inNumDropped number of data objects discarded without being
+     * delivered
+     * @param inMeanDeliveryLatency mean delivery latency in nanoseconds
+     * @param inMaxDeliveryLatency maximum delivery latency in nanoseconds
      */
     @ConstructorProperties({
             "request",          //$NON-NLS-1$
@@ -149,7 +251,12 @@ public final class DataFlowStep implements Serializable {
             "numEmitErrors",    //$NON-NLS-1$
             "numReceiveErrors", //$NON-NLS-1$
             "lastEmitError",    //$NON-NLS-1$
-            "lastReceiveError"  //$NON-NLS-1$
+            "lastReceiveError", //$NON-NLS-1$
+            "queueSize",        //$NON-NLS-1$
+            "queueCapacity",    //$NON-NLS-1$
+            "numDropped",       //$NON-NLS-1$
+            "meanDeliveryLatency", //$NON-NLS-1$
+            "maxDeliveryLatency"   //$NON-NLS-1$
             })
     public DataFlowStep(StringDataRequest inRequest,
                         ModuleURN inModuleURN,
@@ -160,7 +267,12 @@ public final class DataFlowStep implements Serializable {
                         long inNumEmitErrors,
                         long inNumReceiveErrors,
                         String inLastEmitError,
-                        String inLastReceiveError) {
+                        String inLastReceiveError,
+                        int inQueueSize,
+                        int inQueueCapacity,
+                        long inNumDropped,
+                        long inMeanDeliveryLatency,
+                        long inMaxDeliveryLatency) {
         mRequest = inRequest;
         mModuleURN = inModuleURN;
         mEmitter = inEmitter;
@@ -171,6 +283,11 @@ public final class DataFlowStep implements Serializable {
         mNumReceiveErrors = inNumReceiveErrors;
         mLastEmitError = inLastEmitError;
         mLastReceiveError = inLastReceiveError;
+        mQueueSize = inQueueSize;
+        mQueueCapacity = inQueueCapacity;
+        mNumDropped = inNumDropped;
+        mMeanDeliveryLatency = inMeanDeliveryLatency;
+        mMaxDeliveryLatency = inMaxDeliveryLatency;
     }
 
     private final StringDataRequest mRequest;
@@ -183,5 +300,10 @@ public final class DataFlowStep implements Serializable {
     private final long mNumReceiveErrors;
     private final String mLastEmitError;
     private final String mLastReceiveError;
+    private final int mQueueSize;
+    private final int mQueueCapacity;
+    private final long mNumDropped;
+    private final long mMeanDeliveryLatency;
+    private final long mMaxDeliveryLatency;
     private static final long serialVersionUID = 2259786776527863195L;
 }
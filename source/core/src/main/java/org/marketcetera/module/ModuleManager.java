@@ -1089,6 +1089,38 @@ public final class ModuleManager {
         addToFlowHistory(null);
     }
 
+    /**
+     * The capacity of the buffer allocated for each asynchronous
+     * coupling in the data flows created subsequently.
+     * The default value is set to {@link #DEFAULT_ASYNC_COUPLER_CAPACITY}.
+     *
+     * @return the capacity of the buffer for asynchronous couplings.
+     *
+     * @see DataCoupling#ASYNC
+     */
+    int getAsyncCouplerCapacity() {
+        return mAsyncCouplerCapacity;
+    }
+
+    /**
+     * Sets the capacity of the buffer allocated for each asynchronous
+     * coupling. The new value only applies to data flows that are
+     * created after the value is set.
+     *
+     * @param inAsyncCouplerCapacity the capacity of the buffer for
+     * asynchronous couplings. Must be greater than zero.
+     *
+     * @throws IllegalArgumentException if the supplied value is not
+     * greater than zero.
+     */
+    void setAsyncCouplerCapacity(int inAsyncCouplerCapacity) {
+        if(inAsyncCouplerCapacity < 1) {
+            throw new IllegalArgumentException(
+                    String.valueOf(inAsyncCouplerCapacity));
+        }
+        mAsyncCouplerCapacity = inAsyncCouplerCapacity;
+    }
+
     /**
      * Returns the MBean server to use for all JMX operations.
      *
@@ -1989,6 +2021,11 @@ public final class ModuleManager {
      */
     public static final int DEFAULT_MAX_FLOW_HISTORY = 10;
 
+    /**
+     * The default capacity of the buffer for asynchronous couplings.
+     */
+    public static final int DEFAULT_ASYNC_COUPLER_CAPACITY = 1024;
+
     /**
      * Array of listeners that listen to data received by the data sink
      */
@@ -2048,6 +2085,7 @@ public final class ModuleManager {
      * Maximum number flow histories to keep a record of.
      */
     private volatile int mMaxFlowHistory = DEFAULT_MAX_FLOW_HISTORY;
+    private volatile int mAsyncCouplerCapacity = DEFAULT_ASYNC_COUPLER_CAPACITY;
 
     /**
      * The MBean server to use for all JMX operations.
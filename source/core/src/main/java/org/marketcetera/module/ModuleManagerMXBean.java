@@ -482,4 +482,30 @@ public interface ModuleManagerMXBean {
     void setMaxFlowHistory(
             @DisplayName("Maximum number of data flow records to retain in data flow history")
             int inMaxFlowHistory);
+
+    /**
+     * The capacity of the buffer allocated for each asynchronous
+     * coupling in a data flow.
+     *
+     * @return the capacity of the buffer for asynchronous couplings.
+     *
+     * @see ModuleManager#getAsyncCouplerCapacity()
+     */
+    @DisplayName("Capacity of the buffer for asynchronous data flow couplings")
+    int getAsyncCouplerCapacity();
+
+    /**
+     * Sets the capacity of the buffer allocated for each asynchronous
+     * coupling in a data flow. The new value only applies to data flows
+     * created after the value is set.
+     *
+     * @param inAsyncCouplerCapacity the capacity of the buffer for
+     * asynchronous couplings.
+     *
+     * @see ModuleManager#setAsyncCouplerCapacity(int)
+     */
+    @DisplayName("Capacity of the buffer for asynchronous data flow couplings")
+    void setAsyncCouplerCapacity(
+            @DisplayName("Capacity of the buffer for asynchronous data flow couplings")
+            int inAsyncCouplerCapacity);
 }
@@ -164,6 +164,16 @@ class ModuleManagerMXBeanImpl implements ModuleManagerMXBean {
         mManager.setMaxFlowHistory(inMaxFlowHistory);
     }
 
+    @Override
+    public int getAsyncCouplerCapacity() {
+        return mManager.getAsyncCouplerCapacity();
+    }
+
+    @Override
+    public void setAsyncCouplerCapacity(int inAsyncCouplerCapacity) {
+        mManager.setAsyncCouplerCapacity(inAsyncCouplerCapacity);
+    }
+
     /**
      * Creates an instance.
      *
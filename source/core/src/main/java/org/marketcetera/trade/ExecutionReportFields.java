@@ -0,0 +1,230 @@
+package org.marketcetera.trade;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.marketcetera.quickfix.FIXMessageUtil;
+import org.marketcetera.util.misc.ClassVersion;
+
+import quickfix.Message;
+
+/* $License$ */
+/**
+ * An immutable snapshot of the fields of an execution report,
+ * decoded once from its FIX message. As with {@link ReportFields},
+ * a failure to decode a field only affects that field's getter.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+class ExecutionReportFields extends ReportFields {
+    /**
+     * Creates an instance, decoding the fields of the given message.
+     * The caller must ensure the message is not concurrently modified.
+     *
+     * @param inMessage the FIX message.
+     */
+    ExecutionReportFields(Message inMessage) {
+        super(inMessage);
+        mValues = decode(inMessage, Field.values());
+    }
+
+    Date getTransactTime() {
+        return copy((Date) value(mValues, Field.TRANSACT_TIME));
+    }
+
+    ExecutionType getExecutionType() {
+        return (ExecutionType) value(mValues, Field.EXECUTION_TYPE);
+    }
+
+    String getExecutionID() {
+        return (String) value(mValues, Field.EXECUTION_ID);
+    }
+
+    Side getSide() {
+        return (Side) value(mValues, Field.SIDE);
+    }
+
+    Instrument getInstrument() {
+        return (Instrument) value(mValues, Field.INSTRUMENT);
+    }
+
+    BigDecimal getLastQuantity() {
+        return (BigDecimal) value(mValues, Field.LAST_QUANTITY);
+    }
+
+    BigDecimal getLastPrice() {
+        return (BigDecimal) value(mValues, Field.LAST_PRICE);
+    }
+
+    String getLastMarket() {
+        return (String) value(mValues, Field.LAST_MARKET);
+    }
+
+    BigDecimal getOrderQuantity() {
+        return (BigDecimal) value(mValues, Field.ORDER_QUANTITY);
+    }
+
+    BigDecimal getLeavesQuantity() {
+        return (BigDecimal) value(mValues, Field.LEAVES_QUANTITY);
+    }
+
+    BigDecimal getCumulativeQuantity() {
+        return (BigDecimal) value(mValues, Field.CUMULATIVE_QUANTITY);
+    }
+
+    BigDecimal getAveragePrice() {
+        return (BigDecimal) value(mValues, Field.AVERAGE_PRICE);
+    }
+
+    String getAccount() {
+        return (String) value(mValues, Field.ACCOUNT);
+    }
+
+    OrderType getOrderType() {
+        return (OrderType) value(mValues, Field.ORDER_TYPE);
+    }
+
+    OrderCapacity getOrderCapacity() {
+        return (OrderCapacity) value(mValues, Field.ORDER_CAPACITY);
+    }
+
+    PositionEffect getPositionEffect() {
+        return (PositionEffect) value(mValues, Field.POSITION_EFFECT);
+    }
+
+    TimeInForce getTimeInForce() {
+        return (TimeInForce) value(mValues, Field.TIME_IN_FORCE);
+    }
+
+    boolean isCancelable() {
+        return (Boolean) value(mValues, Field.CANCELABLE);
+    }
+
+    BigDecimal getPrice() {
+        return (BigDecimal) value(mValues, Field.PRICE);
+    }
+
+    /**
+     * The fields specific to execution reports.
+     */
+    private enum Field implements FieldDecoder {
+        TRANSACT_TIME {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getTransactTime(inMessage);
+            }
+        },
+        EXECUTION_TYPE {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getExecOrExecTransType(inMessage);
+            }
+        },
+        EXECUTION_ID {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getExecutionID(inMessage);
+            }
+        },
+        SIDE {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getSide(inMessage);
+            }
+        },
+        INSTRUMENT {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getInstrument(inMessage);
+            }
+        },
+        LAST_QUANTITY {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getLastQuantity(inMessage);
+            }
+        },
+        LAST_PRICE {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getLastPrice(inMessage);
+            }
+        },
+        LAST_MARKET {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getLastMarket(inMessage);
+            }
+        },
+        ORDER_QUANTITY {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getOrderQuantity(inMessage);
+            }
+        },
+        LEAVES_QUANTITY {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getLeavesQuantity(inMessage);
+            }
+        },
+        CUMULATIVE_QUANTITY {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getCumulativeQuantity(inMessage);
+            }
+        },
+        AVERAGE_PRICE {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getAveragePrice(inMessage);
+            }
+        },
+        ACCOUNT {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getAccount(inMessage);
+            }
+        },
+        ORDER_TYPE {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getOrderType(inMessage);
+            }
+        },
+        ORDER_CAPACITY {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getOrderCapacity(inMessage);
+            }
+        },
+        POSITION_EFFECT {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getPositionEffect(inMessage);
+            }
+        },
+        TIME_IN_FORCE {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getTimeInForce(inMessage);
+            }
+        },
+        CANCELABLE {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXMessageUtil.isCancellable(inMessage);
+            }
+        },
+        PRICE {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getPrice(inMessage);
+            }
+        }
+    }
+
+    private final Object[] mValues;
+}
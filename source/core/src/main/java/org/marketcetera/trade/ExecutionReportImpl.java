@@ -1,6 +1,5 @@
 package org.marketcetera.trade;
 
-import org.marketcetera.quickfix.FIXMessageUtil;
 import org.marketcetera.util.misc.ClassVersion;
 
 import java.util.Date;
@@ -24,98 +23,98 @@ import javax.xml.bind.annotation.XmlRootElement;
 public class ExecutionReportImpl extends ReportBaseImpl implements ExecutionReport {
 
     @Override
-    public synchronized Date getTransactTime() {
-        return FIXUtil.getTransactTime(getMessage());
+    public Date getTransactTime() {
+        return getExecutionReportFields().getTransactTime();
     }
 
     @Override
-    public synchronized ExecutionType getExecutionType() {
-        return FIXUtil.getExecOrExecTransType(getMessage());
+    public ExecutionType getExecutionType() {
+        return getExecutionReportFields().getExecutionType();
     }
 
     @Override
-    public synchronized String getExecutionID() {
-        return FIXUtil.getExecutionID(getMessage());
+    public String getExecutionID() {
+        return getExecutionReportFields().getExecutionID();
     }
 
     @Override
-    public synchronized Side getSide() {
-        return FIXUtil.getSide(getMessage());
+    public Side getSide() {
+        return getExecutionReportFields().getSide();
     }
 
     @Override
-    public synchronized Instrument getInstrument() {
-        return FIXUtil.getInstrument(getMessage());
+    public Instrument getInstrument() {
+        return getExecutionReportFields().getInstrument();
     }
 
     @Override
-    public synchronized BigDecimal getLastQuantity() {
-        return FIXUtil.getLastQuantity(getMessage());
+    public BigDecimal getLastQuantity() {
+        return getExecutionReportFields().getLastQuantity();
     }
 
     @Override
-    public synchronized BigDecimal getLastPrice() {
-        return FIXUtil.getLastPrice(getMessage());
+    public BigDecimal getLastPrice() {
+        return getExecutionReportFields().getLastPrice();
     }
 
     @Override
-    public synchronized String getLastMarket() {
-        return FIXUtil.getLastMarket(getMessage());
+    public String getLastMarket() {
+        return getExecutionReportFields().getLastMarket();
     }
 
     @Override
-    public synchronized BigDecimal getOrderQuantity() {
-        return FIXUtil.getOrderQuantity(getMessage());
+    public BigDecimal getOrderQuantity() {
+        return getExecutionReportFields().getOrderQuantity();
     }
 
     @Override
-    public synchronized BigDecimal getLeavesQuantity() {
-        return FIXUtil.getLeavesQuantity(getMessage());
+    public BigDecimal getLeavesQuantity() {
+        return getExecutionReportFields().getLeavesQuantity();
     }
 
     @Override
-    public synchronized BigDecimal getCumulativeQuantity() {
-        return FIXUtil.getCumulativeQuantity(getMessage());
+    public BigDecimal getCumulativeQuantity() {
+        return getExecutionReportFields().getCumulativeQuantity();
     }
 
     @Override
-    public synchronized BigDecimal getAveragePrice() {
-        return FIXUtil.getAveragePrice(getMessage());
+    public BigDecimal getAveragePrice() {
+        return getExecutionReportFields().getAveragePrice();
     }
 
     @Override
-    public synchronized String getAccount() {
-        return FIXUtil.getAccount(getMessage());
+    public String getAccount() {
+        return getExecutionReportFields().getAccount();
     }
 
     @Override
-    public synchronized OrderType getOrderType() {
-        return FIXUtil.getOrderType(getMessage());
+    public OrderType getOrderType() {
+        return getExecutionReportFields().getOrderType();
     }
 
     @Override
-    public synchronized OrderCapacity getOrderCapacity() {
-        return FIXUtil.getOrderCapacity(getMessage());
+    public OrderCapacity getOrderCapacity() {
+        return getExecutionReportFields().getOrderCapacity();
     }
 
     @Override
-    public synchronized PositionEffect getPositionEffect() {
-        return FIXUtil.getPositionEffect(getMessage());
+    public PositionEffect getPositionEffect() {
+        return getExecutionReportFields().getPositionEffect();
     }
 
     @Override
-    public synchronized TimeInForce getTimeInForce() {
-        return FIXUtil.getTimeInForce(getMessage());
+    public TimeInForce getTimeInForce() {
+        return getExecutionReportFields().getTimeInForce();
     }
 
     @Override
-    public synchronized boolean isCancelable() {
-        return FIXMessageUtil.isCancellable(getMessage());
+    public boolean isCancelable() {
+        return getExecutionReportFields().isCancelable();
     }
 
     @Override
     public BigDecimal getPrice() {
-    	return FIXUtil.getPrice(getMessage());
+        return getExecutionReportFields().getPrice();
     }
     
     @Override
@@ -154,6 +153,21 @@ public class ExecutionReportImpl extends ReportBaseImpl implements ExecutionRepo
         );
     }
 
+    @Override
+    ReportFields createDecodedFields(Message inMessage) {
+        return new ExecutionReportFields(inMessage);
+    }
+
+    /**
+     * Returns the fields of this report, decoded from its FIX message
+     * on first use.
+     *
+     * @return the decoded fields.
+     */
+    private ExecutionReportFields getExecutionReportFields() {
+        return (ExecutionReportFields) getDecodedFields();
+    }
+
     /**
      * Creates an instance.
      *
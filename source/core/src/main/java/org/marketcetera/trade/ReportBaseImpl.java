@@ -23,23 +23,23 @@ import javax.xml.bind.annotation.XmlSeeAlso;
 public class ReportBaseImpl extends FIXMessageWrapper implements ReportBase {
 
     @Override
-    public synchronized OrderID getOrderID() {
-        return FIXUtil.getOrderID(getMessage());
+    public OrderID getOrderID() {
+        return getDecodedFields().getOrderID();
     }
 
     @Override
-    public synchronized OrderID getOriginalOrderID() {
-        return FIXUtil.getOriginalOrderID(getMessage());
+    public OrderID getOriginalOrderID() {
+        return getDecodedFields().getOriginalOrderID();
     }
 
     @Override
-    public synchronized OrderStatus getOrderStatus() {
-        return FIXUtil.getOrderStatus(getMessage());
+    public OrderStatus getOrderStatus() {
+        return getDecodedFields().getOrderStatus();
     }
 
     @Override
-    public synchronized String getText() {
-        return FIXUtil.getText(getMessage());
+    public String getText() {
+        return getDecodedFields().getText();
     }
 
     @Override
@@ -48,13 +48,13 @@ public class ReportBaseImpl extends FIXMessageWrapper implements ReportBase {
     }
 
     @Override
-    public synchronized Date getSendingTime() {
-        return FIXUtil.getSendingTime(getMessage());
+    public Date getSendingTime() {
+        return getDecodedFields().getSendingTime();
     }
 
     @Override
-    public synchronized String getBrokerOrderID() {
-        return FIXUtil.getBrokerOrderID(getMessage());
+    public String getBrokerOrderID() {
+        return getDecodedFields().getBrokerOrderID();
     }
 
     @Override
@@ -90,6 +90,40 @@ public class ReportBaseImpl extends FIXMessageWrapper implements ReportBase {
         inInstance.mReportID = inReportID;
     }
 
+    /**
+     * Returns the fields of this report, decoded from its FIX message
+     * on first use. Once decoded, the fields are shared without
+     * locking; changes made to the FIX message after that are not
+     * reflected by the getters.
+     *
+     * @return the decoded fields.
+     */
+    ReportFields getDecodedFields() {
+        ReportFields fields = mDecodedFields;
+        if(fields == null) {
+            synchronized(this) {
+                fields = mDecodedFields;
+                if(fields == null) {
+                    fields = createDecodedFields(getMessage());
+                    mDecodedFields = fields;
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Decodes the fields of the given FIX message. Subclasses
+     * override this method to decode their additional fields.
+     *
+     * @param inMessage the FIX message.
+     *
+     * @return the decoded fields.
+     */
+    ReportFields createDecodedFields(Message inMessage) {
+        return new ReportFields(inMessage);
+    }
+
     /**
      * Creates an instance.
      *
@@ -129,4 +163,5 @@ public class ReportBaseImpl extends FIXMessageWrapper implements ReportBase {
     private final Originator mOriginator;
     private final UserID mActorID;
     private final UserID mViewerID;
+    private transient volatile ReportFields mDecodedFields;
 }
@@ -0,0 +1,180 @@
+package org.marketcetera.trade;
+
+import java.util.Date;
+
+import org.marketcetera.util.misc.ClassVersion;
+
+import quickfix.Message;
+
+/* $License$ */
+/**
+ * An immutable snapshot of the fields of a report, decoded once from
+ * its FIX message. Instances are safe to share between threads
+ * without synchronization.
+ * <p>
+ * Each field is decoded independently: if decoding a field fails,
+ * the failure is recorded and rethrown by that field's getter only,
+ * the other fields remain available.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+class ReportFields {
+    /**
+     * Creates an instance, decoding the fields of the given message.
+     * The caller must ensure the message is not concurrently modified.
+     *
+     * @param inMessage the FIX message.
+     */
+    ReportFields(Message inMessage) {
+        mValues = decode(inMessage, Field.values());
+    }
+
+    OrderID getOrderID() {
+        return (OrderID) value(mValues, Field.ORDER_ID);
+    }
+
+    OrderID getOriginalOrderID() {
+        return (OrderID) value(mValues, Field.ORIGINAL_ORDER_ID);
+    }
+
+    OrderStatus getOrderStatus() {
+        return (OrderStatus) value(mValues, Field.ORDER_STATUS);
+    }
+
+    String getText() {
+        return (String) value(mValues, Field.TEXT);
+    }
+
+    Date getSendingTime() {
+        return copy((Date) value(mValues, Field.SENDING_TIME));
+    }
+
+    String getBrokerOrderID() {
+        return (String) value(mValues, Field.BROKER_ORDER_ID);
+    }
+
+    /**
+     * Decodes a field from a FIX message.
+     */
+    interface FieldDecoder {
+        /**
+         * Decodes the field from the given message.
+         *
+         * @param inMessage the FIX message.
+         *
+         * @return the field value, may be null.
+         */
+        Object decode(Message inMessage);
+    }
+
+    /**
+     * Decodes the given fields of the given message. The value of a
+     * field that cannot be decoded is a {@link DecodeFailure} recording
+     * the failure.
+     *
+     * @param inMessage the FIX message.
+     * @param inFields the fields, in the order of their values.
+     *
+     * @return the field values.
+     */
+    static Object[] decode(Message inMessage,
+                           FieldDecoder[] inFields) {
+        Object[] values = new Object[inFields.length];
+        for(int i = 0; i < inFields.length; i++) {
+            try {
+                values[i] = inFields[i].decode(inMessage);
+            } catch (RuntimeException e) {
+                values[i] = new DecodeFailure(e);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the decoded value of the given field.
+     *
+     * @param inValues the decoded values.
+     * @param inField the field.
+     *
+     * @return the field value.
+     *
+     * @throws RuntimeException the failure encountered when decoding
+     * the field, if any.
+     */
+    static Object value(Object[] inValues,
+                        Enum<?> inField) {
+        Object value = inValues[inField.ordinal()];
+        if(value instanceof DecodeFailure) {
+            throw ((DecodeFailure) value).mFailure;
+        }
+        return value;
+    }
+
+    /**
+     * Returns a copy of the given date, so that callers cannot modify
+     * the snapshot.
+     *
+     * @param inDate the date. It may be null.
+     *
+     * @return the copy, null if the date is null.
+     */
+    static Date copy(Date inDate) {
+        return inDate == null ? null : new Date(inDate.getTime());
+    }
+
+    /**
+     * The failure encountered when decoding a field.
+     */
+    private static class DecodeFailure {
+        DecodeFailure(RuntimeException inFailure) {
+            mFailure = inFailure;
+        }
+        private final RuntimeException mFailure;
+    }
+
+    /**
+     * The fields common to all reports.
+     */
+    private enum Field implements FieldDecoder {
+        ORDER_ID {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getOrderID(inMessage);
+            }
+        },
+        ORIGINAL_ORDER_ID {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getOriginalOrderID(inMessage);
+            }
+        },
+        ORDER_STATUS {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getOrderStatus(inMessage);
+            }
+        },
+        TEXT {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getText(inMessage);
+            }
+        },
+        SENDING_TIME {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getSendingTime(inMessage);
+            }
+        },
+        BROKER_ORDER_ID {
+            @Override
+            public Object decode(Message inMessage) {
+                return FIXUtil.getBrokerOrderID(inMessage);
+            }
+        }
+    }
+
+    private final Object[] mValues;
+}
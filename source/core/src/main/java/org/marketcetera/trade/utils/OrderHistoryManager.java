@@ -2,9 +2,17 @@ package org.marketcetera.trade.utils;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.concurrent.GuardedBy;
-import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.Immutable;
 import javax.annotation.concurrent.ThreadSafe;
 
 import org.marketcetera.marketdata.DateUtils;
@@ -22,6 +30,15 @@ import org.nocrala.tools.texttablefmt.CellStyle.HorizontalAlign;
 
 /**
  * Manages order history for multiple orders throughout the order lifecycle.
+ * 
+ * <p>The order history may be read from any thread while reports are being added. Reads do not
+ * lock and reports for different order chains are added concurrently.
+ * 
+ * <p>By default, the history of every order is kept until it is {@link #clear(OrderID) cleared}.
+ * The manager may be created with a retention policy instead, in which case the history of an order
+ * chain is discarded once its latest report is no longer {@link org.marketcetera.trade.OrderStatus#isCancellable() cancellable}
+ * and either the retention period has elapsed or the number of such orders exceeds the given maximum.
+ * Orders are discarded oldest first as reports are added.
  *
  * @author <a href="mailto:colin@marketcetera.com">Colin DuPlantis</a>
  * @version $Id$
@@ -31,6 +48,34 @@ import org.nocrala.tools.texttablefmt.CellStyle.HorizontalAlign;
 @ClassVersion("$Id$")
 public class OrderHistoryManager
 {
+    /**
+     * Create a new OrderHistoryManager instance which retains the history of all orders.
+     */
+    public OrderHistoryManager()
+    {
+        this(0,
+             TimeUnit.MILLISECONDS,
+             0);
+    }
+    /**
+     * Create a new OrderHistoryManager instance which discards the history of closed orders.
+     *
+     * @param inTerminalOrderRetention a <code>long</code> value indicating how long to keep the history of a closed order or <code>0</code> to keep it regardless of age
+     * @param inTimeUnit a <code>TimeUnit</code> value indicating the unit of <code>inTerminalOrderRetention</code>
+     * @param inMaxTerminalOrders an <code>int</code> value indicating how many closed orders to keep or <code>0</code> to keep any number
+     * @throws IllegalArgumentException if <code>inTerminalOrderRetention</code> or <code>inMaxTerminalOrders</code> is negative
+     */
+    public OrderHistoryManager(long inTerminalOrderRetention,
+                               TimeUnit inTimeUnit,
+                               int inMaxTerminalOrders)
+    {
+        if(inTerminalOrderRetention < 0 ||
+           inMaxTerminalOrders < 0) {
+            throw new IllegalArgumentException();
+        }
+        terminalOrderRetention = inTimeUnit.toMillis(inTerminalOrderRetention);
+        maxTerminalOrders = inMaxTerminalOrders;
+    }
     /**
      * Gets the latest <code>ReportBase</code> for the given <code>OrderID</code>.
      *
@@ -48,16 +93,14 @@ public class OrderHistoryManager
         SLF4JLoggerProxy.debug(OrderHistoryManager.class,
                                "Searching order tracker for {}", //$NON-NLS-1$
                                inOrderID);
-        synchronized(orders) {
-            OrderHistory history = orders.get(inOrderID);
-            if(history != null) {
-                return history.getLatestReport();
-            }
-            SLF4JLoggerProxy.debug(OrderHistoryManager.class,
-                                   "No history for {}", //$NON-NLS-1$
-                                   inOrderID);
-            return null;
+        OrderHistory history = inOrderID == null ? null : orders.get(inOrderID);
+        if(history != null) {
+            return history.getLatestReport();
         }
+        SLF4JLoggerProxy.debug(OrderHistoryManager.class,
+                               "No history for {}", //$NON-NLS-1$
+                               inOrderID);
+        return null;
     }
     /**
      * Adds the given <code>ReportBase</code> to the order history.
@@ -72,9 +115,9 @@ public class OrderHistoryManager
                                                    inReport);
             return;
         }
-        synchronized(orders) {
-            OrderID actualOrderID = inReport.getOrderID();
-            OrderID originalOrderID = inReport.getOriginalOrderID();
+        OrderID actualOrderID = inReport.getOrderID();
+        OrderID originalOrderID = inReport.getOriginalOrderID();
+        while(true) {
             // find the order history for this report
             // first, look for a match of the actual order ID (simple, non-replace order case)
             OrderHistory history = orders.get(actualOrderID);
@@ -82,48 +125,78 @@ public class OrderHistoryManager
                 // ok, no order history for the actual order ID. this is caused by one of two things:
                 //  1/ This is the first time we've seen anything in this chain
                 //  2/ The report is a replace order and we should search using the originalOrderID
-                history = orders.get(originalOrderID);
+                if(originalOrderID != null) {
+                    history = orders.get(originalOrderID);
+                }
                 if(history == null) {
                     // now we know this is case #1 from above: create a new order history and add it
-                    history = new OrderHistory();
-                    // index the new history using the actual order ID
-                    orders.put(actualOrderID,
-                               history);
-                } else {
+                    history = getOrCreateHistory(actualOrderID);
+                }
+            }
+            // reports for the same order chain are added one at a time, reports for different chains are not
+            synchronized(history) {
+                if(history.isDiscarded()) {
+                    // the history was discarded after it was found, start over
+                    orders.remove(actualOrderID,
+                                  history);
+                    if(originalOrderID != null) {
+                        orders.remove(originalOrderID,
+                                      history);
+                    }
+                    continue;
+                }
+                if(orders.get(actualOrderID) != history) {
                     // case #2 from above: add an index reference for the new actual order ID
                     orders.put(actualOrderID,
                                history);
                 }
-            }
-            // add the report to the order history
-            history.add(inReport);
-            // check to see if the report represents an open order
-            if(inReport.getOrderStatus().isCancellable()) {
-                // if a report is cancellable, at least by our current understanding, the report has to be an ExecutionReport (not an OrderCancelReject)
-                if(inReport instanceof ExecutionReport) {
+                // add the report to the order history
+                history.add(inReport);
+                // check to see if the report represents an open order
+                if(inReport.getOrderStatus().isCancellable()) {
+                    // if a report is cancellable, at least by our current understanding, the report has to be an ExecutionReport (not an OrderCancelReject)
+                    if(inReport instanceof ExecutionReport) {
+                        SLF4JLoggerProxy.debug(OrderHistoryManager.class,
+                                               "{} represents an open order ({}), updating live order list for {}", //$NON-NLS-1$
+                                               inReport.getOrderID(),
+                                               inReport.getOrderStatus(),
+                                               history);
+                        openOrders.put(inReport.getOrderID(),
+                                       (ExecutionReport)inReport);
+                    }
+                    if(history.getTerminalTime() != 0) {
+                        // the order was closed and has been reopened
+                        history.setTerminalTime(0);
+                        terminalOrderCount.decrementAndGet();
+                    }
+                } else {
                     SLF4JLoggerProxy.debug(OrderHistoryManager.class,
-                                           "{} represents an open order ({}), updating live order list for {}", //$NON-NLS-1$
+                                           "{} represents a closed order ({}) updating live order list for {}", //$NON-NLS-1$
                                            inReport.getOrderID(),
                                            inReport.getOrderStatus(),
                                            history);
-                    openOrders.put(inReport.getOrderID(),
-                                   (ExecutionReport)inReport);
+                    openOrders.remove(inReport.getOrderID());
+                    if(isRetentionLimited() &&
+                       history.getTerminalTime() == 0) {
+                        long now = System.currentTimeMillis();
+                        history.setTerminalTime(now);
+                        terminalOrders.add(new TerminalOrder(history,
+                                                             now));
+                        terminalOrderCount.incrementAndGet();
+                    }
+                }
+                if(originalOrderID != null) {
+                    SLF4JLoggerProxy.debug(OrderHistoryManager.class,
+                                           "{} replaces {}, updating live order list", //$NON-NLS-1$
+                                           actualOrderID,
+                                           originalOrderID);
+                    openOrders.remove(originalOrderID);
                 }
-            } else {
-                SLF4JLoggerProxy.debug(OrderHistoryManager.class,
-                                       "{} represents a closed order ({}) updating live order list for {}", //$NON-NLS-1$
-                                       inReport.getOrderID(),
-                                       inReport.getOrderStatus(),
-                                       history);
-                openOrders.remove(inReport.getOrderID());
-            }
-            if(inReport.getOriginalOrderID() != null) {
-                SLF4JLoggerProxy.debug(OrderHistoryManager.class,
-                                       "{} replaces {}, updating live order list", //$NON-NLS-1$
-                                       inReport.getOrderID(),
-                                       inReport.getOriginalOrderID());
-                openOrders.remove(inReport.getOriginalOrderID());
             }
+            break;
+        }
+        if(isRetentionLimited()) {
+            discardTerminalOrders();
         }
         synchronized(this) {
             this.notifyAll();
@@ -138,113 +211,112 @@ public class OrderHistoryManager
      */
     public String display()
     {
-        synchronized(orders) {
-            StringBuffer output = new StringBuffer();
-            output.append(nl).append("Order History as of ").append(new Date()).append(nl); //$NON-NLS-1$
-            Table latestReportTable = new Table(10,
-                                                BorderStyle.CLASSIC_COMPATIBLE_WIDE,
-                                                ShownBorders.ALL,
-                                                false);
-            latestReportTable.addCell("OrderID", //$NON-NLS-1$
-                                      headerStyle,
-                                      1);
-            latestReportTable.addCell("Status", //$NON-NLS-1$
-                                      headerStyle,
-                                      1);
-            latestReportTable.addCell("SendingTime", //$NON-NLS-1$
-                                      headerStyle,
-                                      1);
-            latestReportTable.addCell("OrderChain", //$NON-NLS-1$
-                                      headerStyle,
-                                      1);
-            latestReportTable.addCell("Side", //$NON-NLS-1$
-                                      headerStyle,
-                                      1);
-            latestReportTable.addCell("Quantity", //$NON-NLS-1$
-                                      headerStyle,
-                                      1);
-            latestReportTable.addCell("Symbol", //$NON-NLS-1$
-                                      headerStyle,
-                                      1);
-            latestReportTable.addCell("Type", //$NON-NLS-1$
-                                      headerStyle,
-                                      1);
-            latestReportTable.addCell("Price", //$NON-NLS-1$
-                                      headerStyle,
-                                      1);
-            latestReportTable.addCell("Text", //$NON-NLS-1$
-                                      headerStyle,
-                                      1);
-            Set<OrderID> handledOrders = new HashSet<OrderID>();
-            for(OrderHistory order : orders.values()) {
-                ReportBase report = order.getLatestReport();
-                if(!handledOrders.contains(report.getOrderID())) {
-                    latestReportTable.addCell(order.getLatestReport().getOrderID().getValue());
-                    latestReportTable.addCell(order.getLatestReport().getOrderStatus().name());
-                    latestReportTable.addCell(DateUtils.dateToString(order.getLatestReport().getSendingTime()));
-                    latestReportTable.addCell(order.getOrderIdChain().toString());
-                    latestReportTable.addCell(report instanceof ExecutionReport ? ((ExecutionReport)report).getSide().name() : none);
-                    latestReportTable.addCell(report instanceof ExecutionReport ? String.valueOf(((ExecutionReport)report).getOrderQuantity()) : none);
-                    latestReportTable.addCell(report instanceof ExecutionReport ? ((ExecutionReport)report).getInstrument().getSymbol() : none);
-                    latestReportTable.addCell(report instanceof ExecutionReport ? String.valueOf(((ExecutionReport)report).getOrderType()) : none);
-                    latestReportTable.addCell(report instanceof ExecutionReport ? String.valueOf(((ExecutionReport)report).getPrice()) : none);
-                    latestReportTable.addCell(order.getLatestReport().getText());
-                    handledOrders.add(report.getOrderID());
-                }
-            }
-            output.append(nl);
-            for(String line : latestReportTable.renderAsStringArray()) {
-                output.append(line).append(nl);
-            }
-            output.append(nl).append("Open Orders").append(nl); //$NON-NLS-1$
-            latestReportTable = new Table(9,
-                                          BorderStyle.CLASSIC_COMPATIBLE_WIDE,
-                                          ShownBorders.ALL,
-                                          false);
-            latestReportTable.addCell("OrderID", //$NON-NLS-1$
-                                      headerStyle,
-                                      1);
-            latestReportTable.addCell("Status", //$NON-NLS-1$
-                                      headerStyle,
-                                      1);
-            latestReportTable.addCell("SendingTime", //$NON-NLS-1$
-                                      headerStyle,
-                                      1);
-            latestReportTable.addCell("Side", //$NON-NLS-1$
-                                      headerStyle,
-                                      1);
-            latestReportTable.addCell("Quantity", //$NON-NLS-1$
-                                      headerStyle,
-                                      1);
-            latestReportTable.addCell("Symbol", //$NON-NLS-1$
-                                      headerStyle,
-                                      1);
-            latestReportTable.addCell("Type", //$NON-NLS-1$
-                                      headerStyle,
-                                      1);
-            latestReportTable.addCell("Price", //$NON-NLS-1$
-                                      headerStyle,
-                                      1);
-            latestReportTable.addCell("Text", //$NON-NLS-1$
-                                      headerStyle,
-                                      1);
-            for(ReportBase report : openOrders.values()) {
+        StringBuffer output = new StringBuffer();
+        output.append(nl).append("Order History as of ").append(new Date()).append(nl); //$NON-NLS-1$
+        Table latestReportTable = new Table(10,
+                                            BorderStyle.CLASSIC_COMPATIBLE_WIDE,
+                                            ShownBorders.ALL,
+                                            false);
+        latestReportTable.addCell("OrderID", //$NON-NLS-1$
+                                  headerStyle,
+                                  1);
+        latestReportTable.addCell("Status", //$NON-NLS-1$
+                                  headerStyle,
+                                  1);
+        latestReportTable.addCell("SendingTime", //$NON-NLS-1$
+                                  headerStyle,
+                                  1);
+        latestReportTable.addCell("OrderChain", //$NON-NLS-1$
+                                  headerStyle,
+                                  1);
+        latestReportTable.addCell("Side", //$NON-NLS-1$
+                                  headerStyle,
+                                  1);
+        latestReportTable.addCell("Quantity", //$NON-NLS-1$
+                                  headerStyle,
+                                  1);
+        latestReportTable.addCell("Symbol", //$NON-NLS-1$
+                                  headerStyle,
+                                  1);
+        latestReportTable.addCell("Type", //$NON-NLS-1$
+                                  headerStyle,
+                                  1);
+        latestReportTable.addCell("Price", //$NON-NLS-1$
+                                  headerStyle,
+                                  1);
+        latestReportTable.addCell("Text", //$NON-NLS-1$
+                                  headerStyle,
+                                  1);
+        Set<OrderID> handledOrders = new HashSet<OrderID>();
+        for(OrderHistory order : orders.values()) {
+            ReportBase report = order.getLatestReport();
+            if(report != null &&
+               !handledOrders.contains(report.getOrderID())) {
                 latestReportTable.addCell(report.getOrderID().getValue());
                 latestReportTable.addCell(report.getOrderStatus().name());
                 latestReportTable.addCell(DateUtils.dateToString(report.getSendingTime()));
+                latestReportTable.addCell(order.getOrderIdChain().toString());
                 latestReportTable.addCell(report instanceof ExecutionReport ? ((ExecutionReport)report).getSide().name() : none);
                 latestReportTable.addCell(report instanceof ExecutionReport ? String.valueOf(((ExecutionReport)report).getOrderQuantity()) : none);
                 latestReportTable.addCell(report instanceof ExecutionReport ? ((ExecutionReport)report).getInstrument().getSymbol() : none);
                 latestReportTable.addCell(report instanceof ExecutionReport ? String.valueOf(((ExecutionReport)report).getOrderType()) : none);
                 latestReportTable.addCell(report instanceof ExecutionReport ? String.valueOf(((ExecutionReport)report).getPrice()) : none);
                 latestReportTable.addCell(report.getText());
+                handledOrders.add(report.getOrderID());
             }
-            output.append(nl);
-            for(String line : latestReportTable.renderAsStringArray()) {
-                output.append(line).append(nl);
-            }
-            return output.toString();
         }
+        output.append(nl);
+        for(String line : latestReportTable.renderAsStringArray()) {
+            output.append(line).append(nl);
+        }
+        output.append(nl).append("Open Orders").append(nl); //$NON-NLS-1$
+        latestReportTable = new Table(9,
+                                      BorderStyle.CLASSIC_COMPATIBLE_WIDE,
+                                      ShownBorders.ALL,
+                                      false);
+        latestReportTable.addCell("OrderID", //$NON-NLS-1$
+                                  headerStyle,
+                                  1);
+        latestReportTable.addCell("Status", //$NON-NLS-1$
+                                  headerStyle,
+                                  1);
+        latestReportTable.addCell("SendingTime", //$NON-NLS-1$
+                                  headerStyle,
+                                  1);
+        latestReportTable.addCell("Side", //$NON-NLS-1$
+                                  headerStyle,
+                                  1);
+        latestReportTable.addCell("Quantity", //$NON-NLS-1$
+                                  headerStyle,
+                                  1);
+        latestReportTable.addCell("Symbol", //$NON-NLS-1$
+                                  headerStyle,
+                                  1);
+        latestReportTable.addCell("Type", //$NON-NLS-1$
+                                  headerStyle,
+                                  1);
+        latestReportTable.addCell("Price", //$NON-NLS-1$
+                                  headerStyle,
+                                  1);
+        latestReportTable.addCell("Text", //$NON-NLS-1$
+                                  headerStyle,
+                                  1);
+        for(ReportBase report : openOrders.values()) {
+            latestReportTable.addCell(report.getOrderID().getValue());
+            latestReportTable.addCell(report.getOrderStatus().name());
+            latestReportTable.addCell(DateUtils.dateToString(report.getSendingTime()));
+            latestReportTable.addCell(report instanceof ExecutionReport ? ((ExecutionReport)report).getSide().name() : none);
+            latestReportTable.addCell(report instanceof ExecutionReport ? String.valueOf(((ExecutionReport)report).getOrderQuantity()) : none);
+            latestReportTable.addCell(report instanceof ExecutionReport ? ((ExecutionReport)report).getInstrument().getSymbol() : none);
+            latestReportTable.addCell(report instanceof ExecutionReport ? String.valueOf(((ExecutionReport)report).getOrderType()) : none);
+            latestReportTable.addCell(report instanceof ExecutionReport ? String.valueOf(((ExecutionReport)report).getPrice()) : none);
+            latestReportTable.addCell(report.getText());
+        }
+        output.append(nl);
+        for(String line : latestReportTable.renderAsStringArray()) {
+            output.append(line).append(nl);
+        }
+        return output.toString();
     }
     /**
      * Gets the <code>ReportBase</code> values for the given <code>OrderID</code>.
@@ -267,15 +339,7 @@ public class OrderHistoryManager
         if(inOrderId == null) {
             throw new NullPointerException();
         }
-        synchronized(orders) {
-            OrderHistory history = orders.get(inOrderId);
-            if(history == null) {
-                history = new OrderHistory();
-                orders.put(inOrderId,
-                           history);
-            }
-            return history.getOrderHistory();
-        }
+        return getOrCreateHistory(inOrderId).getOrderHistory();
     }
     /**
      * Gets the open orders.
@@ -286,7 +350,7 @@ public class OrderHistoryManager
      */
     public Map<OrderID,ExecutionReport> getOpenOrders()
     {
-        return Collections.unmodifiableMap(openOrders);
+        return openOrdersView;
     }
     /**
      * Gets all <code>OrderID</code> values for which history is known.
@@ -298,22 +362,23 @@ public class OrderHistoryManager
      */
     public Set<OrderID> getOrderIds()
     {
-        synchronized(orders) {
-            return Collections.unmodifiableSet(orders.keySet());
-        }
+        return orderIdsView;
     }
     /**
      * Clears all order history.
      */
     public void clear()
     {
-        synchronized(orders) {
-            for(OrderHistory history : orders.values()) {
+        for(OrderHistory history : orders.values()) {
+            synchronized(history) {
+                discard(history);
                 history.clear();
             }
-            orders.clear();
-            openOrders.clear();
         }
+        orders.clear();
+        openOrders.clear();
+        terminalOrders.clear();
+        terminalOrderCount.set(0);
     }
     /**
      * Clears the order history values for the given <code>OrderID</code> if any.
@@ -328,21 +393,19 @@ public class OrderHistoryManager
      */
     public void clear(OrderID inOrderId)
     {
-        synchronized(orders) {
-            OrderHistory history = orders.get(inOrderId);
-            if(history != null) {
-                for(OrderID orderID : history.getOrderIdChain()) {
-                    SLF4JLoggerProxy.debug(OrderHistoryManager.class,
-                                           "Clearing history for {}", //$NON-NLS-1$
-                                           orderID);
-                    orders.remove(orderID);
-                }
+        if(inOrderId == null) {
+            return;
+        }
+        OrderHistory history = orders.get(inOrderId);
+        if(history != null) {
+            synchronized(history) {
+                discard(history);
                 history.clear();
             }
-            if(inOrderId != null) {
-                openOrders.remove(inOrderId);
-            }
+            orders.remove(inOrderId,
+                          history);
         }
+        openOrders.remove(inOrderId);
     }
     /**
      * Gets the chain of <code>OrderID</code> values that describe the evolution of the
@@ -360,12 +423,108 @@ public class OrderHistoryManager
      */
     public Set<OrderID> getOrderChain(OrderID inOrderId)
     {
-        synchronized(orders) {
-            OrderHistory history = orders.get(inOrderId);
-            if(history != null) {
-                return history.getOrderIdChain();
+        OrderHistory history = inOrderId == null ? null : orders.get(inOrderId);
+        if(history != null) {
+            return history.getOrderIdChain();
+        }
+        return NO_ORDER_CHAIN;
+    }
+    /**
+     * Gets the order history for the given <code>OrderID</code>, creating it if necessary.
+     *
+     * @param inOrderId an <code>OrderID</code> value
+     * @return an <code>OrderHistory</code> value
+     */
+    private OrderHistory getOrCreateHistory(OrderID inOrderId)
+    {
+        OrderHistory history = orders.get(inOrderId);
+        if(history == null) {
+            OrderHistory newHistory = new OrderHistory();
+            history = orders.putIfAbsent(inOrderId,
+                                         newHistory);
+            if(history == null) {
+                history = newHistory;
             }
-            return NO_ORDER_CHAIN;
+        }
+        return history;
+    }
+    /**
+     * Removes the given order history from the index of all the orders in its chain.
+     * 
+     * <p>The caller must hold the lock of the given history.
+     *
+     * @param inHistory an <code>OrderHistory</code> value
+     */
+    @GuardedBy("inHistory")
+    private void discard(OrderHistory inHistory)
+    {
+        if(!inHistory.isDiscarded() &&
+           inHistory.getTerminalTime() != 0) {
+            terminalOrderCount.decrementAndGet();
+        }
+        inHistory.setDiscarded();
+        for(OrderID orderID : inHistory.getOrderIdChain()) {
+            SLF4JLoggerProxy.debug(OrderHistoryManager.class,
+                                   "Clearing history for {}", //$NON-NLS-1$
+                                   orderID);
+            orders.remove(orderID,
+                          inHistory);
+            openOrders.remove(orderID);
+        }
+    }
+    /**
+     * Indicates if the history of closed orders is discarded.
+     *
+     * @return a <code>boolean</code> value
+     */
+    private boolean isRetentionLimited()
+    {
+        return terminalOrderRetention > 0 || maxTerminalOrders > 0;
+    }
+    /**
+     * Discards the history of the oldest closed orders until the retention policy is satisfied.
+     * 
+     * <p>If another thread is already discarding closed orders, this method returns immediately.
+     */
+    private void discardTerminalOrders()
+    {
+        if(!discardLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            while(true) {
+                TerminalOrder oldest = terminalOrders.peek();
+                if(oldest == null) {
+                    return;
+                }
+                synchronized(oldest.history) {
+                    // the order may have been reopened or cleared since it was closed
+                    if(oldest.history.isDiscarded() ||
+                       oldest.history.getTerminalTime() != oldest.terminalTime) {
+                        terminalOrders.poll();
+                        continue;
+                    }
+                }
+                boolean expired = terminalOrderRetention > 0 && now - oldest.terminalTime >= terminalOrderRetention;
+                boolean overLimit = maxTerminalOrders > 0 && terminalOrderCount.get() > maxTerminalOrders;
+                if(!expired && !overLimit) {
+                    return;
+                }
+                terminalOrders.poll();
+                synchronized(oldest.history) {
+                    // the order may have been reopened or cleared since it was last checked
+                    if(!oldest.history.isDiscarded() &&
+                       oldest.history.getTerminalTime() == oldest.terminalTime) {
+                        SLF4JLoggerProxy.debug(OrderHistoryManager.class,
+                                               "Discarding closed order {}", //$NON-NLS-1$
+                                               oldest.history);
+                        discard(oldest.history);
+                    }
+                }
+            }
+        } finally {
+            discardLock.unlock();
         }
     }
     /* (non-Javadoc)
@@ -385,12 +544,14 @@ public class OrderHistoryManager
      * this same order chain. No validation is done to make sure that incoming
      * <code>ReportBase</code> objects are truly part of the order chain: the
      * act of invoking <code>add</code> implicitly establishes this fact.
+     * 
+     * <p>The history may be read at any time. It is modified only while holding
+     * its lock.
      *
-     * @author <a href="mailto:colin@marketcetera.com">Colin DuPlantis</a>
      * @version $Id$
      * @since 2.1.4
      */
-    @NotThreadSafe
+    @ThreadSafe
     @ClassVersion("$Id$")
     private static class OrderHistory
     {
@@ -412,7 +573,9 @@ public class OrderHistoryManager
         private void add(ReportBase inReport)
         {
             orderHistory.addFirst(inReport);
-            orderIdChain.add(inReport.getOrderID());
+            if(!orderIdChain.contains(inReport.getOrderID())) {
+                orderIdChain.add(inReport.getOrderID());
+            }
             latestReport = inReport;
         }
         /**
@@ -460,31 +623,135 @@ public class OrderHistoryManager
          */
         private Set<OrderID> getOrderIdChain()
         {
-            return Collections.unmodifiableSet(orderIdChain);
+            return orderIdChainView;
+        }
+        /**
+         * Gets the time at which the order was closed.
+         *
+         * @return a <code>long</code> value containing the time in milliseconds or <code>0</code> if the order is open or closed orders are retained
+         */
+        private long getTerminalTime()
+        {
+            return terminalTime;
+        }
+        /**
+         * Sets the time at which the order was closed.
+         *
+         * @param inTerminalTime a <code>long</code> value containing the time in milliseconds or <code>0</code> if the order is open
+         */
+        private void setTerminalTime(long inTerminalTime)
+        {
+            terminalTime = inTerminalTime;
+        }
+        /**
+         * Indicates if the history has been discarded by the order history manager.
+         *
+         * @return a <code>boolean</code> value
+         */
+        private boolean isDiscarded()
+        {
+            return discarded;
+        }
+        /**
+         * Marks the history as discarded by the order history manager.
+         */
+        private void setDiscarded()
+        {
+            discarded = true;
         }
         /**
          * order history sorted from newest to oldest
          */
-        private final Deque<ReportBase> orderHistory = new LinkedList<ReportBase>();
+        private final Deque<ReportBase> orderHistory = new LinkedBlockingDeque<ReportBase>();
         /**
          * order IDs in the order chain in the order they occurred
          */
-        private final Set<OrderID> orderIdChain = new LinkedHashSet<OrderID>();
+        private final Set<OrderID> orderIdChain = new CopyOnWriteArraySet<OrderID>();
+        /**
+         * read-only view of the order IDs in the order chain
+         */
+        private final Set<OrderID> orderIdChainView = Collections.unmodifiableSet(orderIdChain);
         /**
          * most recent <code>ExecutionReport</code>, may be <code>null</code>
          */
         private volatile ReportBase latestReport;
+        /**
+         * time at which the order was closed in milliseconds or <code>0</code>
+         */
+        @GuardedBy("this")
+        private long terminalTime;
+        /**
+         * indicates if the history is no longer indexed by the order history manager
+         */
+        private volatile boolean discarded;
+    }
+    /**
+     * Identifies an order which was closed at a given time.
+     *
+     * @version $Id$
+     * @since 2.1.4
+     */
+    @Immutable
+    @ClassVersion("$Id$")
+    private static class TerminalOrder
+    {
+        /**
+         * Create a new TerminalOrder instance.
+         *
+         * @param inHistory an <code>OrderHistory</code> value
+         * @param inTerminalTime a <code>long</code> value containing the time in milliseconds at which the order was closed
+         */
+        private TerminalOrder(OrderHistory inHistory,
+                              long inTerminalTime)
+        {
+            history = inHistory;
+            terminalTime = inTerminalTime;
+        }
+        /**
+         * the history of the closed order
+         */
+        private final OrderHistory history;
+        /**
+         * time at which the order was closed in milliseconds
+         */
+        private final long terminalTime;
     }
     /**
      * order history objects indexed by actual order ID
      */
-    @GuardedBy("orders")
-    private final Map<OrderID,OrderHistory> orders = new LinkedHashMap<OrderID,OrderHistory>();
+    private final ConcurrentMap<OrderID,OrderHistory> orders = new ConcurrentHashMap<OrderID,OrderHistory>();
+    /**
+     * read-only view of the order IDs for which history is known
+     */
+    private final Set<OrderID> orderIdsView = Collections.unmodifiableSet(orders.keySet());
     /**
      * collection containing only the open orders
      */
-    @GuardedBy("orders")
     private final Map<OrderID,ExecutionReport> openOrders = new ConcurrentHashMap<OrderID,ExecutionReport>();
+    /**
+     * read-only view of the open orders
+     */
+    private final Map<OrderID,ExecutionReport> openOrdersView = Collections.unmodifiableMap(openOrders);
+    /**
+     * closed orders from oldest to newest, used only if closed orders are discarded
+     */
+    private final Queue<TerminalOrder> terminalOrders = new ConcurrentLinkedQueue<TerminalOrder>();
+    /**
+     * number of closed order chains whose history is kept, which is at most the number of entries in {@link #terminalOrders}
+     */
+    private final AtomicInteger terminalOrderCount = new AtomicInteger(0);
+    /**
+     * held by the thread discarding closed orders
+     */
+    private final Lock discardLock = new ReentrantLock();
+    /**
+     * how long to keep the history of a closed order in milliseconds or <code>0</code> to keep it regardless of age
+     */
+    private final long terminalOrderRetention;
+    /**
+     * how many closed orders to keep or <code>0</code> to keep any number
+     */
+    private final int maxTerminalOrders;
     /**
      * sentinel collection used to indicate there is no order chain for a given order ID
      */
@@ -1,10 +1,13 @@
 package org.marketcetera.core.position.impl;
 
+import static org.junit.Assert.assertEquals;
+
 import java.math.BigDecimal;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.marketcetera.core.LoggerConfiguration;
+import org.marketcetera.core.position.PositionMetrics;
 
 /* $License$ */
 
@@ -34,4 +37,26 @@ public class PositionMetricsCalculatorImplTest {
             }
         }.run();
     }
+
+    @Test
+    public void scaledResults() {
+        PositionMetricsCalculator calculator = new PositionMetricsCalculatorImpl(
+                new BigDecimal("10"), new BigDecimal("1.5"));
+        PositionMetrics metrics = calculator.tick(new BigDecimal("2.25"));
+        // same value and scale as 10 * 2.25 - 15.0
+        assertEquals(new BigDecimal("7.50"), metrics.getPositionPL());
+        assertEquals(new BigDecimal("7.50"), metrics.getUnrealizedPL());
+        assertEquals(new BigDecimal("0.00"), metrics.getTradingPL());
+        // values which do not fit in a long
+        calculator = new PositionMetricsCalculatorImpl(new BigDecimal("900000000000000000"),
+                new BigDecimal("3"));
+        metrics = calculator.tick(new BigDecimal("7"));
+        assertEquals(new BigDecimal("3600000000000000000"), metrics.getPositionPL());
+        metrics = calculator.tick(new BigDecimal("11"));
+        assertEquals(new BigDecimal("7200000000000000000"), metrics.getPositionPL());
+        metrics = calculator.tick(new BigDecimal("1234567890.123456789"));
+        assertEquals(new BigDecimal("900000000000000000").multiply(
+                new BigDecimal("1234567890.123456789")).subtract(
+                new BigDecimal("2700000000000000000")), metrics.getPositionPL());
+    }
 }
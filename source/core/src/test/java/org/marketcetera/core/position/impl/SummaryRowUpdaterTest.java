@@ -1,6 +1,7 @@
 package org.marketcetera.core.position.impl;
 
 import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 
 import java.math.BigDecimal;
@@ -104,6 +105,71 @@ public class SummaryRowUpdaterTest {
         assertSummary(fixture, summary, "1", "3", "2.2", "77", "11", "10000.3", "123");
     }
 
+    @Test
+    public void testReplaceAndUnknownValues() throws Exception {
+        EventList<PositionRow> list = new BasicEventList<PositionRow>();
+        PositionRowImpl summary = createTestSummary(list);
+        SummaryRowUpdater fixture = new SummaryRowUpdater(summary);
+        PositionRowImpl ibm = new PositionRowImpl(new Equity("IBM"), "IBM", "Account",
+                "Yoram", PositionMetricsImplTest.createMetrics("4", "7", "8", "3", "9", ".7", "7"));
+        PositionRowImpl microsoft = new PositionRowImpl(new Equity("MSFT"), "MSFT", "Account",
+                "Yoram", PositionMetricsImplTest.createMetrics("1", "2", null, "3", "4", null, "6"));
+        list.add(ibm);
+        list.add(microsoft);
+        assertSummary(fixture, summary, "5", "9", null, "6", "13", null, "13");
+        // replace a position with another
+        PositionRowImpl google = new PositionRowImpl(new Equity("GOOG"), "GOOG", "Account",
+                "Yoram", PositionMetricsImplTest.createMetrics("-1", "-2", "5", "1", "1", "2", "3"));
+        list.set(1, google);
+        assertSummary(fixture, summary, "3", "5", "13", "4", "10", "2.7", "10");
+        // an unknown value makes the summary unknown until it is known again
+        google.setPositionMetrics(PositionMetricsImplTest.createMetrics("-1", "-2", null, "1",
+                "1", "2", "3"));
+        list.set(1, google);
+        assertSummary(fixture, summary, "3", "5", null, "4", "10", "2.7", "10");
+        google.setPositionMetrics(PositionMetricsImplTest.createMetrics("-1", "-2", "6", "1",
+                "1", "2", "3"));
+        list.set(1, google);
+        assertSummary(fixture, summary, "3", "5", "14", "4", "10", "2.7", "10");
+        // matches a summary computed from scratch
+        createAndAssert(list, "3", "5", "14", "4", "10", "2.7", "10");
+        fixture.dispose();
+    }
+
+    @Test
+    public void testScale() throws Exception {
+        EventList<PositionRow> list = new BasicEventList<PositionRow>();
+        PositionRowImpl summary = createTestSummary(list);
+        SummaryRowUpdater fixture = new SummaryRowUpdater(summary);
+        PositionRowImpl ibm = new PositionRowImpl(new Equity("IBM"), "IBM", "Account",
+                "Yoram", PositionMetricsImplTest.createMetrics("4", "7", "8", "3", "9", ".7", "7"));
+        PositionRowImpl microsoft = new PositionRowImpl(new Equity("MSFT"), "MSFT", "Account",
+                "Yoram", PositionMetricsImplTest.createMetrics("1", "2.125", "1.5", "3", "4", "5", "6"));
+        list.add(ibm);
+        list.add(microsoft);
+        assertEquals(new BigDecimal("9.125"), summary.getPositionMetrics().getPosition());
+        // the scale of the summary does not keep the scale of a removed value
+        list.remove(1);
+        assertEquals(new BigDecimal("7"), summary.getPositionMetrics().getPosition());
+        assertEquals(new BigDecimal("8"), summary.getPositionMetrics().getPositionPL());
+        assertEquals(new BigDecimal("0.7"), summary.getPositionMetrics().getUnrealizedPL());
+        // nor of a replaced value
+        list.add(microsoft);
+        microsoft.setPositionMetrics(PositionMetricsImplTest.createMetrics("1", "2", "1.5", "3",
+                "4", "5", "6"));
+        list.set(1, microsoft);
+        assertEquals(new BigDecimal("9"), summary.getPositionMetrics().getPosition());
+        assertEquals(new BigDecimal("9.5"), summary.getPositionMetrics().getPositionPL());
+        // the same values as a summary computed from scratch
+        PositionRowImpl recalculated = createTestSummary(list);
+        new SummaryRowUpdater(recalculated).dispose();
+        assertEquals(recalculated.getPositionMetrics().getPosition(),
+                summary.getPositionMetrics().getPosition());
+        assertEquals(recalculated.getPositionMetrics().getPositionPL(),
+                summary.getPositionMetrics().getPositionPL());
+        fixture.dispose();
+    }
+
     private void createAndAssert(EventList<PositionRow> list, String incomingPosition,
             String position, String positional, String trading, String realized, String unrealized,
             String total) {
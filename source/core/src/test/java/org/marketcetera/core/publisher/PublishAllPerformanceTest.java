@@ -0,0 +1,178 @@
+package org.marketcetera.core.publisher;
+
+import org.marketcetera.util.misc.ClassVersion;
+import org.marketcetera.util.log.SLF4JLoggerProxy;
+import org.marketcetera.core.LoggerConfiguration;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/* $License$ */
+/**
+ * Computes the time and allocations of translating and publishing market
+ * data in lists reused from one message to the next, and published with
+ * {@link PublisherEngine#publishAll(List)}, against allocating two lists
+ * per message and publishing each event with
+ * {@link PublisherEngine#publish(Object)}, which is what market data feeds
+ * used to do.
+ * <p>
+ * {@link #jitCompilation()} is a test that is ran to allow JIT compilation
+ * of the code exercised in this unit test.
+ * <p>
+ * {@link #listPerMessage()} and {@link #reusedLists()} run
+ * {@link #NUM_ITERATIONS} iterations, each translating one message into
+ * {@link #EVENTS_PER_MESSAGE} events, and log the time taken and, if the
+ * JVM can measure it, the number of bytes allocated.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+public class PublishAllPerformanceTest {
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        LoggerConfiguration.logSetup();
+        for(int i = 0; i < EVENTS_PER_MESSAGE; i++) {
+            sEvents[i] = "event" + i;  //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * This test does not test anything. It's just executed first
+     * to let the jit compilation kick in.
+     *
+     * @throws Exception if there were errors.
+     */
+    @Test
+    public void jitCompilation() throws Exception {
+        runListPerMessage();
+        runReusedLists();
+    }
+
+    /**
+     * Measures allocating lists for each message and publishing each event.
+     *
+     * @throws Exception if there were errors.
+     */
+    @Test
+    public void listPerMessage() throws Exception {
+        long bytes = allocatedBytes();
+        long time = runListPerMessage();
+        report("listPerMessage", time, allocatedBytes() - bytes);  //$NON-NLS-1$
+    }
+
+    /**
+     * Measures reusing lists and publishing each message's events at once.
+     *
+     * @throws Exception if there were errors.
+     */
+    @Test
+    public void reusedLists() throws Exception {
+        long bytes = allocatedBytes();
+        long time = runReusedLists();
+        report("reusedLists", time, allocatedBytes() - bytes);  //$NON-NLS-1$
+    }
+
+    private static long runListPerMessage() {
+        PublisherEngine engine = new PublisherEngine(true);
+        CountingSubscriber subscriber = new CountingSubscriber();
+        engine.subscribe(subscriber);
+        long start = System.nanoTime();
+        for(int i = 0; i < NUM_ITERATIONS; i++) {
+            List<Object> events = new ArrayList<Object>();
+            translate(events);
+            List<Object> actualEvents = new ArrayList<Object>();
+            actualEvents.addAll(events);
+            for(Object event : actualEvents) {
+                engine.publish(event);
+            }
+        }
+        long time = System.nanoTime() - start;
+        SLF4JLoggerProxy.debug(PublishAllPerformanceTest.class, "{}",  //$NON-NLS-1$
+                subscriber.mCount);
+        return time;
+    }
+
+    private static long runReusedLists() {
+        PublisherEngine engine = new PublisherEngine(true);
+        CountingSubscriber subscriber = new CountingSubscriber();
+        engine.subscribe(subscriber);
+        List<Object> events = new ArrayList<Object>();
+        List<Object> actualEvents = new ArrayList<Object>();
+        long start = System.nanoTime();
+        for(int i = 0; i < NUM_ITERATIONS; i++) {
+            translate(events);
+            for(int j = 0; j < events.size(); j++) {
+                actualEvents.add(events.get(j));
+            }
+            engine.publishAll(actualEvents);
+            events.clear();
+            actualEvents.clear();
+        }
+        long time = System.nanoTime() - start;
+        SLF4JLoggerProxy.debug(PublishAllPerformanceTest.class, "{}",  //$NON-NLS-1$
+                subscriber.mCount);
+        return time;
+    }
+
+    /**
+     * Appends the events of a message to the given list.
+     *
+     * @param outEvents the list to which to append the events.
+     */
+    private static void translate(List<Object> outEvents) {
+        for(int i = 0; i < EVENTS_PER_MESSAGE; i++) {
+            outEvents.add(sEvents[i]);
+        }
+    }
+
+    /**
+     * Gets the number of bytes allocated so far by the current thread.
+     *
+     * @return the number of bytes, or -1 if the JVM cannot measure it.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static void report(String inName,
+                               long inNanos,
+                               long inBytes) {
+        SLF4JLoggerProxy.info(PublishAllPerformanceTest.class,
+                "{}: {} iterations in {}ms, {} bytes allocated",  //$NON-NLS-1$
+                inName, NUM_ITERATIONS, inNanos / 1000000, inBytes);
+    }
+
+    /**
+     * Counts the events it receives, one at a time or in batches.
+     */
+    private static class CountingSubscriber implements IBatchSubscriber {
+        @Override
+        public boolean isInteresting(Object inData) {
+            return true;
+        }
+        @Override
+        public void publishTo(Object inData) {
+            mCount++;
+        }
+        @Override
+        public void publishAllTo(List<?> inData) {
+            mCount += inData.size();
+        }
+        private long mCount;
+    }
+
+    private static final int NUM_ITERATIONS = 1000000;
+    private static final int EVENTS_PER_MESSAGE = 4;
+    private static final Object[] sEvents = new Object[EVENTS_PER_MESSAGE];
+}
@@ -4,12 +4,15 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.BeforeClass;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 import org.marketcetera.core.LoggerConfiguration;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.List;
 import java.util.LinkedList;
@@ -178,6 +181,9 @@ public class PublisherEngineTest
         //Test the other constructor
         engine = new PublisherEngine(true);
         checkPublishAndWait(engine, true);
+        //Test the ordered constructor
+        engine = new PublisherEngine(10, OverflowPolicy.BLOCK);
+        checkPublishAndWait(engine, false);
     }
 
     @Test
@@ -192,6 +198,169 @@ public class PublisherEngineTest
         //Test the other constructor
         engine = new PublisherEngine(true);
         checkPublish(engine, true);
+        //Test the ordered constructor
+        engine = new PublisherEngine(10, OverflowPolicy.BLOCK);
+        checkPublish(engine, false);
+    }
+
+    @Test(timeout = 10000)
+    public void testOrderedPublish() throws Exception
+    {
+        PublisherEngine engine = new PublisherEngine(100, OverflowPolicy.BLOCK);
+        assertTrue(engine.isOrdered());
+        assertFalse(engine.isSynchronousNotification());
+        assertFalse(new PublisherEngine().isOrdered());
+        MockSubscriber subscriber1 = new MockSubscriber();
+        MockSubscriber subscriber2 = new MockSubscriber();
+        engine.subscribe(subscriber1);
+        engine.subscribe(subscriber2);
+        List<Object> expected = new ArrayList<Object>();
+        for(int i = 0; i < 10000; i++) {
+            expected.add(i);
+            engine.publish(i);
+        }
+        expected.add(this);
+        engine.publishAndWait(this);
+        assertEquals(expected, subscriber1.getPublications());
+        assertEquals(expected, subscriber2.getPublications());
+        assertEquals(0, engine.getQueueDepth());
+        assertTrue(engine.getPeakQueueDepth() <= 100);
+        assertEquals(0, engine.getDroppedEventCount());
+    }
+
+    @Test(timeout = 10000)
+    public void testOrderedOverflow() throws Exception
+    {
+        //the newest event is dropped
+        assertEquals(Arrays.<Object>asList("a", "b", "c"),
+                     checkOverflow(OverflowPolicy.DROP_NEWEST));
+        //the oldest queued event is dropped
+        assertEquals(Arrays.<Object>asList("a", "c", "d"),
+                     checkOverflow(OverflowPolicy.DROP_OLDEST));
+    }
+
+    @Test(timeout = 10000)
+    public void testOrderedBlockFromDeliveryThread() throws Exception
+    {
+        //the target engine's subscriber is busy with the first event, and its queue is full
+        MockSubscriber target = new MockSubscriber();
+        Semaphore acquireSemaphore = new Semaphore(0);
+        Semaphore releaseSemaphore = new Semaphore(0);
+        target.setAcquireSemaphore(acquireSemaphore);
+        target.setReleaseSemaphore(releaseSemaphore);
+        final PublisherEngine targetEngine = new PublisherEngine(1, OverflowPolicy.BLOCK);
+        targetEngine.subscribe(target);
+        targetEngine.publish("a");
+        while(!acquireSemaphore.hasQueuedThreads()) {
+            Thread.sleep(100);
+        }
+        targetEngine.publish("b");
+        //a subscriber of another ordered engine publishes to the target engine
+        PublisherEngine sourceEngine = new PublisherEngine(1, OverflowPolicy.BLOCK);
+        sourceEngine.subscribe(new MockSubscriber() {
+            @Override
+            public void publishTo(Object inData)
+            {
+                targetEngine.publish(inData);
+            }
+        });
+        //the delivery thread does not wait for room in the target queue
+        sourceEngine.publishAndWait("c");
+        assertEquals(1, targetEngine.getDroppedEventCount());
+        acquireSemaphore.release(2);
+        releaseSemaphore.acquire(2);
+        assertEquals(Arrays.<Object>asList("a", "b"), target.getPublications());
+    }
+
+    /**
+     * Publishes four events to an ordered engine with a queue capacity of two
+     * while its subscriber is busy with the first event.
+     *
+     * @param inPolicy the overflow policy of the engine.
+     * @return the events received by the subscriber.
+     * @throws Exception if there were errors.
+     */
+    private static List<Object> checkOverflow(OverflowPolicy inPolicy)
+            throws Exception
+    {
+        MockSubscriber subscriber = new MockSubscriber();
+        Semaphore acquireSemaphore = new Semaphore(0);
+        Semaphore releaseSemaphore = new Semaphore(0);
+        subscriber.setAcquireSemaphore(acquireSemaphore);
+        subscriber.setReleaseSemaphore(releaseSemaphore);
+        PublisherEngine engine = new PublisherEngine(2, inPolicy);
+        engine.subscribe(subscriber);
+        engine.publish("a");
+        //Wait for subscriber to be busy with the first event
+        while(!acquireSemaphore.hasQueuedThreads()) {
+            Thread.sleep(100);
+        }
+        engine.publish("b");
+        engine.publish("c");
+        assertEquals(2, engine.getQueueDepth());
+        engine.publish("d");
+        assertEquals(2, engine.getQueueDepth());
+        assertEquals(2, engine.getPeakQueueDepth());
+        assertEquals(1, engine.getDroppedEventCount());
+        //now let the subscriber through
+        acquireSemaphore.release(3);
+        releaseSemaphore.acquire(3);
+        assertEquals(3, subscriber.getPublishCount());
+        return subscriber.getPublications();
+    }
+
+    @Test(timeout = 10000)
+    public void testPublishAll() throws Exception
+    {
+        final List<List<Object>> batches = new ArrayList<List<Object>>();
+        IBatchSubscriber batchSubscriber = new IBatchSubscriber() {
+            public boolean isInteresting(Object inData)
+            {
+                return true;
+            }
+            public void publishTo(Object inData)
+            {
+                batches.add(Arrays.asList(inData));
+            }
+            public void publishAllTo(List<?> inData)
+            {
+                batches.add(new ArrayList<Object>(inData));
+            }
+        };
+        MockSubscriber subscriber = new MockSubscriber();
+        MockSubscriber uninterested = new MockSubscriber(false,
+                                                         false,
+                                                         false);
+        PublisherEngine engine = new PublisherEngine(true);
+        engine.subscribe(batchSubscriber);
+        engine.subscribe(subscriber);
+        engine.subscribe(uninterested);
+        List<Object> batch = new ArrayList<Object>(Arrays.<Object>asList("a", "b", "c"));
+        engine.publishAll(batch);
+        //the batch subscriber receives the whole batch in one call
+        assertEquals(1, batches.size());
+        assertEquals(batch, batches.get(0));
+        //the other subscribers receive each object in turn
+        assertEquals(batch, subscriber.getPublications());
+        assertEquals(0, uninterested.getPublishCount());
+        //an empty batch is not published
+        engine.publishAll(new ArrayList<Object>());
+        assertEquals(1, batches.size());
+        //publishing one object at a time is unchanged
+        engine.publish("d");
+        assertEquals(Arrays.<Object>asList("d"), batches.get(1));
+        //an ordered engine publishes each object in turn
+        batches.clear();
+        subscriber = new MockSubscriber();
+        engine = new PublisherEngine(10, OverflowPolicy.BLOCK);
+        engine.subscribe(batchSubscriber);
+        engine.subscribe(subscriber);
+        engine.publishAll(batch);
+        //the batch may be reused once published
+        batch.clear();
+        engine.publishAndWait("d");
+        assertEquals(Arrays.<Object>asList("a", "b", "c", "d"), subscriber.getPublications());
+        assertEquals(4, batches.size());
     }
 
     @Test(timeout = 10000)
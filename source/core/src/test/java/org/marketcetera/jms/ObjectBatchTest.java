@@ -0,0 +1,58 @@
+package org.marketcetera.jms;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.marketcetera.module.ExpectedFailure;
+import org.marketcetera.trade.Equity;
+import org.marketcetera.util.misc.ClassVersion;
+
+/* $License$ */
+/**
+ * Tests {@link ObjectBatch}.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+public class ObjectBatchTest {
+    @Test
+    public void serialization() throws Exception {
+        List<Object> objects = Arrays.<Object>asList("string",
+                new BigDecimal("1.23"), new Equity("METC"), null,
+                new Equity("METC"), "string");
+        ObjectBatch batch = new ObjectBatch(objects);
+        assertEquals(objects.size(), batch.size());
+        assertEquals(objects, batch.getObjects());
+        ObjectBatch copy = ObjectBatch.fromBytes(batch.toBytes());
+        assertEquals(objects, copy.getObjects());
+        //empty batches
+        copy = ObjectBatch.fromBytes(new ObjectBatch(
+                Collections.emptyList()).toBytes());
+        assertEquals(0, copy.size());
+    }
+
+    @Test
+    public void failures() throws Exception {
+        new ExpectedFailure<NullPointerException>(){
+            @Override
+            protected void run() throws Exception {
+                new ObjectBatch(null);
+            }
+        };
+        final List<Object> objects = new ArrayList<Object>();
+        objects.add(new Object());
+        new ExpectedFailure<ClassCastException>(){
+            @Override
+            protected void run() throws Exception {
+                new ObjectBatch(objects).toBytes();
+            }
+        };
+    }
+}
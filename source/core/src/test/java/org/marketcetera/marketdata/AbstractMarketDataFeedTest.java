@@ -13,6 +13,7 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.marketcetera.core.ExpectedTestFailure;
 import org.marketcetera.core.IFeedComponentListener;
+import org.marketcetera.core.publisher.IBatchSubscriber;
 import org.marketcetera.core.publisher.ISubscriber;
 import org.marketcetera.core.publisher.MockSubscriber;
 import org.marketcetera.event.*;
@@ -754,6 +755,77 @@ public class AbstractMarketDataFeedTest
         assertEquals(expectedEvents,
                      s.getPublications());
     }
+    /**
+     * Verifies that the events decomposed from the data received are published to
+     * {@link IBatchSubscriber} objects in one call.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void batchPublication()
+        throws Exception
+    {
+        MockMarketDataFeed feed = new MockMarketDataFeed(FeedType.UNKNOWN);
+        feed.start();
+        feed.login(new MockMarketDataFeedCredentials());
+        // set up a batch subscriber and a regular subscriber to receive events
+        final List<List<Object>> batches = new ArrayList<List<Object>>();
+        IBatchSubscriber batchSubscriber = new IBatchSubscriber() {
+            @Override
+            public boolean isInteresting(Object inData)
+            {
+                return true;
+            }
+            @Override
+            public void publishTo(Object inData)
+            {
+                fail("Unexpected publication: " + inData);
+            }
+            @Override
+            public synchronized void publishAllTo(List<?> inData)
+            {
+                // the list is reused, so copy it
+                batches.add(new ArrayList<Object>(inData));
+            }
+        };
+        final MockSubscriber s = new MockSubscriber();
+        MarketDataRequest request = MarketDataRequestBuilder.newRequest().withProvider("not-a-real-provider").withSymbols("METC").create();
+        List<QuoteEvent> quotes = Arrays.asList(new QuoteEvent[] { EventTestBase.generateEquityAskEvent(metc,
+                                                                                                        exchange),
+                                                                   EventTestBase.generateEquityBidEvent(metc,
+                                                                                                        exchange) } );
+        MockEvent e = new MockEvent();
+        feed.setEventsToReturn(Arrays.asList(new Event[] { new MockAggregateEvent(quotes), e } ));
+        MockMarketDataFeedToken token = feed.execute(MarketDataFeedTokenSpec.generateTokenSpec(request,
+                                                                                               batchSubscriber,
+                                                                                               s));
+        MarketDataFeedTestBase.wait(new Callable<Boolean>() {
+            @Override
+            public Boolean call()
+                    throws Exception
+            {
+                return s.getPublishCount() == 3;
+            }
+        });
+        // each data received is published as one batch
+        synchronized(batchSubscriber) {
+            assertEquals(2,
+                         batches.size());
+            assertEquals(quotes,
+                         batches.get(0));
+            assertEquals(Arrays.asList(e),
+                         batches.get(1));
+        }
+        // while the regular subscriber receives one event at a time
+        List<Object> expectedEvents = new ArrayList<Object>(quotes);
+        expectedEvents.add(e);
+        assertEquals(expectedEvents,
+                     s.getPublications());
+        for(Object event : expectedEvents) {
+            assertEquals(token,
+                         ((Event)event).getSource());
+        }
+    }
     @Test
     public void testExecuteFailures()
         throws Exception
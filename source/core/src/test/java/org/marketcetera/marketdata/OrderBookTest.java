@@ -494,6 +494,82 @@ public class OrderBookTest
                    2,
                    book);
     }
+    /**
+     * Tests {@link OrderBook#getBestBid()}, {@link OrderBook#getBestAsk()}, and the
+     * copy methods as the book changes.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void bestAndCopy()
+        throws Exception
+    {
+        assertNull(book.getBestBid());
+        assertNull(book.getBestAsk());
+        List<QuoteEvent> copy = new ArrayList<QuoteEvent>();
+        assertEquals(0,
+                     book.copyBidBook(copy,
+                                      OrderBook.UNLIMITED_DEPTH));
+        BidEvent bid1 = EventTestBase.generateEquityBidEvent(symbol,
+                                                             exchange);
+        BidEvent bid2 = EventTestBase.generateEquityBidEvent(symbol,
+                                                             exchange,
+                                                             bid1.getPrice().add(TEN));
+        BidEvent bid3 = EventTestBase.generateEquityBidEvent(symbol,
+                                                             exchange,
+                                                             bid1.getPrice().subtract(TEN));
+        AskEvent ask1 = EventTestBase.generateEquityAskEvent(symbol,
+                                                             exchange);
+        book.process(bid1);
+        book.process(bid2);
+        book.process(bid3);
+        book.process(ask1);
+        assertSame(bid2,
+                   book.getBestBid());
+        assertSame(ask1,
+                   book.getBestAsk());
+        assertEquals(2,
+                     book.copyBidBook(copy,
+                                      2));
+        assertEquals(Arrays.asList(bid2,
+                                   bid1),
+                     copy);
+        copy.clear();
+        assertEquals(3,
+                     book.copyBidBook(copy,
+                                      OrderBook.UNLIMITED_DEPTH));
+        assertEquals(Arrays.asList(bid2,
+                                   bid1,
+                                   bid3),
+                     copy);
+        // the sorted view is shared until the book changes
+        List<BidEvent> view = book.getBidBook();
+        assertSame(view,
+                   book.getBidBook());
+        BidEvent bid2Change = QuoteEventBuilder.change(bid2,
+                                                       bid2.getTimestamp(),
+                                                       bid2.getSize().add(TEN));
+        book.process(bid2Change);
+        assertNotSame(view,
+                      book.getBidBook());
+        assertSame(bid2Change,
+                   book.getBestBid());
+        assertEquals(3,
+                     book.getBidBook().size());
+        book.process(QuoteEventBuilder.delete(bid2));
+        assertSame(bid1,
+                   book.getBestBid());
+        assertEquals(bid1,
+                     book.getTopOfBook().getBid());
+        book.process(QuoteEventBuilder.delete(ask1));
+        assertNull(book.getBestAsk());
+        assertNull(book.getTopOfBook().getAsk());
+        copy.clear();
+        assertEquals(0,
+                     book.copyAskBook(copy,
+                                      OrderBook.UNLIMITED_DEPTH));
+        assertTrue(copy.isEmpty());
+    }
     @Test
     public void bookPerformance()
             throws Exception
@@ -1457,6 +1457,164 @@ public class SimulatedExchangeTest
         });
         exchange.stop();
     }
+    /**
+     * Tests configuring the high-rate and playback settings of the exchange.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void highRateSettings()
+            throws Exception
+    {
+        assertEquals(0,
+                     exchange.getWorkerThreads());
+        assertEquals(1,
+                     exchange.getTickRate(metc));
+        assertEquals(SimulatedExchange.ScriptedPlayback.AS_FAST_AS_POSSIBLE,
+                     exchange.getScriptedPlayback());
+        new ExpectedFailure<IllegalArgumentException>() {
+            @Override
+            protected void run()
+                    throws Exception
+            {
+                exchange.setWorkerThreads(-1);
+            }
+        };
+        new ExpectedFailure<IllegalArgumentException>() {
+            @Override
+            protected void run()
+                    throws Exception
+            {
+                exchange.setTickRate(0);
+            }
+        };
+        new ExpectedFailure<IllegalArgumentException>() {
+            @Override
+            protected void run()
+                    throws Exception
+            {
+                exchange.setTickRate(metc,
+                                     0);
+            }
+        };
+        new ExpectedFailure<NullPointerException>() {
+            @Override
+            protected void run()
+                    throws Exception
+            {
+                exchange.setScriptedPlayback(null);
+            }
+        };
+        exchange.setWorkerThreads(2);
+        exchange.setTickRate(10);
+        exchange.setTickRate(metc,
+                             100);
+        assertEquals(2,
+                     exchange.getWorkerThreads());
+        assertEquals(100,
+                     exchange.getTickRate(metc));
+        assertEquals(10,
+                     exchange.getTickRate(goog));
+        exchange.start();
+        new ExpectedFailure<IllegalStateException>() {
+            @Override
+            protected void run()
+                    throws Exception
+            {
+                exchange.setWorkerThreads(1);
+            }
+        };
+        new ExpectedFailure<IllegalStateException>() {
+            @Override
+            protected void run()
+                    throws Exception
+            {
+                exchange.setTickRate(1);
+            }
+        };
+        new ExpectedFailure<IllegalStateException>() {
+            @Override
+            protected void run()
+                    throws Exception
+            {
+                exchange.setScriptedPlayback(SimulatedExchange.ScriptedPlayback.WALL_CLOCK);
+            }
+        };
+    }
+    /**
+     * Tests the output of the exchange in random mode with worker threads.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void highRateOutput()
+            throws Exception
+    {
+        exchange.setWorkerThreads(2);
+        exchange.setTickRate(50);
+        exchange.setTickRate(goog,
+                             5);
+        // subscribe to one instrument before the exchange starts and one after
+        final AllEventsSubscriber metcEvents = new AllEventsSubscriber();
+        exchange.getTopOfBook(ExchangeRequestBuilder.newRequest().withInstrument(metc).create(),
+                              metcEvents);
+        exchange.start();
+        final AllEventsSubscriber googEvents = new AllEventsSubscriber();
+        exchange.getTopOfBook(ExchangeRequestBuilder.newRequest().withInstrument(goog).create(),
+                              googEvents);
+        // at 50 ticks/second, METC produces in about a second what the default exchange produces in a minute
+        MarketDataFeedTestBase.wait(new Callable<Boolean>(){
+            @Override
+            public Boolean call()
+                    throws Exception
+            {
+                return metcEvents.events.size() >= 100 &&
+                       googEvents.events.size() >= 10;
+            }
+        });
+        assertTrue(exchange.getTickCount() > 0);
+        exchange.stop();
+        long ticks = exchange.getTickCount();
+        Thread.sleep(250);
+        assertEquals(ticks,
+                     exchange.getTickCount());
+    }
+    /**
+     * Tests that a scripted exchange in wall-clock playback executes events at the intervals
+     * given by their timestamps.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void wallClockPlayback()
+            throws Exception
+    {
+        long timestamp = System.currentTimeMillis();
+        BidEvent scriptedBid = EventTestBase.generateEquityBidEvent(counter.incrementAndGet(),
+                                                                    timestamp,
+                                                                    metc,
+                                                                    exchange.getCode(),
+                                                                    new BigDecimal("100"),
+                                                                    new BigDecimal("1000"));
+        AskEvent scriptedAsk = EventTestBase.generateEquityAskEvent(counter.incrementAndGet(),
+                                                                    timestamp + 500,
+                                                                    metc,
+                                                                    exchange.getCode(),
+                                                                    new BigDecimal("150"),
+                                                                    new BigDecimal("500"));
+        List<QuoteEvent> script = new ArrayList<QuoteEvent>();
+        script.add(scriptedBid);
+        script.add(scriptedAsk);
+        exchange.setScriptedPlayback(SimulatedExchange.ScriptedPlayback.WALL_CLOCK);
+        long start = System.currentTimeMillis();
+        exchange.start(script);
+        assertTrue(System.currentTimeMillis() - start >= 500);
+        assertEquals(SimulatedExchange.Status.COMPLETE,
+                     exchange.getStatus());
+        verifyTopOfBook(makeTopOfBook(exchange.getTopOfBook(ExchangeRequestBuilder.newRequest().withInstrument(metc).create())),
+                        scriptedAsk,
+                        scriptedBid);
+    }
     /**
      * Tests the ability of the exchange to deliver a non-zero and non-one contract size. 
      *
@@ -4,12 +4,16 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.Vector;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import junit.framework.Test;
@@ -941,6 +945,122 @@ public class TradeReportsHistoryTest extends FIXVersionedTestCase {
                 sameInstance(report3));
     }
     
+    public void testResetMessagesInBulk() throws Exception {
+        UnderlyingSymbolSupport mockSupport = mock(UnderlyingSymbolSupport.class);
+        when(mockSupport.getUnderlying(new Equity("ASDF"))).thenReturn("ASDF");
+        when(mockSupport.getUnderlying(new Equity("GIB"))).thenReturn("GIB");
+        TradeReportsHistory history = new TradeReportsHistory(msgFactory, mockSupport);
+        ExecutionReport pendingNew1 = createServerReport(createMessage(OrdStatus.PENDING_NEW, "1", Side.BUY, "10", "ASDF", "1"));
+        ExecutionReport new1 = createBrokerReport(createMessage(OrdStatus.NEW, "1", Side.BUY, "10", "ASDF", "1"));
+        ExecutionReport pendingReplace2 = createServerReport(addOrigOrdId(createMessage(OrdStatus.PENDING_REPLACE, "2", Side.BUY, "10", "ASDF", "2"), "1"));
+        ExecutionReport replaced2 = createBrokerReport(addOrigOrdId(createMessage(OrdStatus.REPLACED, "2", Side.BUY, "10", "ASDF", "2"), "1"));
+        ExecutionReport pendingNew3 = createServerReport(createMessage(OrdStatus.PENDING_NEW, "3", Side.SELL, "10", "GIB", "1"));
+        ExecutionReport new3 = createBrokerReport(createMessage(OrdStatus.NEW, "3", Side.SELL, "10", "GIB", "1"));
+        ExecutionReport filled3 = createBrokerReport(createMessage(OrdStatus.FILLED, "3", Side.SELL, "10", "GIB", "1"));
+        ExecutionReport new4 = createBrokerReport(createMessage(OrdStatus.NEW, "4", Side.SELL, "10", "GIB", "1"));
+        // new1 is sent twice
+        final ReportBase[] reports = { pendingNew1, new1, pendingReplace2, replaced2, new1,
+                pendingNew3, new3, filled3, new4 };
+        final AtomicInteger insertEvents = new AtomicInteger();
+        final AtomicInteger inserts = new AtomicInteger();
+        history.getAllMessagesList().addListEventListener(new ListEventListener<ReportHolder>() {
+            public void listChanged(ListEvent<ReportHolder> event) {
+                int count = 0;
+                while (event.next()) {
+                    if (event.getType() == ListEvent.INSERT) {
+                        count++;
+                    }
+                }
+                if (count > 0) {
+                    insertEvents.incrementAndGet();
+                    inserts.addAndGet(count);
+                }
+            }
+        });
+        history.resetMessages(new Callable<ReportBase[]>() {
+            @Override
+            public ReportBase[] call() throws Exception {
+                return reports;
+            }
+        });
+        assertEquals(8, history.size());
+        assertEquals(1, insertEvents.get());
+        assertEquals(8, inserts.get());
+        // the underlying symbol of each instrument is resolved once
+        verify(mockSupport).getUnderlying(new Equity("ASDF"));
+        verify(mockSupport).getUnderlying(new Equity("GIB"));
+        assertEquals("GIB", history.getAllMessagesList().get(7).getUnderlying());
+        // the replace is in the group of the original order
+        assertSame(replaced2, history.getLatestExecutionReport(new org.marketcetera.trade.OrderID("1")));
+        assertSame(replaced2, history.getLatestExecutionReport(new org.marketcetera.trade.OrderID("2")));
+        assertSame(filled3, history.getLatestExecutionReport(new org.marketcetera.trade.OrderID("3")));
+        assertSame(filled3.getMessage(), history.getLatestMessage(new org.marketcetera.trade.OrderID("3")));
+        assertNull(history.getLatestExecutionReport(new org.marketcetera.trade.OrderID("5")));
+        assertSame(pendingNew1, history.getFirstReport(new org.marketcetera.trade.OrderID("1")).getReport());
+        assertSame(pendingReplace2, history.getFirstReport(new org.marketcetera.trade.OrderID("2")).getReport());
+        assertEquals(2, history.getOpenOrdersList().size());
+        final Vector<ReportBase> visited = new Vector<ReportBase>();
+        MessageVisitor visitor = new MessageVisitor() {
+            @Override
+            public void visitOpenOrderExecutionReports(ReportBase report) {
+                visited.add(report);
+            }
+        };
+        history.visitOpenOrdersExecutionReports(visitor);
+        assertEquals(2, visited.size());
+        assertTrue(visited.contains(replaced2));
+        assertTrue(visited.contains(new4));
+        visited.clear();
+        history.visitOpenOrdersExecutionReports(new Equity("GIB"), visitor);
+        assertEquals(1, visited.size());
+        assertSame(new4, visited.get(0));
+        visited.clear();
+        history.visitOpenOrdersExecutionReports(new Equity("METC"), visitor);
+        assertTrue(visited.isEmpty());
+        // reports added after the reset are indexed as well
+        simulateCancel(history, "5", "4");
+        assertEquals(1, history.getOpenOrdersList().size());
+        history.visitOpenOrdersExecutionReports(new Equity("GIB"), visitor);
+        assertTrue(visited.isEmpty());
+    }
+    
+    public void testResetMessagesByPage() throws Exception {
+        TradeReportsHistory history = createMessageHistory();
+        ExecutionReport pendingNew1 = createServerReport(createMessage(OrdStatus.PENDING_NEW, "1", Side.BUY, "10", "ASDF", "1"));
+        ExecutionReport new1 = createBrokerReport(createMessage(OrdStatus.NEW, "1", Side.BUY, "10", "ASDF", "1"));
+        ExecutionReport pendingReplace2 = createServerReport(addOrigOrdId(createMessage(OrdStatus.PENDING_REPLACE, "2", Side.BUY, "10", "ASDF", "2"), "1"));
+        ExecutionReport replaced2 = createBrokerReport(addOrigOrdId(createMessage(OrdStatus.REPLACED, "2", Side.BUY, "10", "ASDF", "2"), "1"));
+        ExecutionReport pendingNew3 = createServerReport(createMessage(OrdStatus.PENDING_NEW, "3", Side.SELL, "10", "GIB", "1"));
+        ExecutionReport new3 = createBrokerReport(createMessage(OrdStatus.NEW, "3", Side.SELL, "10", "GIB", "1"));
+        ExecutionReport replaced6 = createBrokerReport(addOrigOrdId(createMessage(OrdStatus.REPLACED, "6", Side.BUY, "10", "ASDF", "3"), "2"));
+        // new1 is sent again in the second page, replaced6 replaces an order of the first page
+        final Iterator<ReportBase[]> pages = Arrays.asList(
+                new ReportBase[] { pendingNew1, new1, pendingReplace2 },
+                new ReportBase[] { replaced2, new1, pendingNew3 },
+                new ReportBase[] { new3, replaced6 }).iterator();
+        final AtomicInteger insertEvents = new AtomicInteger();
+        history.getAllMessagesList().addListEventListener(new ListEventListener<ReportHolder>() {
+            public void listChanged(ListEvent<ReportHolder> event) {
+                insertEvents.incrementAndGet();
+            }
+        });
+        history.resetMessagesByPage(new Callable<ReportBase[]>() {
+            @Override
+            public ReportBase[] call() throws Exception {
+                return pages.hasNext() ? pages.next() : null;
+            }
+        });
+        assertFalse(pages.hasNext());
+        assertEquals(7, history.size());
+        // one list event per page
+        assertEquals(3, insertEvents.get());
+        // the replaces are in the group of the original order
+        assertSame(replaced6, history.getLatestExecutionReport(new org.marketcetera.trade.OrderID("1")));
+        assertSame(replaced6, history.getLatestExecutionReport(new org.marketcetera.trade.OrderID("6")));
+        assertSame(new3, history.getLatestExecutionReport(new org.marketcetera.trade.OrderID("3")));
+        assertEquals(2, history.getOpenOrdersList().size());
+    }
+    
     public void testOpenOrderSurvivesReplaceReject() throws Exception {
         TradeReportsHistory history = createMessageHistory();
         simulateOrderSingle(history, "1", Side.BUY, "10", "GIB", "1");
@@ -161,6 +161,33 @@ public class InfoTests {
         assertTrue(info.isSavedEmpty());
     }
 
+    /**
+     * Tests the live checkpoints of {@link PerThreadInfo}
+     */
+    @Test
+    public void perThreadInfoLive() {
+        PerThreadInfo info = new PerThreadInfo();
+        assertEquals(0, info.getLiveCount());
+        //add more checkpoints than the initial capacity
+        for(int i = 0; i < 100; i++) {
+            info.addLive("id" + i, i);
+        }
+        assertEquals(100, info.getLiveCount());
+        for(int i = 0; i < 100; i++) {
+            assertEquals("id" + i, info.getLiveIdentifier(i));
+            assertEquals(i, info.getLiveTimestamp(i));
+        }
+        info.clearLive();
+        assertEquals(0, info.getLiveCount());
+        //checkpoints beyond the maximum are ignored
+        for(int i = 0; i <= PerThreadInfo.MAX_LIVE_CHECKPOINTS; i++) {
+            info.addLive("id", i);
+        }
+        assertEquals(PerThreadInfo.MAX_LIVE_CHECKPOINTS, info.getLiveCount());
+        //live checkpoints are independent of the current iteration
+        assertTrue(info.isSavedEmpty());
+    }
+
     private static void assertCheckpointInfo(CheckpointInfo inInfo, String inId, long inTimeStamp, Object[] inData) {
         assertEquals(inId, inInfo.getIdentifier());
         assertEquals(inTimeStamp, inInfo.getTimestamp());
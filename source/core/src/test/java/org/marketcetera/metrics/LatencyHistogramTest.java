@@ -0,0 +1,147 @@
+package org.marketcetera.metrics;
+
+import org.marketcetera.util.misc.ClassVersion;
+import org.marketcetera.core.LoggerConfiguration;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/* $License$ */
+/**
+ * Tests {@link LatencyHistogram} & {@link LatencyAggregator}.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+public class LatencyHistogramTest {
+
+    @BeforeClass
+    public static void logSetup() {
+        LoggerConfiguration.logSetup();
+    }
+
+    /**
+     * Verifies that every value falls in a bucket whose range includes it.
+     */
+    @Test
+    public void buckets() {
+        long[] values = {0, 1, 63, 64, 65, 127, 128, 131, 132, 1000,
+                123456789, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        int lastIndex = -1;
+        for(long value : values) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(index >= lastIndex);
+            assertTrue(index < LatencyHistogram.BUCKET_COUNT);
+            assertTrue(value <= LatencyHistogram.highestValueOf(index));
+            if(index > 0) {
+                assertTrue(value > LatencyHistogram.highestValueOf(index - 1));
+            }
+            lastIndex = index;
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1,
+                LatencyHistogram.indexOf(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueOf(
+                LatencyHistogram.BUCKET_COUNT - 1));
+    }
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        for(long i = 1; i <= 10000; i++) {
+            histogram.record(i * 1000);
+        }
+        histogram.record(-5);
+        assertEquals(10001, histogram.getCount());
+        assertEquals(10000000, histogram.getMax());
+        assertWithin(5000000, histogram.getValueAtPercentile(50));
+        assertWithin(9900000, histogram.getValueAtPercentile(99));
+        assertWithin(9990000, histogram.getValueAtPercentile(99.9));
+        assertEquals(10000000, histogram.getValueAtPercentile(100));
+        assertEquals(0, histogram.getValueAtPercentile(0));
+        histogram.clear();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void concurrent() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for(int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for(int j = 1; j <= 10000; j++) {
+                        histogram.record(j);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000, histogram.getCount());
+        assertEquals(10000, histogram.getMax());
+    }
+
+    @Test
+    public void aggregator() throws Exception {
+        File file = File.createTempFile("latencies", ".csv");
+        file.deleteOnExit();
+        LatencyAggregator aggregator = new LatencyAggregator(0, true,
+                file.getAbsolutePath());
+        aggregator.record("a", "b", 2000);
+        aggregator.record("a", "b", 4000);
+        aggregator.record("b", "c", 1000000);
+        Map<String,String> summary = aggregator.getSummary();
+        assertEquals(2, summary.size());
+        assertEquals("count=2 p50=2us p99=4us p99.9=4us max=4us",
+                summary.get("a" + LatencyAggregator.PAIR_SEPARATOR + "b"));
+        assertTrue(summary.get("b->c"), summary.get("b->c").startsWith("count=1 "));
+        //nothing in the window until it's completed
+        assertTrue(aggregator.getWindowSummary().get("a->b").startsWith("count=0 "));
+        aggregator.roll();
+        assertTrue(aggregator.getWindowSummary().get("a->b").startsWith("count=2 "));
+        //the next window starts out empty
+        aggregator.record("a", "b", 2000);
+        aggregator.roll();
+        assertTrue(aggregator.getWindowSummary().get("a->b").startsWith("count=1 "));
+        assertTrue(aggregator.getSummary().get("a->b").startsWith("count=3 "));
+        //verify the report file
+        List<String[]> rows = new LinkedList<String[]>();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while((line = reader.readLine()) != null) {
+                rows.add(line.split(","));
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals(4, rows.size());
+        for(String[] row : rows) {
+            assertEquals(8, row.length);
+        }
+        //clear
+        aggregator.clear();
+        assertTrue(aggregator.getSummary().isEmpty());
+        assertTrue(aggregator.getWindowSummary().isEmpty());
+    }
+
+    private static void assertWithin(long inExpected, long inActual) {
+        assertTrue(inExpected + "!=" + inActual,
+                Math.abs(inExpected - inActual) <= inExpected / 30);
+    }
+}
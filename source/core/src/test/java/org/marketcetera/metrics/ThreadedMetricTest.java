@@ -17,6 +17,7 @@ import java.util.concurrent.*;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
 import java.io.*;
 import java.lang.management.ManagementFactory;
 
@@ -332,10 +333,29 @@ public class ThreadedMetricTest {
         //Run the summarize operations to test that they do not fail.
         metric.summarize(true);
         metric.summarize(false);
+        //verify latency aggregation
+        assertEquals(false, metric.isAggregating());
+        metric.setAggregating(true);
+        try {
+            assertEquals(true, ThreadedMetric.isAggregating());
+            oneIteration(TRUE, "first");
+            assertTrue(metric.getLatencies().containsKey("BEGIN->first"));
+            assertEquals(ThreadedMetric.getLatencySummary(),
+                    metric.getLatencies());
+            ThreadedMetric.rollLatencyWindow();
+            assertEquals(ThreadedMetric.getWindowLatencySummary(),
+                    metric.getWindowLatencies());
+        } finally {
+            metric.setAggregating(false);
+        }
+        assertEquals(false, ThreadedMetric.isAggregating());
+        metric.clear();
+        assertTrue(metric.getLatencies().isEmpty());
         //verify the reported configured properties.
         assertThat(metric.getConfiguredProperties(),
                 Matchers.allOf(Matchers.hasEntry("metc.metrics.enable","false"),
-                        Matchers.hasEntry("metc.metrics.jmx.enable","false")));
+                        Matchers.hasEntry("metc.metrics.jmx.enable","false"),
+                        Matchers.hasEntry("metc.metrics.aggregate","false")));
 
         //unregister the management interface
         JmxUtils.unregisterMgmtInterface(server);
@@ -343,6 +363,40 @@ public class ThreadedMetricTest {
         assertFalse(server.isRegistered(JmxUtils.DEFAULT_NAME));
     }
 
+    @Test
+    public void aggregate() throws Exception {
+        ThreadedMetric.setEnabled(false);
+        ThreadedMetric.setAggregating(true);
+        try {
+            //latencies are aggregated regardless of the condition
+            oneIteration(TRUE, "first", "second");
+            oneIteration(FALSE, "first", "second");
+            //and do not need the instrumentation to be enabled.
+            assertEmptySummary();
+        } finally {
+            ThreadedMetric.setAggregating(false);
+            ThreadedMetric.setEnabled(true);
+        }
+        Map<String,String> latencies = ThreadedMetric.getLatencySummary();
+        assertEquals(latencies.toString(), 4, latencies.size());
+        for(String pair: new String[]{"BEGIN->first", "first->second",
+                "second->END", "BEGIN->END"}) {
+            String summary = latencies.get(pair);
+            assertNotNull(pair, summary);
+            RegExAssert.assertMatches(pair,
+                    "count=2 p50=\\d+us p99=\\d+us p99.9=\\d+us max=\\d+us",
+                    summary);
+        }
+        //the iterations took at least 3 sleep intervals
+        String max = latencies.get("BEGIN->END").replaceAll(".*max=(\\d+)us", "$1");
+        assertTrue(max, Long.parseLong(max) >= sleepInterval * 3 * 1000);
+        //nothing is aggregated once aggregation is disabled
+        oneIteration(TRUE, "first", "second");
+        assertEquals(latencies, ThreadedMetric.getLatencySummary());
+        ThreadedMetric.clear();
+        assertTrue(ThreadedMetric.getLatencySummary().isEmpty());
+    }
+
     private static void nestedCall1(int inNumLoop1, int inNumLoop2) throws Exception {
         ThreadedMetric.begin();
         sleep();
@@ -381,6 +435,11 @@ public class ThreadedMetricTest {
             return Boolean.TRUE;
         }
     };
+    private static final Callable<Boolean> FALSE = new Callable<Boolean>() {
+        public Boolean call() throws Exception {
+            return Boolean.FALSE;
+        }
+    };
     private static void oneIteration(Callable<Boolean> inCondition,
                                      String... inEventIDs) throws Exception {
         ThreadedMetric.begin();
@@ -0,0 +1,241 @@
+package org.marketcetera.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.marketcetera.event.HasInstrument;
+import org.marketcetera.event.TopOfBookEvent;
+import org.marketcetera.event.impl.TopOfBookEventBuilder;
+import org.marketcetera.trade.Equity;
+import org.marketcetera.trade.Instrument;
+import org.marketcetera.util.misc.ClassVersion;
+
+/* $License$ */
+/**
+ * Tests {@link AsyncCoupler}.
+ */
+@ClassVersion("$Id$")
+public class AsyncCouplerTest {
+    @After
+    public void cleanup() throws Exception {
+        if(mCoupler != null) {
+            mReceiver.release();
+            mCoupler.stopDelivery();
+        }
+    }
+    /**
+     * Verifies that all the data is delivered in order when the
+     * emitter is blocked.
+     *
+     * @throws Exception if there were unexpected errors
+     */
+    @Test(timeout = 60000)
+    public void block() throws Exception {
+        createCoupler(AsyncCoupler.Policy.BLOCK, 2);
+        mReceiver.release();
+        List<Object> expected = new ArrayList<Object>();
+        for(int i = 0; i < 100; i++) {
+            mCoupler.send(i);
+            expected.add(i);
+        }
+        assertEquals(expected, mReceiver.take(expected.size()));
+        assertEquals(100, mCoupler.getEmitted());
+        assertEquals(100, mCoupler.getReceived());
+        assertEquals(0, mCoupler.getDropped());
+        assertEquals(2, mCoupler.getQueueCapacity());
+        assertTrue(mCoupler.getMaxDeliveryLatency() >= mCoupler.getMeanDeliveryLatency());
+    }
+    /**
+     * Verifies that the oldest data is dropped when the buffer is full.
+     *
+     * @throws Exception if there were unexpected errors
+     */
+    @Test(timeout = 60000)
+    public void dropOldest() throws Exception {
+        createCoupler(AsyncCoupler.Policy.DROP_OLDEST, 4);
+        mCoupler.send(0);
+        mReceiver.awaitBlocked();
+        for(int i = 1; i <= 10; i++) {
+            mCoupler.send(i);
+        }
+        assertEquals(4, mCoupler.getQueueSize());
+        assertEquals(6, mCoupler.getDropped());
+        mReceiver.release();
+        assertEquals(Arrays.<Object>asList(0, 7, 8, 9, 10), mReceiver.take(5));
+    }
+    /**
+     * Verifies that top of book events for the same instrument are
+     * conflated and that other data is not.
+     *
+     * @throws Exception if there were unexpected errors
+     */
+    @Test(timeout = 60000)
+    public void conflate() throws Exception {
+        createCoupler(AsyncCoupler.Policy.CONFLATE, 4);
+        TopOfBookEvent a1 = topOfBook("A");
+        mCoupler.send(a1);
+        mReceiver.awaitBlocked();
+        TopOfBookEvent b1 = topOfBook("B");
+        TopOfBookEvent a2 = topOfBook("A");
+        TopOfBookEvent b2 = topOfBook("B");
+        TopOfBookEvent a3 = topOfBook("A");
+        Tick trade1 = new Tick("A", 1);
+        Tick trade2 = new Tick("A", 2);
+        mCoupler.send(b1);
+        mCoupler.send(a2);
+        mCoupler.send(trade1);
+        mCoupler.send(b2);
+        mCoupler.send(trade2);
+        mCoupler.send(a3);
+        assertEquals(4, mCoupler.getQueueSize());
+        assertEquals(2, mCoupler.getDropped());
+        mReceiver.release();
+        assertEquals(Arrays.<Object>asList(a1, b2, a3, trade1, trade2),
+                mReceiver.take(5));
+        //once delivered, data for the instrument is queued again
+        mCoupler.send(a1);
+        assertEquals(Arrays.<Object>asList(a1), mReceiver.take(1));
+    }
+    /**
+     * Verifies that undelivered data is discarded and a blocked emitter
+     * is released when delivery is stopped.
+     *
+     * @throws Exception if there were unexpected errors
+     */
+    @Test(timeout = 60000)
+    public void stop() throws Exception {
+        createCoupler(AsyncCoupler.Policy.BLOCK, 1);
+        mCoupler.send(0);
+        mReceiver.awaitBlocked();
+        mCoupler.send(1);
+        Thread emitter = new Thread() {
+            @Override
+            public void run() {
+                mCoupler.send(2);
+            }
+        };
+        emitter.start();
+        while(emitter.getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+        mCoupler.cancelRequest();
+        emitter.join();
+        mReceiver.release();
+        assertEquals(null, mReceiver.mReceived.poll(500, TimeUnit.MILLISECONDS));
+        assertEquals(0, mCoupler.getReceiveErrors());
+    }
+
+    private void createCoupler(AsyncCoupler.Policy inPolicy,
+                               int inCapacity) throws Exception {
+        mReceiver = new Receiver();
+        mCoupler = new AsyncCoupler(null, new Emitter(), mReceiver,
+                new DataFlowID("flow"), inPolicy, inCapacity);
+        mCoupler.initiateRequest(new RequestID("1"), new DataRequest(
+                new ModuleURN("metc:test:emitter:async")));
+    }
+
+    private static TopOfBookEvent topOfBook(String inSymbol) {
+        return TopOfBookEventBuilder.topOfBookEvent().withInstrument(
+                new Equity(inSymbol)).create();
+    }
+
+    private AsyncCoupler mCoupler;
+    private Receiver mReceiver;
+
+    /**
+     * A data item that has an instrument but is never conflated.
+     */
+    private static class Tick implements HasInstrument {
+        Tick(String inSymbol, int inValue) {
+            mInstrument = new Equity(inSymbol);
+            mValue = inValue;
+        }
+        @Override
+        public Instrument getInstrument() {
+            return mInstrument;
+        }
+        @Override
+        public String getInstrumentAsString() {
+            return mInstrument.getSymbol();
+        }
+        @Override
+        public String toString() {
+            return mInstrument.getSymbol() + mValue;
+        }
+        private final Instrument mInstrument;
+        private final int mValue;
+    }
+    /**
+     * An emitter that does nothing.
+     */
+    private static class Emitter extends Module implements DataEmitter {
+        Emitter() {
+            super(new ModuleURN("metc:test:emitter:async"), false);
+        }
+        @Override
+        public void requestData(DataRequest inRequest,
+                                DataEmitterSupport inSupport) {
+        }
+        @Override
+        public void cancel(DataFlowID inFlowID, RequestID inRequestID) {
+        }
+        @Override
+        protected void preStart() {
+        }
+        @Override
+        protected void preStop() {
+        }
+    }
+    /**
+     * A receiver that blocks on the first data item it receives until
+     * released.
+     */
+    private static class Receiver extends Module implements DataReceiver {
+        Receiver() {
+            super(new ModuleURN("metc:test:receiver:async"), false);
+        }
+        @Override
+        public void receiveData(DataFlowID inFlowID, Object inData) {
+            mBlocked.countDown();
+            try {
+                mRelease.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            mReceived.add(inData);
+        }
+        void awaitBlocked() throws InterruptedException {
+            mBlocked.await();
+        }
+        void release() {
+            mRelease.countDown();
+        }
+        List<Object> take(int inCount) throws InterruptedException {
+            List<Object> list = new ArrayList<Object>();
+            for(int i = 0; i < inCount; i++) {
+                list.add(mReceived.take());
+            }
+            return list;
+        }
+        @Override
+        protected void preStart() {
+        }
+        @Override
+        protected void preStop() {
+        }
+        private final CountDownLatch mBlocked = new CountDownLatch(1);
+        private final CountDownLatch mRelease = new CountDownLatch(1);
+        private final BlockingQueue<Object> mReceived =
+                new LinkedBlockingQueue<Object>();
+    }
+}
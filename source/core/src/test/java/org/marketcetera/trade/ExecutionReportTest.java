@@ -6,6 +6,7 @@ import org.junit.Test;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 import quickfix.Message;
 import quickfix.field.*;
 import quickfix.field.converter.DecimalConverter;
@@ -225,6 +226,56 @@ public class ExecutionReportTest extends TypesTestBase {
                         Originator.Server, null, null).getExecutionType());
     }
     
+    /**
+     * Verifies that the decoded fields are shared between calls and
+     * that returned dates cannot modify them.
+     *
+     * @throws Exception if there were errors.
+     */
+    @Test
+    public void decodedFields() throws Exception {
+        Message msg = getSystemMessageFactory().newExecutionReport("brokOrd1",
+                "or1", "exec1", OrderStatus.Filled.getFIXValue(),
+                Side.Buy.getFIXValue(), BigDecimal.TEN, BigDecimal.ONE,
+                BigDecimal.TEN, BigDecimal.ONE, BigDecimal.TEN, BigDecimal.ONE,
+                new Equity("METC"), "acc", "text");
+        Date transactTime = new Date(1000);
+        msg.setField(new TransactTime(transactTime));
+        ExecutionReport report = sFactory.createExecutionReport(msg, null,
+                Originator.Server, null, null);
+        assertSame(report.getCumulativeQuantity(),
+                report.getCumulativeQuantity());
+        assertEquals(transactTime, report.getTransactTime());
+        report.getTransactTime().setTime(2000);
+        assertEquals(transactTime, report.getTransactTime());
+    }
+
+    /**
+     * Verifies that a field that cannot be decoded only fails its
+     * own getter.
+     *
+     * @throws Exception if there were errors.
+     */
+    @Test
+    public void decodingFailure() throws Exception {
+        Message msg = getSystemMessageFactory().newExecutionReport("brokOrd1",
+                "or1", "exec1", OrderStatus.Filled.getFIXValue(),
+                Side.Buy.getFIXValue(), BigDecimal.TEN, BigDecimal.ONE,
+                BigDecimal.TEN, BigDecimal.ONE, BigDecimal.TEN, BigDecimal.ONE,
+                new Equity("METC"), "acc", "text");
+        msg.setString(TransactTime.FIELD, "not a time");
+        ExecutionReport report = sFactory.createExecutionReport(msg, null,
+                Originator.Server, null, null);
+        try {
+            report.getTransactTime();
+            fail();
+        } catch (RuntimeException expected) {
+        }
+        assertEquals(new OrderID("or1"), report.getOrderID());
+        assertEquals(Side.Buy, report.getSide());
+        assertEquals(0, BigDecimal.TEN.compareTo(report.getCumulativeQuantity()));
+    }
+
     @Test
     public void execTypeTest() throws Exception{
     	Message msg = createEmptyExecReport();
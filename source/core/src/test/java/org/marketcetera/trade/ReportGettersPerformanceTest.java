@@ -0,0 +1,123 @@
+package org.marketcetera.trade;
+
+import org.marketcetera.util.misc.ClassVersion;
+import org.marketcetera.util.log.SLF4JLoggerProxy;
+import org.marketcetera.core.LoggerConfiguration;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import quickfix.Message;
+
+import java.math.BigDecimal;
+
+/* $License$ */
+/**
+ * Computes the performance of {@link ExecutionReport} getters, which
+ * are served from fields decoded once, against decoding the FIX
+ * message on every call, which is what the getters used to do.
+ * <p>
+ * {@link #jitCompilation()} is a test that is ran to allow JIT compilation
+ * of the code exercised in this unit test.
+ * <p>
+ * {@link #decodeEachCall()} and {@link #decodedFields()} run
+ * {@link #NUM_ITERATIONS} iterations of a getter-heavy workload, similar
+ * to the one of position and order history calculations, and log the
+ * time taken.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+public class ReportGettersPerformanceTest extends TypesTestBase {
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        LoggerConfiguration.logSetup();
+        sMessage = getSystemMessageFactory().newExecutionReport("brokOrd1",
+                "or1", "exec1", OrderStatus.PartiallyFilled.getFIXValue(),
+                Side.Buy.getFIXValue(), new BigDecimal("100"),
+                new BigDecimal("10.25"), new BigDecimal("10"),
+                new BigDecimal("10.25"), new BigDecimal("50"),
+                new BigDecimal("10.2"), new Equity("METC"), "acc", "text");
+        sReport = sFactory.createExecutionReport(sMessage, null,
+                Originator.Server, null, null);
+    }
+
+    /**
+     * This test does not test anything. It's just executed first
+     * to let the jit compilation kick in.
+     *
+     * @throws Exception if there were errors.
+     */
+    @Test
+    public void jitCompilation() throws Exception {
+        runDecodeEachCall();
+        runDecodedFields();
+    }
+
+    /**
+     * Measures decoding the FIX message on every call.
+     *
+     * @throws Exception if there were errors.
+     */
+    @Test
+    public void decodeEachCall() throws Exception {
+        report("decodeEachCall", runDecodeEachCall());  //$NON-NLS-1$
+    }
+
+    /**
+     * Measures the report getters.
+     *
+     * @throws Exception if there were errors.
+     */
+    @Test
+    public void decodedFields() throws Exception {
+        report("decodedFields", runDecodedFields());  //$NON-NLS-1$
+    }
+
+    private static long runDecodeEachCall() {
+        long start = System.nanoTime();
+        BigDecimal total = BigDecimal.ZERO;
+        for(int i = 0; i < NUM_ITERATIONS; i++) {
+            synchronized(sReport) {
+                if(FIXUtil.getSide(sMessage) == Side.Buy &&
+                        FIXUtil.getInstrument(sMessage) != null &&
+                        FIXUtil.getOrderStatus(sMessage) != null) {
+                    total = total.add(FIXUtil.getCumulativeQuantity(sMessage)).
+                            add(FIXUtil.getLastQuantity(sMessage).multiply(
+                                    FIXUtil.getLastPrice(sMessage))).
+                            add(FIXUtil.getAveragePrice(sMessage));
+                }
+            }
+        }
+        SLF4JLoggerProxy.debug(ReportGettersPerformanceTest.class, "{}", total);  //$NON-NLS-1$
+        return System.nanoTime() - start;
+    }
+
+    private static long runDecodedFields() {
+        long start = System.nanoTime();
+        BigDecimal total = BigDecimal.ZERO;
+        for(int i = 0; i < NUM_ITERATIONS; i++) {
+            if(sReport.getSide() == Side.Buy &&
+                    sReport.getInstrument() != null &&
+                    sReport.getOrderStatus() != null) {
+                total = total.add(sReport.getCumulativeQuantity()).
+                        add(sReport.getLastQuantity().multiply(
+                                sReport.getLastPrice())).
+                        add(sReport.getAveragePrice());
+            }
+        }
+        SLF4JLoggerProxy.debug(ReportGettersPerformanceTest.class, "{}", total);  //$NON-NLS-1$
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String inName,
+                               long inNanos) {
+        SLF4JLoggerProxy.info(ReportGettersPerformanceTest.class,
+                "{}: {} iterations in {}ms",  //$NON-NLS-1$
+                inName, NUM_ITERATIONS, inNanos / 1000000);
+    }
+
+    private static final int NUM_ITERATIONS = 1000000;
+    private static Message sMessage;
+    private static ExecutionReport sReport;
+}
@@ -4,6 +4,9 @@ import static org.junit.Assert.*;
 
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.BeforeClass;
@@ -590,6 +593,241 @@ public class OrderHistoryManagerTest
         assertEquals(report1,
                      reportHistory.getFirst());
     }
+    /**
+     * Tests that closed orders are discarded when the maximum number of closed orders is exceeded.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void testMaxClosedOrders()
+            throws Exception
+    {
+        new ExpectedFailure<IllegalArgumentException>() {
+            @Override
+            protected void run()
+                    throws Exception
+            {
+                new OrderHistoryManager(0,
+                                        TimeUnit.MINUTES,
+                                        -1);
+            }
+        };
+        OrderHistoryManager orderManager = new OrderHistoryManager(0,
+                                                                   TimeUnit.MINUTES,
+                                                                   2);
+        // an open order is never discarded
+        ExecutionReport open = generateExecutionReport("order-" + counter.incrementAndGet(),
+                                                       null,
+                                                       OrderStatus.New);
+        orderManager.add(open);
+        // a replaced order which is closed
+        ExecutionReport original = generateExecutionReport("order-" + counter.incrementAndGet(),
+                                                           null,
+                                                           OrderStatus.New);
+        orderManager.add(original);
+        ExecutionReport replace = generateExecutionReport("order-" + counter.incrementAndGet(),
+                                                          original.getOrderID().getValue(),
+                                                          OrderStatus.Replaced);
+        orderManager.add(replace);
+        ExecutionReport filled = generateExecutionReport(replace.getOrderID().getValue(),
+                                                         original.getOrderID().getValue(),
+                                                         OrderStatus.Filled);
+        orderManager.add(filled);
+        ExecutionReport closed1 = generateExecutionReport("order-" + counter.incrementAndGet(),
+                                                          null,
+                                                          OrderStatus.Canceled);
+        orderManager.add(closed1);
+        // nothing discarded yet
+        assertEquals(filled,
+                     orderManager.getLatestReportFor(original.getOrderID()));
+        assertEquals(4,
+                     orderManager.getOrderIds().size());
+        // one too many closed orders, the oldest is discarded along with its whole chain
+        ExecutionReport closed2 = generateExecutionReport("order-" + counter.incrementAndGet(),
+                                                          null,
+                                                          OrderStatus.Filled);
+        orderManager.add(closed2);
+        assertNull(orderManager.getLatestReportFor(original.getOrderID()));
+        assertNull(orderManager.getLatestReportFor(replace.getOrderID()));
+        assertTrue(orderManager.getOrderChain(replace.getOrderID()).isEmpty());
+        CollectionAssert.assertArrayPermutation(new OrderID[] { open.getOrderID(), closed1.getOrderID(), closed2.getOrderID() },
+                                                orderManager.getOrderIds().toArray(new OrderID[0]));
+        assertEquals(1,
+                     orderManager.getOpenOrders().size());
+        // an order which is reopened after being closed is not discarded
+        ExecutionReport reopened = generateExecutionReport(closed1.getOrderID().getValue(),
+                                                           null,
+                                                           OrderStatus.PartiallyFilled);
+        orderManager.add(reopened);
+        ExecutionReport closed3 = generateExecutionReport("order-" + counter.incrementAndGet(),
+                                                          null,
+                                                          OrderStatus.Rejected);
+        orderManager.add(closed3);
+        ExecutionReport closed4 = generateExecutionReport("order-" + counter.incrementAndGet(),
+                                                          null,
+                                                          OrderStatus.Rejected);
+        orderManager.add(closed4);
+        assertEquals(reopened,
+                     orderManager.getLatestReportFor(closed1.getOrderID()));
+        assertNull(orderManager.getLatestReportFor(closed2.getOrderID()));
+        CollectionAssert.assertArrayPermutation(new OrderID[] { open.getOrderID(), closed1.getOrderID(), closed3.getOrderID(), closed4.getOrderID() },
+                                                orderManager.getOrderIds().toArray(new OrderID[0]));
+        CollectionAssert.assertArrayPermutation(new OrderID[] { open.getOrderID(), closed1.getOrderID() },
+                                                orderManager.getOpenOrders().keySet().toArray(new OrderID[0]));
+        // a discarded order starts a new history if more reports arrive
+        orderManager.add(closed2);
+        assertEquals(closed2,
+                     orderManager.getLatestReportFor(closed2.getOrderID()));
+        assertEquals(1,
+                     orderManager.getReportHistoryFor(closed2.getOrderID()).size());
+    }
+    /**
+     * Tests that an order which is closed several times counts once toward the maximum number of closed orders.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void testReclosedOrderCountedOnce()
+            throws Exception
+    {
+        OrderHistoryManager orderManager = new OrderHistoryManager(0,
+                                                                   TimeUnit.MINUTES,
+                                                                   2);
+        ExecutionReport closed1 = generateExecutionReport("order-" + counter.incrementAndGet(),
+                                                          null,
+                                                          OrderStatus.Filled);
+        orderManager.add(closed1);
+        ExecutionReport closed2 = generateExecutionReport("order-" + counter.incrementAndGet(),
+                                                          null,
+                                                          OrderStatus.Canceled);
+        orderManager.add(closed2);
+        // the second order is reopened and closed again, there are still only two closed orders
+        orderManager.add(generateExecutionReport(closed2.getOrderID().getValue(),
+                                                 null,
+                                                 OrderStatus.PartiallyFilled));
+        ExecutionReport reclosed = generateExecutionReport(closed2.getOrderID().getValue(),
+                                                           null,
+                                                           OrderStatus.Filled);
+        orderManager.add(reclosed);
+        assertEquals(closed1,
+                     orderManager.getLatestReportFor(closed1.getOrderID()));
+        assertEquals(reclosed,
+                     orderManager.getLatestReportFor(closed2.getOrderID()));
+        // a third closed order causes the oldest to be discarded
+        ExecutionReport closed3 = generateExecutionReport("order-" + counter.incrementAndGet(),
+                                                          null,
+                                                          OrderStatus.Rejected);
+        orderManager.add(closed3);
+        assertNull(orderManager.getLatestReportFor(closed1.getOrderID()));
+        CollectionAssert.assertArrayPermutation(new OrderID[] { closed2.getOrderID(), closed3.getOrderID() },
+                                                orderManager.getOrderIds().toArray(new OrderID[0]));
+    }
+    /**
+     * Tests that closed orders are discarded when the retention period has elapsed.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void testClosedOrderRetention()
+            throws Exception
+    {
+        OrderHistoryManager orderManager = new OrderHistoryManager(250,
+                                                                   TimeUnit.MILLISECONDS,
+                                                                   0);
+        ExecutionReport closed = generateExecutionReport("order-" + counter.incrementAndGet(),
+                                                         null,
+                                                         OrderStatus.Filled);
+        orderManager.add(closed);
+        ExecutionReport open = generateExecutionReport("order-" + counter.incrementAndGet(),
+                                                       null,
+                                                       OrderStatus.New);
+        orderManager.add(open);
+        assertEquals(closed,
+                     orderManager.getLatestReportFor(closed.getOrderID()));
+        Thread.sleep(500);
+        // closed orders are discarded as reports are added
+        ExecutionReport update = generateExecutionReport(open.getOrderID().getValue(),
+                                                         null,
+                                                         OrderStatus.PartiallyFilled);
+        orderManager.add(update);
+        assertNull(orderManager.getLatestReportFor(closed.getOrderID()));
+        assertEquals(update,
+                     orderManager.getLatestReportFor(open.getOrderID()));
+        CollectionAssert.assertArrayPermutation(new OrderID[] { open.getOrderID() },
+                                                orderManager.getOrderIds().toArray(new OrderID[0]));
+        // the history of an order retained by default is kept regardless of age
+        orderManager = new OrderHistoryManager();
+        orderManager.add(closed);
+        Thread.sleep(100);
+        orderManager.add(open);
+        assertEquals(closed,
+                     orderManager.getLatestReportFor(closed.getOrderID()));
+    }
+    /**
+     * Tests adding reports from several threads while the order history is read.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void testConcurrentAdd()
+            throws Exception
+    {
+        final OrderHistoryManager orderManager = new OrderHistoryManager();
+        final int threadCount = 4;
+        final int ordersPerThread = 50;
+        final List<ExecutionReport> reports = new ArrayList<ExecutionReport>();
+        for(int i=0;i<threadCount*ordersPerThread;i++) {
+            String orderID = "order-" + counter.incrementAndGet();
+            reports.add(generateExecutionReport(orderID,
+                                                null,
+                                                OrderStatus.New));
+            reports.add(generateExecutionReport(orderID,
+                                                null,
+                                                i % 2 == 0 ? OrderStatus.Filled : OrderStatus.PartiallyFilled));
+        }
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        List<Thread> threads = new ArrayList<Thread>();
+        for(int i=0;i<threadCount;i++) {
+            final int thread = i;
+            threads.add(new Thread() {
+                @Override
+                public void run()
+                {
+                    try {
+                        startLatch.await();
+                        for(int order=thread;order<reports.size()/2;order+=threadCount) {
+                            orderManager.add(reports.get(order*2));
+                            orderManager.getOpenOrders().size();
+                            orderManager.add(reports.get(order*2+1));
+                            orderManager.getOrderChain(reports.get(order*2).getOrderID()).size();
+                        }
+                    } catch (Exception e) {
+                        failed.set(true);
+                    }
+                }
+            });
+        }
+        for(Thread thread : threads) {
+            thread.start();
+        }
+        startLatch.countDown();
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(failed.get());
+        assertEquals(threadCount*ordersPerThread,
+                     orderManager.getOrderIds().size());
+        assertEquals(threadCount*ordersPerThread/2,
+                     orderManager.getOpenOrders().size());
+        for(int order=0;order<reports.size()/2;order++) {
+            ExecutionReport latest = reports.get(order*2+1);
+            assertEquals(latest,
+                         orderManager.getLatestReportFor(latest.getOrderID()));
+            assertEquals(2,
+                         orderManager.getReportHistoryFor(latest.getOrderID()).size());
+        }
+    }
     /**
      * Verifies that the given <code>OrderHistoryManager</code> contains the given <code>ReportBase</code> objects.
      * 
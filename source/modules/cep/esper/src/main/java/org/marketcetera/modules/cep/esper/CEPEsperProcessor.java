@@ -443,12 +443,19 @@ public class CEPEsperProcessor extends Module
         /**
          * Seed the Esper engine with the incoming time event, then
          * delegate to the regular {@link #processRequest(String[], DataEmitterSupport)} implementation.
-         * If the incoming events aren't TimestampCarriers, then just discard them
+         * If the incoming events aren't TimestampCarriers, then just discard them.
+         * The time is only sent when it advances: replayed data carries
+         * many events with the same timestamp and each time event makes
+         * Esper evaluate its schedule.
          */
         public void preProcessData(DataFlowID inFlowID, Object inData) throws StopDataFlowException {
             if(inData instanceof TimestampCarrier) {
                 //send the time event
-                mService.getEPRuntime().sendEvent(new CurrentTimeEvent(((TimestampCarrier)inData).getTimeMillis()));
+                long time = ((TimestampCarrier)inData).getTimeMillis();
+                if(time > mLastTime) {
+                    mLastTime = time;
+                    mService.getEPRuntime().sendEvent(new CurrentTimeEvent(time));
+                }
                 //if we have unprocessed statements process them now
                 List<Pair<DataEmitterSupport, String[]>> reqList = mUnprocessedRequests.remove(inFlowID);
                 if(reqList != null) {
@@ -465,6 +472,10 @@ public class CEPEsperProcessor extends Module
         }
         private final Map<DataFlowID, List<Pair<DataEmitterSupport, String[]>>> mUnprocessedRequests =
                 new Hashtable<DataFlowID, List<Pair<DataEmitterSupport, String[]>>>();
+        /**
+         * The last time sent to the Esper engine.
+         */
+        private volatile long mLastTime = Long.MIN_VALUE;
     }
 
     /**
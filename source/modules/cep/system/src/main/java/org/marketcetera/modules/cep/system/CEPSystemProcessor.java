@@ -5,8 +5,14 @@ import org.marketcetera.module.*;
 import org.marketcetera.util.log.I18NBoundMessage1P;
 import org.marketcetera.util.misc.ClassVersion;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Simple straight-through implementation of the CEP module that
@@ -33,6 +39,10 @@ import java.util.Map;
  * <li>{@link #mRequestMap} - map of {@link RequestID} --> pair of {class, {@link DataEmitterSupport}}. Given a requestID,
  * we can get the class and corresponding emitter registered to listen on that type. For cancels,
  * we pull out all the classes, and remove the emitter subscribed to listen on that event type</li>
+ * <li>{@link #mDispatcher} - the dispatch table, which maps each concrete class of received data
+ * to the {@link DataEmitterSupport} objects it has to be sent to. The table is replaced
+ * whenever a request is added or canceled and is filled in lazily as data is received,
+ * so that each received object only costs a lookup.</li>
  * </ul>
  *
  * @author anshul@marketcetera.com
@@ -47,7 +57,10 @@ public class CEPSystemProcessor extends Module
     private static final String QUERY_PREFIX = "select * from ";        //$NON-NLS-1$
     private static final String[] QUERY_SPLIT = QUERY_PREFIX.split(QUERY_DELIM);
 
-    private final HashMap<RequestID, Pair<Class<?>, DataEmitterSupport>> mRequestMap;
+    private final Map<RequestID, Pair<Class<?>, DataEmitterSupport>> mRequestMap;
+
+    private volatile Dispatcher mDispatcher = new Dispatcher(
+            new ArrayList<Pair<Class<?>, DataEmitterSupport>>());
 
     private final static Map<String, Class<?>> mTypeLookupMap = new HashMap<String, Class<?>>(20);
 
@@ -60,7 +73,7 @@ public class CEPSystemProcessor extends Module
 
     protected CEPSystemProcessor(ModuleURN inURN, boolean inAutoStart) {
         super(inURN, inAutoStart);
-        mRequestMap = new HashMap<RequestID, Pair<Class<?>, DataEmitterSupport>>();
+        mRequestMap = new LinkedHashMap<RequestID, Pair<Class<?>, DataEmitterSupport>>();
     }
 
     @Override
@@ -69,23 +82,22 @@ public class CEPSystemProcessor extends Module
     }
 
     @Override
-    protected void preStop() throws ModuleException {
+    protected synchronized void preStop() throws ModuleException {
         mRequestMap.clear();
+        requestsChanged();
     }
 
     /** Map the incoming data to some type, find the list of all {@link DataEmitterSupport} objects
      * and send the data on its way there
      * Ignore the flowID
-     * This is a very inefficient implementation - just iterate over all known requests
-     * and if we find a match send the data that way
+     * The list of emitters is looked up in the dispatch table by the data's class, and
+     * computed from the known requests only the first time a class is seen
      */
     @Override
     public void receiveData(DataFlowID inFlowID, Object inData) throws ReceiveDataException {
         if(inData != null) {
-            for (Pair<Class<?>, DataEmitterSupport> classEmitterPair : mRequestMap.values()) {
-                if(classEmitterPair.getFirstMember().isAssignableFrom(inData.getClass())) {
-                    classEmitterPair.getSecondMember().send(inData);
-                }
+            for (DataEmitterSupport emitter : mDispatcher.getEmitters(inData.getClass())) {
+                emitter.send(inData);
             }
         }
         //ignore null data
@@ -120,14 +132,28 @@ public class CEPSystemProcessor extends Module
             throw new RequestDataException(new I18NBoundMessage1P(Messages.UNSUPPORTED_TYPE, type));
         }
         Pair<Class<?>, DataEmitterSupport> request = new Pair<Class<?>, DataEmitterSupport>(theClass, inSupport);
-        mRequestMap.put(inSupport.getRequestID(), request);
+        synchronized (this) {
+            mRequestMap.put(inSupport.getRequestID(), request);
+            requestsChanged();
+        }
     }
 
     /** Find the request, and go through all its types and remove all the {@link DataEmitterSupport}
      * object associated with it */
     @Override
-    public void cancel(DataFlowID inFlowID, RequestID inRequestID) {
-        mRequestMap.remove(inRequestID);
+    public synchronized void cancel(DataFlowID inFlowID, RequestID inRequestID) {
+        if(mRequestMap.remove(inRequestID) != null) {
+            requestsChanged();
+        }
+    }
+
+    /**
+     * Replaces the dispatch table with an empty one for the current
+     * set of requests. Must be invoked while holding this object's lock.
+     */
+    private void requestsChanged() {
+        mDispatcher = new Dispatcher(
+                new ArrayList<Pair<Class<?>, DataEmitterSupport>>(mRequestMap.values()));
     }
 
     /** Checks to see if we are looking at an alias or a fully-qualified class name.
@@ -144,4 +170,51 @@ public class CEPSystemProcessor extends Module
             return null;
         }
     }
+
+    /**
+     * A dispatch table for a fixed set of requests. Each concrete class
+     * of received data is mapped to the emitters of the requests whose
+     * type it is assignable to. Instances are safe to use from multiple
+     * threads; a table is never modified once the set of requests changes,
+     * it is replaced instead.
+     */
+    private static class Dispatcher {
+        /**
+         * Creates an instance.
+         *
+         * @param inRequests the requests to dispatch data to, in the
+         * order in which the data should be sent to them.
+         */
+        private Dispatcher(List<Pair<Class<?>, DataEmitterSupport>> inRequests) {
+            mRequests = inRequests;
+        }
+
+        /**
+         * Returns the emitters to which data of the supplied class
+         * should be sent.
+         *
+         * @param inClass the class of the received data.
+         *
+         * @return the emitters, which may be empty.
+         */
+        private Collection<DataEmitterSupport> getEmitters(Class<?> inClass) {
+            Collection<DataEmitterSupport> emitters = mTable.get(inClass);
+            if(emitters == null) {
+                List<DataEmitterSupport> matches = new ArrayList<DataEmitterSupport>();
+                for (Pair<Class<?>, DataEmitterSupport> classEmitterPair : mRequests) {
+                    if(classEmitterPair.getFirstMember().isAssignableFrom(inClass)) {
+                        matches.add(classEmitterPair.getSecondMember());
+                    }
+                }
+                // concurrent lookups of a new class compute the same list, keep either
+                mTable.putIfAbsent(inClass, matches);
+                emitters = matches;
+            }
+            return emitters;
+        }
+
+        private final List<Pair<Class<?>, DataEmitterSupport>> mRequests;
+        private final ConcurrentMap<Class<?>, Collection<DataEmitterSupport>> mTable =
+                new ConcurrentHashMap<Class<?>, Collection<DataEmitterSupport>>();
+    }
 }
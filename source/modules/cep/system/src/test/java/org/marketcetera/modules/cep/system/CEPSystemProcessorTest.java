@@ -12,6 +12,7 @@ import org.junit.Test;
 import org.marketcetera.core.ExpectedTestFailure;
 import org.marketcetera.event.Event;
 import org.marketcetera.event.EventTestBase;
+import org.marketcetera.event.QuoteEvent;
 import org.marketcetera.marketdata.DateUtils;
 import org.marketcetera.module.CopierModuleFactory;
 import org.marketcetera.module.DataFlowID;
@@ -81,6 +82,28 @@ public class CEPSystemProcessorTest extends CEPTestBase {
         sManager.cancel(flowID);
     }
 
+    /**
+     * Verifies that data is dispatched to requests for a supertype of its class.
+     *
+     * @throws Exception if there were unexpected errors
+     */
+    @Test(timeout=120000)
+    public void testSupertypeFlow() throws Exception {
+        DataFlowID flowID = sManager.createDataFlow(new DataRequest[] {
+                // Copier -> System: send 4 events
+                new DataRequest(CopierModuleFactory.INSTANCE_URN, new Event[] { bid1, trade1, ask1, bid2}),
+                // System -> Sink: only get the 3 quote events
+                new DataRequest(TEST_URN, "select * from " + QuoteEvent.class.getName())
+        });
+
+        assertSame("Didn't receive right quote event", bid1, sSink.getNextData());
+        assertSame("Didn't receive right quote event", ask1, sSink.getNextData());
+        assertSame("Didn't receive right quote event", bid2, sSink.getNextData());
+        assertEquals("Wrong number of emitted events", 3, sManager.getDataFlowInfo(flowID).getFlowSteps()[1].getNumEmitted());
+
+        sManager.cancel(flowID);
+    }
+
     @Test(timeout=120000)
     public void testInvalidStringArrReqeust() throws Exception {
         new ExpectedTestFailure(UnsupportedRequestParameterType.class) {
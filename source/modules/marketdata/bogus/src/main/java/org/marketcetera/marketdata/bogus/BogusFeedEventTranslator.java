@@ -6,6 +6,7 @@ import java.util.List;
 import org.apache.commons.lang.ObjectUtils;
 import org.marketcetera.core.ClassVersion;
 import org.marketcetera.core.CoreException;
+import org.marketcetera.event.BatchEventTranslator;
 import org.marketcetera.event.Event;
 import org.marketcetera.event.EventTranslator;
 import org.marketcetera.event.UnsupportedEventException;
@@ -22,7 +23,7 @@ import org.marketcetera.util.log.I18NBoundMessage1P;
  */
 @ClassVersion("$Id$")
 public class BogusFeedEventTranslator
-        implements EventTranslator, Messages
+        implements BatchEventTranslator, Messages
 {
     /* (non-Javadoc)
      * @see org.marketcetera.event.IEventTranslator#translate(java.lang.Object)
@@ -31,13 +32,18 @@ public class BogusFeedEventTranslator
                                    String inHandle)
             throws CoreException
     {
-        if(!(inData instanceof Event)) {
-            throw new UnsupportedEventException(new I18NBoundMessage1P(UNKNOWN_EVENT_TYPE,
-                                                                       ObjectUtils.toString(inData,
-                                                                                            null)));
-        }
-        Event event = (Event)inData;
-        return Arrays.asList(new Event[] { event } );
+        return Arrays.asList(new Event[] { asEvent(inData) } );
+    }
+    /* (non-Javadoc)
+     * @see org.marketcetera.event.BatchEventTranslator#toEvents(java.lang.Object, java.lang.String, java.util.List)
+     */
+    @Override
+    public void toEvents(Object inData,
+                         String inHandle,
+                         List<Event> outEvents)
+            throws CoreException
+    {
+        outEvents.add(asEvent(inData));
     }
     /* (non-Javadoc)
      * @see org.marketcetera.event.IEventTranslator#translate(org.marketcetera.event.EventBase)
@@ -47,6 +53,23 @@ public class BogusFeedEventTranslator
     {
         throw new UnsupportedOperationException();
     }
+    /**
+     * Verifies that the given data is an <code>Event</code>.
+     *
+     * @param inData an <code>Object</code> value
+     * @return an <code>Event</code> value
+     * @throws UnsupportedEventException if the data is not an <code>Event</code>
+     */
+    private static Event asEvent(Object inData)
+            throws UnsupportedEventException
+    {
+        if(!(inData instanceof Event)) {
+            throw new UnsupportedEventException(new I18NBoundMessage1P(UNKNOWN_EVENT_TYPE,
+                                                                       ObjectUtils.toString(inData,
+                                                                                            null)));
+        }
+        return (Event)inData;
+    }
     /**
      * static instance of <code>BogusFeedEventTranslator</code>
      */
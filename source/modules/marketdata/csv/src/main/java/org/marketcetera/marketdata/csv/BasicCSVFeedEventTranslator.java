@@ -861,6 +861,19 @@ public class BasicCSVFeedEventTranslator
         return guessDate(inData,
                          1);
     }
+    /* (non-Javadoc)
+     * @see org.marketcetera.marketdata.csv.CSVFeedEventTranslator#getEventTime(org.marketcetera.marketdata.csv.CSVQuantum)
+     */
+    @Override
+    public Date getEventTime(CSVQuantum inData)
+    {
+        try {
+            return guessEventTimestamp(inData);
+        } catch (CoreException e) {
+            // the line will be rejected when it is translated
+            return null;
+        }
+    }
     /**
      * Guesses the close exchange from the given data line.
      * 
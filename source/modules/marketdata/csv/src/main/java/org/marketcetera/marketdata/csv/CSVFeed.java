@@ -10,15 +10,12 @@ import static org.marketcetera.marketdata.csv.Messages.FAILED_TO_START_REQUEST;
 import static org.marketcetera.marketdata.csv.Messages.REQUEST_FAILED;
 
 import java.io.File;
-import java.io.FileReader;
+import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVStrategy;
 import org.marketcetera.core.NoMoreIDsException;
 import org.marketcetera.marketdata.*;
 import org.marketcetera.util.log.SLF4JLoggerProxy;
@@ -32,6 +29,15 @@ import org.marketcetera.util.misc.ClassVersion;
  * name in the specified directory. Market data is read
  * from the file or files until exhausted.
  * 
+ * <p>The files are memory-mapped and replayed according to the {@link CSVFeedReplayMode}
+ * of the credentials.  In {@link CSVFeedReplayMode#DELAY} mode, each file of a request
+ * is replayed on its own thread, so that each file is replayed at the replay rate.  In
+ * the other modes, if the first line of each file of a request has a time returned by
+ * {@link CSVFeedEventTranslator#getEventTime(CSVQuantum)}, the files are replayed together
+ * on a single thread, and their lines are merged in time order.  Otherwise, each file is
+ * replayed on its own thread.  The lines of each file are published with the handle of
+ * that file.
+ * 
  * @author toli kuznets
  * @author <a href="mailto:colin@marketcetera.com">Colin DuPlantis</a>
  * @since 2.1.0
@@ -95,7 +101,6 @@ public class CSVFeed
         }
         SLF4JLoggerProxy.debug(CSVFeed.class,
                                "CSVFeed starting"); //$NON-NLS-1$
-        requestExecutor = Executors.newCachedThreadPool();
         super.start();
 	}
     /* (non-Javadoc)
@@ -105,7 +110,9 @@ public class CSVFeed
     public synchronized void stop() {
         SLF4JLoggerProxy.debug(CSVFeed.class,
                                "CSVFeed stopping..."); //$NON-NLS-1$
-        requestExecutor.shutdownNow();
+        for(CsvFeedRequest request : new HashSet<CsvFeedRequest>(requests.values())) {
+            request.stop();
+        }
         super.stop();
     }
     /* (non-Javadoc)
@@ -136,7 +143,7 @@ public class CSVFeed
                                                         inHandle);
             return;
         }
-        request.stop();
+        request.cancel(inHandle);
     }
     /* (non-Javadoc)
      * @see org.marketcetera.marketdata.AbstractMarketDataFeed#doLevelOneMarketDataRequest(java.lang.Object)
@@ -144,12 +151,9 @@ public class CSVFeed
     @Override
     protected final synchronized List<String> doMarketDataRequest(MarketDataRequest inData)
     {
-        List<String> handleList = new ArrayList<String>();
-        for(String filename : inData.getSymbols()) {
-            CsvFeedRequest request = new CsvFeedRequest(filename,
-                                                        inData);
-            String handle = request.getHandle();
-            handleList.add(handle);
+        CsvFeedRequest request = new CsvFeedRequest(inData);
+        List<String> handleList = request.getHandles();
+        for(String handle : handleList) {
             requests.put(handle,
                          request);
         }
@@ -217,6 +221,7 @@ public class CSVFeed
             return;
         }
         try {
+            Set<CsvFeedRequest> submitted = new HashSet<CsvFeedRequest>();
             for(String actualHandle : inHandles) {
                 CsvFeedRequest request = requests.get(actualHandle);
                 SLF4JLoggerProxy.debug(CSVFeed.class,
@@ -225,11 +230,11 @@ public class CSVFeed
                                        actualHandle);
                 if(request == null) {
                     throw new NullPointerException();
-                } else {
+                } else if(submitted.add(request)) {
                     SLF4JLoggerProxy.debug(CSVFeed.class,
                                            "Submitting {}", //$NON-NLS-1$
                                            request);
-                    requestExecutor.submit(request);
+                    request.start();
                 }
             }
         } catch (Exception e) {
@@ -259,9 +264,18 @@ public class CSVFeed
      */
     private final Map<String,CsvFeedRequest> requests = new HashMap<String,CsvFeedRequest>();
     /**
-     * executes and manages market data requests
+     * executes and manages market data requests, shared by all requests for the life of the feed
      */
-    private ExecutorService requestExecutor;
+    private final ExecutorService requestExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable inRunnable)
+        {
+            Thread thread = new Thread(inRunnable,
+                                       "CSVFeedReplay-" + threadCounter.incrementAndGet()); //$NON-NLS-1$
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
     /**
      * capabilities for CSVFeed - note that these are not dynamic as Bogus requires no provisioning
      */
@@ -278,9 +292,20 @@ public class CSVFeed
      * counter used to generate unique ids
      */
     private static final AtomicLong counter = new AtomicLong(0);
+    /**
+     * counter used to name replay threads
+     */
+    private static final AtomicLong threadCounter = new AtomicLong(0);
+    /**
+     * indicates that the time of a line is not known
+     */
+    private static final long NO_TIME = Long.MIN_VALUE;
     /**
      * Corresponds to a single market data request submitted to {@link CSVFeed}.
      *
+     * <p>The request replays the files it names on a single thread, merging their lines
+     * in time order, or on a thread per file, as described in {@link CSVFeed}.
+     *
      * @author <a href="mailto:colin@marketcetera.com">Colin DuPlantis</a>
      * @version $Id$
      * @since 1.5.0
@@ -298,50 +323,23 @@ public class CSVFeed
             SLF4JLoggerProxy.debug(CSVFeed.class,
                                    "Beginning request {}", //$NON-NLS-1$
                                    this);
-            isRunning.set(true);
             try {
-                CSVParser parser = null;
-                long start = System.currentTimeMillis();
-                long count = 0;
-                long delay = credentials.getReplayRate();
-                if(delay < 0) {
-                    delay = 0;
-                }
                 while(isRunning.get()) {
-                    if(parser == null) {
-                        start = System.currentTimeMillis();
-                        count = 0;
-                        parser = new CSVParser(new FileReader(new File(credentials.getMarketdataDirectory(),
-                                                                       dataFilename)),
-                                              CSVStrategy.EXCEL_STRATEGY);
-                    }
-                    String[] line = parser.getLine();
-                    if(line == null) {
-                        Messages.END_OF_DATA_REACHED.debug(org.marketcetera.core.Messages.USER_MSG_CATEGORY,
-                                                           count,
-                                                           System.currentTimeMillis() - start);
-                        if(credentials.getReplayEvents() &&
-                           isRunning.get()) {
-                            count = 0;
-                            parser = null;
-                            continue;
-                        } else {
-                            break;
-                        }
+                    replay();
+                    if(!credentials.getReplayEvents()) {
+                        break;
                     }
-                    if(delay != 0) {
-                        Thread.sleep(delay);
-                    }
-                    count += 1;
-                    dataReceived(handle,
-                                 CSVQuantum.getQuantum(line,
-                                                       request,
-                                                       credentials.getReplayRate()));
                 }
+            } catch (InterruptedException e) {
+                SLF4JLoggerProxy.debug(CSVFeed.class,
+                                       "Request {} interrupted", //$NON-NLS-1$
+                                       this);
             } catch (Exception e) {
-                REQUEST_FAILED.warn(org.marketcetera.core.Messages.USER_MSG_CATEGORY,
-                                    e,
-                                    this);
+                if(isRunning.get()) {
+                    REQUEST_FAILED.warn(org.marketcetera.core.Messages.USER_MSG_CATEGORY,
+                                        e,
+                                        this);
+                }
             } finally {
                 isRunning.set(false);
             }
@@ -352,56 +350,410 @@ public class CSVFeed
         @Override
         public String toString()
         {
-            return String.format("CsvFeedRequest [handle=%s, request=%s ]", //$NON-NLS-1$
-                                 handle,
+            return String.format("CsvFeedRequest [handles=%s, request=%s ]", //$NON-NLS-1$
+                                 getHandles(),
                                  request);
         }
         /**
          * Create a new CsvFeedRequest instance.
          *
-         * @param inDataFilename a <code>String</code> value
          * @param inRequest a <code>MarketDataRequest</code> value
          */
-        private CsvFeedRequest(String inDataFilename,
-                               MarketDataRequest inRequest)
+        private CsvFeedRequest(MarketDataRequest inRequest)
         {
             request = inRequest;
-            dataFilename = inDataFilename;
+            for(String filename : inRequest.getSymbols()) {
+                sources.add(new ReplaySource(filename,
+                                             sources.size()));
+            }
+        }
+        /**
+         * Submits the request for execution.
+         */
+        private void start()
+        {
+            isRunning.set(true);
+            future = requestExecutor.submit(this);
         }
         /**
          * Stops the currently running request as soon as possible. 
          */
         private void stop()
         {
-            if(!isRunning.get()) {
+            if(!isRunning.getAndSet(false)) {
                 return;
             }
-            isRunning.set(false);
+            Future<?> runningFuture = future;
+            if(runningFuture != null) {
+                runningFuture.cancel(true);
+            }
+            for(Future<?> task : replayTasks) {
+                task.cancel(true);
+            }
         }
         /**
-         * Gets the request handle. 
+         * Stops replaying the file with the given handle, stopping the request once
+         * all its files have been canceled.
          *
-         * @return a <code>String</code> value
+         * @param inHandle a <code>String</code> value
          */
-        private String getHandle()
+        private void cancel(String inHandle)
         {
-            return handle;
+            boolean allCanceled = true;
+            for(ReplaySource source : sources) {
+                if(source.handle.equals(inHandle)) {
+                    source.canceled = true;
+                }
+                allCanceled &= source.canceled;
+            }
+            if(allCanceled) {
+                stop();
+            }
         }
         /**
-         * data filename
+         * Gets the request handles, one for each file.
+         *
+         * @return a <code>List&lt;String&gt;</code> value
          */
-        private final String dataFilename;
+        private List<String> getHandles()
+        {
+            List<String> handles = new ArrayList<String>();
+            for(ReplaySource source : sources) {
+                handles.add(source.handle);
+            }
+            return handles;
+        }
         /**
-         * the original request
+         * Replays all the files of the request once.
+         *
+         * @throws IOException if a file cannot be read
+         * @throws InterruptedException if the request is stopped while waiting
+         * @throws ExecutionException if a file replayed on another thread cannot be read
          */
-        private final MarketDataRequest request;
+        private void replay()
+                throws IOException, InterruptedException, ExecutionException
+        {
+            CSVFeedEventTranslator translator = credentials.getEventTranslator();
+            long start = System.currentTimeMillis();
+            long count;
+            List<ReplaySource> opened = new ArrayList<ReplaySource>();
+            boolean merge = credentials.getReplayMode() != CSVFeedReplayMode.DELAY;
+            if(merge) {
+                boolean success = false;
+                try {
+                    for(ReplaySource source : sources) {
+                        if(!source.canceled &&
+                           source.open(translator)) {
+                            opened.add(source);
+                            // lines without a time cannot be merged with those of other files
+                            merge &= source.time != NO_TIME;
+                        }
+                    }
+                    success = true;
+                } finally {
+                    if(!success ||
+                       !merge) {
+                        for(ReplaySource source : opened) {
+                            source.close();
+                        }
+                    }
+                }
+            }
+            if(merge) {
+                count = replay(opened,
+                               translator);
+            } else {
+                count = replayEach(translator);
+            }
+            Messages.END_OF_DATA_REACHED.debug(org.marketcetera.core.Messages.USER_MSG_CATEGORY,
+                                               count,
+                                               System.currentTimeMillis() - start);
+        }
+        /**
+         * Replays each file of the request once on its own thread, the first file on the current thread.
+         *
+         * @param inTranslator a <code>CSVFeedEventTranslator</code> value
+         * @return a <code>long</code> value containing the number of lines replayed
+         * @throws IOException if a file cannot be read
+         * @throws InterruptedException if the request is stopped while waiting
+         * @throws ExecutionException if a file replayed on another thread cannot be read
+         */
+        private long replayEach(final CSVFeedEventTranslator inTranslator)
+                throws IOException, InterruptedException, ExecutionException
+        {
+            if(sources.isEmpty()) {
+                return 0;
+            }
+            List<Future<Long>> tasks = new ArrayList<Future<Long>>();
+            try {
+                for(final ReplaySource source : sources.subList(1,
+                                                                sources.size())) {
+                    Future<Long> task = requestExecutor.submit(new Callable<Long>() {
+                        @Override
+                        public Long call()
+                                throws Exception
+                        {
+                            return replay(source,
+                                          inTranslator);
+                        }
+                    });
+                    tasks.add(task);
+                    replayTasks.add(task);
+                }
+                long count = replay(sources.get(0),
+                                    inTranslator);
+                for(Future<Long> task : tasks) {
+                    count += task.get();
+                }
+                return count;
+            } finally {
+                for(Future<Long> task : tasks) {
+                    task.cancel(true);
+                }
+                replayTasks.removeAll(tasks);
+            }
+        }
         /**
-         * the handle assigned to this request 
+         * Replays the given file once.
+         *
+         * @param inSource a <code>ReplaySource</code> value
+         * @param inTranslator a <code>CSVFeedEventTranslator</code> value
+         * @return a <code>long</code> value containing the number of lines replayed
+         * @throws IOException if the file cannot be read
+         * @throws InterruptedException if the request is stopped while waiting
          */
-        private final String handle = Long.toHexString(counter.incrementAndGet());
+        private long replay(ReplaySource inSource,
+                            CSVFeedEventTranslator inTranslator)
+                throws IOException, InterruptedException
+        {
+            boolean opened = false;
+            try {
+                opened = !inSource.canceled && inSource.open(inTranslator);
+            } finally {
+                if(!opened) {
+                    inSource.close();
+                }
+            }
+            if(!opened) {
+                return 0;
+            }
+            return replay(Collections.singletonList(inSource),
+                          inTranslator);
+        }
+        /**
+         * Replays the given open files once, merging their lines in time order, and closes them.
+         *
+         * @param inSources a <code>List&lt;ReplaySource&gt;</code> value
+         * @param inTranslator a <code>CSVFeedEventTranslator</code> value
+         * @return a <code>long</code> value containing the number of lines replayed
+         * @throws IOException if a file cannot be read
+         * @throws InterruptedException if the request is stopped while waiting
+         */
+        private long replay(List<ReplaySource> inSources,
+                            CSVFeedEventTranslator inTranslator)
+                throws IOException, InterruptedException
+        {
+            CSVFeedReplayMode mode = credentials.getReplayMode();
+            long delay = Math.max(0,
+                                  credentials.getReplayRate());
+            double nanosPerMilli = 1000000 / credentials.getReplaySpeed();
+            long count = 0;
+            long firstTime = NO_TIME;
+            long firstNanos = 0;
+            PriorityQueue<ReplaySource> queue = new PriorityQueue<ReplaySource>(inSources);
+            try {
+                while(isRunning.get()) {
+                    ReplaySource source = queue.poll();
+                    if(source == null) {
+                        break;
+                    }
+                    if(source.canceled) {
+                        source.close();
+                        continue;
+                    }
+                    switch(mode) {
+                        case DELAY:
+                            if(delay != 0) {
+                                Thread.sleep(delay);
+                            }
+                            break;
+                        case TIMESTAMP:
+                            if(source.time == NO_TIME) {
+                                break;
+                            }
+                            if(firstTime == NO_TIME) {
+                                firstTime = source.time;
+                                firstNanos = System.nanoTime();
+                                break;
+                            }
+                            long wait = firstNanos + (long)((source.time - firstTime) * nanosPerMilli) - System.nanoTime();
+                            if(wait > 0) {
+                                TimeUnit.NANOSECONDS.sleep(wait);
+                            }
+                            break;
+                        case FASTEST:
+                            break;
+                    }
+                    count += 1;
+                    dataReceived(source.handle,
+                                 source.quantum);
+                    if(source.advance(inTranslator)) {
+                        queue.add(source);
+                    } else {
+                        source.close();
+                    }
+                }
+            } finally {
+                for(ReplaySource source : inSources) {
+                    source.close();
+                }
+            }
+            return count;
+        }
+        /**
+         * the files of the request
+         */
+        private final List<ReplaySource> sources = new ArrayList<ReplaySource>();
+        /**
+         * the original request
+         */
+        private final MarketDataRequest request;
         /**
          * indicates if the request is running or not
          */
         private final AtomicBoolean isRunning = new AtomicBoolean(false);
+        /**
+         * the result of submitting the request for execution, <code>null</code> if not yet submitted
+         */
+        private volatile Future<?> future;
+        /**
+         * the results of submitting the files replayed on threads other than that of the request
+         */
+        private final List<Future<?>> replayTasks = new CopyOnWriteArrayList<Future<?>>();
+        /**
+         * A single file being replayed by a {@link CsvFeedRequest}.
+         *
+         * <p>The source holds the next line of its file to replay.  Sources are ordered by the time
+         * of that line and then by their position in the request, so that merging the sources in that order
+         * replays all the lines in time order, and the lines of each file in file order.
+         *
+         * @version $Id$
+         * @since 2.1.4
+         */
+        @ClassVersion("$Id$")
+        private class ReplaySource
+                implements Comparable<ReplaySource>
+        {
+            /* (non-Javadoc)
+             * @see java.lang.Comparable#compareTo(java.lang.Object)
+             */
+            @Override
+            public int compareTo(ReplaySource inOther)
+            {
+                if(time != inOther.time) {
+                    return time < inOther.time ? -1 : 1;
+                }
+                return index - inOther.index;
+            }
+            /**
+             * Create a new ReplaySource instance.
+             *
+             * @param inDataFilename a <code>String</code> value
+             * @param inIndex an <code>int</code> value containing the position of the file in the request
+             */
+            private ReplaySource(String inDataFilename,
+                                 int inIndex)
+            {
+                dataFilename = inDataFilename;
+                index = inIndex;
+            }
+            /**
+             * Opens the file and reads its first line.
+             *
+             * @param inTranslator a <code>CSVFeedEventTranslator</code> value
+             * @return a <code>boolean</code> value indicating if the file contains a line
+             * @throws IOException if the file cannot be read
+             */
+            private boolean open(CSVFeedEventTranslator inTranslator)
+                    throws IOException
+            {
+                close();
+                reader = new MappedCSVReader(new File(credentials.getMarketdataDirectory(),
+                                                      dataFilename));
+                time = NO_TIME;
+                return advance(inTranslator);
+            }
+            /**
+             * Reads the next line of the file.
+             *
+             * <p>A line with no time is given the time of the line before it.
+             *
+             * @param inTranslator a <code>CSVFeedEventTranslator</code> value
+             * @return a <code>boolean</code> value indicating if there was a line to read
+             * @throws IOException if the file cannot be read
+             */
+            private boolean advance(CSVFeedEventTranslator inTranslator)
+                    throws IOException
+            {
+                String[] line = reader.getLine();
+                if(line == null) {
+                    quantum = null;
+                    return false;
+                }
+                quantum = CSVQuantum.getQuantum(line,
+                                                request,
+                                                credentials.getReplayRate());
+                Date eventTime = inTranslator.getEventTime(quantum);
+                if(eventTime != null) {
+                    time = eventTime.getTime();
+                }
+                return true;
+            }
+            /**
+             * Closes the file, if open.
+             */
+            private void close()
+            {
+                quantum = null;
+                if(reader == null) {
+                    return;
+                }
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    SLF4JLoggerProxy.debug(CSVFeed.class,
+                                           e);
+                }
+                reader = null;
+            }
+            /**
+             * data filename
+             */
+            private final String dataFilename;
+            /**
+             * the position of the file in the request
+             */
+            private final int index;
+            /**
+             * the handle assigned to this file
+             */
+            private final String handle = Long.toHexString(counter.incrementAndGet());
+            /**
+             * indicates if the file has been canceled
+             */
+            private volatile boolean canceled = false;
+            /**
+             * the open file, <code>null</code> if closed
+             */
+            private MappedCSVReader reader;
+            /**
+             * the next line to replay, <code>null</code> if none
+             */
+            private CSVQuantum quantum;
+            /**
+             * the time of the next line to replay, {@link #NO_TIME} if not known
+             */
+            private long time = NO_TIME;
+        }
     }
 }
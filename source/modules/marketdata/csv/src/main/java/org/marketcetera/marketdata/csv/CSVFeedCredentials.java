@@ -1,6 +1,7 @@
 package org.marketcetera.marketdata.csv;
 
 import static org.marketcetera.marketdata.csv.Messages.INVALID_EVENT_TRANSLATOR;
+import static org.marketcetera.marketdata.csv.Messages.INVALID_REPLAY_SPEED;
 
 import java.io.File;
 
@@ -29,9 +30,11 @@ public final class CSVFeedCredentials
     @Override
     public String toString()
     {
-        return String.format("CSVFeedCredentials [eventTranslator=%s, millisecondDelay=%s]", //$NON-NLS-1$
+        return String.format("CSVFeedCredentials [eventTranslator=%s, millisecondDelay=%s, replayMode=%s, replaySpeed=%s]", //$NON-NLS-1$
                              eventTranslator,
-                             replayRate);
+                             replayRate,
+                             replayMode,
+                             replaySpeed);
     }
     /**
      * Retrieves an instance of <code>CSVFeedCredentials</code>.
@@ -48,18 +51,49 @@ public final class CSVFeedCredentials
                                           String inMarketdataDirectory,
                                           String inEventTranslatorClassname)
             throws FeedException
+    {
+        return getInstance(inReplayRate,
+                           inReplayEvents,
+                           inMarketdataDirectory,
+                           inEventTranslatorClassname,
+                           CSVFeedReplayMode.DELAY,
+                           1);
+    }
+    /**
+     * Retrieves an instance of <code>CSVFeedCredentials</code>.
+     * 
+     * @param inReplayRate a <code>long</code> value containing the rate at which to replay marketdata
+     * @param inReplayEvents a <code>boolean</code> value indicating whether to replay events upon completion
+     * @param inMarketdataDirectory a <code>String</code> value containing the marketdata files
+     * @param inEventTranslatorClassname a <code>String</code> value containing the fully-qualified name of the event translator class
+     * @param inReplayMode a <code>CSVFeedReplayMode</code> value indicating how to pace the replay
+     * @param inReplaySpeed a <code>double</code> value containing the speed at which to replay marketdata relative to its timestamps
+     * @return a <code>CSVFeedCredentials</code> value
+     * @throws FeedException if an error occurs while retrieving the credentials object
+     */
+    static CSVFeedCredentials getInstance(long inReplayRate,
+                                          boolean inReplayEvents,
+                                          String inMarketdataDirectory,
+                                          String inEventTranslatorClassname,
+                                          CSVFeedReplayMode inReplayMode,
+                                          double inReplaySpeed)
+            throws FeedException
     {
         SLF4JLoggerProxy.debug(CSVFeedCredentials.class,
-                               "Creating credentials at a replay rate of {}, replay events value of {}, marketdata directory {}, and event translator classname {}", //$NON-NLS-1$
+                               "Creating credentials at a replay rate of {}, replay events value of {}, marketdata directory {}, event translator classname {}, replay mode {}, and replay speed {}", //$NON-NLS-1$
                                inReplayRate,
                                inReplayEvents,
                                inMarketdataDirectory,
-                               inEventTranslatorClassname);
+                               inEventTranslatorClassname,
+                               inReplayMode,
+                               inReplaySpeed);
         try {
             return new CSVFeedCredentials(inReplayRate,
                                           inReplayEvents,
                                           inMarketdataDirectory,
-                                          inEventTranslatorClassname);
+                                          inEventTranslatorClassname,
+                                          inReplayMode,
+                                          inReplaySpeed);
         } catch (FeedException e) {
             throw e;
         } catch (Exception e) {
@@ -85,18 +119,51 @@ public final class CSVFeedCredentials
                                           String inMarketdataDirectory,
                                           CSVFeedEventTranslator inEventTranslator)
             throws FeedException
+    {
+        return getInstance(inReplayRate,
+                           inReplayEvents,
+                           inMarketdataDirectory,
+                           inEventTranslator,
+                           CSVFeedReplayMode.DELAY,
+                           1);
+    }
+    /**
+     * Retrieves an instance of <code>CSVFeedCredentials</code>.
+     * 
+     * @param inReplayRate a <code>long</code> value containing the rate at which to replay marketdata
+     * @param inReplayEvents a <code>boolean</code> value indicating whether to replay events upon completion
+     * @param inMarketdataDirectory a <code>String</code> value containing the marketdata files
+     * @param inEventTranslator a <code>CSVFeedEventTranslator</code> value
+     * @param inReplayMode a <code>CSVFeedReplayMode</code> value indicating how to pace the replay
+     * @param inReplaySpeed a <code>double</code> value containing the speed at which to replay marketdata relative to its timestamps
+     * @return a <code>CSVFeedCredentials</code> value
+     * @throws FeedException if an error occurs while retrieving the credentials object
+     */
+    static CSVFeedCredentials getInstance(long inReplayRate,
+                                          boolean inReplayEvents,
+                                          String inMarketdataDirectory,
+                                          CSVFeedEventTranslator inEventTranslator,
+                                          CSVFeedReplayMode inReplayMode,
+                                          double inReplaySpeed)
+            throws FeedException
     {
         SLF4JLoggerProxy.debug(CSVFeedCredentials.class,
-                               "Creating credentials at a replay rate of {}, replay events value of {}, marketdata directory {}, and event translator classname {}", //$NON-NLS-1$
+                               "Creating credentials at a replay rate of {}, replay events value of {}, marketdata directory {}, event translator {}, replay mode {}, and replay speed {}", //$NON-NLS-1$
                                inReplayRate,
                                inReplayEvents,
                                inMarketdataDirectory,
-                               inEventTranslator);
+                               inEventTranslator,
+                               inReplayMode,
+                               inReplaySpeed);
         try {
             return new CSVFeedCredentials(inReplayRate,
                                           inReplayEvents,
                                           inMarketdataDirectory,
-                                          inEventTranslator);
+                                          inEventTranslator,
+                                          inReplayMode,
+                                          inReplaySpeed);
+        } catch (FeedException e) {
+            throw e;
         } catch (Exception e) {
             INVALID_EVENT_TRANSLATOR.error(CSVFeedCredentials.class,
                                            e,
@@ -142,6 +209,24 @@ public final class CSVFeedCredentials
     {
         return replayEvents;
     }
+    /**
+     * Get the replayMode value.
+     *
+     * @return a <code>CSVFeedReplayMode</code> value
+     */
+    public CSVFeedReplayMode getReplayMode()
+    {
+        return replayMode;
+    }
+    /**
+     * Get the replaySpeed value.
+     *
+     * @return a <code>double</code> value
+     */
+    public double getReplaySpeed()
+    {
+        return replaySpeed;
+    }
     /**
      * Creates a new <code>CSVFeedCredentials</code> instance.
      * 
@@ -149,21 +234,27 @@ public final class CSVFeedCredentials
      * @param inReplayEvents a <code>boolean</code> value indicating whether to replay events upon completion
      * @param inMarketdataDirectory a <code>String</code> value containing the marketdata files
      * @param inEventTranslatorClassname a <code>String</code> value containing the fully-qualified name of the event translator class
+     * @param inReplayMode a <code>CSVFeedReplayMode</code> value indicating how to pace the replay
+     * @param inReplaySpeed a <code>double</code> value containing the speed at which to replay marketdata relative to its timestamps
      * @throws ClassNotFoundException if the given classname does not exist in the classpath 
      * @throws IllegalAccessException if the class referred to by the classname is not accessible
      * @throws InstantiationException if the class referred to by the classname cannot be instantiated
-     * @throws FeedException if the given delay is invalid 
+     * @throws FeedException if the given replay speed is invalid 
      */
 	private CSVFeedCredentials(long inReplayRate,
 	                           boolean inReplayEvents,
 	                           String inMarketdataDirectory,
-	                           String inEventTranslatorClassname)
+	                           String inEventTranslatorClassname,
+	                           CSVFeedReplayMode inReplayMode,
+	                           double inReplaySpeed)
 	        throws InstantiationException, IllegalAccessException, ClassNotFoundException, FeedException
 	{
         this(inReplayRate,
              inReplayEvents,
              inMarketdataDirectory,
-             (CSVFeedEventTranslator)Class.forName(inEventTranslatorClassname).newInstance());
+             (CSVFeedEventTranslator)Class.forName(inEventTranslatorClassname).newInstance(),
+             inReplayMode,
+             inReplaySpeed);
 	}
     /**
      * Creates a new <code>CSVFeedCredentials</code> instance.
@@ -171,19 +262,31 @@ public final class CSVFeedCredentials
      * @param inReplayRate a <code>long</code> value containing the rate at which to replay marketdata
      * @param inReplayEvents a <code>boolean</code> value indicating whether to replay events upon completion
      * @param inMarketdataDirectory a <code>String</code> value containing the marketdata files
-     * @param inEventTranslatorClassname a <code>String</code> value containing the fully-qualified name of the event translator class
+     * @param inEventTranslator a <code>CSVFeedEventTranslator</code> value
+     * @param inReplayMode a <code>CSVFeedReplayMode</code> value indicating how to pace the replay
+     * @param inReplaySpeed a <code>double</code> value containing the speed at which to replay marketdata relative to its timestamps
      * @throws FeedException if an error occurs while constructing the credentials object
      */
     private CSVFeedCredentials(long inReplayRate,
                                boolean inReplayEvents,
                                String inMarketdataDirectory,
-                               CSVFeedEventTranslator inEventTranslator)
+                               CSVFeedEventTranslator inEventTranslator,
+                               CSVFeedReplayMode inReplayMode,
+                               double inReplaySpeed)
             throws FeedException 
     {
-        if(inEventTranslator == null) {
+        if(inEventTranslator == null ||
+           inReplayMode == null) {
             throw new NullPointerException();
         }
+        if(!(inReplaySpeed > 0) ||
+           Double.isInfinite(inReplaySpeed)) {
+            throw new FeedException(new I18NBoundMessage1P(INVALID_REPLAY_SPEED,
+                                                           inReplaySpeed));
+        }
         replayRate = inReplayRate;
+        replayMode = inReplayMode;
+        replaySpeed = inReplaySpeed;
         replayEvents = inReplayEvents;
         marketdataDirectory = new File(inMarketdataDirectory);
         Validate.isTrue(marketdataDirectory.exists(),
@@ -204,6 +307,14 @@ public final class CSVFeedCredentials
      * indicates whether to replay events upon completion
      */
     private final boolean replayEvents;
+    /**
+     * indicates how to pace the replay
+     */
+    private final CSVFeedReplayMode replayMode;
+    /**
+     * the speed at which to replay marketdata relative to its timestamps in {@link CSVFeedReplayMode#TIMESTAMP} mode
+     */
+    private final double replaySpeed;
     /**
      * the event translator to use 
      */
@@ -1,10 +1,11 @@
 package org.marketcetera.marketdata.csv;
 
+import java.util.Date;
 import java.util.List;
 
 import org.marketcetera.core.CoreException;
 import org.marketcetera.event.Event;
-import org.marketcetera.event.EventTranslator;
+import org.marketcetera.event.BatchEventTranslator;
 import org.marketcetera.util.misc.ClassVersion;
 
 /**
@@ -21,6 +22,11 @@ import org.marketcetera.util.misc.ClassVersion;
  * absolutely be stateless.  A single instance of the subclass will be used to translate
  * all lines for all CSV files in the same session, with no concurrency guarantees.
  * 
+ * <p>The feed translates each line by calling {@link #toEvents(Object, String, List)}, which,
+ * unless overridden, appends the events returned by {@link #toEvent(Object, String)}.  Subclasses
+ * may override {@link #toEvents(Object, String, List)} as well to append their events without
+ * allocating a list for each line.
+ * 
  * @author toli kuznets
  * @author <a href="mailto:colin@marketcetera.com">Colin DuPlantis</a>
  * @since 2.1.0
@@ -28,7 +34,7 @@ import org.marketcetera.util.misc.ClassVersion;
  */
 @ClassVersion("$Id$")
 public class CSVFeedEventTranslator
-        implements EventTranslator
+        implements BatchEventTranslator
 {
     /* (non-Javadoc)
      * @see org.marketcetera.event.IEventTranslator#translate(java.lang.Object)
@@ -39,6 +45,33 @@ public class CSVFeedEventTranslator
     {
         throw new UnsupportedOperationException();
     }
+    /* (non-Javadoc)
+     * @see org.marketcetera.event.BatchEventTranslator#toEvents(java.lang.Object, java.lang.String, java.util.List)
+     */
+    @Override
+    public void toEvents(Object inData,
+                         String inHandle,
+                         List<Event> outEvents)
+            throws CoreException
+    {
+        outEvents.addAll(toEvent(inData,
+                                 inHandle));
+    }
+    /**
+     * Gets the time at which the given line of market data occurred.
+     *
+     * <p>The feed uses this time to pace the replay in {@link CSVFeedReplayMode#TIMESTAMP} mode and to
+     * replay the lines of several files in time order.  The default implementation returns <code>null</code>:
+     * a line with no time is replayed in file order without waiting, and if the first line of a file has
+     * no time, the files of the request are replayed concurrently instead of in time order.
+     *
+     * @param inData a <code>CSVQuantum</code> value
+     * @return a <code>Date</code> value or <code>null</code> if the time is not known
+     */
+    public Date getEventTime(CSVQuantum inData)
+    {
+        return null;
+    }
     /* (non-Javadoc)
      * @see org.marketcetera.event.IEventTranslator#translate(org.marketcetera.event.Event)
      */
@@ -76,4 +76,32 @@ public interface CSVFeedMXBean
      */
     @DisplayName("Indicates if events should be replayed upon completion")
     public void setReplayEvents(String inReplayEvents);
+    /**
+     * Gets the mode that determines how data is paced.
+     *
+     * @return a <code>String</code> value
+     */
+    @DisplayName("How data is paced: DELAY, FASTEST, or TIMESTAMP")
+    public String getReplayMode();
+    /**
+     * Sets the mode that determines how data is paced.
+     *
+     * @param inReplayMode a <code>String</code> value
+     */
+    @DisplayName("How data is paced: DELAY, FASTEST, or TIMESTAMP")
+    public void setReplayMode(String inReplayMode);
+    /**
+     * Gets the speed at which data is replayed relative to its timestamps.
+     *
+     * @return a <code>String</code> value
+     */
+    @DisplayName("The speed at which data is replayed relative to its timestamps in TIMESTAMP mode")
+    public String getReplaySpeed();
+    /**
+     * Sets the speed at which data is replayed relative to its timestamps.
+     *
+     * @param inReplaySpeed a <code>String</code> value
+     */
+    @DisplayName("The speed at which data is replayed relative to its timestamps in TIMESTAMP mode")
+    public void setReplaySpeed(String inReplaySpeed);
 }
@@ -83,6 +83,38 @@ public class CSVFeedModule
     {
         replayEvents = Boolean.valueOf(StringUtils.trimToNull(inReplayEvents));
     }
+    /* (non-Javadoc)
+     * @see org.marketcetera.marketdata.csv.CSVFeedMXBean#getReplayMode()
+     */
+    @Override
+    public String getReplayMode()
+    {
+        return replayMode.name();
+    }
+    /* (non-Javadoc)
+     * @see org.marketcetera.marketdata.csv.CSVFeedMXBean#setReplayMode(java.lang.String)
+     */
+    @Override
+    public void setReplayMode(String inReplayMode)
+    {
+        replayMode = CSVFeedReplayMode.valueOf(StringUtils.trimToNull(inReplayMode).toUpperCase());
+    }
+    /* (non-Javadoc)
+     * @see org.marketcetera.marketdata.csv.CSVFeedMXBean#getReplaySpeed()
+     */
+    @Override
+    public String getReplaySpeed()
+    {
+        return String.valueOf(replaySpeed);
+    }
+    /* (non-Javadoc)
+     * @see org.marketcetera.marketdata.csv.CSVFeedMXBean#setReplaySpeed(java.lang.String)
+     */
+    @Override
+    public void setReplaySpeed(String inReplaySpeed)
+    {
+        replaySpeed = Double.parseDouble(StringUtils.trimToNull(inReplaySpeed));
+    }
     /* (non-Javadoc)
      * @see java.lang.Object#toString()
      */
@@ -113,7 +145,9 @@ public class CSVFeedModule
         return CSVFeedCredentials.getInstance(replayRate,
                                               replayEvents,
                                               marketdataDirectory,
-                                              getEventTranslatorClassName());
+                                              getEventTranslatorClassName(),
+                                              replayMode,
+                                              replaySpeed);
     }
     /**
      * the event translator classname to use
@@ -131,4 +165,12 @@ public class CSVFeedModule
      * indicates if events should be replayed upon completion
      */
     private volatile boolean replayEvents = false;
+    /**
+     * indicates how events are paced
+     */
+    private volatile CSVFeedReplayMode replayMode = CSVFeedReplayMode.DELAY;
+    /**
+     * speed at which events are replayed relative to their timestamps
+     */
+    private volatile double replaySpeed = 1;
 }
@@ -0,0 +1,29 @@
+package org.marketcetera.marketdata.csv;
+
+import org.marketcetera.util.misc.ClassVersion;
+
+/* $License$ */
+
+/**
+ * Indicates how {@link CSVFeed} paces the replay of market data.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+public enum CSVFeedReplayMode
+{
+    /**
+     * waits the replay rate, in milliseconds, before each line of each file, the files being replayed concurrently
+     */
+    DELAY,
+    /**
+     * replays the lines as fast as they can be translated and published
+     */
+    FASTEST,
+    /**
+     * replays the lines at the pace of their timestamps divided by the replay speed: a replay speed of 1 replays
+     * the lines at wall-clock pace, a replay speed of 10 ten times faster
+     */
+    TIMESTAMP;
+}
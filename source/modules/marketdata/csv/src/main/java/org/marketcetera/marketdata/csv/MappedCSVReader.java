@@ -0,0 +1,300 @@
+package org.marketcetera.marketdata.csv;
+
+import static org.marketcetera.marketdata.csv.Messages.MALFORMED_CSV_LINE;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.marketcetera.util.misc.ClassVersion;
+
+/* $License$ */
+
+/**
+ * Reads the lines of a CSV file mapped into memory.
+ *
+ * <p>The file is mapped a window at a time, so files of any size may be read, and each line is parsed only when
+ * {@link #getLine()} is called.  Lines are parsed the same way as <code>CSVStrategy.EXCEL_STRATEGY</code> parses them:
+ * fields are separated by commas, a field that starts with a double quote extends to the matching double quote and may
+ * contain commas, line breaks, and doubled double quotes, and empty lines yield a single empty field.  Fields are decoded
+ * with the platform default charset.
+ *
+ * <p>This object is not thread-safe.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+class MappedCSVReader
+        implements Closeable
+{
+    /**
+     * Create a new MappedCSVReader instance.
+     *
+     * @param inFile a <code>File</code> value
+     * @throws IOException if the file cannot be opened
+     */
+    MappedCSVReader(File inFile)
+            throws IOException
+    {
+        this(inFile,
+             DEFAULT_WINDOW_SIZE);
+    }
+    /**
+     * Create a new MappedCSVReader instance.
+     *
+     * @param inFile a <code>File</code> value
+     * @param inWindowSize an <code>int</code> value containing the number of bytes of the file to map at a time
+     * @throws IOException if the file cannot be opened
+     */
+    MappedCSVReader(File inFile,
+                    int inWindowSize)
+            throws IOException
+    {
+        Validate.isTrue(inWindowSize > 0);
+        fileName = inFile.getPath();
+        file = new RandomAccessFile(inFile,
+                                    "r"); //$NON-NLS-1$
+        channel = file.getChannel();
+        length = channel.size();
+        windowSize = inWindowSize;
+    }
+    /**
+     * Reads the next line of the file.
+     *
+     * @return a <code>String[]</code> value containing the fields of the line or <code>null</code> if the end of the file has been reached
+     * @throws IOException if the file cannot be read or the line is malformed
+     */
+    String[] getLine()
+            throws IOException
+    {
+        int c = read();
+        if(c == EOF) {
+            return null;
+        }
+        lineNumber += 1;
+        fields.clear();
+        while(true) {
+            fieldLength = 0;
+            if(c == QUOTE) {
+                c = readQuotedField();
+            } else {
+                while(c != DELIMITER &&
+                      c != CR &&
+                      c != LF &&
+                      c != EOF) {
+                    append(c);
+                    c = read();
+                }
+            }
+            fields.add(new String(field,
+                                  0,
+                                  fieldLength,
+                                  charset));
+            if(c == DELIMITER) {
+                c = read();
+                continue;
+            }
+            if(c == CR &&
+               read() != LF) {
+                unread();
+            }
+            return fields.toArray(new String[fields.size()]);
+        }
+    }
+    /* (non-Javadoc)
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close()
+            throws IOException
+    {
+        // a mapped window cannot be released explicitly, it is released once it is garbage-collected
+        window = null;
+        try {
+            channel.close();
+        } finally {
+            file.close();
+        }
+    }
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("MappedCSVReader [%s line %s]", //$NON-NLS-1$
+                             fileName,
+                             lineNumber);
+    }
+    /**
+     * Reads the remainder of a field that starts with a double quote.
+     *
+     * @return an <code>int</code> value containing the character that follows the field
+     * @throws IOException if the file cannot be read or the field is malformed
+     */
+    private int readQuotedField()
+            throws IOException
+    {
+        while(true) {
+            int c = read();
+            if(c == EOF) {
+                throw new IOException(MALFORMED_CSV_LINE.getText(lineNumber,
+                                                                 fileName));
+            }
+            if(c == QUOTE) {
+                c = read();
+                if(c == QUOTE) {
+                    append(QUOTE);
+                    continue;
+                }
+                while(c == ' ' ||
+                      c == '\t') {
+                    c = read();
+                }
+                if(c == DELIMITER ||
+                   c == CR ||
+                   c == LF ||
+                   c == EOF) {
+                    return c;
+                }
+                throw new IOException(MALFORMED_CSV_LINE.getText(lineNumber,
+                                                                 fileName));
+            }
+            if(c == LF) {
+                lineNumber += 1;
+            }
+            append(c);
+        }
+    }
+    /**
+     * Appends the given byte to the field being read.
+     *
+     * @param inByte an <code>int</code> value
+     */
+    private void append(int inByte)
+    {
+        if(fieldLength == field.length) {
+            byte[] newField = new byte[field.length * 2];
+            System.arraycopy(field,
+                             0,
+                             newField,
+                             0,
+                             fieldLength);
+            field = newField;
+        }
+        field[fieldLength++] = (byte)inByte;
+    }
+    /**
+     * Reads the next byte of the file, mapping the next window of the file if necessary.
+     *
+     * @return an <code>int</code> value containing the byte or {@link #EOF}
+     * @throws IOException if the file cannot be read
+     */
+    private int read()
+            throws IOException
+    {
+        if(position >= length) {
+            position += 1;
+            return EOF;
+        }
+        if(window == null ||
+           !window.hasRemaining()) {
+            window = channel.map(FileChannel.MapMode.READ_ONLY,
+                                 position,
+                                 Math.min(windowSize,
+                                          length - position));
+        }
+        position += 1;
+        return window.get() & 0xff;
+    }
+    /**
+     * Steps back over the byte last returned by {@link #read()}.
+     */
+    private void unread()
+    {
+        position -= 1;
+        if(position < length) {
+            window.position(window.position() - 1);
+        }
+    }
+    /**
+     * value returned by {@link #read()} at the end of the file
+     */
+    private static final int EOF = -1;
+    /**
+     * separates fields
+     */
+    private static final int DELIMITER = ',';
+    /**
+     * encloses fields that contain delimiters, line breaks, or quotes
+     */
+    private static final int QUOTE = '"';
+    /**
+     * carriage return
+     */
+    private static final int CR = '\r';
+    /**
+     * line feed
+     */
+    private static final int LF = '\n';
+    /**
+     * number of bytes mapped at a time unless otherwise specified
+     */
+    static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+    /**
+     * the name of the file being read
+     */
+    private final String fileName;
+    /**
+     * the file being read
+     */
+    private final RandomAccessFile file;
+    /**
+     * the channel used to map the file
+     */
+    private final FileChannel channel;
+    /**
+     * the length of the file in bytes
+     */
+    private final long length;
+    /**
+     * number of bytes to map at a time
+     */
+    private final int windowSize;
+    /**
+     * the charset used to decode fields
+     */
+    private final Charset charset = Charset.defaultCharset();
+    /**
+     * the fields of the line being read
+     */
+    private final List<String> fields = new ArrayList<String>();
+    /**
+     * the currently mapped window of the file, <code>null</code> if none
+     */
+    private MappedByteBuffer window;
+    /**
+     * the offset in the file of the next byte to read
+     */
+    private long position = 0;
+    /**
+     * the bytes of the field being read
+     */
+    private byte[] field = new byte[256];
+    /**
+     * the number of bytes of the field being read
+     */
+    private int fieldLength;
+    /**
+     * the number of the line being read, starting at 1
+     */
+    private long lineNumber = 0;
+}
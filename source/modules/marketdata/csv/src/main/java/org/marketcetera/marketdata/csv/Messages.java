@@ -73,4 +73,8 @@ public interface Messages
                                                                                          "unable_to_construct_marketstat"); //$NON-NLS-1$
     public static final I18NMessage0P EMPTY_LINE = new I18NMessage0P(LOGGER,
                                                                      "empty_line"); //$NON-NLS-1$
+    public static final I18NMessage2P MALFORMED_CSV_LINE = new I18NMessage2P(LOGGER,
+                                                                             "malformed_csv_line"); //$NON-NLS-1$
+    public static final I18NMessage1P INVALID_REPLAY_SPEED = new I18NMessage1P(LOGGER,
+                                                                               "invalid_replay_speed"); //$NON-NLS-1$
 }
@@ -13,8 +13,11 @@
  * 
  * <p>To specify a file to read from, pass the absolute or relative path of the file as a symbol in a market data request with
  * {@link org.marketcetera.marketdata.MarketDataRequestBuilder#withSymbols(String)}.  Each "symbol" in this context should be a distinct file
- * name.  All files will be read more or less simultaneously and the lines passed to the event translator described above.  The market data
- * request will stop when all files have been read.</p>
+ * name.  The lines of each file are passed to the event translator described above.  The market data
+ * request will stop when all files have been read.  The replay is paced according to {@link CSVFeedReplayMode}: with a fixed delay
+ * between the lines of each file, as fast as possible, or at a multiple of the pace of the line timestamps.  In the latter two modes,
+ * if every file starts with a line whose time is returned by {@link CSVFeedEventTranslator#getEventTime(CSVQuantum)}, the files
+ * of a request are read together and their lines merged in time order.  Otherwise, the files are read concurrently.</p>
  * 
  * <p>One should set the Esper CEP module to <em>external time</em> if using this module to replay historical data.</p>
  */
@@ -6,7 +6,12 @@ import static org.junit.Assert.fail;
 import static org.marketcetera.marketdata.Capability.LATEST_TICK;
 import static org.marketcetera.marketdata.Capability.TOP_OF_BOOK;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.math.BigDecimal;
+import java.util.Date;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 
@@ -148,6 +153,99 @@ public class CSVFeedModuleTest
         }
 
     }
+    /**
+     * Tests that the lines of several files with times are merged in time order and paced by their times.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test(timeout = 60*1000)
+    public void testMergeByTime() throws Exception {
+        final BlockingQueue<Event> events = new ArrayBlockingQueue<Event>(50);
+        moduleManager.addSinkListener(new SinkDataListener() {
+            @Override
+            public void receivedData(DataFlowID inFlowID, Object inData) {
+                events.add((Event) inData);
+            }
+        });
+        File dir = createDataDirectory();
+        writeFile(dir, "A.csv", "1000,A,N,10,100,BID", "1200,A,N,10,100,BID", "1400,A,N,10,100,BID");
+        writeFile(dir, "B.csv", "1100,B,N,10,100,BID", "1300,B,N,10,100,BID", "1500,B,N,10,100,BID");
+        CSVFeed feed = CSVFeedFactory.getInstance().getMarketDataFeed();
+        feed.doLogin(CSVFeedCredentials.getInstance(0,
+                                                    false,
+                                                    dir.getAbsolutePath(),
+                                                    new TimedCSVFeedEventTranslator(),
+                                                    CSVFeedReplayMode.TIMESTAMP,
+                                                    1));
+        long start = System.currentTimeMillis();
+        DataFlowID dfid = moduleManager.createDataFlow(new DataRequest[] { new DataRequest(getInstanceURN(),
+                                                                                          MarketDataRequestBuilder.newRequest().withSymbols("A.csv", "B.csv")
+                                                                                                                               .withContent("TOP_OF_BOOK").create()) });
+        try {
+            for(int i=0; i<6; i++) {
+                Event event = events.take();
+                assertEquals(1000 + 100 * i, event.getTimeMillis());
+                assertEquals(i % 2 == 0 ? "A" : "B", ((BidEvent)event).getInstrument().getSymbol());
+            }
+            // the last line is 500ms after the first
+            assertTrue(System.currentTimeMillis() - start >= 450);
+        } finally {
+            moduleManager.cancel(dfid);
+        }
+    }
+
+    /**
+     * Tests that, with a delay between lines, each file is replayed on its own at the replay rate.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test(timeout = 60*1000)
+    public void testDelayPerFile() throws Exception {
+        final BlockingQueue<Event> events = new ArrayBlockingQueue<Event>(50);
+        moduleManager.addSinkListener(new SinkDataListener() {
+            @Override
+            public void receivedData(DataFlowID inFlowID, Object inData) {
+                events.add((Event) inData);
+            }
+        });
+        File dir = createDataDirectory();
+        String[] linesA = new String[10];
+        String[] linesB = new String[10];
+        for(int i=0; i<10; i++) {
+            linesA[i] = (1000 + i) + ",A,N,10,100,BID";
+            linesB[i] = (1000 + i) + ",B,N,10,100,BID";
+        }
+        writeFile(dir, "A.csv", linesA);
+        writeFile(dir, "B.csv", linesB);
+        CSVFeed feed = CSVFeedFactory.getInstance().getMarketDataFeed();
+        feed.doLogin(CSVFeedCredentials.getInstance(100,
+                                                    false,
+                                                    dir.getAbsolutePath(),
+                                                    MockCSVFeedEventTranslator.class.getName()));
+        long start = System.currentTimeMillis();
+        DataFlowID dfid = moduleManager.createDataFlow(new DataRequest[] { new DataRequest(getInstanceURN(),
+                                                                                          MarketDataRequestBuilder.newRequest().withSymbols("A.csv", "B.csv")
+                                                                                                                               .withContent("TOP_OF_BOOK").create()) });
+        try {
+            int countA = 0, countB = 0;
+            for(int i=0; i<20; i++) {
+                Event event = events.take();
+                if("A".equals(((BidEvent)event).getInstrument().getSymbol())) {
+                    countA++;
+                } else {
+                    countB++;
+                }
+                // neither file waits for the other to be replayed
+                assertTrue(Math.abs(countA - countB) <= 5);
+            }
+            assertEquals(10, countA);
+            assertEquals(10, countB);
+            // replayed one after the other, the 20 lines would take at least 2s
+            assertTrue(System.currentTimeMillis() - start < 2000);
+        } finally {
+            moduleManager.cancel(dfid);
+        }
+    }
     /* (non-Javadoc)
      * @see org.marketcetera.marketdata.MarketDataModuleTestBase#dataRequestFromString()
      */
@@ -164,4 +262,60 @@ public class CSVFeedModuleTest
             throws Exception
     {
     }
+    /**
+     * Creates an empty directory for market data files, deleted on exit.
+     *
+     * @return a <code>File</code> value
+     * @throws IOException if the directory cannot be created
+     */
+    private static File createDataDirectory()
+            throws IOException
+    {
+        File dir = File.createTempFile("csvfeed", "");
+        dir.delete();
+        dir.mkdir();
+        dir.deleteOnExit();
+        return dir;
+    }
+    /**
+     * Writes the given lines to a market data file, deleted on exit.
+     *
+     * @param inDirectory a <code>File</code> value
+     * @param inName a <code>String</code> value
+     * @param inLines a <code>String...</code> value
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeFile(File inDirectory,
+                                  String inName,
+                                  String... inLines)
+            throws IOException
+    {
+        File file = new File(inDirectory,
+                             inName);
+        file.deleteOnExit();
+        PrintWriter writer = new PrintWriter(new FileWriter(file));
+        try {
+            for(String line : inLines) {
+                writer.println(line);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+    /**
+     * Translates lines as {@link MockCSVFeedEventTranslator} does, the time of each line
+     * being its first column.
+     */
+    public static class TimedCSVFeedEventTranslator
+            extends MockCSVFeedEventTranslator
+    {
+        /* (non-Javadoc)
+         * @see org.marketcetera.marketdata.csv.CSVFeedEventTranslator#getEventTime(org.marketcetera.marketdata.csv.CSVQuantum)
+         */
+        @Override
+        public Date getEventTime(CSVQuantum inData)
+        {
+            return new Date(Long.parseLong(inData.getLine()[0]));
+        }
+    }
 }
@@ -0,0 +1,161 @@
+package org.marketcetera.marketdata.csv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.marketcetera.marketdata.csv.Messages.MALFORMED_CSV_LINE;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVStrategy;
+import org.junit.Test;
+import org.marketcetera.module.ExpectedFailure;
+
+/* $License$ */
+
+/**
+ * Tests {@link MappedCSVReader}.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+public class MappedCSVReaderTest
+{
+    /**
+     * Tests reading simple and quoted fields with different line endings.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void testLines()
+            throws Exception
+    {
+        File file = write("12345,GOOG,N,400,100,TRADE\r\n" +
+                          "a,\"b,c\",\"d \"\"e\"\"\"\n" +
+                          "\n" +
+                          "\"multi\nline\",x,\rlast,\"\"");
+        MappedCSVReader reader = new MappedCSVReader(file);
+        try {
+            assertArrayEquals(new String[] { "12345", "GOOG", "N", "400", "100", "TRADE" },
+                              reader.getLine());
+            assertArrayEquals(new String[] { "a", "b,c", "d \"e\"" },
+                              reader.getLine());
+            assertArrayEquals(new String[] { "" },
+                              reader.getLine());
+            assertArrayEquals(new String[] { "multi\nline", "x", "" },
+                              reader.getLine());
+            assertArrayEquals(new String[] { "last", "" },
+                              reader.getLine());
+            assertNull(reader.getLine());
+            assertNull(reader.getLine());
+        } finally {
+            reader.close();
+        }
+    }
+    /**
+     * Tests that an empty file has no lines.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void testEmptyFile()
+            throws Exception
+    {
+        MappedCSVReader reader = new MappedCSVReader(write(""));
+        try {
+            assertNull(reader.getLine());
+        } finally {
+            reader.close();
+        }
+    }
+    /**
+     * Tests that a quoted field that is not terminated properly is rejected.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void testMalformedField()
+            throws Exception
+    {
+        for(String contents : new String[] { "a,b\n\"c,d", "a,b\n\"c\"d,e" }) {
+            final File file = write(contents);
+            final MappedCSVReader reader = new MappedCSVReader(file);
+            try {
+                assertArrayEquals(new String[] { "a", "b" },
+                                  reader.getLine());
+                new ExpectedFailure<IOException>(MALFORMED_CSV_LINE.getText(2L,
+                                                                            file.getPath())) {
+                    @Override
+                    protected void run()
+                            throws Exception
+                    {
+                        reader.getLine();
+                    }
+                };
+            } finally {
+                reader.close();
+            }
+        }
+    }
+    /**
+     * Tests that lines that span the mapped windows of a file are read the same way as <code>CSVParser</code> reads them.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void testWindows()
+            throws Exception
+    {
+        Random random = new Random(20101016);
+        String[] tokens = { "1288000000000", "GOOG", "N", "400.25", "\"a,b\"", "\"say \"\"hi\"\"\"", "", "\"x\ny\"" };
+        String[] separators = { ",", ",", ",", "\n", "\r\n" };
+        StringBuilder contents = new StringBuilder();
+        for(int i=0;i<2000;i++) {
+            contents.append(tokens[random.nextInt(tokens.length)])
+                    .append(separators[random.nextInt(separators.length)]);
+        }
+        File file = write(contents.toString());
+        for(int windowSize : new int[] { 1, 7, 64, 4096, MappedCSVReader.DEFAULT_WINDOW_SIZE }) {
+            CSVParser parser = new CSVParser(new FileReader(file),
+                                             CSVStrategy.EXCEL_STRATEGY);
+            MappedCSVReader reader = new MappedCSVReader(file,
+                                                         windowSize);
+            try {
+                String[] expected;
+                do {
+                    expected = parser.getLine();
+                    assertArrayEquals(expected,
+                                      reader.getLine());
+                } while(expected != null);
+            } finally {
+                reader.close();
+            }
+        }
+    }
+    /**
+     * Writes the given contents to a temporary file.
+     *
+     * @param inContents a <code>String</code> value
+     * @return a <code>File</code> value
+     * @throws IOException if the file cannot be written
+     */
+    private static File write(String inContents)
+            throws IOException
+    {
+        File file = File.createTempFile("marketdata",
+                                        ".csv");
+        file.deleteOnExit();
+        OutputStream stream = new FileOutputStream(file);
+        try {
+            stream.write(inContents.getBytes());
+        } finally {
+            stream.close();
+        }
+        return file;
+    }
+}
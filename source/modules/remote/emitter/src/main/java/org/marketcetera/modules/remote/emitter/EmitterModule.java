@@ -88,6 +88,41 @@ class EmitterModule extends Module
         return null;
     }
 
+    @Override
+    public long getReceivedObjects() {
+        RemoteDataEmitter emitter = mDataEmitter;
+        return emitter == null ? 0 : emitter.getReceivedObjects();
+    }
+
+    @Override
+    public long getReceivedMessages() {
+        RemoteDataEmitter emitter = mDataEmitter;
+        return emitter == null ? 0 : emitter.getReceivedMessages();
+    }
+
+    @Override
+    public double getMeanBatchSize() {
+        RemoteDataEmitter emitter = mDataEmitter;
+        if(emitter == null || emitter.getReceivedMessages() == 0) {
+            return 0;
+        }
+        return (double) emitter.getReceivedObjects() /
+                emitter.getReceivedMessages();
+    }
+
+    @Override
+    public double getObjectsPerSecond() {
+        RemoteDataEmitter emitter = mDataEmitter;
+        if(emitter == null) {
+            return 0;
+        }
+        long elapsed = System.currentTimeMillis() - emitter.getConnectTime();
+        if(elapsed <= 0) {
+            return 0;
+        }
+        return emitter.getReceivedObjects() * 1000.0 / elapsed;
+    }
+
     @Override
     public void removeNotificationListener(NotificationListener listener,
                                            NotificationFilter filter,
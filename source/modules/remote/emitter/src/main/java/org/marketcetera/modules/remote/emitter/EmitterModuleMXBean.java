@@ -98,4 +98,41 @@ public interface EmitterModuleMXBean {
      */
     @DisplayName("The last failure encountered when receiving objects, if any.")
     public String getLastFailure();
+
+    /**
+     * Returns the number of objects received from the remote receiver
+     * since the module was started.
+     *
+     * @return the number of objects received.
+     */
+    @DisplayName("The number of objects received")
+    public long getReceivedObjects();
+
+    /**
+     * Returns the number of messages received from the remote receiver
+     * since the module was started. A message contains either a single
+     * object or a batch of objects.
+     *
+     * @return the number of messages received.
+     */
+    @DisplayName("The number of messages received")
+    public long getReceivedMessages();
+
+    /**
+     * Returns the mean number of objects per message received from
+     * the remote receiver since the module was started.
+     *
+     * @return the mean batch size, zero if no messages have been received.
+     */
+    @DisplayName("The mean number of objects per message received")
+    public double getMeanBatchSize();
+
+    /**
+     * Returns the mean number of objects received per second from the
+     * remote receiver since the module was started.
+     *
+     * @return the mean throughput, zero if the module is not started.
+     */
+    @DisplayName("The mean number of objects received per second")
+    public double getObjectsPerSecond();
 }
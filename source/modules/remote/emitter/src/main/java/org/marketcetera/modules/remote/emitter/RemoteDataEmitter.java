@@ -1,5 +1,8 @@
 package org.marketcetera.modules.remote.emitter;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.marketcetera.jms.ObjectBatch;
 import org.marketcetera.util.misc.ClassVersion;
 import org.marketcetera.util.spring.SpringUtils;
 import org.springframework.context.support.StaticApplicationContext;
@@ -58,6 +61,7 @@ public class RemoteDataEmitter {
         MessagingDelegate delegate = (MessagingDelegate) mContext.getBean(
                 "delegate", MessagingDelegate.class);  //$NON-NLS-1$
         delegate.setDataEmitter(this);
+        mConnectTime = System.currentTimeMillis();
         //Reset last failure
         setLastFailure(null);
         //Send notification that the module is now connected.
@@ -114,14 +118,54 @@ public class RemoteDataEmitter {
         return mContext != null && mLastFailure == null;
     }
 
+    /**
+     * Returns the number of objects received from the remote source.
+     *
+     * @return the number of objects received.
+     */
+    public long getReceivedObjects() {
+        return mReceivedObjects.get();
+    }
+
+    /**
+     * Returns the number of messages received from the remote source.
+     * A message contains either a single object or a batch of objects.
+     *
+     * @return the number of messages received.
+     */
+    public long getReceivedMessages() {
+        return mReceivedMessages.get();
+    }
+
+    /**
+     * Returns the time at which the connection to the remote source
+     * was established.
+     *
+     * @return the time in milliseconds since the epoch.
+     */
+    public long getConnectTime() {
+        return mConnectTime;
+    }
+
     /**
      * Receives the data received from the remote source.
-     * The received data is handed off to the adapter.
+     * The received data is handed off to the adapter. The objects of
+     * a batch are handed off one at a time, in the order they were
+     * batched.
      *
      * @param inObject the data received from the remote source.
      */
     void receive(Object inObject) {
-        mAdapter.receiveData(inObject);
+        mReceivedMessages.incrementAndGet();
+        if(inObject instanceof ObjectBatch) {
+            for(Object object: ((ObjectBatch) inObject).getObjects()) {
+                mReceivedObjects.incrementAndGet();
+                mAdapter.receiveData(object);
+            }
+        } else {
+            mReceivedObjects.incrementAndGet();
+            mAdapter.receiveData(inObject);
+        }
     }
 
     /**
@@ -171,4 +215,7 @@ public class RemoteDataEmitter {
     private volatile ClassPathXmlApplicationContext mContext;
     private volatile Exception mLastFailure;
     private final EmitterAdapter mAdapter;
+    private final AtomicLong mReceivedObjects = new AtomicLong();
+    private final AtomicLong mReceivedMessages = new AtomicLong();
+    private volatile long mConnectTime;
 }
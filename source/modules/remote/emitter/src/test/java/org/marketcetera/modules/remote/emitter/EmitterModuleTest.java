@@ -7,6 +7,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Date;
 import java.util.Deque;
 import java.util.LinkedList;
 
@@ -23,6 +24,7 @@ import org.marketcetera.event.EventTestBase;
 import org.marketcetera.event.LogEvent;
 import org.marketcetera.event.LogEventLevel;
 import org.marketcetera.event.impl.LogEventBuilder;
+import org.marketcetera.event.impl.TopOfBookEventBuilder;
 import org.marketcetera.module.BlockingSinkDataListener;
 import org.marketcetera.module.CopierModuleFactory;
 import org.marketcetera.module.DataFlowID;
@@ -261,6 +263,151 @@ public class EmitterModuleTest extends RemoteEmitterTestBase {
         mManager.cancel(eFlowID);
     }
 
+    /**
+     * Verifies that objects batched by the receiver are emitted
+     * individually, in order, and that the emitter reports the batches.
+     *
+     * @throws Exception if there's an error.
+     */
+    @Test(timeout = 10000)
+    public void batchedFlows() throws Exception {
+        initManager();
+        ReceiverModuleMXBean receiver = configureBatching(5, false);
+        mManager.createModule(EmitterFactory.PROVIDER_URN,
+                TEST_INSTANCE_URN.instanceName());
+        EmitterModuleMXBean emitter = JMX.newMXBeanProxy(getMBeanServer(),
+                TEST_INSTANCE_URN.toObjectName(), EmitterModuleMXBean.class);
+        assertEquals(0, emitter.getReceivedObjects());
+        assertEquals(0, emitter.getReceivedMessages());
+        assertEquals(0.0, emitter.getMeanBatchSize(), 0.0);
+        BlockingSinkDataListener listener = new BlockingSinkDataListener();
+        mManager.addSinkListener(listener);
+        DataFlowID eFlowID = mManager.createDataFlow(new DataRequest[]{
+                new DataRequest(TEST_INSTANCE_URN)}, true);
+        Object[] data = new Object[12];
+        for(int i = 0; i < data.length; i++) {
+            data[i] = EventTestBase.generateEquityTradeEvent(i, i,
+                    new Equity("sym" + i), "ex", BigDecimal.ONE, BigDecimal.TEN);
+        }
+        DataFlowID rFlowID = mManager.createDataFlow(new DataRequest[]{
+                new DataRequest(CopierModuleFactory.INSTANCE_URN, data),
+                new DataRequest(ReceiverFactory.INSTANCE_URN)
+        }, false);
+        //the last objects are sent once the batch interval elapses
+        for(Object expected: data) {
+            assertEquals(expected, listener.getNextData());
+        }
+        //batches may also be sent early when the batch interval elapses
+        long messages = emitter.getReceivedMessages();
+        assertTrue(String.valueOf(messages), messages >= 3 && messages < 12);
+        assertEquals(12, emitter.getReceivedObjects());
+        assertEquals(12.0 / messages, emitter.getMeanBatchSize(), 0.0001);
+        assertTrue(emitter.getObjectsPerSecond() > 0);
+        assertEquals(12, receiver.getTransmittedObjects());
+        assertEquals(messages, receiver.getTransmittedMessages());
+        mManager.cancel(rFlowID);
+        mManager.cancel(eFlowID);
+    }
+
+    /**
+     * Verifies that the receiver conflates top of book events, and only
+     * those, within a batch.
+     *
+     * @throws Exception if there's an error.
+     */
+    @Test(timeout = 10000)
+    public void conflatedQuotes() throws Exception {
+        initManager();
+        ReceiverModuleMXBean receiver = configureBatching(100, true);
+        mManager.createModule(EmitterFactory.PROVIDER_URN,
+                TEST_INSTANCE_URN.instanceName());
+        BlockingSinkDataListener listener = new BlockingSinkDataListener();
+        mManager.addSinkListener(listener);
+        DataFlowID eFlowID = mManager.createDataFlow(new DataRequest[]{
+                new DataRequest(TEST_INSTANCE_URN)}, true);
+        Equity equity = new Equity("sym");
+        Object top1 = createTopOfBook(1, equity, "ex", "ex", BigDecimal.ONE);
+        Object bid1 = EventTestBase.generateEquityBidEvent(2, 2, equity, "ex",
+                BigDecimal.ONE, BigDecimal.TEN);
+        Object ask1 = EventTestBase.generateEquityAskEvent(3, 3, equity, "ex",
+                BigDecimal.TEN, BigDecimal.TEN);
+        Object trade = EventTestBase.generateEquityTradeEvent(4, 4, equity, "ex",
+                BigDecimal.ONE, BigDecimal.TEN);
+        Object bid2 = EventTestBase.generateEquityBidEvent(5, 5, equity, "ex",
+                new BigDecimal("2"), BigDecimal.TEN);
+        Object otherTop = createTopOfBook(6, equity, "other", "ex",
+                BigDecimal.ONE);
+        Object top2 = createTopOfBook(7, equity, "ex", "ex",
+                new BigDecimal("2"));
+        DataFlowID rFlowID = mManager.createDataFlow(new DataRequest[]{
+                new DataRequest(CopierModuleFactory.INSTANCE_URN,
+                        new Object[]{top1, bid1, ask1, trade, bid2, otherTop, top2}),
+                new DataRequest(ReceiverFactory.INSTANCE_URN)
+        }, false);
+        //the latest top of book takes the place of the first one,
+        //quotes, trades and tops from other exchanges are all kept
+        assertEquals(top2, listener.getNextData());
+        assertEquals(bid1, listener.getNextData());
+        assertEquals(ask1, listener.getNextData());
+        assertEquals(trade, listener.getNextData());
+        assertEquals(bid2, listener.getNextData());
+        assertEquals(otherTop, listener.getNextData());
+        assertEquals(1, receiver.getConflatedQuotes());
+        assertEquals(6, receiver.getTransmittedObjects());
+        assertEquals(1, receiver.getTransmittedMessages());
+        mManager.cancel(rFlowID);
+        mManager.cancel(eFlowID);
+    }
+
+    /**
+     * Creates a top of book event.
+     *
+     * @param inId the message and timestamp of the event and its quotes.
+     * @param inEquity the equity.
+     * @param inBidExchange the exchange of the bid.
+     * @param inAskExchange the exchange of the ask.
+     * @param inBidPrice the price of the bid.
+     *
+     * @return the event.
+     */
+    private static Object createTopOfBook(long inId,
+                                          Equity inEquity,
+                                          String inBidExchange,
+                                          String inAskExchange,
+                                          BigDecimal inBidPrice) {
+        return TopOfBookEventBuilder.topOfBookEvent().withMessageId(inId)
+                .withTimestamp(new Date(inId)).withInstrument(inEquity)
+                .withBid(EventTestBase.generateEquityBidEvent(inId, inId,
+                        inEquity, inBidExchange, inBidPrice, BigDecimal.TEN))
+                .withAsk(EventTestBase.generateEquityAskEvent(inId, inId,
+                        inEquity, inAskExchange, BigDecimal.TEN, BigDecimal.TEN))
+                .create();
+    }
+
+    /**
+     * Restarts the receiver with the supplied batching configuration.
+     *
+     * @param inBatchSize the batch size.
+     * @param inConflateQuotes if quotes should be conflated.
+     *
+     * @return the receiver's management interface.
+     *
+     * @throws Exception if there's an error.
+     */
+    private ReceiverModuleMXBean configureBatching(int inBatchSize,
+                                                   boolean inConflateQuotes)
+            throws Exception {
+        ReceiverModuleMXBean bean = JMX.newMXBeanProxy(getMBeanServer(),
+                ReceiverFactory.INSTANCE_URN.toObjectName(),
+                ReceiverModuleMXBean.class);
+        mManager.stop(ReceiverFactory.INSTANCE_URN);
+        bean.setBatchSize(inBatchSize);
+        bean.setBatchInterval(200);
+        bean.setConflateQuotes(inConflateQuotes);
+        mManager.start(ReceiverFactory.INSTANCE_URN);
+        return bean;
+    }
+
     /**
      * Verifies log event filtering carried out by the
      * receiver.
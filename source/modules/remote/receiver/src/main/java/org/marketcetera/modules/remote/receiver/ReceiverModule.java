@@ -1,12 +1,26 @@
 package org.marketcetera.modules.remote.receiver;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.marketcetera.event.LogEvent;
 import org.marketcetera.event.LogEventLevel;
+import org.marketcetera.event.QuoteEvent;
+import org.marketcetera.event.TopOfBookEvent;
+import org.marketcetera.jms.ObjectBatch;
 import org.marketcetera.module.DataFlowID;
 import org.marketcetera.module.DataReceiver;
 import org.marketcetera.module.Module;
@@ -56,6 +70,17 @@ import org.springframework.jms.core.JmsTemplate;
  * which is handled and logged by the module framework. The module
  * ignores null objects.
  * <br/>
+ * <b>Batching</b>
+ * <p>
+ * If the {@link #setBatchSize(int) batch size} is greater than 1, the
+ * module accumulates the received objects and transmits them together
+ * in a single {@link javax.jms.BytesMessage}, once the batch is full or
+ * once the {@link #setBatchInterval(long) batch interval} has elapsed.
+ * The objects of a batch share a single serialization stream, so class
+ * descriptions are written once per batch. Top of book events may
+ * optionally be {@link #setConflateQuotes(boolean) conflated} within a
+ * batch.
+ * <br/>
  * <b>Authentication</b>
  * <p>
  * The remote clients of this module need to authenticate themselves to
@@ -125,6 +150,12 @@ public class ReceiverModule extends Module
             mContext.start();
             mSender = (JmsTemplate) mContext.getBean("sender",  //$NON-NLS-1$
                     JmsTemplate.class);
+            mTransmittedObjects.set(0);
+            mTransmittedMessages.set(0);
+            mConflatedQuotes.set(0);
+            if(mBatchSize > 1) {
+                startFlusher();
+            }
             Messages.RECIEVER_REMOTING_CONFIGURED.info(this, url);
         } catch(Exception e) {
             throw new ModuleException(e, Messages.ERROR_STARTING_MODULE);
@@ -133,6 +164,15 @@ public class ReceiverModule extends Module
 
     @Override
     protected void preStop() throws ModuleException {
+        //Transmit any pending batch before disconnecting
+        ScheduledExecutorService flusher = mFlusher;
+        if(flusher != null) {
+            flusher.shutdownNow();
+            mFlusher = null;
+        }
+        if(mSender != null) {
+            flushQuietly();
+        }
         //Stop & destroy the broker.
         if (mContext != null) {
             try {
@@ -156,6 +196,10 @@ public class ReceiverModule extends Module
                     return;
                 }
             }
+            if(mBatchSize > 1) {
+                batch(inData);
+                return;
+            }
             try {
                 mSender.convertAndSend(inData);
             } catch (JmsException e) {
@@ -163,6 +207,8 @@ public class ReceiverModule extends Module
                         new I18NBoundMessage1P(Messages.ERROR_WHEN_TRANSMITTING,
                                 String.valueOf(inData)));
             }
+            mTransmittedObjects.incrementAndGet();
+            mTransmittedMessages.incrementAndGet();
         }
     }
 
@@ -207,6 +253,231 @@ public class ReceiverModule extends Module
         mSkipJAASConfiguration = inSkipJAASConfiguration;
     }
 
+    @Override
+    public int getBatchSize() {
+        return mBatchSize;
+    }
+
+    @Override
+    public void setBatchSize(int inBatchSize) {
+        failIfStarted(Messages.ILLEGAL_STATE_SET_BATCHING);
+        if(inBatchSize < 1) {
+            throw new IllegalArgumentException(
+                    Messages.INVALID_BATCH_SIZE.getText(inBatchSize));
+        }
+        mBatchSize = inBatchSize;
+    }
+
+    @Override
+    public long getBatchInterval() {
+        return mBatchInterval;
+    }
+
+    @Override
+    public void setBatchInterval(long inBatchInterval) {
+        failIfStarted(Messages.ILLEGAL_STATE_SET_BATCHING);
+        if(inBatchInterval < 1) {
+            throw new IllegalArgumentException(
+                    Messages.INVALID_BATCH_INTERVAL.getText(inBatchInterval));
+        }
+        mBatchInterval = inBatchInterval;
+    }
+
+    @Override
+    public boolean isConflateQuotes() {
+        return mConflateQuotes;
+    }
+
+    @Override
+    public void setConflateQuotes(boolean inConflateQuotes) {
+        failIfStarted(Messages.ILLEGAL_STATE_SET_BATCHING);
+        mConflateQuotes = inConflateQuotes;
+    }
+
+    @Override
+    public long getTransmittedObjects() {
+        return mTransmittedObjects.get();
+    }
+
+    @Override
+    public long getTransmittedMessages() {
+        return mTransmittedMessages.get();
+    }
+
+    @Override
+    public long getConflatedQuotes() {
+        return mConflatedQuotes.get();
+    }
+
+    /**
+     * Adds the supplied object to the current batch, conflating it
+     * with an earlier top of book event if needed, and transmits the batch
+     * if it's full.
+     *
+     * @param inData the received object.
+     *
+     * @throws ReceiveDataException if the object is not serializable
+     * or if the batch could not be transmitted.
+     */
+    private void batch(Object inData) throws ReceiveDataException {
+        if(!(inData instanceof Serializable)) {
+            throw new ReceiveDataException(
+                    new I18NBoundMessage1P(Messages.ERROR_WHEN_TRANSMITTING,
+                            String.valueOf(inData)));
+        }
+        boolean full;
+        synchronized (mBatchLock) {
+            List<Object> key = mConflateQuotes
+                    ? getConflationKey(inData)
+                    : null;
+            if(key != null) {
+                Integer index = mConflationIndex.get(key);
+                if(index != null) {
+                    mBatch.set(index, inData);
+                    mConflatedQuotes.incrementAndGet();
+                    return;
+                }
+                mConflationIndex.put(key, mBatch.size());
+            }
+            mBatch.add(inData);
+            full = mBatch.size() >= mBatchSize;
+        }
+        if(full) {
+            try {
+                flush();
+            } catch (JmsException e) {
+                throw new ReceiveDataException(e,
+                        new I18NBoundMessage1P(Messages.ERROR_WHEN_TRANSMITTING,
+                                String.valueOf(inData)));
+            }
+        }
+    }
+
+    /**
+     * Transmits the current batch, if it's not empty, and starts a
+     * new one. Objects may be added to the new batch while the current
+     * one is transmitted.
+     *
+     * @throws JmsException if the batch could not be transmitted. The
+     * objects in the batch are discarded.
+     */
+    private void flush() throws JmsException {
+        synchronized (mSendLock) {
+            ObjectBatch batch = takeBatch();
+            if(batch != null) {
+                transmit(batch);
+            }
+        }
+    }
+
+    /**
+     * Transmits the current batch, if it's not empty, logging any
+     * failures.
+     */
+    private void flushQuietly() {
+        synchronized (mSendLock) {
+            ObjectBatch batch = takeBatch();
+            if(batch == null) {
+                return;
+            }
+            try {
+                transmit(batch);
+            } catch (JmsException e) {
+                Messages.ERROR_WHEN_TRANSMITTING_BATCH_LOG.warn(this, e,
+                        batch.size());
+            }
+        }
+    }
+
+    /**
+     * Removes the current batch and starts a new one.
+     *
+     * @return the current batch, null if it's empty.
+     */
+    private ObjectBatch takeBatch() {
+        synchronized (mBatchLock) {
+            if(mBatch.isEmpty()) {
+                return null;
+            }
+            ObjectBatch batch = new ObjectBatch(mBatch);
+            mBatch = new ArrayList<Object>(mBatchSize);
+            mConflationIndex.clear();
+            return batch;
+        }
+    }
+
+    /**
+     * Transmits the supplied batch. The caller must hold
+     * {@link #mSendLock}.
+     *
+     * @param inBatch the batch.
+     *
+     * @throws JmsException if the batch could not be transmitted.
+     */
+    private void transmit(ObjectBatch inBatch) throws JmsException {
+        mSender.convertAndSend(inBatch);
+        mTransmittedObjects.addAndGet(inBatch.size());
+        mTransmittedMessages.incrementAndGet();
+    }
+
+    /**
+     * Starts the thread that transmits incomplete batches once the
+     * batch interval elapses.
+     */
+    private void startFlusher() {
+        mFlusher = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable inRunnable) {
+                        Thread thread = new Thread(inRunnable,
+                                "RemoteReceiverBatch");  //$NON-NLS-1$
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        mFlusher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flushQuietly();
+            }
+        }, mBatchInterval, mBatchInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the key that identifies the events the supplied object
+     * may be conflated with. Only top of book events are conflated,
+     * they're keyed by their type, instrument and the exchanges of
+     * their bid and ask, as {@link org.marketcetera.module.DataCoupling#ASYNC_CONFLATE}
+     * couplings do. Bid and ask events aren't conflated, as recipients
+     * may maintain a depth of book from every quote.
+     *
+     * @param inData the received object.
+     *
+     * @return the key, null if the object cannot be conflated.
+     */
+    private static List<Object> getConflationKey(Object inData) {
+        if(!(inData instanceof TopOfBookEvent)) {
+            return null;
+        }
+        TopOfBookEvent event = (TopOfBookEvent) inData;
+        return Arrays.<Object>asList(TopOfBookEvent.class,
+                event.getInstrument(), getExchange(event.getBid()),
+                getExchange(event.getAsk()));
+    }
+
+    /**
+     * Returns the exchange of the supplied quote.
+     *
+     * @param inQuote the quote, may be null.
+     *
+     * @return the exchange, null if the quote is null.
+     */
+    private static String getExchange(QuoteEvent inQuote) {
+        return inQuote == null
+                ? null
+                : inQuote.getExchange();
+    }
+
     /**
      * Gets the log4j logger that corresponds to the system user messages
      * logger category.
@@ -235,4 +506,32 @@ public class ReceiverModule extends Module
     private volatile LogEventLevel mLogLevel;
     private volatile boolean mSkipJAASConfiguration = false;
     private volatile boolean mDoneJaasConfiguration;
+    private volatile int mBatchSize = 1;
+    private volatile long mBatchInterval = DEFAULT_BATCH_INTERVAL;
+    private volatile boolean mConflateQuotes = false;
+    private volatile ScheduledExecutorService mFlusher;
+    private final Object mBatchLock = new Object();
+    /**
+     * Held while a batch is removed and transmitted, so that batches
+     * are transmitted one at a time, in the order in which they were
+     * removed. Never acquired while holding {@link #mBatchLock}.
+     */
+    private final Object mSendLock = new Object();
+    /**
+     * The objects waiting to be transmitted. Guarded by {@link #mBatchLock}.
+     */
+    private List<Object> mBatch = new ArrayList<Object>();
+    /**
+     * The index in {@link #mBatch} of the latest quote event for each
+     * conflation key. Guarded by {@link #mBatchLock}.
+     */
+    private final Map<List<Object>, Integer> mConflationIndex =
+            new HashMap<List<Object>, Integer>();
+    private final AtomicLong mTransmittedObjects = new AtomicLong();
+    private final AtomicLong mTransmittedMessages = new AtomicLong();
+    private final AtomicLong mConflatedQuotes = new AtomicLong();
+    /**
+     * The default batch interval in milliseconds.
+     */
+    static final long DEFAULT_BATCH_INTERVAL = 100;
 }
@@ -92,4 +92,113 @@ public interface ReceiverModuleMXBean {
     public void setSkipJAASConfiguration(
             @DisplayName("Skip Automatic JAAS Configuration")
             boolean inSkipJAASConfiguration);
+
+    /**
+     * Gets the maximum number of objects transmitted in a single
+     * message.
+     *
+     * @return the batch size. A value of 1 indicates that each object
+     * is transmitted in its own message.
+     */
+    @DisplayName("Maximum number of objects transmitted in one message")
+    public int getBatchSize();
+
+    /**
+     * Sets the maximum number of objects transmitted in a single message.
+     * <p>
+     * When the batch size is greater than 1, received objects are
+     * accumulated and transmitted together once the batch is full, or
+     * once the {@link #getBatchInterval() batch interval} has elapsed,
+     * whichever happens first. Batched objects can only be received by
+     * remote emitters of the same or later version.
+     *
+     * @param inBatchSize the batch size, at least 1.
+     *
+     * @throws IllegalStateException if the module is started. The batch
+     * size can only be set when the module is not started.
+     * @throws IllegalArgumentException if the batch size is less than 1.
+     */
+    @DisplayName("Maximum number of objects transmitted in one message")
+    public void setBatchSize(
+            @DisplayName("Maximum number of objects transmitted in one message")
+            int inBatchSize);
+
+    /**
+     * Gets the maximum time, in milliseconds, for which a received object
+     * is held before it's transmitted, when batching.
+     *
+     * @return the batch interval in milliseconds.
+     */
+    @DisplayName("Maximum time in ms an object is held when batching")
+    public long getBatchInterval();
+
+    /**
+     * Sets the maximum time, in milliseconds, for which a received object
+     * is held before it's transmitted, when batching.
+     *
+     * @param inBatchInterval the batch interval in milliseconds, at least 1.
+     *
+     * @throws IllegalStateException if the module is started. The batch
+     * interval can only be set when the module is not started.
+     * @throws IllegalArgumentException if the batch interval is less than 1.
+     */
+    @DisplayName("Maximum time in ms an object is held when batching")
+    public void setBatchInterval(
+            @DisplayName("Maximum time in ms an object is held when batching")
+            long inBatchInterval);
+
+    /**
+     * If top of book events are conflated when batching.
+     *
+     * @return if top of book events are conflated when batching.
+     */
+    @DisplayName("Conflate top of book events when batching")
+    public boolean isConflateQuotes();
+
+    /**
+     * Sets if top of book events are conflated when batching.
+     * <p>
+     * When conflating, a top of book event replaces the top of book
+     * event for the same instrument and the same bid and ask exchanges
+     * that is waiting in the current batch, so that only the latest top
+     * of book is transmitted. Other events, including bid and ask
+     * events, are never conflated.
+     *
+     * @param inConflateQuotes if top of book events should be conflated.
+     *
+     * @throws IllegalStateException if the module is started.
+     * Conflation can only be changed when the module is not started.
+     */
+    @DisplayName("Conflate top of book events when batching")
+    public void setConflateQuotes(
+            @DisplayName("Conflate top of book events when batching")
+            boolean inConflateQuotes);
+
+    /**
+     * Gets the number of objects transmitted since the module was
+     * started.
+     *
+     * @return the number of objects transmitted.
+     */
+    @DisplayName("Number of objects transmitted")
+    public long getTransmittedObjects();
+
+    /**
+     * Gets the number of messages transmitted since the module was
+     * started.
+     *
+     * @return the number of messages transmitted.
+     */
+    @DisplayName("Number of messages transmitted")
+    public long getTransmittedMessages();
+
+    /**
+     * Gets the number of top of book events that were replaced by later
+     * top of book events before being transmitted, since the module was
+     * started.
+     *
+     * @return the number of conflated top of book events.
+     */
+    @DisplayName("Number of top of book events conflated")
+    public long getConflatedQuotes();
 }
@@ -77,6 +77,18 @@ public abstract class AbstractRunningStrategy
     {
         strategy = inStrategy;
     }
+    /**
+     * Gets the mailbox through which callbacks are executed if the strategy runs in event-loop mode.
+     *
+     * @return a <code>StrategyMailbox</code> value or null if the strategy does not run in event-loop mode
+     */
+    private StrategyMailbox getMailbox()
+    {
+        if(strategy instanceof StrategyImpl) {
+            return ((StrategyImpl)strategy).getMailbox();
+        }
+        return null;
+    }
     /**
      * Called when the <code>AbstractRunningStrategy</code> starts.
      * @throws ClientInitException if an error occurs during start 
@@ -904,9 +916,16 @@ public abstract class AbstractRunningStrategy
     protected final void requestCallbackAfter(long inDelay,
                                               Object inData)
     {
-        callbackService.schedule(new Callback(this,
-                                              strategy,
-                                              inData),
+        Callback callback = new Callback(this,
+                                         strategy,
+                                         inData);
+        StrategyMailbox mailbox = getMailbox();
+        if(mailbox != null) {
+            mailbox.schedule(callback,
+                             inDelay);
+            return;
+        }
+        callbackService.schedule(callback,
                                  inDelay,
                                  TimeUnit.MILLISECONDS);
     }
@@ -932,9 +951,17 @@ public abstract class AbstractRunningStrategy
     protected final void requestCallbackEvery(long inDelay, long inPeriod,
                                               Object inData)
     {
-        callbackService.scheduleAtFixedRate(new Callback(this,
-                strategy,
-                inData), inDelay, inPeriod, TimeUnit.MILLISECONDS);
+        Callback callback = new Callback(this,
+                                         strategy,
+                                         inData);
+        StrategyMailbox mailbox = getMailbox();
+        if(mailbox != null) {
+            mailbox.scheduleAtFixedRate(callback,
+                                        inDelay,
+                                        inPeriod);
+            return;
+        }
+        callbackService.scheduleAtFixedRate(callback, inDelay, inPeriod, TimeUnit.MILLISECONDS);
     }
     /**
      * Requests a callback at a specific point in time.
@@ -1592,6 +1619,9 @@ public abstract class AbstractRunningStrategy
      * <p>This can be a very expensive call depending on the value returned
      * by {@link #getReportHistoryOriginDate()} and the number of execution reports
      * in the database.
+     * 
+     * <p>The history of closed orders is kept unless limited by the environment properties
+     * {@link Strategy#CLOSED_ORDER_RETENTION_PROPERTYNAME} and {@link Strategy#MAX_CLOSED_ORDERS_PROPERTYNAME}.
      */
     protected final void initializeReportHistoryManager()
     {
@@ -1603,7 +1633,12 @@ public abstract class AbstractRunningStrategy
                 if(orderHistoryManager != null) {
                     orderHistoryManager.stop();
                 }
-                orderHistoryManager = new LiveOrderHistoryManager(origin);
+                orderHistoryManager = new LiveOrderHistoryManager(origin,
+                                                                  Long.getLong(Strategy.CLOSED_ORDER_RETENTION_PROPERTYNAME,
+                                                                               0),
+                                                                  TimeUnit.MINUTES,
+                                                                  Integer.getInteger(Strategy.MAX_CLOSED_ORDERS_PROPERTYNAME,
+                                                                                     0));
                 orderHistoryManager.start();
             } catch (ClientInitException e) {
                 throw new RuntimeException(e);
@@ -0,0 +1,439 @@
+package org.marketcetera.strategy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.marketcetera.core.ClassVersion;
+import org.marketcetera.util.log.SLF4JLoggerProxy;
+
+/* $License$ */
+
+/**
+ * Caches the byte-code of compiled Java strategies so that a strategy whose source has not
+ * changed is not recompiled each time it is started.
+ *
+ * <p>Compiled classes are keyed by a digest of the strategy name, the strategy source, the
+ * compiler options, and a fingerprint of the compilation classpath. The fingerprint reflects
+ * the modification time of each classpath entry and of the files within each classpath
+ * directory, so replacing a jar or editing a source on the classpath invalidates the classes
+ * compiled against it. Entries are held in memory for the life of the JVM and, if
+ * {@link JavaCompilerExecutionEngine#COMPILED_CACHE_KEY} is set, also written to that directory so they
+ * survive a restart of the strategy agent.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+final class CompiledStrategyCache
+{
+    /**
+     * Gets the cache shared by all Java strategies.
+     *
+     * @return a <code>CompiledStrategyCache</code> value
+     */
+    static CompiledStrategyCache getInstance()
+    {
+        return instance;
+    }
+    /**
+     * Create a new CompiledStrategyCache instance.
+     *
+     * @param inMaxEntries an <code>int</code> value containing the number of entries to keep in memory
+     */
+    CompiledStrategyCache(int inMaxEntries)
+    {
+        maxEntries = inMaxEntries;
+    }
+    /**
+     * Computes the key under which the classes compiled from the given inputs are cached.
+     *
+     * @param inStrategyName a <code>String</code> value containing the name of the strategy
+     * @param inSource a <code>String</code> value containing the source of the strategy
+     * @param inOptions a <code>List&lt;String&gt;</code> value containing the compiler options, including the classpath
+     * @param inClasspath an <code>Iterable&lt;String&gt;</code> value containing the classpath entries
+     * @return a <code>String</code> value
+     */
+    String getKey(String inStrategyName,
+                  String inSource,
+                  List<String> inOptions,
+                  Iterable<String> inClasspath)
+    {
+        MessageDigest digest = newDigest();
+        update(digest,
+               System.getProperty("java.version")); //$NON-NLS-1$
+        update(digest,
+               inStrategyName);
+        update(digest,
+               inSource);
+        for(String option : inOptions) {
+            update(digest,
+                   option);
+        }
+        for(String entry : inClasspath) {
+            update(digest,
+                   getFingerprint(entry));
+        }
+        return toHex(digest.digest());
+    }
+    /**
+     * Gets the classes cached under the given key.
+     *
+     * @param inKey a <code>String</code> value
+     * @return a <code>Map&lt;String,byte[]&gt;</code> value containing the byte-code by fully-qualified classname or <code>null</code> if the key is not cached
+     */
+    Map<String,byte[]> get(String inKey)
+    {
+        Map<String,byte[]> classes;
+        synchronized(entries) {
+            classes = entries.get(inKey);
+        }
+        if(classes == null) {
+            classes = read(inKey);
+            if(classes != null) {
+                synchronized(entries) {
+                    entries.put(inKey,
+                                classes);
+                }
+            }
+        }
+        if(classes == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return classes;
+    }
+    /**
+     * Caches the given classes under the given key.
+     *
+     * @param inKey a <code>String</code> value
+     * @param inClasses a <code>Map&lt;String,byte[]&gt;</code> value containing the byte-code by fully-qualified classname
+     */
+    void put(String inKey,
+             Map<String,byte[]> inClasses)
+    {
+        Map<String,byte[]> classes = Collections.unmodifiableMap(new HashMap<String,byte[]>(inClasses));
+        synchronized(entries) {
+            entries.put(inKey,
+                        classes);
+        }
+        write(inKey,
+              classes);
+    }
+    /**
+     * Discards the entries held in memory.
+     */
+    void clear()
+    {
+        synchronized(entries) {
+            entries.clear();
+        }
+        fingerprints.clear();
+    }
+    /**
+     * Gets the number of lookups that found cached classes.
+     *
+     * @return a <code>long</code> value
+     */
+    long getHits()
+    {
+        return hits.get();
+    }
+    /**
+     * Gets the number of lookups that found no cached classes.
+     *
+     * @return a <code>long</code> value
+     */
+    long getMisses()
+    {
+        return misses.get();
+    }
+    /**
+     * Gets the fingerprint of the given classpath entry.
+     *
+     * <p>The fingerprint of a file is computed once: classes already loaded by this JVM
+     * from a jar would not reflect later changes to the jar anyway. A directory may hold
+     * sources that the compiler compiles along with the strategy, so the fingerprint of
+     * a directory reflects its current contents.
+     *
+     * @param inEntry a <code>String</code> value
+     * @return a <code>String</code> value
+     */
+    private String getFingerprint(String inEntry)
+    {
+        String fingerprint = fingerprints.get(inEntry);
+        if(fingerprint != null) {
+            return fingerprint;
+        }
+        File file = new File(inEntry);
+        if(file.isDirectory()) {
+            long[] contents = new long[2];
+            addContents(file,
+                        contents);
+            return String.format("%s:%d:%d", //$NON-NLS-1$
+                                 inEntry,
+                                 contents[0],
+                                 contents[1]);
+        }
+        fingerprint = String.format("%s:%d:%d", //$NON-NLS-1$
+                                    inEntry,
+                                    file.length(),
+                                    file.lastModified());
+        fingerprints.put(inEntry,
+                         fingerprint);
+        return fingerprint;
+    }
+    /**
+     * Adds the number of files and the latest modification time of the files in the given directory
+     * and its subdirectories to the given totals.
+     *
+     * @param inDirectory a <code>File</code> value
+     * @param inContents a <code>long[]</code> value containing the number of files followed by the latest modification time
+     */
+    private static void addContents(File inDirectory,
+                                    long[] inContents)
+    {
+        File[] files = inDirectory.listFiles();
+        if(files == null) {
+            return;
+        }
+        for(File file : files) {
+            if(file.isDirectory()) {
+                addContents(file,
+                            inContents);
+            } else {
+                inContents[0] += 1;
+                inContents[1] = Math.max(inContents[1],
+                                         file.lastModified());
+            }
+        }
+    }
+    /**
+     * Gets the file in which the classes with the given key are cached.
+     *
+     * @param inKey a <code>String</code> value
+     * @return a <code>File</code> value or <code>null</code> if classes are not cached on disk
+     */
+    private File getFile(String inKey)
+    {
+        String directory = System.getProperty(JavaCompilerExecutionEngine.COMPILED_CACHE_KEY);
+        if(directory == null) {
+            return null;
+        }
+        return new File(directory,
+                        inKey + JAR_EXTENSION);
+    }
+    /**
+     * Reads the classes with the given key from disk.
+     *
+     * @param inKey a <code>String</code> value
+     * @return a <code>Map&lt;String,byte[]&gt;</code> value or <code>null</code> if the classes are not cached on disk
+     */
+    private Map<String,byte[]> read(String inKey)
+    {
+        File file = getFile(inKey);
+        if(file == null ||
+           !file.isFile()) {
+            return null;
+        }
+        Map<String,byte[]> classes = new HashMap<String,byte[]>();
+        ZipInputStream in = null;
+        try {
+            in = new ZipInputStream(new BufferedInputStream(new FileInputStream(file)));
+            ZipEntry entry;
+            while((entry = in.getNextEntry()) != null) {
+                classes.put(entry.getName(),
+                            readEntry(in));
+            }
+        } catch (IOException e) {
+            Messages.COMPILED_STRATEGY_CACHE_READ_FAILED.warn(CompiledStrategyCache.class,
+                                                              e,
+                                                              file);
+            return null;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        if(classes.isEmpty()) {
+            return null;
+        }
+        SLF4JLoggerProxy.debug(CompiledStrategyCache.class,
+                               "Read compiled classes {} from {}", //$NON-NLS-1$
+                               classes.keySet(),
+                               file);
+        return Collections.unmodifiableMap(classes);
+    }
+    /**
+     * Writes the given classes with the given key to disk.
+     *
+     * <p>The classes are written to a temporary file which is then renamed, so a
+     * concurrent reader never sees a partially written entry.
+     *
+     * @param inKey a <code>String</code> value
+     * @param inClasses a <code>Map&lt;String,byte[]&gt;</code> value
+     */
+    private void write(String inKey,
+                       Map<String,byte[]> inClasses)
+    {
+        File file = getFile(inKey);
+        if(file == null) {
+            return;
+        }
+        File temp = null;
+        ZipOutputStream out = null;
+        try {
+            File directory = file.getParentFile();
+            if(!directory.isDirectory() &&
+               !directory.mkdirs()) {
+                throw new IOException(directory.getAbsolutePath());
+            }
+            temp = File.createTempFile(inKey,
+                                       null,
+                                       directory);
+            out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            for(Map.Entry<String,byte[]> entry : inClasses.entrySet()) {
+                out.putNextEntry(new ZipEntry(entry.getKey()));
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+            out.close();
+            out = null;
+            if(!temp.renameTo(file) &&
+               !file.isFile()) {
+                throw new IOException(file.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            Messages.COMPILED_STRATEGY_CACHE_WRITE_FAILED.warn(CompiledStrategyCache.class,
+                                                               e,
+                                                               file);
+        } finally {
+            IOUtils.closeQuietly(out);
+            if(temp != null &&
+               temp.exists()) {
+                temp.delete();
+            }
+        }
+    }
+    /**
+     * Reads the current entry of the given stream.
+     *
+     * @param inStream an <code>InputStream</code> value
+     * @return a <code>byte[]</code> value
+     * @throws IOException if the entry cannot be read
+     */
+    private static byte[] readEntry(InputStream inStream)
+            throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IOUtils.copy(inStream,
+                     bytes);
+        return bytes.toByteArray();
+    }
+    /**
+     * Creates a digest used to compute keys.
+     *
+     * @return a <code>MessageDigest</code> value
+     */
+    private static MessageDigest newDigest()
+    {
+        try {
+            return MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+    /**
+     * Adds the given value to the given digest.
+     *
+     * @param inDigest a <code>MessageDigest</code> value
+     * @param inValue a <code>String</code> value
+     */
+    private static void update(MessageDigest inDigest,
+                               String inValue)
+    {
+        try {
+            inDigest.update(String.valueOf(inValue).getBytes("UTF-8")); //$NON-NLS-1$
+        } catch (UnsupportedEncodingException e) {
+            // every Java platform is required to support UTF-8
+            throw new IllegalStateException(e);
+        }
+        // separate the values so that adjacent values cannot run together
+        inDigest.update((byte)0);
+    }
+    /**
+     * Renders the given bytes as a hexadecimal string.
+     *
+     * @param inBytes a <code>byte[]</code> value
+     * @return a <code>String</code> value
+     */
+    private static String toHex(byte[] inBytes)
+    {
+        StringBuilder hex = new StringBuilder();
+        for(byte b : inBytes) {
+            hex.append(String.format("%02x", //$NON-NLS-1$
+                                     b & 0xff));
+        }
+        return hex.toString();
+    }
+    /**
+     * the number of entries to keep in memory
+     */
+    private final int maxEntries;
+    /**
+     * the compiled classes by key, least recently used first
+     */
+    private final Map<String,Map<String,byte[]>> entries = new LinkedHashMap<String,Map<String,byte[]>>(16,
+                                                                                                         0.75f,
+                                                                                                         true) {
+        private static final long serialVersionUID = 1L;
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String,Map<String,byte[]>> inEldest)
+        {
+            return size() > maxEntries;
+        }
+    };
+    /**
+     * the fingerprints of classpath files by entry
+     */
+    private final Map<String,String> fingerprints = new ConcurrentHashMap<String,String>();
+    /**
+     * the number of lookups that found cached classes
+     */
+    private final AtomicLong hits = new AtomicLong();
+    /**
+     * the number of lookups that found no cached classes
+     */
+    private final AtomicLong misses = new AtomicLong();
+    /**
+     * indicates a jar file
+     */
+    private static final String JAR_EXTENSION = ".jar"; //$NON-NLS-1$
+    /**
+     * the number of entries the shared cache keeps in memory
+     */
+    private static final int MAX_ENTRIES = 256;
+    /**
+     * the cache shared by all Java strategies
+     */
+    private static final CompiledStrategyCache instance = new CompiledStrategyCache(MAX_ENTRIES);
+}
@@ -10,6 +10,7 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -52,6 +53,10 @@ public class JavaCompilerExecutionEngine
      * System properties key to set to inform the Java compiler of dependencies it should include on the classpath for compiling Java strategies
      */
     public static final String CLASSPATH_KEY = "metc.java.class.path"; //$NON-NLS-1$
+    /**
+     * System properties key to set to the directory in which compiled Java strategies are cached so they need not be recompiled after a restart
+     */
+    public static final String COMPILED_CACHE_KEY = "metc.java.compiled.cache"; //$NON-NLS-1$
     /**
      * the strategy to be executed 
      */
@@ -64,6 +69,10 @@ public class JavaCompilerExecutionEngine
      * map of cannonical classname to fully-qualified classname generated by the compiler and used by the classloader
      */
     private Map<String,String> fullyQualifiedClassnames = new HashMap<String,String>();
+    /**
+     * the classpath entries given by the class loaders of this class, collected on first use
+     */
+    private static volatile Set<String> classLoaderEntries;
     /* (non-Javadoc)
      * @see org.marketcetera.strategy.ExecutionEngine#prepare(org.marketcetera.strategy.Strategy, java.lang.String)
      */
@@ -82,43 +91,6 @@ public class JavaCompilerExecutionEngine
     public Object start()
             throws StrategyException
     {
-        // the compiler object to use
-        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-        if(compiler == null) {
-            throw new StrategyException(MISSING_JAVA_COMPILER);
-        }
-        // A map of class names to the InMemoryJavaFileObject that holds
-        //  the compiled-code for that class. This is the cache of
-        //  compiled classes.
-        Map<String,InMemoryJavaFileObject> output = new HashMap<String,InMemoryJavaFileObject>();
-        // Create a classloader for our new classes based on the current classloader
-        //  this classloader will stop operating when the enclosing object goes out of scope or
-        //  is replaced by a start/stop cycle of the strategy
-        ClassLoader loader = new InMemoryClassLoader(output,
-                                                     StrategyModule.class.getClassLoader());
-        // this object is for the compile phase - it stores errors and warnings generated by the compilation
-        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
-        // the fileManager manages sources and targets for the compiler - this is the basic model
-        //  which we'll specialize next to make compilation in-memory
-        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(diagnostics,
-                                                                                      null,
-                                                                                      null);
-        // this is the specialized file manager that produces source and stores byte-code all in-memory
-        InMemoryFileManager specializedFileManager = new InMemoryFileManager(standardFileManager,
-                                                                             output,
-                                                                             loader);
-        // source file objects are produced for each thing to be compiled.  For us, this is the strategy script, which
-        //  contains 1 or more classes.  notice that this is where the strategy name is associated with the source.  this
-        //  is required by the java compiler which dictates that a class name must match the file name
-        SourceJavaFileObject sourceObject;
-        try {
-            sourceObject = new SourceJavaFileObject(strategy.getName(),
-                                                    processedScript);
-        } catch (URISyntaxException e) {
-            throw new StrategyException(e,
-                                        new I18NBoundMessage1P(INVALID_STRATEGY_NAME,
-                                                               strategy.toString()));
-        }
         // prepare the options to pass to the compiler
         // collect classpath entries
         Set<String> classpathEntries = new LinkedHashSet<String>();
@@ -129,20 +101,7 @@ public class JavaCompilerExecutionEngine
             classpathEntries.addAll(Arrays.asList(entries));
         }
         // add jars we are given by the parent class loaders, if any
-        ClassLoader currentLoader = getClass().getClassLoader();
-        do {
-            if(currentLoader instanceof URLClassLoader) {
-                for(URL url: ((URLClassLoader)currentLoader).getURLs()) {
-                    try {
-                        classpathEntries.add(url.toURI().getPath());
-                    } catch (URISyntaxException e) {
-                        Messages.ERROR_CONVERTING_CLASSPATH_URL.warn(this,
-                                                                     e,
-                                                                     url);
-                    }
-                }
-            }
-        } while((currentLoader = currentLoader.getParent()) != null);
+        classpathEntries.addAll(getClassLoaderEntries());
         // add our custom classpath
         String customPath = System.getProperty(CLASSPATH_KEY);
         if(customPath != null) {
@@ -164,45 +123,40 @@ public class JavaCompilerExecutionEngine
             classpathString.append(entry).append(File.pathSeparator);
         }
         options.add(classpathString.toString());
-        SLF4JLoggerProxy.debug(JavaCompilerExecutionEngine.class,
-                               "Java compiler compiling {} with options {} (classpath length: {})", //$NON-NLS-1$
-                               strategy.getName(),
-                               Arrays.toString(options.toArray()),
-                               classpathString.length());
-        // schedule the compilation task
-        CompilationTask compilationJob = compiler.getTask(null, // out-writer not needed because we're using the in-memory file manager
-                                                          specializedFileManager,
-                                                          diagnostics,
-                                                          options,
-                                                          null, // no annotation processing needed
-                                                          Arrays.asList(sourceObject));
-        // wait for the compilation job to complete
-        if (!compilationJob.call()) {
-            // compilation failed, deal with the errors
-            CompilationFailed failed = new CompilationFailed(strategy);
-            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
-                if(diagnostic.getKind().equals(Diagnostic.Kind.ERROR)) {
-                    failed.addDiagnostic(CompilationFailed.Diagnostic.error(diagnostic.toString()));
-                } else {
-                    failed.addDiagnostic(CompilationFailed.Diagnostic.warning(diagnostic.toString()));
-                }
-            }
-            StrategyModule.log(LogEventBuilder.error().withMessage(COMPILATION_FAILED,
-                                                                   String.valueOf(strategy),
-                                                                   failed.toString())
-                                                      .withException(failed).create(),
-                               strategy);
-            throw failed;
+        // the strategy is compiled only if the same source has not already been compiled with the same options
+        //  against the same classpath
+        CompiledStrategyCache cache = CompiledStrategyCache.getInstance();
+        String key = cache.getKey(strategy.getName(),
+                                  processedScript,
+                                  options,
+                                  classpathEntries);
+        Map<String,byte[]> classes = cache.get(key);
+        if(classes == null) {
+            SLF4JLoggerProxy.debug(JavaCompilerExecutionEngine.class,
+                                   "Java compiler compiling {} with options {} (classpath length: {})", //$NON-NLS-1$
+                                   strategy.getName(),
+                                   Arrays.toString(options.toArray()),
+                                   classpathString.length());
+            classes = compile(options);
+            cache.put(key,
+                      classes);
         } else {
-            // compilation succeeded with or without warnings
-            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
-                StrategyModule.log(LogEventBuilder.warn().withMessage(COMPILATION_FAILED_DIAGNOSTIC,
-                                                                      String.valueOf(diagnostic.getKind()),
-                                                                      String.valueOf(diagnostic)).create(),
-                                   strategy);
-            }
+            SLF4JLoggerProxy.debug(JavaCompilerExecutionEngine.class,
+                                   "Using the cached compilation {} of {}", //$NON-NLS-1$
+                                   key,
+                                   strategy.getName());
+        }
+        // map the cannonical names to the fully-qualified names (to be used later to load the class)
+        for(String fullyQualifiedClassname : classes.keySet()) {
+            fullyQualifiedClassnames.put(getCannonicalClassname(fullyQualifiedClassname),
+                                         fullyQualifiedClassname);
         }
-        // strategy has compiled successfully and is now held in our specializedFileManager
+        // Create a classloader for our new classes based on the current classloader
+        //  this classloader will stop operating when the enclosing object goes out of scope or
+        //  is replaced by a start/stop cycle of the strategy
+        ClassLoader loader = new InMemoryClassLoader(classes,
+                                                     StrategyModule.class.getClassLoader());
+        // strategy has compiled successfully and its classes are now held in our loader
         try {
             // load the class from the specialized class loader that caches the compiled strategy classes
             // remember that the strategy name is specified without a package name, but the classloader needs
@@ -243,6 +197,131 @@ public class JavaCompilerExecutionEngine
     {
         // nothing to do
     }
+    /**
+     * Compiles the strategy with the given options.
+     *
+     * @param inOptions a <code>List&lt;String&gt;</code> value containing the options to pass to the compiler
+     * @return a <code>Map&lt;String,byte[]&gt;</code> value containing the compiled byte-code by fully-qualified classname
+     * @throws StrategyException if the strategy cannot be compiled
+     */
+    private Map<String,byte[]> compile(List<String> inOptions)
+            throws StrategyException
+    {
+        // the compiler object to use
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if(compiler == null) {
+            throw new StrategyException(MISSING_JAVA_COMPILER);
+        }
+        // A map of class names to the InMemoryJavaFileObject that holds
+        //  the compiled-code for that class.
+        Map<String,InMemoryJavaFileObject> output = new HashMap<String,InMemoryJavaFileObject>();
+        // this object is for the compile phase - it stores errors and warnings generated by the compilation
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        // the fileManager manages sources and targets for the compiler - this is the basic model
+        //  which we'll specialize next to make compilation in-memory
+        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(diagnostics,
+                                                                                      null,
+                                                                                      null);
+        // this is the specialized file manager that produces source and stores byte-code all in-memory
+        InMemoryFileManager specializedFileManager = new InMemoryFileManager(standardFileManager,
+                                                                             output,
+                                                                             StrategyModule.class.getClassLoader());
+        // source file objects are produced for each thing to be compiled.  For us, this is the strategy script, which
+        //  contains 1 or more classes.  notice that this is where the strategy name is associated with the source.  this
+        //  is required by the java compiler which dictates that a class name must match the file name
+        SourceJavaFileObject sourceObject;
+        try {
+            sourceObject = new SourceJavaFileObject(strategy.getName(),
+                                                    processedScript);
+        } catch (URISyntaxException e) {
+            throw new StrategyException(e,
+                                        new I18NBoundMessage1P(INVALID_STRATEGY_NAME,
+                                                               strategy.toString()));
+        }
+        // schedule the compilation task
+        CompilationTask compilationJob = compiler.getTask(null, // out-writer not needed because we're using the in-memory file manager
+                                                          specializedFileManager,
+                                                          diagnostics,
+                                                          inOptions,
+                                                          null, // no annotation processing needed
+                                                          Arrays.asList(sourceObject));
+        // wait for the compilation job to complete
+        if (!compilationJob.call()) {
+            // compilation failed, deal with the errors
+            CompilationFailed failed = new CompilationFailed(strategy);
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if(diagnostic.getKind().equals(Diagnostic.Kind.ERROR)) {
+                    failed.addDiagnostic(CompilationFailed.Diagnostic.error(diagnostic.toString()));
+                } else {
+                    failed.addDiagnostic(CompilationFailed.Diagnostic.warning(diagnostic.toString()));
+                }
+            }
+            StrategyModule.log(LogEventBuilder.error().withMessage(COMPILATION_FAILED,
+                                                                   String.valueOf(strategy),
+                                                                   failed.toString())
+                                                      .withException(failed).create(),
+                               strategy);
+            throw failed;
+        } else {
+            // compilation succeeded with or without warnings
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                StrategyModule.log(LogEventBuilder.warn().withMessage(COMPILATION_FAILED_DIAGNOSTIC,
+                                                                      String.valueOf(diagnostic.getKind()),
+                                                                      String.valueOf(diagnostic)).create(),
+                                   strategy);
+            }
+        }
+        Map<String,byte[]> classes = new HashMap<String,byte[]>();
+        for(Entry<String,InMemoryJavaFileObject> entry : output.entrySet()) {
+            classes.put(entry.getKey(),
+                        entry.getValue().getBytes());
+        }
+        return classes;
+    }
+    /**
+     * Gets the classpath entries given by the class loaders of this class.
+     *
+     * <p>The class loaders do not change while this class is loaded, so the entries
+     * are collected once.
+     *
+     * @return a <code>Set&lt;String&gt;</code> value
+     */
+    private Set<String> getClassLoaderEntries()
+    {
+        Set<String> entries = classLoaderEntries;
+        if(entries != null) {
+            return entries;
+        }
+        entries = new LinkedHashSet<String>();
+        ClassLoader currentLoader = getClass().getClassLoader();
+        do {
+            if(currentLoader instanceof URLClassLoader) {
+                for(URL url: ((URLClassLoader)currentLoader).getURLs()) {
+                    try {
+                        entries.add(url.toURI().getPath());
+                    } catch (URISyntaxException e) {
+                        Messages.ERROR_CONVERTING_CLASSPATH_URL.warn(this,
+                                                                     e,
+                                                                     url);
+                    }
+                }
+            }
+        } while((currentLoader = currentLoader.getParent()) != null);
+        entries = Collections.unmodifiableSet(entries);
+        classLoaderEntries = entries;
+        return entries;
+    }
+    /**
+     * Calculates the cannonical classname from the given fully-qualified classname.
+     *
+     * @param inFullyQualifiedClassname a <code>String</code> value
+     * @return a <code>String</code> value
+     */
+    private static String getCannonicalClassname(String inFullyQualifiedClassname)
+    {
+        String[] nameSegments = inFullyQualifiedClassname.split("\\."); //$NON-NLS-1$
+        return (nameSegments.length > 0 ? nameSegments[nameSegments.length-1] : inFullyQualifiedClassname);
+    }
     /**
      * Represents the Java source of a strategy containing one or more classes to compile.
      *
@@ -303,14 +382,14 @@ public class JavaCompilerExecutionEngine
         /**
          * the cache of class definitions by name 
          */
-        private final Map<String,InMemoryJavaFileObject> cache;
+        private final Map<String,byte[]> cache;
         /**
          * Create a new InMemoryClassLoader instance.
          *
-         * @param inOutput a <code>Map&lt;String,InMemoryJavaFileObject&gt;</code> value in which to cache class definitions
+         * @param inOutput a <code>Map&lt;String,byte[]&gt;</code> value containing cached class definitions
          * @param inParent a <code>ClassLoader</code> value containing the parent classloader to use
          */
-        private InMemoryClassLoader(Map<String,InMemoryJavaFileObject> inOutput,
+        private InMemoryClassLoader(Map<String,byte[]> inOutput,
                                     ClassLoader inParent)
         {
             super(inParent);
@@ -324,10 +403,9 @@ public class JavaCompilerExecutionEngine
             throws ClassNotFoundException
         {
             // check our cache for the class
-            InMemoryJavaFileObject fileObject = cache.get(inName);
-            if (fileObject != null) {
+            byte[] bytes = cache.get(inName);
+            if (bytes != null) {
                 // class is in our cache, return that version of it
-                byte[] bytes = fileObject.getBytes();
                 return defineClass(inName,
                                    bytes,
                                    0,
@@ -388,28 +466,11 @@ public class JavaCompilerExecutionEngine
             } catch (URISyntaxException e) {
                 throw new IOException(e);
             }
-            // add the java file object in the cache by name
-            // sort out the cannonical name from the fully-qualified name if the strategy code specified a package
-            String cannonicalClassname = getCannonicalClassname(inFullyQualifiedClassname);
-            // map the cannonical name to the fully-qualified name (to be used later to load the class)
-            fullyQualifiedClassnames.put(cannonicalClassname,
-                                         inFullyQualifiedClassname);
             // put the fully-qualified name in the classname cache
             output.put(inFullyQualifiedClassname,
                        javaFileObject);
             return javaFileObject;
         }
-        /**
-         * Calculates the cannonical classname from the given fully-qualified classname.
-         *
-         * @param inFullyQualifiedClassname a <code>String</code> value
-         * @return a <code>String</code> value
-         */
-        private String getCannonicalClassname(String inFullyQualifiedClassname)
-        {
-            String[] nameSegments = inFullyQualifiedClassname.split("\\."); //$NON-NLS-1$
-            return (nameSegments.length > 0 ? nameSegments[nameSegments.length-1] : inFullyQualifiedClassname);
-        }
         /* (non-Javadoc)
          * @see javax.tools.ForwardingJavaFileManager#getClassLoader(javax.tools.JavaFileManager.Location)
          */
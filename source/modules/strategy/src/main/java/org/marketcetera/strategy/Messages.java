@@ -247,4 +247,8 @@ public interface Messages
                                                                "null_report"); //$NON-NLS-1$
     static final I18NMessage1P USING_ORDER_HISTORY_ORIGIN = new I18NMessage1P(LOGGER,
                                                                               "using_order_history_origin"); //$NON-NLS-1$
+    static final I18NMessage1P COMPILED_STRATEGY_CACHE_READ_FAILED = new I18NMessage1P(LOGGER,
+                                                                                       "compiled_strategy_cache_read_failed"); //$NON-NLS-1$
+    static final I18NMessage1P COMPILED_STRATEGY_CACHE_WRITE_FAILED = new I18NMessage1P(LOGGER,
+                                                                                        "compiled_strategy_cache_write_failed"); //$NON-NLS-1$
 }
@@ -24,6 +24,30 @@ public interface Strategy
      * environment property name used to indicate the source directory of included strategy scripts
      */
     public static final String CLASSPATH_PROPERTYNAME = "strategy.classpath"; //$NON-NLS-1$
+    /**
+     * strategy parameter or environment property name used to indicate that strategies should run in event-loop mode
+     */
+    public static final String EVENT_LOOP_PROPERTYNAME = "strategy.eventLoop"; //$NON-NLS-1$
+    /**
+     * strategy parameter or environment property name used to indicate how many items the mailbox of a strategy running in event-loop mode may hold
+     */
+    public static final String EVENT_LOOP_CAPACITY_PROPERTYNAME = "strategy.eventLoop.capacity"; //$NON-NLS-1$
+    /**
+     * strategy parameter or environment property name used to indicate the {@link org.marketcetera.core.publisher.OverflowPolicy} which applies when the mailbox of a strategy running in event-loop mode is full
+     */
+    public static final String EVENT_LOOP_OVERFLOW_POLICY_PROPERTYNAME = "strategy.eventLoop.overflowPolicy"; //$NON-NLS-1$
+    /**
+     * the number of items the mailbox of a strategy running in event-loop mode may hold unless otherwise specified
+     */
+    public static final int DEFAULT_EVENT_LOOP_CAPACITY = 10000;
+    /**
+     * environment property name used to indicate how many minutes to keep the history of closed orders, by default closed orders are kept
+     */
+    public static final String CLOSED_ORDER_RETENTION_PROPERTYNAME = "strategy.orderHistory.closedOrderMinutes"; //$NON-NLS-1$
+    /**
+     * environment property name used to indicate how many closed orders to keep in the order history, by default closed orders are kept
+     */
+    public static final String MAX_CLOSED_ORDERS_PROPERTYNAME = "strategy.orderHistory.maxClosedOrders"; //$NON-NLS-1$
     /**
      * Sends data received from an external source to a strategy.
      *
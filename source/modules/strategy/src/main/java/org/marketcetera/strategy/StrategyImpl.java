@@ -14,6 +14,7 @@ import java.util.Set;
 
 import org.apache.commons.io.FileUtils;
 import org.marketcetera.core.ClassVersion;
+import org.marketcetera.core.publisher.OverflowPolicy;
 import org.marketcetera.event.AskEvent;
 import org.marketcetera.event.BidEvent;
 import org.marketcetera.event.DividendEvent;
@@ -59,6 +60,11 @@ class StrategyImpl
         throws StrategyException
     {
         try {
+            if(isEventLoop()) {
+                mailbox = new StrategyMailbox(this,
+                                              getEventLoopCapacity(),
+                                              getEventLoopOverflowPolicy());
+            }
             setExecutor(getLanguage().getExecutor(this));
             setStatus(COMPILING);
             getExecutor().start();
@@ -89,6 +95,9 @@ class StrategyImpl
         }
         try {
             setStatus(STOPPING);
+            if(mailbox != null) {
+                mailbox.close();
+            }
             getExecutor().stop();
             // intentionally not setting status to "STOPPED" because the
             //  "onStop" method, successful completion of which is required
@@ -106,7 +115,32 @@ class StrategyImpl
      * @see org.marketcetera.strategy.Strategy#dataReceived(java.lang.Object)
      */
     @Override
-    public final void dataReceived(Object inData)
+    public final void dataReceived(final Object inData)
+    {
+        StrategyMailbox currentMailbox = mailbox;
+        if(currentMailbox == null) {
+            processData(inData);
+            return;
+        }
+        currentMailbox.submit(new Runnable() {
+            @Override
+            public void run()
+            {
+                processData(inData);
+            }
+            @Override
+            public String toString()
+            {
+                return String.valueOf(inData);
+            }
+        });
+    }
+    /**
+     * Hands the given data to the running strategy.
+     *
+     * @param inData an <code>Object</code> value
+     */
+    private void processData(Object inData)
     {
         // make sure that the strategy is in a state to receive incoming data
         if(!getStatus().canReceiveData()) {
@@ -304,6 +338,63 @@ class StrategyImpl
         code = fileToString(getSource());
         defaultNamespace = inNamespace;
     }
+    /**
+     * Indicates whether the strategy runs in event-loop mode.
+     * 
+     * <p>In event-loop mode, the data received by the strategy and its callbacks
+     * are executed one at a time by a pool of threads shared by all strategies,
+     * rather than by the threads delivering them. The mode is selected by setting
+     * the strategy parameter or the system property {@link Strategy#EVENT_LOOP_PROPERTYNAME}
+     * to <code>true</code>.
+     *
+     * @return a <code>boolean</code> value
+     */
+    final boolean isEventLoop()
+    {
+        return Boolean.parseBoolean(getParameters().getProperty(EVENT_LOOP_PROPERTYNAME,
+                                                                System.getProperty(EVENT_LOOP_PROPERTYNAME)));
+    }
+    /**
+     * Gets the number of items the mailbox of the strategy may hold in event-loop mode.
+     * 
+     * <p>The capacity is set by the strategy parameter or the system property
+     * {@link Strategy#EVENT_LOOP_CAPACITY_PROPERTYNAME}, and defaults to
+     * {@link Strategy#DEFAULT_EVENT_LOOP_CAPACITY}.
+     *
+     * @return an <code>int</code> value
+     * @throws NumberFormatException if the capacity is not an integer
+     */
+    private int getEventLoopCapacity()
+    {
+        String capacity = getParameters().getProperty(EVENT_LOOP_CAPACITY_PROPERTYNAME,
+                                                      System.getProperty(EVENT_LOOP_CAPACITY_PROPERTYNAME));
+        return capacity == null ? DEFAULT_EVENT_LOOP_CAPACITY : Integer.parseInt(capacity.trim());
+    }
+    /**
+     * Gets the policy which applies when the mailbox of the strategy is full in event-loop mode.
+     * 
+     * <p>The policy is set by the strategy parameter or the system property
+     * {@link Strategy#EVENT_LOOP_OVERFLOW_POLICY_PROPERTYNAME}, and defaults to
+     * {@link OverflowPolicy#BLOCK}.
+     *
+     * @return an <code>OverflowPolicy</code> value
+     * @throws IllegalArgumentException if the policy is not a valid <code>OverflowPolicy</code> name
+     */
+    private OverflowPolicy getEventLoopOverflowPolicy()
+    {
+        String policy = getParameters().getProperty(EVENT_LOOP_OVERFLOW_POLICY_PROPERTYNAME,
+                                                    System.getProperty(EVENT_LOOP_OVERFLOW_POLICY_PROPERTYNAME));
+        return policy == null ? OverflowPolicy.BLOCK : OverflowPolicy.valueOf(policy.trim());
+    }
+    /**
+     * Gets the mailbox to which work for the strategy is submitted.
+     *
+     * @return a <code>StrategyMailbox</code> value or null if the strategy does not run in event-loop mode
+     */
+    final StrategyMailbox getMailbox()
+    {
+        return mailbox;
+    }
     /**
      * Get the uniqueIdentifier value.
      *
@@ -436,6 +527,10 @@ class StrategyImpl
      * the executor responsible for execution of this strategy
      */
     private Executor executor;
+    /**
+     * the mailbox which serializes the work for this strategy, null unless the strategy runs in event-loop mode
+     */
+    private volatile StrategyMailbox mailbox;
     /**
      * interface to the embedded running strategy object - this object is created by the execution engine
      */
@@ -112,4 +112,43 @@ public interface StrategyMXBean
      */
     @DisplayName("Strategy language")
     public Language getLanguage();
+    /**
+     * Indicates if the strategy runs in event-loop mode.
+     * 
+     * <p>In event-loop mode, market data, reports, and callbacks for the strategy are
+     * queued in a mailbox and handled one at a time by a pool of threads shared by
+     * all strategies.
+     *
+     * @return a <code>boolean</code> value
+     */
+    @DisplayName("Indicates if this strategy runs in event-loop mode")
+    public boolean isEventLoop();
+    /**
+     * Gets the number of items waiting in the strategy mailbox.
+     *
+     * @return an <code>int</code> value, always zero unless the strategy runs in event-loop mode
+     */
+    @DisplayName("The number of items waiting in the strategy mailbox")
+    public int getMailboxDepth();
+    /**
+     * Gets the mean time the strategy took to handle an item from its mailbox.
+     *
+     * @return a <code>long</code> value in microseconds, always zero unless the strategy runs in event-loop mode
+     */
+    @DisplayName("The mean time in microseconds taken to handle an item from the strategy mailbox")
+    public long getMeanHandlerLatency();
+    /**
+     * Gets the longest time the strategy took to handle an item from its mailbox.
+     *
+     * @return a <code>long</code> value in microseconds, always zero unless the strategy runs in event-loop mode
+     */
+    @DisplayName("The longest time in microseconds taken to handle an item from the strategy mailbox")
+    public long getMaxHandlerLatency();
+    /**
+     * Gets the number of items discarded because the strategy mailbox was full.
+     *
+     * @return a <code>long</code> value, always zero unless the strategy runs in event-loop mode
+     */
+    @DisplayName("The number of items discarded because the strategy mailbox was full")
+    public long getMailboxDroppedCount();
 }
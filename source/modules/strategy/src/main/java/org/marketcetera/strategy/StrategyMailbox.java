@@ -0,0 +1,379 @@
+package org.marketcetera.strategy;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.marketcetera.core.ClassVersion;
+import org.marketcetera.core.publisher.OverflowPolicy;
+import org.marketcetera.util.log.SLF4JLoggerProxy;
+import org.marketcetera.util.misc.NamedThreadFactory;
+
+/* $License$ */
+
+/**
+ * Serializes the execution of the work submitted for a single strategy.
+ *
+ * <p>Market data, reports, and callbacks for a strategy running in event-loop mode
+ * are submitted to its mailbox instead of being executed on the delivering thread.
+ * The mailboxes of all strategies are drained by a shared pool of threads sized
+ * to the number of processors, and at most one thread drains a given mailbox at
+ * any time, so a strategy handles one item at a time, in the order in which the
+ * items were submitted, without requiring locks. Callbacks are timed by a single
+ * timer thread shared by all mailboxes. These threads are daemon threads.
+ *
+ * <p>The mailbox holds a bounded number of items. When it is full, its overflow
+ * policy applies. With {@link OverflowPolicy#BLOCK}, the submitting thread waits
+ * for room, unless it is one of the shared threads above: waiting would hold a
+ * thread which may be needed to make room, so the item is discarded instead.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+final class StrategyMailbox
+{
+    /**
+     * Create a new StrategyMailbox instance.
+     *
+     * @param inStrategy a <code>Strategy</code> value to which the mailbox belongs
+     * @param inCapacity an <code>int</code> value containing the maximum number of items awaiting execution
+     * @param inOverflowPolicy an <code>OverflowPolicy</code> value which applies when the mailbox is full
+     * @throws IllegalArgumentException if the capacity is not positive
+     * @throws NullPointerException if the policy is null
+     */
+    StrategyMailbox(Strategy inStrategy,
+                    int inCapacity,
+                    OverflowPolicy inOverflowPolicy)
+    {
+        if(inOverflowPolicy == null) {
+            throw new NullPointerException();
+        }
+        strategy = inStrategy;
+        queue = new LinkedBlockingQueue<Runnable>(inCapacity);
+        overflowPolicy = inOverflowPolicy;
+    }
+    /**
+     * Submits the given work for execution after the work already submitted.
+     *
+     * <p>Work submitted after the mailbox is closed is discarded, as is work discarded
+     * by the overflow policy.
+     *
+     * @param inWork a <code>Runnable</code> value
+     */
+    void submit(Runnable inWork)
+    {
+        if(closed.get()) {
+            SLF4JLoggerProxy.debug(StrategyMailbox.class,
+                                   "{} discarding {}, mailbox is closed", //$NON-NLS-1$
+                                   strategy,
+                                   inWork);
+            return;
+        }
+        switch(overflowPolicy) {
+            case BLOCK:
+                if(sharedThread.get() != null) {
+                    // waiting on a shared thread may prevent the mailbox from being drained
+                    if(!queue.offer(inWork)) {
+                        drop(inWork);
+                        return;
+                    }
+                    break;
+                }
+                try {
+                    queue.put(inWork);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    drop(inWork);
+                    return;
+                }
+                if(closed.get()) {
+                    // the mailbox was closed while waiting for room
+                    queue.remove(inWork);
+                    return;
+                }
+                break;
+            case DROP_NEWEST:
+                if(!queue.offer(inWork)) {
+                    drop(inWork);
+                    return;
+                }
+                break;
+            case DROP_OLDEST:
+                while(!queue.offer(inWork)) {
+                    Runnable oldest = queue.poll();
+                    if(oldest != null) {
+                        drop(oldest);
+                    }
+                }
+                break;
+        }
+        scheduleDrain();
+    }
+    /**
+     * Submits the given work for execution after the given delay.
+     *
+     * <p>If the mailbox is closed before the delay elapses, the work is discarded.
+     *
+     * @param inWork a <code>Runnable</code> value
+     * @param inDelay a <code>long</code> value containing the delay in milliseconds
+     */
+    void schedule(final Runnable inWork,
+                  long inDelay)
+    {
+        timer.schedule(new Runnable() {
+            @Override
+            public void run()
+            {
+                submitFromSharedThread(inWork);
+            }
+        },inDelay,TimeUnit.MILLISECONDS);
+    }
+    /**
+     * Submits the given work for execution periodically.
+     *
+     * @param inWork a <code>Runnable</code> value
+     * @param inDelay a <code>long</code> value containing the delay in milliseconds before the first execution
+     * @param inPeriod a <code>long</code> value containing the period in milliseconds between executions
+     */
+    void scheduleAtFixedRate(final Runnable inWork,
+                             long inDelay,
+                             long inPeriod)
+    {
+        track(timer.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run()
+            {
+                submitFromSharedThread(inWork);
+            }
+        },inDelay,inPeriod,TimeUnit.MILLISECONDS));
+    }
+    /**
+     * Closes the mailbox, cancelling periodic callbacks and discarding work not yet executed.
+     */
+    void close()
+    {
+        closed.set(true);
+        for(ScheduledFuture<?> timerTask : timerTasks) {
+            timerTask.cancel(false);
+        }
+        timerTasks.clear();
+        queue.clear();
+    }
+    /**
+     * Gets the number of items submitted but not yet executed.
+     *
+     * @return an <code>int</code> value
+     */
+    int getDepth()
+    {
+        return queue.size();
+    }
+    /**
+     * Gets the number of items discarded by the overflow policy.
+     *
+     * @return a <code>long</code> value
+     */
+    long getDroppedCount()
+    {
+        return droppedCount.get();
+    }
+    /**
+     * Gets the mean time taken to execute an item.
+     *
+     * @return a <code>long</code> value containing the time in microseconds or zero if no item has been executed
+     */
+    long getMeanHandlerLatency()
+    {
+        long handled = handledCount.get();
+        if(handled == 0) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMicros(handlerNanos.get() / handled);
+    }
+    /**
+     * Gets the longest time taken to execute an item.
+     *
+     * @return a <code>long</code> value containing the time in microseconds
+     */
+    long getMaxHandlerLatency()
+    {
+        return TimeUnit.NANOSECONDS.toMicros(maxHandlerNanos);
+    }
+    /**
+     * Gets the number of items executed.
+     *
+     * @return a <code>long</code> value
+     */
+    long getHandledCount()
+    {
+        return handledCount.get();
+    }
+    /**
+     * Tracks the given periodic timer task so it can be cancelled when the mailbox is closed.
+     *
+     * @param inTimerTask a <code>ScheduledFuture&lt;?&gt;</code> value
+     */
+    private void track(ScheduledFuture<?> inTimerTask)
+    {
+        timerTasks.add(inTimerTask);
+        if(closed.get()) {
+            inTimerTask.cancel(false);
+        }
+    }
+    /**
+     * Submits the given work from one of the threads shared by all mailboxes.
+     *
+     * @param inWork a <code>Runnable</code> value
+     */
+    private void submitFromSharedThread(Runnable inWork)
+    {
+        sharedThread.set(Boolean.TRUE);
+        try {
+            submit(inWork);
+        } finally {
+            sharedThread.remove();
+        }
+    }
+    /**
+     * Discards the given work because the mailbox is full.
+     *
+     * @param inWork a <code>Runnable</code> value
+     */
+    private void drop(Runnable inWork)
+    {
+        droppedCount.incrementAndGet();
+        SLF4JLoggerProxy.warn(StrategyMailbox.class,
+                              "{} discarding {}, mailbox is full", //$NON-NLS-1$
+                              strategy,
+                              inWork);
+    }
+    /**
+     * Schedules the mailbox to be drained, unless it is already scheduled.
+     */
+    private void scheduleDrain()
+    {
+        if(drainScheduled.compareAndSet(false,
+                                        true)) {
+            drainPool.execute(drainTask);
+        }
+    }
+    /**
+     * Executes a batch of items, and then reschedules the drain if more items are waiting.
+     *
+     * <p>Rescheduling after each batch lets the mailboxes of the other strategies
+     * share the pool.
+     */
+    private void drain()
+    {
+        sharedThread.set(Boolean.TRUE);
+        try {
+            for(int i=0;i<MAX_BATCH_SIZE;i++) {
+                Runnable work = queue.poll();
+                if(work == null) {
+                    break;
+                }
+                long start = System.nanoTime();
+                try {
+                    work.run();
+                } catch (RuntimeException e) {
+                    SLF4JLoggerProxy.warn(StrategyMailbox.class,
+                                          e,
+                                          "{} could not execute {}", //$NON-NLS-1$
+                                          strategy,
+                                          work);
+                }
+                long elapsed = System.nanoTime() - start;
+                handlerNanos.addAndGet(elapsed);
+                handledCount.incrementAndGet();
+                if(elapsed > maxHandlerNanos) {
+                    maxHandlerNanos = elapsed;
+                }
+            }
+        } finally {
+            sharedThread.remove();
+            drainScheduled.set(false);
+            if(!queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+    /**
+     * the strategy to which the mailbox belongs
+     */
+    private final Strategy strategy;
+    /**
+     * the items submitted but not yet executed
+     */
+    private final BlockingQueue<Runnable> queue;
+    /**
+     * determines what to do with submitted items when {@link #queue} is full
+     */
+    private final OverflowPolicy overflowPolicy;
+    /**
+     * the number of items discarded because {@link #queue} was full
+     */
+    private final AtomicLong droppedCount = new AtomicLong();
+    /**
+     * indicates whether a task of {@link #drainPool} is scheduled to drain this mailbox
+     */
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    /**
+     * indicates whether the mailbox is closed
+     */
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    /**
+     * the periodic callbacks
+     */
+    private final Set<ScheduledFuture<?>> timerTasks = Collections.newSetFromMap(new ConcurrentHashMap<ScheduledFuture<?>,Boolean>());
+    /**
+     * drains this mailbox
+     */
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run()
+        {
+            drain();
+        }
+    };
+    /**
+     * the total time spent executing items in nanoseconds
+     */
+    private final AtomicLong handlerNanos = new AtomicLong();
+    /**
+     * the number of items executed
+     */
+    private final AtomicLong handledCount = new AtomicLong();
+    /**
+     * the longest time spent executing an item in nanoseconds
+     */
+    private volatile long maxHandlerNanos;
+    /**
+     * the maximum number of items executed by one task of {@link #drainPool}
+     */
+    private static final int MAX_BATCH_SIZE = 64;
+    /**
+     * the pool of threads which drain the mailboxes of all strategies
+     */
+    private static final ExecutorService drainPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                                                                                  new NamedThreadFactory("StrategyEventLoop-", //$NON-NLS-1$
+                                                                                                         true));
+    /**
+     * times the callbacks of all strategies
+     */
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("StrategyEventLoopTimer", //$NON-NLS-1$
+                                                                                                                           true));
+    /**
+     * indicates whether the current thread is one of the threads shared by all mailboxes
+     */
+    private static final ThreadLocal<Boolean> sharedThread = new ThreadLocal<Boolean>();
+}
@@ -682,6 +682,50 @@ final class StrategyModule
     {
         return strategy.getStatus().toString();
     }
+    /* (non-Javadoc)
+     * @see org.marketcetera.strategy.StrategyMXBean#isEventLoop()
+     */
+    @Override
+    public boolean isEventLoop()
+    {
+        return getMailbox() != null;
+    }
+    /* (non-Javadoc)
+     * @see org.marketcetera.strategy.StrategyMXBean#getMailboxDepth()
+     */
+    @Override
+    public int getMailboxDepth()
+    {
+        StrategyMailbox mailbox = getMailbox();
+        return mailbox == null ? 0 : mailbox.getDepth();
+    }
+    /* (non-Javadoc)
+     * @see org.marketcetera.strategy.StrategyMXBean#getMeanHandlerLatency()
+     */
+    @Override
+    public long getMeanHandlerLatency()
+    {
+        StrategyMailbox mailbox = getMailbox();
+        return mailbox == null ? 0 : mailbox.getMeanHandlerLatency();
+    }
+    /* (non-Javadoc)
+     * @see org.marketcetera.strategy.StrategyMXBean#getMaxHandlerLatency()
+     */
+    @Override
+    public long getMaxHandlerLatency()
+    {
+        StrategyMailbox mailbox = getMailbox();
+        return mailbox == null ? 0 : mailbox.getMaxHandlerLatency();
+    }
+    /* (non-Javadoc)
+     * @see org.marketcetera.strategy.StrategyMXBean#getMailboxDroppedCount()
+     */
+    @Override
+    public long getMailboxDroppedCount()
+    {
+        StrategyMailbox mailbox = getMailbox();
+        return mailbox == null ? 0 : mailbox.getDroppedCount();
+    }
     /* (non-Javadoc)
      * @see org.marketcetera.strategy.OutboundServicesProvider#statusChanged(org.marketcetera.strategy.Status, org.marketcetera.strategy.Status)
      */
@@ -1361,6 +1405,16 @@ final class StrategyModule
             }
         }
     }
+    /**
+     * Gets the mailbox of the running strategy.
+     *
+     * @return a <code>StrategyMailbox</code> value or null if the strategy is not running or does not run in event-loop mode
+     */
+    private StrategyMailbox getMailbox()
+    {
+        StrategyImpl currentStrategy = strategy;
+        return currentStrategy == null ? null : currentStrategy.getMailbox();
+    }
     /**
      * the name of the strategy being run - this name is chosen by the module caller and has no mandatory correlation 
      * to the contents of the strategy
@@ -0,0 +1,226 @@
+package org.marketcetera.strategy;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.marketcetera.core.LoggerConfiguration;
+
+/* $License$ */
+
+/**
+ * Tests {@link CompiledStrategyCache}.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+public class CompiledStrategyCacheTest
+{
+    /**
+     * Run once before all tests.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @BeforeClass
+    public static void once()
+            throws Exception
+    {
+        LoggerConfiguration.logSetup();
+    }
+    /**
+     * Run before each test.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Before
+    public void before()
+            throws Exception
+    {
+        directory = File.createTempFile("compiled",
+                                        "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdirs());
+        classpathDirectory = new File(directory,
+                                      "classpath");
+        assertTrue(classpathDirectory.mkdirs());
+        FileUtils.writeStringToFile(new File(classpathDirectory,
+                                             "Helper.java"),
+                                    "public class Helper {}");
+        classpath = Arrays.asList(classpathDirectory.getAbsolutePath());
+        System.clearProperty(JavaCompilerExecutionEngine.COMPILED_CACHE_KEY);
+    }
+    /**
+     * Run after each test.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @After
+    public void after()
+            throws Exception
+    {
+        System.clearProperty(JavaCompilerExecutionEngine.COMPILED_CACHE_KEY);
+        FileUtils.deleteDirectory(directory);
+    }
+    /**
+     * Tests that the key reflects each of its inputs.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void testKey()
+            throws Exception
+    {
+        CompiledStrategyCache cache = new CompiledStrategyCache(10);
+        String key = cache.getKey("Strategy",
+                                  SOURCE,
+                                  OPTIONS,
+                                  classpath);
+        assertEquals(key,
+                     cache.getKey("Strategy",
+                                  SOURCE,
+                                  OPTIONS,
+                                  classpath));
+        assertFalse(key.equals(cache.getKey("Other",
+                                            SOURCE,
+                                            OPTIONS,
+                                            classpath)));
+        assertFalse(key.equals(cache.getKey("Strategy",
+                                            SOURCE + " ",
+                                            OPTIONS,
+                                            classpath)));
+        assertFalse(key.equals(cache.getKey("Strategy",
+                                            SOURCE,
+                                            Arrays.asList("-cp"),
+                                            classpath)));
+        // adding a source to the classpath changes the key
+        FileUtils.writeStringToFile(new File(classpathDirectory,
+                                             "Other.java"),
+                                    "public class Other {}");
+        assertFalse(key.equals(cache.getKey("Strategy",
+                                            SOURCE,
+                                            OPTIONS,
+                                            classpath)));
+    }
+    /**
+     * Tests caching classes in memory.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void testMemory()
+            throws Exception
+    {
+        CompiledStrategyCache cache = new CompiledStrategyCache(2);
+        assertNull(cache.get("a"));
+        assertEquals(1,
+                     cache.getMisses());
+        cache.put("a",
+                  CLASSES);
+        cache.put("b",
+                  CLASSES);
+        verifyClasses(cache.get("a"));
+        assertEquals(1,
+                     cache.getHits());
+        // the least recently used entry is discarded
+        cache.put("c",
+                  CLASSES);
+        assertNull(cache.get("b"));
+        verifyClasses(cache.get("a"));
+        verifyClasses(cache.get("c"));
+        cache.clear();
+        assertNull(cache.get("a"));
+        assertEquals(3,
+                     cache.getMisses());
+        assertEquals(3,
+                     cache.getHits());
+        // nothing was written to disk
+        assertEquals(1,
+                     directory.list().length);
+    }
+    /**
+     * Tests caching classes on disk.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void testDisk()
+            throws Exception
+    {
+        File cacheDirectory = new File(directory,
+                                       "cache");
+        System.setProperty(JavaCompilerExecutionEngine.COMPILED_CACHE_KEY,
+                           cacheDirectory.getAbsolutePath());
+        new CompiledStrategyCache(10).put("a",
+                                          CLASSES);
+        assertTrue(new File(cacheDirectory,
+                            "a.jar").isFile());
+        // a new cache, as after a restart, reads the classes from disk
+        CompiledStrategyCache cache = new CompiledStrategyCache(10);
+        verifyClasses(cache.get("a"));
+        assertNull(cache.get("b"));
+        // an unreadable entry is treated as a miss
+        FileUtils.writeStringToFile(new File(cacheDirectory,
+                                             "b.jar"),
+                                    "not a jar");
+        assertNull(cache.get("b"));
+    }
+    /**
+     * Verifies that the given classes match the test classes.
+     *
+     * @param inClasses a <code>Map&lt;String,byte[]&gt;</code> value
+     * @throws Exception if an unexpected error occurs
+     */
+    private static void verifyClasses(Map<String,byte[]> inClasses)
+            throws Exception
+    {
+        assertNotNull(inClasses);
+        assertEquals(CLASSES.keySet(),
+                     inClasses.keySet());
+        for(Map.Entry<String,byte[]> entry : CLASSES.entrySet()) {
+            assertArrayEquals(entry.getValue(),
+                              inClasses.get(entry.getKey()));
+        }
+    }
+    /**
+     * test strategy source
+     */
+    private static final String SOURCE = "public class Strategy {}";
+    /**
+     * test compiler options
+     */
+    private static final List<String> OPTIONS = Collections.unmodifiableList(Arrays.asList("-g",
+                                                                                          "-cp",
+                                                                                          "x"));
+    /**
+     * test classes
+     */
+    private static final Map<String,byte[]> CLASSES = new HashMap<String,byte[]>();
+    static {
+        CLASSES.put("org.marketcetera.Strategy",
+                    new byte[] { 1, 2, 3 });
+        CLASSES.put("org.marketcetera.Strategy$Helper",
+                    new byte[] { 4, 5 });
+    }
+    /**
+     * temporary directory used by each test
+     */
+    private File directory;
+    /**
+     * classpath directory used by each test
+     */
+    private File classpathDirectory;
+    /**
+     * classpath used by each test
+     */
+    private List<String> classpath;
+}
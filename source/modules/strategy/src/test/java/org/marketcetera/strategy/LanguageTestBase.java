@@ -709,6 +709,52 @@ public abstract class LanguageTestBase
         Thread.sleep(2000);
         verifyPropertyNonNull("onCallback");
     }
+    /**
+     * Tests that a strategy running in event-loop mode receives its data and callbacks
+     * through its mailbox.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void eventLoop()
+        throws Exception
+    {
+        // start a strategy
+        final StrategyCoordinates strategy = getStrategyCompiles();
+        final Properties parameters = new Properties();
+        parameters.setProperty(Strategy.EVENT_LOOP_PROPERTYNAME,
+                               "true");
+        parameters.setProperty("shouldRequestCallbackAfter",
+                               "1000");
+        verifyPropertyNull("onCallback");
+        ModuleURN strategyURN = createStrategy(strategy.getName(),
+                                               getLanguage(),
+                                               strategy.getFile(),
+                                               parameters,
+                                               null,
+                                               null);
+        final StrategyMailbox mailbox = getRunningStrategy(strategyURN).getMailbox();
+        assertNotNull(mailbox);
+        doSuccessfulStartTestNoVerification(strategyURN);
+        // the data is handled asynchronously, wait until the mailbox is drained
+        MarketDataFeedTestBase.wait(new Callable<Boolean>(){
+            @Override
+            public Boolean call()
+                    throws Exception
+            {
+                return mailbox.getDepth() == 0 &&
+                       mailbox.getHandledCount() > 0;
+            }
+        });
+        // make sure to wait until at least 1000ms after start
+        Thread.sleep(2000);
+        verifyNonNullProperties();
+        verifyPropertyNonNull("onCallback");
+        assertEquals(0,
+                     mailbox.getDepth());
+        assertEquals(0,
+                     mailbox.getDroppedCount());
+    }
     /**
      * Tests a strategy's ability to request and receive a callback periodically.
      *
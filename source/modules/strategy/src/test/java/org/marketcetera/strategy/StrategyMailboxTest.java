@@ -0,0 +1,262 @@
+package org.marketcetera.strategy;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.marketcetera.core.LoggerConfiguration;
+import org.marketcetera.core.publisher.OverflowPolicy;
+
+/* $License$ */
+
+/**
+ * Tests {@link StrategyMailbox}.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+public class StrategyMailboxTest
+{
+    /**
+     * Run once before all tests.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @BeforeClass
+    public static void once()
+            throws Exception
+    {
+        LoggerConfiguration.logSetup();
+    }
+    /**
+     * Run before each test.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Before
+    public void before()
+            throws Exception
+    {
+        mailbox = new StrategyMailbox(null,
+                                      10000,
+                                      OverflowPolicy.BLOCK);
+    }
+    /**
+     * Tests that work submitted concurrently is executed one item at a time, in the order
+     * submitted by each thread.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test(timeout=30000)
+    public void testSerialExecution()
+            throws Exception
+    {
+        final int threadCount = 4;
+        final int itemCount = 1000;
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final List<int[]> executed = new ArrayList<int[]>();
+        final CountDownLatch done = new CountDownLatch(threadCount * itemCount);
+        List<Thread> threads = new ArrayList<Thread>();
+        for(int t=0;t<threadCount;t++) {
+            final int thread = t;
+            threads.add(new Thread() {
+                @Override
+                public void run()
+                {
+                    for(int i=0;i<itemCount;i++) {
+                        final int item = i;
+                        mailbox.submit(new Runnable() {
+                            @Override
+                            public void run()
+                            {
+                                if(active.incrementAndGet() != 1) {
+                                    overlaps.incrementAndGet();
+                                }
+                                // not synchronized: the mailbox guarantees a single executing thread
+                                executed.add(new int[] { thread, item });
+                                active.decrementAndGet();
+                                done.countDown();
+                            }
+                        });
+                    }
+                }
+            });
+        }
+        for(Thread thread : threads) {
+            thread.start();
+        }
+        assertTrue(done.await(20,
+                              TimeUnit.SECONDS));
+        assertEquals(0,
+                     overlaps.get());
+        assertEquals(threadCount * itemCount,
+                     executed.size());
+        int[] next = new int[threadCount];
+        for(int[] entry : executed) {
+            assertEquals(next[entry[0]]++,
+                         entry[1]);
+        }
+        assertEquals(0,
+                     mailbox.getDepth());
+        assertEquals(threadCount * itemCount,
+                     mailbox.getHandledCount());
+        assertTrue(mailbox.getMaxHandlerLatency() >= mailbox.getMeanHandlerLatency());
+    }
+    /**
+     * Tests that callbacks are executed through the mailbox and that closing the mailbox
+     * stops them.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test(timeout=30000)
+    public void testCallbacks()
+            throws Exception
+    {
+        final CountDownLatch once = new CountDownLatch(1);
+        final CountDownLatch periodic = new CountDownLatch(3);
+        final AtomicInteger periodicCount = new AtomicInteger();
+        mailbox.schedule(new Runnable() {
+            @Override
+            public void run()
+            {
+                once.countDown();
+            }
+        },10);
+        mailbox.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run()
+            {
+                periodicCount.incrementAndGet();
+                periodic.countDown();
+            }
+        },0,10);
+        assertTrue(once.await(10,
+                              TimeUnit.SECONDS));
+        assertTrue(periodic.await(10,
+                                  TimeUnit.SECONDS));
+        mailbox.close();
+        // let any execution in progress complete
+        Thread.sleep(100);
+        int count = periodicCount.get();
+        Thread.sleep(100);
+        assertEquals(count,
+                     periodicCount.get());
+    }
+    /**
+     * Tests that work submitted after the mailbox is closed is discarded.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void testClosed()
+            throws Exception
+    {
+        mailbox.close();
+        final AtomicInteger count = new AtomicInteger();
+        mailbox.submit(new Runnable() {
+            @Override
+            public void run()
+            {
+                count.incrementAndGet();
+            }
+        });
+        Thread.sleep(100);
+        assertEquals(0,
+                     count.get());
+        assertEquals(0,
+                     mailbox.getDepth());
+        assertEquals(0,
+                     mailbox.getHandledCount());
+        assertEquals(0,
+                     mailbox.getMeanHandlerLatency());
+    }
+    /**
+     * Tests that {@link OverflowPolicy#DROP_NEWEST} discards work submitted to a full mailbox.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test(timeout=30000)
+    public void testDropNewest()
+            throws Exception
+    {
+        assertEquals("[1, 2]",
+                     doOverflowTest(OverflowPolicy.DROP_NEWEST).toString());
+    }
+    /**
+     * Tests that {@link OverflowPolicy#DROP_OLDEST} discards the oldest queued work to make
+     * room in a full mailbox.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test(timeout=30000)
+    public void testDropOldest()
+            throws Exception
+    {
+        assertEquals("[2, 3]",
+                     doOverflowTest(OverflowPolicy.DROP_OLDEST).toString());
+    }
+    /**
+     * Submits three items to a mailbox with room for two while its drain thread is busy.
+     *
+     * @param inOverflowPolicy an <code>OverflowPolicy</code> value
+     * @return a <code>List&lt;Integer&gt;</code> value containing the items executed, in order
+     * @throws Exception if an unexpected error occurs
+     */
+    private List<Integer> doOverflowTest(OverflowPolicy inOverflowPolicy)
+            throws Exception
+    {
+        mailbox = new StrategyMailbox(null,
+                                      2,
+                                      inOverflowPolicy);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(2);
+        final List<Integer> executed = new ArrayList<Integer>();
+        mailbox.submit(new Runnable() {
+            @Override
+            public void run()
+            {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue(started.await(10,
+                                 TimeUnit.SECONDS));
+        for(int i=1;i<=3;i++) {
+            final int item = i;
+            mailbox.submit(new Runnable() {
+                @Override
+                public void run()
+                {
+                    executed.add(item);
+                    done.countDown();
+                }
+            });
+        }
+        assertEquals(2,
+                     mailbox.getDepth());
+        assertEquals(1,
+                     mailbox.getDroppedCount());
+        release.countDown();
+        assertTrue(done.await(10,
+                              TimeUnit.SECONDS));
+        mailbox.close();
+        return executed;
+    }
+    /**
+     * test mailbox
+     */
+    private StrategyMailbox mailbox;
+}
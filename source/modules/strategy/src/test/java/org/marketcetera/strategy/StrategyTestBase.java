@@ -889,6 +889,30 @@ public class StrategyTestBase
             }
             return reportsToReturn.toArray(new ReportBase[reportsToReturn.size()]);
         }
+        /* (non-Javadoc)
+         * @see org.marketcetera.client.Client#getReportsSince(java.util.Date, org.marketcetera.trade.ReportID, int)
+         */
+        @Override
+        public ReportBase[] getReportsSince(Date inDate,
+                                            ReportID inAfterReportID,
+                                            int inMaxReports)
+                throws ConnectionException
+        {
+            List<ReportBase> page = new ArrayList<ReportBase>();
+            // the page starts after the given report, in the order in which the reports were saved
+            boolean after = inAfterReportID == null;
+            for(ReportBase report : getReportsSince(inDate)) {
+                if(inMaxReports > 0 && page.size() == inMaxReports) {
+                    break;
+                }
+                if(after) {
+                    page.add(report);
+                } else {
+                    after = inAfterReportID.equals(report.getReportID());
+                }
+            }
+            return page.toArray(new ReportBase[page.size()]);
+        }
         /* (non-Javadoc)
          * @see org.marketcetera.client.Client#reconnect()
          */
@@ -0,0 +1,319 @@
+package org.marketcetera.ors;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.marketcetera.core.IDFactory;
+import org.marketcetera.core.NoMoreIDsException;
+import org.marketcetera.util.misc.ClassVersion;
+import org.marketcetera.util.misc.NamedThreadFactory;
+
+/**
+ * A lock-free dispenser of IDs within blocks. It relies on a block
+ * factory to assign blocks, and then assigns local IDs within the
+ * current block without locking. Once half of a block has been
+ * assigned, the next block is retrieved in the background, so that
+ * callers only wait for the block factory if they exhaust a block
+ * before its successor is available.
+ *
+ * <p>Blocks are retrieved in the background by daemon threads, which
+ * are discarded when idle; hence a dispenser need not be shut down.</p>
+ *
+ * @since 2.1.4
+ * @version $Id$
+ */
+
+/* $License$ */
+
+@ClassVersion("$Id$")
+abstract class IDBlockDispenser<V,T>
+{
+
+    // CLASS DATA.
+
+    private static final ExecutorService sPrefetchPool=
+        Executors.newCachedThreadPool
+        (new NamedThreadFactory("IDBlockPrefetch-",true)); //$NON-NLS-1$
+
+
+    // INSTANCE DATA.
+
+    private final IDFactory mBlockFactory;
+    private final int mBlockSize;
+    private final int mPrefetchID;
+    private final AtomicReference<Block<V>> mBlock;
+    private final AtomicLong mExhaustedBlocks=new AtomicLong();
+    private final AtomicLong mStalls=new AtomicLong();
+
+
+    // CONSTRUCTOR.
+
+    /**
+     * Creates a new dispenser that relies on the given block factory,
+     * and assigns the given number of local IDs per block.
+     *
+     * @param blockFactory The block factory.
+     * @param blockSize The count of local IDs assigned per block.
+     */
+
+    IDBlockDispenser
+        (IDFactory blockFactory,
+         int blockSize)
+    {
+        mBlockFactory=blockFactory;
+        mBlockSize=blockSize;
+        mPrefetchID=blockSize/2;
+        // The initial block is empty, so the first block is retrieved
+        // on demand.
+        mBlock=new AtomicReference<Block<V>>(new Block<V>(null,blockSize));
+    }
+
+
+    // INSTANCE METHODS.
+
+    /**
+     * Returns the receiver's block factory.
+     *
+     * @return The factory.
+     */
+
+    IDFactory getBlockFactory()
+    {
+        return mBlockFactory;
+    }
+
+    /**
+     * Returns the number of blocks whose local IDs have all been
+     * assigned.
+     *
+     * @return The count.
+     */
+
+    long getExhaustedBlocks()
+    {
+        return mExhaustedBlocks.get();
+    }
+
+    /**
+     * Returns the number of times a caller had to wait for the
+     * retrieval of a block.
+     *
+     * @return The count.
+     */
+
+    long getStalls()
+    {
+        return mStalls.get();
+    }
+
+    /**
+     * Retrieves the first block, unless the receiver already has one.
+     *
+     * @throws NoMoreIDsException Thrown if retrieval fails.
+     */
+
+    void init()
+        throws NoMoreIDsException
+    {
+        Block<V> block=mBlock.get();
+        if (block.getValue()==null) {
+            advance(block);
+        }
+    }
+
+    /**
+     * Gets the next ID from the receiver.
+     *
+     * @return The ID.
+     *
+     * @throws NoMoreIDsException Thrown if retrieval of a block fails.
+     */
+
+    T getNext()
+        throws NoMoreIDsException
+    {
+        while (true) {
+            Block<V> block=mBlock.get();
+            int localID=block.nextLocalID();
+            if (localID<mBlockSize) {
+                if (localID==mPrefetchID) {
+                    prefetch(block,false);
+                }
+                return createID(block.getValue(),localID);
+            }
+            advance(block);
+        }
+    }
+
+    /**
+     * Converts a block ID retrieved from the block factory into the
+     * value from which IDs within that block are created. This method
+     * may be invoked from a background thread.
+     *
+     * @param blockID The block ID.
+     *
+     * @return The value.
+     *
+     * @throws NoMoreIDsException Thrown if the block ID is not valid.
+     */
+
+    protected abstract V toBlockValue
+        (String blockID)
+        throws NoMoreIDsException;
+
+    /**
+     * Creates the ID for the given local ID within the given block.
+     *
+     * @param blockValue The block's value.
+     * @param localID The local ID.
+     *
+     * @return The ID.
+     */
+
+    protected abstract T createID
+        (V blockValue,
+         int localID);
+
+    /**
+     * Replaces the given exhausted block with its successor, waiting
+     * for the successor's retrieval if necessary. If another caller
+     * has already replaced the block, this method does nothing.
+     *
+     * @param block The block.
+     *
+     * @throws NoMoreIDsException Thrown if retrieval fails.
+     */
+
+    private void advance
+        (Block<V> block)
+        throws NoMoreIDsException
+    {
+        Future<V> successor=block.getSuccessor();
+        if ((block.getValue()!=null) &&
+            ((successor==null) || !successor.isDone())) {
+            mStalls.incrementAndGet();
+        }
+        if (successor==null) {
+            successor=prefetch(block,true);
+        }
+        V value;
+        try {
+            value=successor.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new NoMoreIDsException(ex);
+        } catch (ExecutionException ex) {
+            // Allow the next caller to retry the retrieval.
+            block.clearSuccessor(successor);
+            if (ex.getCause() instanceof NoMoreIDsException) {
+                throw (NoMoreIDsException)ex.getCause();
+            }
+            throw new NoMoreIDsException(ex.getCause());
+        }
+        if (mBlock.compareAndSet(block,new Block<V>(value,0)) &&
+            (block.getValue()!=null)) {
+            mExhaustedBlocks.incrementAndGet();
+        }
+    }
+
+    /**
+     * Starts the retrieval of the successor of the given block, unless
+     * it has already been started.
+     *
+     * @param block The block.
+     * @param inline True if the retrieval should take place in the
+     * calling thread, false if it should take place in the background.
+     *
+     * @return The result of the retrieval.
+     */
+
+    private Future<V> prefetch
+        (Block<V> block,
+         boolean inline)
+    {
+        Future<V> successor=block.getSuccessor();
+        if (successor!=null) {
+            return successor;
+        }
+        FutureTask<V> task=new FutureTask<V>(new Callable<V>() {
+            @Override
+            public V call()
+                throws NoMoreIDsException
+            {
+                return toBlockValue(getBlockFactory().getNext());
+            }
+        });
+        if (!block.setSuccessor(task)) {
+            return block.getSuccessor();
+        }
+        if (inline) {
+            task.run();
+        } else {
+            sPrefetchPool.execute(task);
+        }
+        return task;
+    }
+
+
+    /**
+     * A block of local IDs, and the retrieval of its successor.
+     */
+
+    private static final class Block<V>
+    {
+
+        // INSTANCE DATA.
+
+        private final V mValue;
+        private final AtomicInteger mNextLocalID;
+        private final AtomicReference<Future<V>> mSuccessor=
+            new AtomicReference<Future<V>>();
+
+
+        // CONSTRUCTOR.
+
+        Block
+            (V value,
+             int nextLocalID)
+        {
+            mValue=value;
+            mNextLocalID=new AtomicInteger(nextLocalID);
+        }
+
+
+        // INSTANCE METHODS.
+
+        V getValue()
+        {
+            return mValue;
+        }
+
+        int nextLocalID()
+        {
+            return mNextLocalID.getAndIncrement();
+        }
+
+        Future<V> getSuccessor()
+        {
+            return mSuccessor.get();
+        }
+
+        boolean setSuccessor
+            (Future<V> successor)
+        {
+            return mSuccessor.compareAndSet(null,successor);
+        }
+
+        void clearSuccessor
+            (Future<V> successor)
+        {
+            mSuccessor.compareAndSet(successor,null);
+        }
+    }
+}
@@ -6,7 +6,9 @@ import org.marketcetera.util.misc.ClassVersion;
 
 /**
  * A local ID factory. It relies on a block factory to assign blocks,
- * and then locally assigns IDs within that block.
+ * and then locally assigns IDs within that block. IDs are assigned
+ * without locking, and the next block is retrieved in the background
+ * before the current one is exhausted.
  *
  * @author tlerios@marketcetera.com
  * @since 1.0.0
@@ -32,9 +34,7 @@ public class LocalIDFactory
 
     // INSTANCE DATA.
 
-    private final IDFactory mBlockFactory;
-    private String mBlockID;
-    private int mLocalID=0;
+    private final IDBlockDispenser<String,String> mDispenser;
 
 
     // CONSTRUCTOR.
@@ -49,7 +49,22 @@ public class LocalIDFactory
     public LocalIDFactory
         (IDFactory blockFactory)
     {
-        mBlockFactory=blockFactory;
+        mDispenser=new IDBlockDispenser<String,String>
+            (blockFactory,LOCAL_ID_COUNT) {
+            @Override
+            protected String toBlockValue
+                (String blockID)
+            {
+                return blockID;
+            }
+            @Override
+            protected String createID
+                (String blockID,
+                 int localID)
+            {
+                return String.format("%1$s%2$03d",blockID,localID); //$NON-NLS-1$
+            }
+        };
     }
 
 
@@ -63,21 +78,31 @@ public class LocalIDFactory
 
     public IDFactory getBlockFactory()
     {
-        return mBlockFactory;
+        return mDispenser.getBlockFactory();
     }
 
     /**
-     * Retrieves the next block from the receiver's block factory, and
-     * resets the local ID.
+     * Returns the number of blocks whose local IDs have all been
+     * assigned by the receiver.
      *
-     * @throws NoMoreIDsException Thrown if retrieval fails.
+     * @return The count.
      */
 
-    private void getNextBlock()
-        throws NoMoreIDsException
+    public long getExhaustedBlocks()
+    {
+        return mDispenser.getExhaustedBlocks();
+    }
+
+    /**
+     * Returns the number of times a caller of {@link #getNext()} had
+     * to wait for the retrieval of a block.
+     *
+     * @return The count.
+     */
+
+    public long getBlockStalls()
     {
-        mBlockID=getBlockFactory().getNext();
-        mLocalID=0;
+        return mDispenser.getStalls();
     }
 
 
@@ -88,17 +113,13 @@ public class LocalIDFactory
         throws ClassNotFoundException,
                NoMoreIDsException
     {
-        getNextBlock();
+        mDispenser.init();
     }
 
     @Override
-    public synchronized String getNext()
+    public String getNext()
         throws NoMoreIDsException
     {
-        mLocalID++;
-        if (mLocalID==LOCAL_ID_COUNT) {
-            getNextBlock();
-        }
-        return String.format("%1$s%2$03d",mBlockID,mLocalID); //$NON-NLS-1$
+        return mDispenser.getNext();
     }
 }
@@ -7,7 +7,9 @@ import org.marketcetera.util.misc.ClassVersion;
 /**
  * A long ID factory. It relies on a block factory to assign blocks,
  * and then locally assigns IDs within that block. The block factory
- * must generate numeric IDs.
+ * must generate numeric IDs. IDs are assigned without locking, and
+ * the next block is retrieved in the background before the current
+ * one is exhausted.
  *
  * @author tlerios@marketcetera.com
  * @since 2.1.0
@@ -32,9 +34,7 @@ public class LongIDFactory
 
     // INSTANCE DATA.
 
-    private final IDFactory mBlockFactory;
-    private long mBlockID;
-    private long mLocalID=0;
+    private final IDBlockDispenser<Long,Long> mDispenser;
 
 
     // CONSTRUCTOR.
@@ -49,8 +49,27 @@ public class LongIDFactory
     public LongIDFactory
         (IDFactory blockFactory)
     {
-        mBlockFactory=blockFactory;
-        mLocalID=LOCAL_ID_COUNT-1;
+        mDispenser=new IDBlockDispenser<Long,Long>
+            (blockFactory,(int)LOCAL_ID_COUNT) {
+            @Override
+            protected Long toBlockValue
+                (String blockID)
+                throws NoMoreIDsException
+            {
+                try {
+                    return Long.parseLong(blockID)*LOCAL_ID_COUNT;
+                } catch (NumberFormatException ex) {
+                    throw new NoMoreIDsException(ex);
+                }
+            }
+            @Override
+            protected Long createID
+                (Long blockID,
+                 int localID)
+            {
+                return blockID+localID;
+            }
+        };
     }
 
 
@@ -64,21 +83,31 @@ public class LongIDFactory
 
     public IDFactory getBlockFactory()
     {
-        return mBlockFactory;
+        return mDispenser.getBlockFactory();
     }
 
     /**
-     * Retrieves the next block from the receiver's block factory, and
-     * resets the local ID.
+     * Returns the number of blocks whose local IDs have all been
+     * assigned by the receiver.
      *
-     * @throws NoMoreIDsException Thrown if retrieval fails.
+     * @return The count.
      */
 
-    private void getNextBlock()
-        throws NoMoreIDsException
+    public long getExhaustedBlocks()
+    {
+        return mDispenser.getExhaustedBlocks();
+    }
+
+    /**
+     * Returns the number of times a caller of {@link #getNext()} had
+     * to wait for the retrieval of a block.
+     *
+     * @return The count.
+     */
+
+    public long getBlockStalls()
     {
-        mBlockID=Long.parseLong(getBlockFactory().getNext())*LOCAL_ID_COUNT;
-        mLocalID=0;
+        return mDispenser.getStalls();
     }
 
     /**
@@ -89,13 +118,9 @@ public class LongIDFactory
      * @throws NoMoreIDsException Thrown if retrieval fails.
      */
 
-    public synchronized long getNext()
+    public long getNext()
         throws NoMoreIDsException
     {
-        mLocalID++;
-        if (mLocalID==LOCAL_ID_COUNT) {
-            getNextBlock();
-        }
-        return mBlockID+mLocalID;
+        return mDispenser.getNext();
     }
 }
@@ -158,6 +158,13 @@ public interface Messages
         new I18NMessage2P(LOGGER,"oim_added_entry"); //$NON-NLS-1$
     static final I18NMessage2P OIM_REMOVED_ENTRY=
         new I18NMessage2P(LOGGER,"oim_removed_entry"); //$NON-NLS-1$
+    static final I18NMessage2P OIM_EVICTED_ENTRY=
+        new I18NMessage2P(LOGGER,"oim_evicted_entry"); //$NON-NLS-1$
+
+    static final I18NMessage1P RC_CANNOT_STORE_REPORT=
+        new I18NMessage1P(LOGGER,"rc_cannot_store_report"); //$NON-NLS-1$
+    static final I18NMessage1P RC_CANNOT_READ_REPORT=
+        new I18NMessage1P(LOGGER,"rc_cannot_read_report"); //$NON-NLS-1$
 
     static final I18NMessage1P ORUM_LOG_ERROR_LOADING_FILE =
             new I18NMessage1P(LOGGER, "orum_log_error_loading_file");   //$NON-NLS-1$
@@ -17,6 +17,7 @@ import org.marketcetera.ors.brokers.Broker;
 import org.marketcetera.ors.brokers.Brokers;
 import org.marketcetera.ors.brokers.Selector;
 import org.marketcetera.ors.config.SpringConfig;
+import org.marketcetera.ors.history.AsyncSaveReportHistoryServices;
 import org.marketcetera.ors.history.ReportHistoryServices;
 import org.marketcetera.ors.info.SystemInfo;
 import org.marketcetera.ors.info.SystemInfoImpl;
@@ -85,6 +86,7 @@ public class OrderRoutingSystem
     private final StandardAuthentication mAuth;
     private final Brokers mBrokers;
     private final QuickFIXApplication mQFApp;
+    private final ReportHistoryServices mHistoryServices;
     private SimpleMessageListenerContainer mListener;
     private SocketInitiator mInitiator;
     private final QuickFIXSender qSender;
@@ -150,11 +152,18 @@ public class OrderRoutingSystem
             (cfg.getIncomingConnectionFactory(),
              cfg.getOutgoingConnectionFactory());
         ReportHistoryServices historyServices=cfg.getReportHistoryServices();
+        mHistoryServices=historyServices;
         systemInfo.setValue
             (SystemInfo.HISTORY_SERVICES,historyServices);
         mBrokers=new Brokers(cfg.getBrokers(),historyServices);
         Selector selector=new Selector(getBrokers(),cfg.getSelector());
         UserManager userManager=new UserManager();
+        ReportCache.INSTANCE.setMaxSize(cfg.getReportCacheMaxSize());
+        ReportCache.INSTANCE.setClosedReportLife
+            (cfg.getReportCacheClosedReportLife()*1000);
+        ReportCache.INSTANCE.setOpenReportLife
+            (cfg.getReportCacheOpenReportLife()*1000);
+        ReportCache.INSTANCE.setOffHeap(cfg.getReportCacheOffHeap());
         ReplyPersister persister=new ReplyPersister
             (historyServices,cfg.getOrderInfoCache());
         historyServices.init(cfg.getIDFactory(),jmsMgr,persister);
@@ -199,7 +208,8 @@ public class OrderRoutingSystem
                                        userManager,
                                        jmsMgr.getOutgoingJmsFactory().createJmsTemplateX(Service.BROKER_STATUS_TOPIC,
                                                                                          true),
-                                       null); // CD 20101202 - Removed as I don't think this is used any more and just consumes memory
+                                       null, // CD 20101202 - Removed as I don't think this is used any more and just consumes memory
+                                       cfg.getBrokerMessageProcessors());
 
         // Initiate broker connections.
 
@@ -214,9 +224,11 @@ public class OrderRoutingSystem
 
         MBeanServer mbeanServer=ManagementFactory.getPlatformMBeanServer();
         (new JmxExporter(mbeanServer)).export(mInitiator);
-        mbeanServer.registerMBean
-            (new ORSAdmin(getBrokers(),qSender,localIdFactory,userManager),
-             new ObjectName(JMX_NAME));
+        ORSAdmin admin=new ORSAdmin
+            (getBrokers(),qSender,localIdFactory,userManager);
+        admin.setQuickFIXApplication(mQFApp);
+        admin.setReportHistoryServices(historyServices);
+        mbeanServer.registerMBean(admin,new ObjectName(JMX_NAME));
     }
 
     // INSTANCE METHODS.
@@ -286,10 +298,14 @@ public class OrderRoutingSystem
             mInitiator.stop();
             mInitiator=null;
         }
+        mQFApp.stop();
         if (mListener!=null) {
             mListener.shutdown();
             mListener=null;
         }
+        if (mHistoryServices instanceof AsyncSaveReportHistoryServices) {
+            ((AsyncSaveReportHistoryServices)mHistoryServices).stop();
+        }
         if (mContext!=null) {
             mContext.close();
             mContext=null;
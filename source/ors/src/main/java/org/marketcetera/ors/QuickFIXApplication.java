@@ -1,8 +1,14 @@
 package org.marketcetera.ors;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.marketcetera.ors.brokers.Broker;
@@ -46,6 +52,19 @@ public class QuickFIXApplication
     private static final String HEARTBEAT_CATEGORY=
         QuickFIXApplication.class.getName()+".HEARTBEATS"; //$NON-NLS-1$
 
+    /**
+     * The default number of threads processing incoming broker
+     * messages.
+     */
+    public static final int DEFAULT_MESSAGE_PROCESSORS=
+        Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The time, in milliseconds, to wait for each processing thread
+     * to finish when the application is stopped.
+     */
+    private static final long PROCESSOR_STOP_TIMEOUT=10000;
+
 
     // INSTANCE DATA.
 
@@ -57,7 +76,14 @@ public class QuickFIXApplication
     private final UserManager mUserManager;
     private final JmsOperations mToClientStatus;
     private final JmsOperations mToTradeRecorder;
-    private final BlockingDeque<MessagePackage> messagesToProcess = new LinkedBlockingDeque<MessagePackage>();
+    /**
+     * processors of incoming messages, each session is assigned to exactly one processor
+     */
+    private final MessageProcessor[] processors;
+    /**
+     * processing statistics for each session that delivered messages
+     */
+    private final ConcurrentMap<SessionID,SessionStatistics> sessionStatistics = new ConcurrentHashMap<SessionID,SessionStatistics>();
 
 
     // CONSTRUCTORS.
@@ -71,6 +97,32 @@ public class QuickFIXApplication
          UserManager userManager,
          JmsOperations toClientStatus,
          JmsOperations toTradeRecorder)
+    {
+        this(systemInfo,brokers,supportedMessages,persister,sender,
+             userManager,toClientStatus,toTradeRecorder,
+             DEFAULT_MESSAGE_PROCESSORS);
+    }
+
+    /**
+     * Creates a new application which processes incoming broker
+     * messages on the given number of threads. Messages from the
+     * same broker session are always processed in the order in which
+     * they were received, by the same thread; messages from different
+     * sessions may be processed in parallel.
+     *
+     * @param messageProcessors The number of processing threads.
+     */
+
+    public QuickFIXApplication
+        (SystemInfo systemInfo,
+         Brokers brokers,
+         MessageFilter supportedMessages,
+         ReplyPersister persister,
+         IQuickFIXSender sender,
+         UserManager userManager,
+         JmsOperations toClientStatus,
+         JmsOperations toTradeRecorder,
+         int messageProcessors)
     {
         mSystemInfo=systemInfo;
         mBrokers=brokers;
@@ -80,12 +132,36 @@ public class QuickFIXApplication
         mUserManager=userManager;
         mToClientStatus=toClientStatus;
         mToTradeRecorder=toTradeRecorder;
-        new MessageProcessor();
+        processors=new MessageProcessor[Math.max(1,messageProcessors)];
+        for(int i=0;i<processors.length;i++) {
+            processors[i]=new MessageProcessor(i);
+        }
     }
 
 
     // INSTANCE METHODS.
 
+    /**
+     * Stops the threads processing incoming broker messages. Messages
+     * already queued are processed before each thread exits; this
+     * method waits a bounded time for each thread to do so.
+     */
+
+    public void stop()
+    {
+        for(MessageProcessor processor : processors) {
+            processor.thread.interrupt();
+        }
+        for(MessageProcessor processor : processors) {
+            try {
+                processor.thread.join(PROCESSOR_STOP_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
     public SystemInfo getSystemInfo()
     {
         return mSystemInfo;         
@@ -126,6 +202,95 @@ public class QuickFIXApplication
         return mToTradeRecorder;
     }
 
+    /**
+     * Returns the number of threads processing incoming messages.
+     *
+     * @return The number of threads.
+     */
+
+    public int getMessageProcessorCount()
+    {
+        return processors.length;
+    }
+
+    /**
+     * Returns the number of received messages awaiting processing,
+     * for each session that delivered messages.
+     *
+     * @return The queue depths.
+     */
+
+    public Map<SessionID,Integer> getSessionQueueDepths()
+    {
+        Map<SessionID,Integer> depths=new HashMap<SessionID,Integer>();
+        for(Map.Entry<SessionID,SessionStatistics> entry : sessionStatistics.entrySet()) {
+            depths.put(entry.getKey(),
+                       entry.getValue().getQueueDepth());
+        }
+        return depths;
+    }
+
+    /**
+     * Returns the mean time, in microseconds, between the receipt of
+     * a message and the completion of its processing, for each
+     * session that delivered messages.
+     *
+     * @return The mean latencies.
+     */
+
+    public Map<SessionID,Long> getSessionMeanProcessingLatencies()
+    {
+        Map<SessionID,Long> latencies=new HashMap<SessionID,Long>();
+        for(Map.Entry<SessionID,SessionStatistics> entry : sessionStatistics.entrySet()) {
+            latencies.put(entry.getKey(),
+                          entry.getValue().getMeanLatency());
+        }
+        return latencies;
+    }
+
+    /**
+     * Returns the maximum time, in microseconds, between the receipt
+     * of a message and the completion of its processing, for each
+     * session that delivered messages.
+     *
+     * @return The maximum latencies.
+     */
+
+    public Map<SessionID,Long> getSessionMaxProcessingLatencies()
+    {
+        Map<SessionID,Long> latencies=new HashMap<SessionID,Long>();
+        for(Map.Entry<SessionID,SessionStatistics> entry : sessionStatistics.entrySet()) {
+            latencies.put(entry.getKey(),
+                          entry.getValue().getMaxLatency());
+        }
+        return latencies;
+    }
+
+    /**
+     * Queues the given message for processing by the processor
+     * assigned to the message's session.
+     *
+     * @param message The message.
+     */
+
+    private void enqueue
+        (MessagePackage message)
+    {
+        SessionID session=message.getSessionId();
+        SessionStatistics statistics=sessionStatistics.get(session);
+        if(statistics==null) {
+            statistics=new SessionStatistics();
+            SessionStatistics existing=sessionStatistics.putIfAbsent(session,
+                                                                     statistics);
+            if(existing!=null) {
+                statistics=existing;
+            }
+        }
+        message.setStatistics(statistics);
+        statistics.queued();
+        processors[(session.hashCode()&Integer.MAX_VALUE)%processors.length].add(message);
+    }
+
     private Object getCategory
         (Message msg)
     {
@@ -335,9 +500,9 @@ public class QuickFIXApplication
         (Message msg,
          SessionID session)
     {
-        messagesToProcess.add(new MessagePackage(msg,
-                                                 MessageType.FROM_ADMIN,
-                                                 session));
+        enqueue(new MessagePackage(msg,
+                                   MessageType.FROM_ADMIN,
+                                   session));
     }
 
     @Override
@@ -366,9 +531,9 @@ public class QuickFIXApplication
             Messages.QF_DISALLOWED_MESSAGE.info(getCategory(msg));
             throw new UnsupportedMessageType();
         }
-        messagesToProcess.add(new MessagePackage(msg,
-                                                 MessageType.FROM_APP,
-                                                 session));
+        enqueue(new MessagePackage(msg,
+                                   MessageType.FROM_APP,
+                                   session));
     }
     /**
      * Indicates the type of message.
@@ -467,6 +632,33 @@ public class QuickFIXApplication
         {
             return sessionId;
         }
+        /**
+         * Gets the time at which the message was received.
+         *
+         * @return a <code>long</code> value, as returned by {@link System#nanoTime()}
+         */
+        private long getReceived()
+        {
+            return received;
+        }
+        /**
+         * Gets the statistics of the message's session.
+         *
+         * @return a <code>SessionStatistics</code> value
+         */
+        private SessionStatistics getStatistics()
+        {
+            return statistics;
+        }
+        /**
+         * Sets the statistics of the message's session.
+         *
+         * @param inStatistics a <code>SessionStatistics</code> value
+         */
+        private void setStatistics(SessionStatistics inStatistics)
+        {
+            statistics = inStatistics;
+        }
         /**
          * message value
          */
@@ -479,6 +671,14 @@ public class QuickFIXApplication
          * session ID value
          */
         private final SessionID sessionId;
+        /**
+         * time at which the message was received
+         */
+        private final long received = System.nanoTime();
+        /**
+         * statistics of the message's session
+         */
+        private SessionStatistics statistics;
         /**
          * message counter
          */
@@ -488,6 +688,84 @@ public class QuickFIXApplication
          */
         private static final AtomicLong counter = new AtomicLong(0);
     }
+    /**
+     * Tracks the processing of incoming messages for a session.
+     *
+     * @version $Id$
+     * @since 2.1.4
+     */
+    @ClassVersion("$Id$")
+    private static class SessionStatistics
+    {
+        /**
+         * Records that a message was queued for processing.
+         */
+        private void queued()
+        {
+            queueDepth.incrementAndGet();
+        }
+        /**
+         * Records that a message finished processing.
+         *
+         * @param inReceived a <code>long</code> value containing the time at which the message was received
+         */
+        private void processed(long inReceived)
+        {
+            queueDepth.decrementAndGet();
+            long latency = System.nanoTime() - inReceived;
+            processed.incrementAndGet();
+            totalLatency.addAndGet(latency);
+            long max = maxLatency.get();
+            while(latency > max && !maxLatency.compareAndSet(max,
+                                                             latency)) {
+                max = maxLatency.get();
+            }
+        }
+        /**
+         * Gets the number of messages awaiting processing.
+         *
+         * @return an <code>int</code> value
+         */
+        private int getQueueDepth()
+        {
+            return queueDepth.get();
+        }
+        /**
+         * Gets the mean processing latency.
+         *
+         * @return a <code>long</code> value in microseconds
+         */
+        private long getMeanLatency()
+        {
+            long count = processed.get();
+            return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalLatency.get() / count);
+        }
+        /**
+         * Gets the maximum processing latency.
+         *
+         * @return a <code>long</code> value in microseconds
+         */
+        private long getMaxLatency()
+        {
+            return TimeUnit.NANOSECONDS.toMicros(maxLatency.get());
+        }
+        /**
+         * number of messages awaiting processing
+         */
+        private final AtomicInteger queueDepth = new AtomicInteger(0);
+        /**
+         * number of messages processed
+         */
+        private final AtomicLong processed = new AtomicLong(0);
+        /**
+         * sum of the processing latencies, in nanoseconds
+         */
+        private final AtomicLong totalLatency = new AtomicLong(0);
+        /**
+         * maximum processing latency, in nanoseconds
+         */
+        private final AtomicLong maxLatency = new AtomicLong(0);
+    }
     /**
      * Processes incoming messages.
      *
@@ -507,81 +785,127 @@ public class QuickFIXApplication
         {
             try {
                 while(true) {
-                    MessagePackage message = messagesToProcess.take();
-                    switch(message.getMessageType()) {
-                        case FROM_ADMIN: {
-                            SessionID session = message.getSessionId();
-                            Message msg = message.getMessage();
-                            Broker b = getBrokers().getBroker(session);
-                            Messages.QF_FROM_ADMIN.info(getCategory(msg),
-                                                        msg,
-                                                        b);
-                            b.logMessage(msg);
-                            // Send message to client.
-                            sendToClientTrades(true,
-                                               b,
-                                               msg,
-                                               Originator.Broker);
-                            break;
+                    handle(messagesToProcess.take());
+                }
+            } catch (InterruptedException ignored) {
+                // process whatever was queued before the processor was stopped
+                MessagePackage message;
+                while((message = messagesToProcess.poll()) != null) {
+                    handle(message);
+                }
+            }
+        }
+        /**
+         * Processes the given message and records its completion.
+         *
+         * @param message a <code>MessagePackage</code> value
+         */
+        private void handle(MessagePackage message)
+        {
+            try {
+                process(message);
+            } catch (RuntimeException e) {
+                SLF4JLoggerProxy.error(QuickFIXApplication.class,
+                                       e);
+            } finally {
+                message.getStatistics().processed(message.getReceived());
+            }
+        }
+        /**
+         * Adds the given message to the queue of messages to process.
+         *
+         * @param inMessage a <code>MessagePackage</code> value
+         */
+        private void add(MessagePackage inMessage)
+        {
+            messagesToProcess.add(inMessage);
+        }
+        /**
+         * Processes the given message.
+         *
+         * @param message a <code>MessagePackage</code> value
+         */
+        private void process(MessagePackage message)
+        {
+            switch(message.getMessageType()) {
+                case FROM_ADMIN: {
+                    SessionID session = message.getSessionId();
+                    Message msg = message.getMessage();
+                    Broker b = getBrokers().getBroker(session);
+                    Messages.QF_FROM_ADMIN.info(getCategory(msg),
+                                                msg,
+                                                b);
+                    b.logMessage(msg);
+                    // Send message to client.
+                    sendToClientTrades(true,
+                                       b,
+                                       msg,
+                                       Originator.Broker);
+                    break;
+                }
+                case FROM_APP: {
+                    SessionID session = message.getSessionId();
+                    Message msg = message.getMessage();
+                    Broker b = getBrokers().getBroker(session);
+                    try {
+                        // Report trading session status in a human-readable format.
+                        if (FIXMessageUtil.isTradingSessionStatus(msg)) {
+                            Messages.QF_TRADE_SESSION_STATUS.info(getCategory(msg),
+                                                                  b.getFIXDataDictionary().getHumanFieldValue(TradSesStatus.FIELD,
+                                                                                                              msg.getString(TradSesStatus.FIELD)));
                         }
-                        case FROM_APP: {
-                            SessionID session = message.getSessionId();
-                            Message msg = message.getMessage();
-                            Broker b = getBrokers().getBroker(session);
+                        // Send message to client.
+                        sendToClientTrades(false,b,msg,Originator.Broker);
+                        // OpenFIX certification: we reject all DeliverToCompID since we don't redeliver.
+                        if (msg.getHeader().isSetField(DeliverToCompID.FIELD)) {
                             try {
-                                // Report trading session status in a human-readable format.
-                                if (FIXMessageUtil.isTradingSessionStatus(msg)) {
-                                    Messages.QF_TRADE_SESSION_STATUS.info(getCategory(msg),
-                                                                          b.getFIXDataDictionary().getHumanFieldValue(TradSesStatus.FIELD,
-                                                                                                                      msg.getString(TradSesStatus.FIELD)));
-                                }
-                                // Send message to client.
-                                sendToClientTrades(false,b,msg,Originator.Broker);
-                                // OpenFIX certification: we reject all DeliverToCompID since we don't redeliver.
-                                if (msg.getHeader().isSetField(DeliverToCompID.FIELD)) {
-                                    try {
-                                        Message reject = b.getFIXMessageFactory().createSessionReject(msg,
-                                                                                                      SessionRejectReason.COMPID_PROBLEM);
-                                        reject.setString(Text.FIELD,
-                                                         Messages.QF_COMP_ID_REJECT.getText(msg.getHeader().getString(DeliverToCompID.FIELD)));
-                                        getSender().sendToTarget(reject,
-                                                                 session);
-                                    } catch (SessionNotFound ex) {
-                                        Messages.QF_COMP_ID_REJECT_FAILED.error(getCategory(msg),
-                                                                                ex,
-                                                                                b.toString());
-                                    }
-                                    break;
-                                }
-                                // Record filled (partially or totally) execution reports.
-                                if (FIXMessageUtil.isExecutionReport(msg)) {
-                                    char ordStatus=msg.getChar(OrdStatus.FIELD);
-                                    if ((ordStatus==OrdStatus.FILLED) ||
-                                        (ordStatus==OrdStatus.PARTIALLY_FILLED)) {
-                                        sendTradeRecord(msg);
-                                    }
-                                }
-                            } catch (FieldNotFound e) {
-                                SLF4JLoggerProxy.error(QuickFIXApplication.class,
-                                                       e);
+                                Message reject = b.getFIXMessageFactory().createSessionReject(msg,
+                                                                                              SessionRejectReason.COMPID_PROBLEM);
+                                reject.setString(Text.FIELD,
+                                                 Messages.QF_COMP_ID_REJECT.getText(msg.getHeader().getString(DeliverToCompID.FIELD)));
+                                getSender().sendToTarget(reject,
+                                                         session);
+                            } catch (SessionNotFound ex) {
+                                Messages.QF_COMP_ID_REJECT_FAILED.error(getCategory(msg),
+                                                                        ex,
+                                                                        b.toString());
                             }
                             break;
                         }
-                        default:
-                            throw new UnsupportedOperationException();
+                        // Record filled (partially or totally) execution reports.
+                        if (FIXMessageUtil.isExecutionReport(msg)) {
+                            char ordStatus=msg.getChar(OrdStatus.FIELD);
+                            if ((ordStatus==OrdStatus.FILLED) ||
+                                (ordStatus==OrdStatus.PARTIALLY_FILLED)) {
+                                sendTradeRecord(msg);
+                            }
+                        }
+                    } catch (FieldNotFound e) {
+                        SLF4JLoggerProxy.error(QuickFIXApplication.class,
+                                               e);
                     }
+                    break;
                 }
-            } catch (InterruptedException ignored) {}
+                default:
+                    throw new UnsupportedOperationException();
+            }
         }
         /**
          * Create a new MessageProcessor instance.
+         *
+         * @param inIndex an <code>int</code> value identifying the processor
          */
-        private MessageProcessor()
+        private MessageProcessor(int inIndex)
         {
             thread = new Thread(this,
-                                "QuickFIXApplication Message Processing Tread"); //$NON-NLS-1$
+                                "QuickFIXApplication Message Processing Thread " + inIndex); //$NON-NLS-1$
+            thread.setDaemon(true);
             thread.start();
         }
+        /**
+         * messages awaiting processing by this processor
+         */
+        private final BlockingDeque<MessagePackage> messagesToProcess = new LinkedBlockingDeque<MessagePackage>();
         /**
          * thread on which the messages are processed
          */
@@ -1,9 +1,20 @@
 package org.marketcetera.ors;
 
-import java.util.Map;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.marketcetera.trade.ExecutionReport;
+import org.marketcetera.trade.OrderStatus;
 import org.marketcetera.util.misc.ClassVersion;
 
 /* $License$ */
@@ -11,7 +22,16 @@ import org.marketcetera.util.misc.ClassVersion;
 /**
  * Caches latest report by OrderID.
  *
- * @author <a href="mailto:colin@marketcetera.com">Colin DuPlantis</a>
+ * <p>The latest report of an order becomes evictable once the order is closed, that is, once its latest report has an
+ * {@link OrderStatus} that is not {@link OrderStatus#isCancellable() cancellable}, other than
+ * {@link OrderStatus#DoneForDay}, whose order may be replaced on the next day.  It also becomes evictable once a report
+ * of another order of the chain names the order as its original order, since the order has then been replaced or
+ * canceled.  An evictable report is evicted once it has been cached for longer than the
+ * {@link #setClosedReportLife(long) closed report life}, or, oldest first, once the cache holds more than the
+ * {@link #setMaxSize(int) maximum number} of reports.  Any other report is evicted once it has been cached for longer
+ * than the {@link #setOpenReportLife(long) open report life}, so that the reports of orders the broker never closes do
+ * not stay forever.  Reports may optionally be stored serialized outside of the Java heap.
+ *
  * @version $Id$
  * @since 2.1.4
  */
@@ -30,11 +50,12 @@ public enum ReportCache
         if(inOrderId == null) {
             return null;
         }
-        ExecutionReport report = latestReports.get(inOrderId);
-        if(report == null) {
+        Entry entry = latestReports.get(inOrderId);
+        if(entry == null) {
             // TODO pull report from persistence
+            return null;
         }
-        return report;
+        return entry.getReport();
     }
     /**
      * Caches the given <code>ExecutionReport</code> value.
@@ -45,8 +66,24 @@ public enum ReportCache
     {
         if(inReport != null &&
            inReport.getOrderID() != null) {
-            latestReports.put(inReport.getOrderID().getValue(),
-                              inReport);
+            long now = System.currentTimeMillis();
+            Entry entry = new Entry(inReport.getOrderID().getValue(),
+                                    inReport,
+                                    now);
+            Entry oldEntry = latestReports.put(entry.orderId,
+                                               entry);
+            estimatedBytes.addAndGet(entry.size - (oldEntry == null ? 0 : oldEntry.size));
+            if(isClosed(inReport)) {
+                makeEvictable(entry);
+            }
+            if(isSuperseding(inReport)) {
+                // the original order has been replaced or canceled
+                Entry originalEntry = latestReports.get(inReport.getOriginalOrderID().getValue());
+                if(originalEntry != null) {
+                    makeEvictable(originalEntry);
+                }
+            }
+            evict(now);
         }
     }
     /**
@@ -55,9 +92,366 @@ public enum ReportCache
     public void clear()
     {
         latestReports.clear();
+        closedReports.clear();
+        estimatedBytes.set(0);
+    }
+    /**
+     * Gets the number of cached reports.
+     *
+     * @return an <code>int</code> value
+     */
+    public int getSize()
+    {
+        return latestReports.size();
+    }
+    /**
+     * Gets the estimated number of bytes used by the cached reports.
+     *
+     * <p>Reports stored off-heap are counted by their serialized size, reports stored on-heap by a fixed estimate.
+     *
+     * @return a <code>long</code> value
+     */
+    public long getEstimatedBytes()
+    {
+        return estimatedBytes.get();
+    }
+    /**
+     * Gets the number of reports evicted from the cache.
+     *
+     * @return a <code>long</code> value
+     */
+    public long getEvictions()
+    {
+        return evictions.get();
+    }
+    /**
+     * Get the maxSize value.
+     *
+     * @return an <code>int</code> value
+     */
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+    /**
+     * Sets the maxSize value.
+     *
+     * <p>Only evictable reports are evicted to stay within the maximum, so the cache may hold more reports than this
+     * if that many orders are open.
+     *
+     * @param inMaxSize an <code>int</code> value containing the maximum number of reports to cache or <code>0</code> to cache any number
+     */
+    public void setMaxSize(int inMaxSize)
+    {
+        maxSize = inMaxSize;
+    }
+    /**
+     * Get the openReportLife value.
+     *
+     * @return a <code>long</code> value
+     */
+    public long getOpenReportLife()
+    {
+        return openReportLife;
+    }
+    /**
+     * Sets the openReportLife value.
+     *
+     * @param inOpenReportLife a <code>long</code> value containing the number of milliseconds to keep the latest report of an order that is not closed or <code>0</code> to keep it regardless of age
+     */
+    public void setOpenReportLife(long inOpenReportLife)
+    {
+        openReportLife = inOpenReportLife;
+    }
+    /**
+     * Get the closedReportLife value.
+     *
+     * @return a <code>long</code> value
+     */
+    public long getClosedReportLife()
+    {
+        return closedReportLife;
+    }
+    /**
+     * Sets the closedReportLife value.
+     *
+     * @param inClosedReportLife a <code>long</code> value containing the number of milliseconds to keep the latest report of a closed order or <code>0</code> to keep it regardless of age
+     */
+    public void setClosedReportLife(long inClosedReportLife)
+    {
+        closedReportLife = inClosedReportLife;
+    }
+    /**
+     * Indicates if reports are stored off-heap.
+     *
+     * @return a <code>boolean</code> value
+     */
+    public boolean isOffHeap()
+    {
+        return offHeap;
+    }
+    /**
+     * Sets whether reports cached from now on are stored serialized outside of the Java heap.
+     *
+     * <p>Storing reports off-heap reduces the heap used by the cache at the cost of serializing each report when it is
+     * cached and deserializing it each time it is retrieved.
+     *
+     * @param inOffHeap a <code>boolean</code> value
+     */
+    public void setOffHeap(boolean inOffHeap)
+    {
+        offHeap = inOffHeap;
+    }
+    /**
+     * Evicts the evictable reports that exceed the bounds of the cache, oldest first, and, periodically, the other
+     * reports that are too old.
+     *
+     * @param inNow a <code>long</code> value containing the current time
+     */
+    private void evict(long inNow)
+    {
+        Entry oldest;
+        while((oldest = closedReports.peek()) != null &&
+              ((maxSize > 0 && latestReports.size() > maxSize) ||
+               (closedReportLife > 0 && inNow - oldest.timestamp > closedReportLife))) {
+            if(closedReports.remove(oldest)) {
+                remove(oldest);
+            }
+        }
+        long life = openReportLife;
+        long lastSweep = lastOpenReportSweep.get();
+        if(life > 0 &&
+           inNow - lastSweep >= Math.min(life,
+                                         MAX_OPEN_REPORT_SWEEP_INTERVAL) &&
+           lastOpenReportSweep.compareAndSet(lastSweep,
+                                             inNow)) {
+            for(Entry entry : latestReports.values()) {
+                if(inNow - entry.timestamp > life) {
+                    remove(entry);
+                }
+            }
+        }
+    }
+    /**
+     * Queues the given entry for eviction, unless it is already queued.
+     *
+     * @param inEntry an <code>Entry</code> value
+     */
+    private void makeEvictable(Entry inEntry)
+    {
+        if(inEntry.evictable.compareAndSet(false,
+                                           true)) {
+            closedReports.add(inEntry);
+        }
+    }
+    /**
+     * Removes the given entry from the cache unless it has been replaced.
+     *
+     * @param inEntry an <code>Entry</code> value
+     */
+    private void remove(Entry inEntry)
+    {
+        if(latestReports.remove(inEntry.orderId,
+                                inEntry)) {
+            estimatedBytes.addAndGet(-inEntry.size);
+            evictions.incrementAndGet();
+        }
     }
     /**
-     * cached reports 
+     * Indicates if the given report closes its order.
+     *
+     * <p>{@link OrderStatus#DoneForDay} does not close the order, which may be replaced on the next day.
+     *
+     * @param inReport an <code>ExecutionReport</code> value
+     * @return a <code>boolean</code> value
+     */
+    private static boolean isClosed(ExecutionReport inReport)
+    {
+        OrderStatus status = inReport.getOrderStatus();
+        return status != null &&
+               status != OrderStatus.Unknown &&
+               status != OrderStatus.DoneForDay &&
+               !status.isCancellable();
+    }
+    /**
+     * Indicates if the given report shows that its original order has been replaced or canceled.
+     *
+     * <p>A pending report does not, since the replace or cancel request may still be rejected.
+     *
+     * @param inReport an <code>ExecutionReport</code> value
+     * @return a <code>boolean</code> value
+     */
+    private static boolean isSuperseding(ExecutionReport inReport)
+    {
+        OrderStatus status = inReport.getOrderStatus();
+        return inReport.getOriginalOrderID() != null &&
+               !inReport.getOriginalOrderID().equals(inReport.getOrderID()) &&
+               status != null &&
+               status != OrderStatus.Unknown &&
+               status != OrderStatus.PendingReplace &&
+               status != OrderStatus.PendingCancel &&
+               status != OrderStatus.Rejected;
+    }
+    /**
+     * The latest report of an order, stored on-heap or off-heap.
+     *
+     * @version $Id$
+     * @since 2.1.4
+     */
+    @ClassVersion("$Id$")
+    private static class Entry
+    {
+        /**
+         * Create a new Entry instance.
+         *
+         * @param inOrderId a <code>String</code> value
+         * @param inReport an <code>ExecutionReport</code> value
+         * @param inTimestamp a <code>long</code> value
+         */
+        private Entry(String inOrderId,
+                      ExecutionReport inReport,
+                      long inTimestamp)
+        {
+            orderId = inOrderId;
+            timestamp = inTimestamp;
+            ByteBuffer buffer = null;
+            if(INSTANCE.offHeap) {
+                try {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    ObjectOutputStream output = new ObjectOutputStream(bytes);
+                    output.writeObject(inReport);
+                    output.close();
+                    buffer = ByteBuffer.allocateDirect(bytes.size());
+                    buffer.put(bytes.toByteArray());
+                    buffer.flip();
+                } catch (IOException e) {
+                    Messages.RC_CANNOT_STORE_REPORT.warn(ReportCache.class,
+                                                         e,
+                                                         inOrderId);
+                    buffer = null;
+                } catch (OutOfMemoryError e) {
+                    // the direct memory is exhausted
+                    Messages.RC_CANNOT_STORE_REPORT.warn(ReportCache.class,
+                                                         e,
+                                                         inOrderId);
+                    buffer = null;
+                }
+            }
+            if(buffer == null) {
+                report = inReport;
+                serializedReport = null;
+                size = HEAP_ENTRY_SIZE;
+            } else {
+                report = null;
+                serializedReport = buffer;
+                size = buffer.capacity();
+            }
+        }
+        /**
+         * Gets the report.
+         *
+         * @return an <code>ExecutionReport</code> value or <code>null</code> if the report cannot be read
+         */
+        private ExecutionReport getReport()
+        {
+            if(report != null) {
+                return report;
+            }
+            byte[] bytes = new byte[serializedReport.capacity()];
+            serializedReport.duplicate().get(bytes);
+            try {
+                ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes));
+                try {
+                    return (ExecutionReport)input.readObject();
+                } finally {
+                    input.close();
+                }
+            } catch (Exception e) {
+                Messages.RC_CANNOT_READ_REPORT.warn(ReportCache.class,
+                                                    e,
+                                                    orderId);
+                return null;
+            }
+        }
+        /**
+         * the order ID value
+         */
+        private final String orderId;
+        /**
+         * the time the report was cached
+         */
+        private final long timestamp;
+        /**
+         * indicates if the entry has been queued for eviction
+         */
+        private final AtomicBoolean evictable = new AtomicBoolean(false);
+        /**
+         * the report if it is stored on-heap, otherwise <code>null</code>
+         */
+        private final ExecutionReport report;
+        /**
+         * the serialized report if it is stored off-heap, otherwise <code>null</code>
+         */
+        private final ByteBuffer serializedReport;
+        /**
+         * the estimated number of bytes used by the report
+         */
+        private final int size;
+    }
+    /**
+     * estimated number of bytes used by a report stored on-heap, including its FIX message
+     */
+    private static final int HEAP_ENTRY_SIZE = 2048;
+    /**
+     * default maximum number of cached reports
+     */
+    public static final int DEFAULT_MAX_SIZE = 100000;
+    /**
+     * default number of milliseconds to keep the latest report of a closed order
+     */
+    public static final long DEFAULT_CLOSED_REPORT_LIFE = 60 * 60 * 1000;
+    /**
+     * default number of milliseconds to keep the latest report of an order that is not closed
+     */
+    public static final long DEFAULT_OPEN_REPORT_LIFE = 7 * 24 * 60 * 60 * 1000L;
+    /**
+     * maximum number of milliseconds between two searches for the reports older than the open report life
+     */
+    private static final long MAX_OPEN_REPORT_SWEEP_INTERVAL = 60 * 1000;
+    /**
+     * cached reports by order ID value
+     */
+    private final ConcurrentMap<String,Entry> latestReports = new ConcurrentHashMap<String,Entry>();
+    /**
+     * cached evictable reports in the order they became evictable
+     */
+    private final Queue<Entry> closedReports = new ConcurrentLinkedQueue<Entry>();
+    /**
+     * estimated number of bytes used by the cached reports
+     */
+    private final AtomicLong estimatedBytes = new AtomicLong();
+    /**
+     * number of reports of closed orders evicted
+     */
+    private final AtomicLong evictions = new AtomicLong();
+    /**
+     * maximum number of cached reports or <code>0</code> for no maximum
+     */
+    private volatile int maxSize = DEFAULT_MAX_SIZE;
+    /**
+     * number of milliseconds to keep the latest report of a closed order or <code>0</code> to keep it regardless of age
+     */
+    private volatile long closedReportLife = DEFAULT_CLOSED_REPORT_LIFE;
+    /**
+     * number of milliseconds to keep the latest report of an order that is not closed or <code>0</code> to keep it regardless of age
+     */
+    private volatile long openReportLife = DEFAULT_OPEN_REPORT_LIFE;
+    /**
+     * the time of the last search for the reports older than the open report life
+     */
+    private final AtomicLong lastOpenReportSweep = new AtomicLong();
+    /**
+     * indicates if reports are stored off-heap
      */
-    private final Map<String,ExecutionReport> latestReports = new ConcurrentHashMap<String,ExecutionReport>();
+    private volatile boolean offHeap = false;
 }
@@ -1,7 +1,12 @@
 package org.marketcetera.ors;
 
-import java.util.Map;
+import java.util.Iterator;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.marketcetera.trade.OrderID;
 import org.marketcetera.trade.UserID;
 import org.marketcetera.util.misc.ClassVersion;
@@ -10,13 +15,16 @@ import org.marketcetera.util.misc.ClassVersion;
  * A cache of order information. Cache entries are instances of {@link
  * SimpleOrderInfo}.
  *
- * <p><strong>WARNING</strong>: certain cache entries may be
- * maintained forever. This may happen if, for example, a broker
- * response is expected (because an order has been sent to the
- * broker), but the response is never received. Or if the ORS cannot
- * persist the actor/viewer of an order. This behavior can leak to ORS
- * memory leaks over extended periods of time and under scenarios of
- * frequent faulty conditions.</p>
+ * <p>Certain cache entries may never become removable. This may
+ * happen if, for example, a broker response is expected (because an
+ * order has been sent to the broker), but the response is never
+ * received. Or if the ORS cannot persist the actor/viewer of an
+ * order. To bound the memory used by such entries over extended
+ * periods of time, entries are evicted, oldest first, once they are
+ * older than the cache's maximum age, or once the cache holds more
+ * than its maximum number of entries. The principals of an order
+ * whose entry was evicted are then retrieved from the database, if
+ * they were persisted.</p>
  *
  * @author tlerios@marketcetera.com
  * @since 2.1.0
@@ -30,10 +38,37 @@ public class SimpleOrderInfoCache
     implements OrderInfoCache
 {
 
+    // CLASS DATA.
+
+    /**
+     * The default maximum number of entries.
+     */
+
+    public static final int DEFAULT_MAX_SIZE=
+        1000000;
+
+    /**
+     * The default maximum age of an entry, in seconds.
+     */
+
+    public static final long DEFAULT_MAX_AGE=
+        24*60*60;
+
+
     // INSTANCE DATA.
 
-    private final Map<OrderID,SimpleOrderInfo> mMap=
+    private final ConcurrentMap<OrderID,SimpleOrderInfo> mMap=
         new ConcurrentHashMap<OrderID,SimpleOrderInfo>();
+    private final Queue<Added> mAdded=
+        new ConcurrentLinkedQueue<Added>();
+    private final AtomicLong mEvictions=
+        new AtomicLong();
+    private final AtomicInteger mRemovedAdded=
+        new AtomicInteger();
+    private volatile int mMaxSize=
+        DEFAULT_MAX_SIZE;
+    private volatile long mMaxAge=
+        DEFAULT_MAX_AGE;
 
 
     // INSTANCE METHODS.
@@ -45,11 +80,86 @@ public class SimpleOrderInfoCache
      * @return The map.
      */
 
-    private Map<OrderID,SimpleOrderInfo> getMap()
+    private ConcurrentMap<OrderID,SimpleOrderInfo> getMap()
     {
         return mMap;
     }
 
+    /**
+     * Sets the receiver's maximum number of entries to the given
+     * value. If this method is not called during initialization, the
+     * maximum defaults to {@link #DEFAULT_MAX_SIZE}.
+     *
+     * @param maxSize The maximum. Zero or a negative value places no
+     * limit on the number of entries.
+     */
+
+    public void setMaxSize
+        (int maxSize)
+    {
+        mMaxSize=maxSize;
+    }
+
+    /**
+     * Returns the receiver's maximum number of entries.
+     *
+     * @return The maximum.
+     */
+
+    public int getMaxSize()
+    {
+        return mMaxSize;
+    }
+
+    /**
+     * Sets the receiver's maximum age of an entry to the given
+     * value. If this method is not called during initialization, the
+     * maximum defaults to {@link #DEFAULT_MAX_AGE}.
+     *
+     * @param maxAge The maximum, in seconds. Zero or a negative value
+     * places no limit on the age of entries.
+     */
+
+    public void setMaxAge
+        (long maxAge)
+    {
+        mMaxAge=maxAge;
+    }
+
+    /**
+     * Returns the receiver's maximum age of an entry.
+     *
+     * @return The maximum, in seconds.
+     */
+
+    public long getMaxAge()
+    {
+        return mMaxAge;
+    }
+
+    /**
+     * Returns the number of entries in the receiver.
+     *
+     * @return The number of entries.
+     */
+
+    public int getSize()
+    {
+        return getMap().size();
+    }
+
+    /**
+     * Returns the number of entries evicted from the receiver before
+     * they could be removed.
+     *
+     * @return The number of evictions.
+     */
+
+    public long getEvictions()
+    {
+        return mEvictions.get();
+    }
+
     /**
      * Removes the receiver's entry for the order with the given ID.
      *
@@ -59,10 +169,69 @@ public class SimpleOrderInfoCache
     public void remove
         (OrderID orderID)
     {
-        getMap().remove(orderID);
+        if (getMap().remove(orderID)!=null) {
+            discardRemoved();
+        }
         Messages.OIM_REMOVED_ENTRY.debug(this,orderID,getMap().size());
     }
 
+    /**
+     * Records that an entry was removed or replaced, and discards the
+     * entries that have already been removed from the eviction order
+     * once they outnumber the entries in the receiver. Otherwise,
+     * removed entries queued behind a long-lived entry would only be
+     * discarded once that entry is removed or evicted.
+     */
+
+    private void discardRemoved()
+    {
+        int removed=mRemovedAdded.incrementAndGet();
+        if ((removed<=getMap().size()) ||
+            !mRemovedAdded.compareAndSet(removed,0)) {
+            return;
+        }
+        Iterator<Added> i=mAdded.iterator();
+        while (i.hasNext()) {
+            SimpleOrderInfo info=i.next().getInfo();
+            if (getMap().get(info.getOrderID())!=info) {
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Evicts the receiver's oldest entries while there are too many
+     * entries, or the oldest entry is too old. Entries that have
+     * already been removed are discarded from the eviction order
+     * along the way.
+     *
+     * @param now The current time, in ms.
+     */
+
+    private void evict
+        (long now)
+    {
+        Added oldest;
+        while ((oldest=mAdded.peek())!=null) {
+            SimpleOrderInfo info=oldest.getInfo();
+            boolean removed=(getMap().get(info.getOrderID())!=info);
+            if (!removed &&
+                !((getMaxSize()>0) && (getMap().size()>getMaxSize())) &&
+                !((getMaxAge()>0) &&
+                  (now-oldest.getTime()>getMaxAge()*1000))) {
+                return;
+            }
+            if (!mAdded.remove(oldest)) {
+                continue;
+            }
+            if (!removed && getMap().remove(info.getOrderID(),info)) {
+                mEvictions.incrementAndGet();
+                Messages.OIM_EVICTED_ENTRY.debug
+                    (this,info.getOrderID(),getMap().size());
+            }
+        }
+    }
+
 
     // OrderInfoCache.
 
@@ -74,8 +243,14 @@ public class SimpleOrderInfoCache
     {
         SimpleOrderInfo info=new SimpleOrderInfo
             (this,orderID,origOrderID,actorID);
-        getMap().put(orderID,info);
+        long now=System.currentTimeMillis();
+        boolean replaced=(getMap().put(orderID,info)!=null);
+        mAdded.add(new Added(info,now));
+        if (replaced) {
+            discardRemoved();
+        }
         Messages.OIM_ADDED_ENTRY.debug(this,orderID,getMap().size());
+        evict(now);
         return info;
     }
 
@@ -85,4 +260,34 @@ public class SimpleOrderInfoCache
     {
         return getMap().get(orderID);
     }
+
+
+    /**
+     * An entry in the order in which entries were added to the
+     * receiver.
+     */
+
+    private static final class Added
+    {
+        private final SimpleOrderInfo mInfo;
+        private final long mTime;
+
+        Added
+            (SimpleOrderInfo info,
+             long time)
+        {
+            mInfo=info;
+            mTime=time;
+        }
+
+        SimpleOrderInfo getInfo()
+        {
+            return mInfo;
+        }
+
+        long getTime()
+        {
+            return mTime;
+        }
+    }
 }
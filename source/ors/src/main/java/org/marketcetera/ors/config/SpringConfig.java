@@ -3,6 +3,8 @@ package org.marketcetera.ors.config;
 import javax.jms.ConnectionFactory;
 import org.marketcetera.core.IDFactory;
 import org.marketcetera.ors.OrderInfoCache;
+import org.marketcetera.ors.QuickFIXApplication;
+import org.marketcetera.ors.ReportCache;
 import org.marketcetera.ors.brokers.SpringBrokers;
 import org.marketcetera.ors.brokers.SpringSelector;
 import org.marketcetera.ors.filters.MessageFilter;
@@ -54,6 +56,11 @@ public class SpringConfig
     private IDFactory mIDFactory;
     private ReportHistoryServices mReportHistoryServices;
     private OrderInfoCache mOrderInfoCache;
+    private int mBrokerMessageProcessors;
+    private int mReportCacheMaxSize;
+    private long mReportCacheClosedReportLife;
+    private long mReportCacheOpenReportLife;
+    private boolean mReportCacheOffHeap;
 
 
     // CONSTRUCTORS.
@@ -70,6 +77,13 @@ public class SpringConfig
         mServerHost=Node.DEFAULT_HOST;
         mServerPort=Node.DEFAULT_PORT;
         mServerSessionLife=SessionManager.INFINITE_SESSION_LIFESPAN;
+        mBrokerMessageProcessors=
+            QuickFIXApplication.DEFAULT_MESSAGE_PROCESSORS;
+        mReportCacheMaxSize=ReportCache.DEFAULT_MAX_SIZE;
+        mReportCacheClosedReportLife=
+            ReportCache.DEFAULT_CLOSED_REPORT_LIFE/1000;
+        mReportCacheOpenReportLife=
+            ReportCache.DEFAULT_OPEN_REPORT_LIFE/1000;
         setSingleton(this);
     }
 
@@ -455,6 +469,149 @@ public class SpringConfig
         return mOrderInfoCache;
     }
 
+    /**
+     * Sets the receiver's number of threads processing messages
+     * received from brokers to the given value. Messages from the
+     * same broker are always processed in order by the same thread.
+     * If this method is not called during initialization, the number
+     * defaults to {@link QuickFIXApplication#DEFAULT_MESSAGE_PROCESSORS}.
+     *
+     * @param brokerMessageProcessors The number of threads.
+     */
+
+    public void setBrokerMessageProcessors
+        (int brokerMessageProcessors)
+    {
+        mBrokerMessageProcessors=brokerMessageProcessors;
+    }
+
+    /**
+     * Returns the receiver's number of threads processing messages
+     * received from brokers.
+     *
+     * @return The number of threads.
+     */
+
+    public int getBrokerMessageProcessors()
+    {
+        return mBrokerMessageProcessors;
+    }
+
+    /**
+     * Sets the maximum number of latest execution reports the
+     * receiver's {@link ReportCache} keeps to the given value. The
+     * latest reports of open orders are kept regardless, until they
+     * are older than the {@link #setReportCacheOpenReportLife(long)
+     * open report life}. If this
+     * method is not called during initialization, the maximum
+     * defaults to {@link ReportCache#DEFAULT_MAX_SIZE}.
+     *
+     * @param reportCacheMaxSize The maximum. Zero places no limit on
+     * the number of reports.
+     */
+
+    public void setReportCacheMaxSize
+        (int reportCacheMaxSize)
+    {
+        mReportCacheMaxSize=reportCacheMaxSize;
+    }
+
+    /**
+     * Returns the maximum number of latest execution reports the
+     * receiver's {@link ReportCache} keeps.
+     *
+     * @return The maximum.
+     */
+
+    public int getReportCacheMaxSize()
+    {
+        return mReportCacheMaxSize;
+    }
+
+    /**
+     * Sets the time for which the receiver's {@link ReportCache}
+     * keeps the latest execution report of a closed order to the
+     * given value. If this method is not called during
+     * initialization, the time defaults to {@link
+     * ReportCache#DEFAULT_CLOSED_REPORT_LIFE}.
+     *
+     * @param reportCacheClosedReportLife The time, in seconds. Zero
+     * keeps reports regardless of age.
+     */
+
+    public void setReportCacheClosedReportLife
+        (long reportCacheClosedReportLife)
+    {
+        mReportCacheClosedReportLife=reportCacheClosedReportLife;
+    }
+
+    /**
+     * Returns the time for which the receiver's {@link ReportCache}
+     * keeps the latest execution report of a closed order.
+     *
+     * @return The time, in seconds.
+     */
+
+    public long getReportCacheClosedReportLife()
+    {
+        return mReportCacheClosedReportLife;
+    }
+
+    /**
+     * Sets the time for which the receiver's {@link ReportCache}
+     * keeps the latest execution report of an order that is not
+     * closed to the given value. If this method is not called
+     * during initialization, the time defaults to {@link
+     * ReportCache#DEFAULT_OPEN_REPORT_LIFE}.
+     *
+     * @param reportCacheOpenReportLife The time, in seconds. Zero
+     * keeps reports regardless of age.
+     */
+
+    public void setReportCacheOpenReportLife
+        (long reportCacheOpenReportLife)
+    {
+        mReportCacheOpenReportLife=reportCacheOpenReportLife;
+    }
+
+    /**
+     * Returns the time for which the receiver's {@link ReportCache}
+     * keeps the latest execution report of an order that is not
+     * closed.
+     *
+     * @return The time, in seconds.
+     */
+
+    public long getReportCacheOpenReportLife()
+    {
+        return mReportCacheOpenReportLife;
+    }
+
+    /**
+     * Sets whether the receiver's {@link ReportCache} stores the
+     * latest execution reports serialized outside of the Java heap.
+     *
+     * @param reportCacheOffHeap True if so.
+     */
+
+    public void setReportCacheOffHeap
+        (boolean reportCacheOffHeap)
+    {
+        mReportCacheOffHeap=reportCacheOffHeap;
+    }
+
+    /**
+     * Returns whether the receiver's {@link ReportCache} stores the
+     * latest execution reports serialized outside of the Java heap.
+     *
+     * @return True if so.
+     */
+
+    public boolean getReportCacheOffHeap()
+    {
+        return mReportCacheOffHeap;
+    }
+
 
     // InitializingBean.
 
@@ -1,17 +1,51 @@
 package org.marketcetera.ors.history;
 
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.QueueBrowser;
+import javax.jms.Session;
 import javax.xml.bind.JAXBException;
+import org.marketcetera.client.jms.JMSBinaryMessageConverter;
 import org.marketcetera.client.jms.JmsManager;
-import org.marketcetera.client.jms.ReceiveOnlyHandler;
 import org.marketcetera.core.IDFactory;
 import org.marketcetera.persist.PersistenceException;
 import org.marketcetera.trade.*;
 import org.marketcetera.util.misc.ClassVersion;
 import org.springframework.jms.core.JmsOperations;
+import org.springframework.jms.support.converter.MessageConversionException;
 
 /**
  * Provides services to save and query reports with asynchronous saving.
  *
+ * <p>Reports are sent to the persist queue, from which a dedicated
+ * thread receives and saves them in batches: each batch is received
+ * within a transacted JMS session and saved within a single database
+ * transaction, and the JMS session is committed only after the
+ * database transaction completes, so that a report is removed from
+ * the persist queue only once it has been saved. If the ORS exits
+ * before then, the report is received again once the services are
+ * initialized again; in the rare case where the ORS exits between
+ * the two commits, a report may thus be saved twice. The {@link
+ * ReportSavedListener} is notified only after the database
+ * transaction completes. A batch holds all the reports available in
+ * the persist queue, up to the {@link #setMaxBatchSize(int) maximum
+ * batch size}; the persister may also wait up to the {@link
+ * #setMaxBatchDelay(long) maximum batch delay} for a batch to
+ * fill.</p>
+ *
+ * <p>Reports awaiting persistence stay in the persist queue, so the
+ * number of such reports is bounded only by the JMS broker; {@link
+ * #getPendingReports()} and {@link #getPersistLag()} browse the
+ * persist queue to report on them. {@link #stop()} saves the batch
+ * being received before it returns.</p>
+ *
  * @author tlerios@marketcetera.com
  * @since 2.1.0
  * @version $Id$
@@ -29,32 +63,505 @@ public class AsyncSaveReportHistoryServices
     private static final String PERSIST_QUEUE=
         "persist-queue"; //$NON-NLS-1$
 
-    public class QueueHandler
-        implements ReceiveOnlyHandler<TradeMessage>
+    /**
+     * The default maximum number of reports saved in one transaction.
+     */
+
+    public static final int DEFAULT_MAX_BATCH_SIZE=
+        100;
+
+    /**
+     * The default maximum time, in ms, to wait for a batch to fill.
+     */
+
+    public static final long DEFAULT_MAX_BATCH_DELAY=
+        0;
+
+    /**
+     * The time, in ms, the persister waits for a report before it
+     * checks whether it should stop.
+     */
+
+    private static final long STOP_CHECK_INTERVAL=
+        100;
+
+    /**
+     * The time, in ms, the persister waits before it receives from
+     * the persist queue again after a JMS error.
+     */
+
+    private static final long RECONNECT_INTERVAL=
+        1000;
+
+
+    /**
+     * A browser of the persist queue, on its own connection.
+     */
+
+    private final class PersistQueueBrowser
+    {
+        private final Connection mConnection;
+        private final QueueBrowser mBrowser;
+
+        /**
+         * Opens a browser on the persist queue.
+         *
+         * @throws JMSException Thrown if the browser cannot be
+         * opened.
+         */
+
+        PersistQueueBrowser()
+            throws JMSException
+        {
+            mConnection=getJmsManager().getIncomingJmsFactory().
+                getConnectionFactory().createConnection();
+            try {
+                Session session=mConnection.createSession
+                    (false,Session.AUTO_ACKNOWLEDGE);
+                mBrowser=session.createBrowser
+                    (session.createQueue(PERSIST_QUEUE));
+                mConnection.start();
+            } catch (JMSException ex) {
+                close();
+                throw ex;
+            }
+        }
+
+        /**
+         * Closes the browser.
+         */
+
+        void close()
+        {
+            try {
+                mConnection.close();
+            } catch (JMSException ignored) {
+                // Nothing more can be done.
+            }
+        }
+    }
+
+
+    /**
+     * Receives the reports from the persist queue and saves them in
+     * batches.
+     */
+
+    private final class Persister
+        extends Thread
     {
+        private Connection mConnection;
+        private Session mSession;
+        private MessageConsumer mConsumer;
+
+        Persister()
+        {
+            super("ReportPersister"); //$NON-NLS-1$
+            setDaemon(true);
+        }
+
         @Override
-        public void receiveMessage
-            (TradeMessage msg)
+        public void run()
         {
-            final ReportBase report=(ReportBase)msg;
-            Messages.RHS_DEQUEUED_REPLY.info(this,report);
-            boolean success=false;
+            List<ReportBase> batch=new ArrayList<ReportBase>();
             try {
-                PersistentReport.save(report);
-                success=true;
-                Messages.RHS_PERSISTED_REPLY.info(this,report);
-            } catch (PersistenceException ex) {
-                Messages.RHS_PERSIST_ERROR.error(this,ex,report);
+                while (!mStopping) {
+                    try {
+                        if (mSession==null) {
+                            connect();
+                        }
+                        fillBatch(batch);
+                        if (!batch.isEmpty()) {
+                            persist(batch);
+                        }
+                        // Also commits messages that could not be
+                        // converted, so that they are not received
+                        // again.
+                        mSession.commit();
+                    } catch (JMSException ex) {
+                        Messages.RHS_PERSIST_QUEUE_ERROR.warn
+                            (AsyncSaveReportHistoryServices.this,ex);
+                        disconnect();
+                        Thread.sleep(RECONNECT_INTERVAL);
+                    } finally {
+                        batch.clear();
+                        mBatchSentAt=0;
+                    }
+                }
+            } catch (InterruptedException ignored) {
+                // Exit.
             } finally {
-                invokeListener(report,success);
+                disconnect();
             }
         }
+
+        /**
+         * Opens a transacted session on the persist queue.
+         *
+         * @throws JMSException Thrown if the session cannot be
+         * opened.
+         */
+
+        private void connect()
+            throws JMSException
+        {
+            mConnection=getJmsManager().getIncomingJmsFactory().
+                getConnectionFactory().createConnection();
+            try {
+                mSession=mConnection.createSession
+                    (true,Session.SESSION_TRANSACTED);
+                mConsumer=mSession.createConsumer
+                    (mSession.createQueue(PERSIST_QUEUE));
+                mConnection.start();
+            } catch (JMSException ex) {
+                disconnect();
+                throw ex;
+            }
+        }
+
+        /**
+         * Closes the session on the persist queue, if any. Reports
+         * received within an uncommitted transaction are received
+         * again by the next session.
+         */
+
+        private void disconnect()
+        {
+            if (mConnection!=null) {
+                try {
+                    mConnection.close();
+                } catch (JMSException ignored) {
+                    // Nothing more can be done.
+                }
+            }
+            mConnection=null;
+            mSession=null;
+            mConsumer=null;
+        }
+
+        /**
+         * Waits for a report in the persist queue, and adds it to the
+         * given batch along with the other reports available, up to
+         * the maximum batch size or delay. If no report becomes
+         * available within {@link #STOP_CHECK_INTERVAL}, the batch is
+         * left empty.
+         *
+         * @param batch The batch.
+         *
+         * @throws JMSException Thrown if the reports cannot be
+         * received.
+         */
+
+        private void fillBatch
+            (List<ReportBase> batch)
+            throws JMSException
+        {
+            int maxBatchSize=getMaxBatchSize();
+            Message message=mConsumer.receive(STOP_CHECK_INTERVAL);
+            if (message==null) {
+                return;
+            }
+            mBatchSentAt=getSentAt(message);
+            add(batch,message);
+            long delay=getMaxBatchDelay();
+            long deadline=System.nanoTime()+
+                TimeUnit.MILLISECONDS.toNanos(delay);
+            while (batch.size()<maxBatchSize) {
+                message=mConsumer.receiveNoWait();
+                if (message==null) {
+                    long remaining=TimeUnit.NANOSECONDS.toMillis
+                        (deadline-System.nanoTime());
+                    if (remaining<=0) {
+                        return;
+                    }
+                    message=mConsumer.receive(remaining);
+                    if (message==null) {
+                        return;
+                    }
+                }
+                add(batch,message);
+            }
+        }
+
+        /**
+         * Converts the given message received from the persist queue
+         * into a report and adds it to the given batch. A message
+         * that cannot be converted is logged and discarded.
+         *
+         * @param batch The batch.
+         * @param message The message.
+         *
+         * @throws JMSException Thrown if the message cannot be read.
+         */
+
+        private void add
+            (List<ReportBase> batch,
+             Message message)
+            throws JMSException
+        {
+            ReportBase report;
+            try {
+                report=(ReportBase)mConverter.fromMessage(message);
+            } catch (MessageConversionException ex) {
+                Messages.RHS_PERSIST_QUEUE_CONVERSION_ERROR.error
+                    (AsyncSaveReportHistoryServices.this,ex,message);
+                return;
+            }
+            Messages.RHS_DEQUEUED_REPLY.info
+                (AsyncSaveReportHistoryServices.this,report);
+            batch.add(report);
+        }
     }
 
 
     // INSTANCE DATA.
 
     private JmsOperations mToPersistQueue;
+    private JMSBinaryMessageConverter mConverter;
+    private Persister mPersister;
+    private volatile boolean mStopping;
+    private volatile long mBatchSentAt;
+    private int mMaxBatchSize=DEFAULT_MAX_BATCH_SIZE;
+    private long mMaxBatchDelay=DEFAULT_MAX_BATCH_DELAY;
+    private final AtomicLong mBatches=new AtomicLong();
+    private final AtomicLong mBatchedReports=new AtomicLong();
+    private volatile int mMaxObservedBatchSize;
+
+
+    // INSTANCE METHODS.
+
+    /**
+     * Returns the receiver's persist queue sender.
+     *
+     * @return The sender.
+     */
+
+    private JmsOperations getToPersistQueue()
+    {
+        return mToPersistQueue;
+    }
+
+    /**
+     * Sets the maximum number of reports saved in one transaction.
+     *
+     * @param maxBatchSize The size, which must be positive.
+     */
+
+    public void setMaxBatchSize
+        (int maxBatchSize)
+    {
+        if (maxBatchSize<=0) {
+            throw new IllegalArgumentException();
+        }
+        mMaxBatchSize=maxBatchSize;
+    }
+
+    /**
+     * Returns the maximum number of reports saved in one transaction.
+     *
+     * @return The size.
+     */
+
+    public int getMaxBatchSize()
+    {
+        return mMaxBatchSize;
+    }
+
+    /**
+     * Sets the maximum time to wait for a batch to fill once its
+     * first report is available. Zero means that a batch holds the
+     * reports that are available, without waiting for more.
+     *
+     * @param maxBatchDelay The time, in ms.
+     */
+
+    public void setMaxBatchDelay
+        (long maxBatchDelay)
+    {
+        if (maxBatchDelay<0) {
+            throw new IllegalArgumentException();
+        }
+        mMaxBatchDelay=maxBatchDelay;
+    }
+
+    /**
+     * Returns the maximum time to wait for a batch to fill.
+     *
+     * @return The time, in ms.
+     */
+
+    public long getMaxBatchDelay()
+    {
+        return mMaxBatchDelay;
+    }
+
+    /**
+     * Returns the number of reports in the persist queue, as seen by
+     * browsing the queue. Depending on the JMS broker, the reports of
+     * the batch being saved, which are removed from the queue only
+     * once saved, may or may not be included.
+     *
+     * @return The count, or -1 if the persist queue cannot be
+     * browsed.
+     */
+
+    public int getPendingReports()
+    {
+        int count=0;
+        try {
+            PersistQueueBrowser scan=new PersistQueueBrowser();
+            try {
+                Enumeration<?> messages=scan.mBrowser.getEnumeration();
+                while (messages.hasMoreElements()) {
+                    messages.nextElement();
+                    count++;
+                }
+            } finally {
+                scan.close();
+            }
+        } catch (JMSException ex) {
+            Messages.RHS_PERSIST_QUEUE_BROWSE_ERROR.warn(this,ex);
+            return -1;
+        }
+        return count;
+    }
+
+    /**
+     * Returns how long ago the oldest report that has not yet been
+     * saved was sent to the persist queue: the first report of the
+     * batch being saved, if any, or else the report at the head of
+     * the persist queue.
+     *
+     * @return The time, in ms, zero if no report awaits saving, or
+     * -1 if the persist queue cannot be browsed.
+     */
+
+    public long getPersistLag()
+    {
+        long sentAt=mBatchSentAt;
+        if (sentAt==0) {
+            try {
+                PersistQueueBrowser scan=new PersistQueueBrowser();
+                try {
+                    Enumeration<?> messages=scan.mBrowser.getEnumeration();
+                    if (messages.hasMoreElements()) {
+                        sentAt=getSentAt((Message)messages.nextElement());
+                    }
+                } finally {
+                    scan.close();
+                }
+            } catch (JMSException ex) {
+                Messages.RHS_PERSIST_QUEUE_BROWSE_ERROR.warn(this,ex);
+                return -1;
+            }
+        }
+        if (sentAt==0) {
+            return 0;
+        }
+        return Math.max(0,System.currentTimeMillis()-sentAt);
+    }
+
+    /**
+     * Returns the time the given message was sent, or the current
+     * time if the broker did not record it.
+     *
+     * @param message The message.
+     *
+     * @return The time, in ms since the epoch.
+     *
+     * @throws JMSException Thrown if the message cannot be read.
+     */
+
+    private static long getSentAt
+        (Message message)
+        throws JMSException
+    {
+        long sentAt=message.getJMSTimestamp();
+        return (sentAt==0)?System.currentTimeMillis():sentAt;
+    }
+
+    /**
+     * Returns the mean number of reports saved per transaction.
+     *
+     * @return The mean, or zero if no batch has been saved.
+     */
+
+    public long getMeanBatchSize()
+    {
+        long batches=mBatches.get();
+        if (batches==0) {
+            return 0;
+        }
+        return mBatchedReports.get()/batches;
+    }
+
+    /**
+     * Returns the largest number of reports saved in one transaction.
+     *
+     * @return The size.
+     */
+
+    public int getMaxObservedBatchSize()
+    {
+        return mMaxObservedBatchSize;
+    }
+
+    /**
+     * Saves the given batch within a single transaction, and then
+     * notifies the listener. If the transaction fails, the reports are
+     * saved one at a time, so that one report that cannot be saved
+     * does not prevent the others from being saved.
+     *
+     * @param reports The batch.
+     */
+
+    private void persist
+        (List<ReportBase> reports)
+    {
+        List<ExecutionReportSummary> summaries;
+        try {
+            summaries=PersistentReport.save(reports);
+        } catch (PersistenceException ex) {
+            Messages.RHS_PERSIST_BATCH_ERROR.warn(this,ex,reports.size());
+            for (ReportBase report:reports) {
+                persist(report);
+            }
+            return;
+        }
+        mBatches.incrementAndGet();
+        mBatchedReports.addAndGet(reports.size());
+        if (reports.size()>mMaxObservedBatchSize) {
+            mMaxObservedBatchSize=reports.size();
+        }
+        for (int i=0;i<reports.size();i++) {
+            ReportBase report=reports.get(i);
+            updatePositionLedger(summaries.get(i));
+            Messages.RHS_PERSISTED_REPLY.info(this,report);
+            invokeListener(report,true);
+        }
+    }
+
+    /**
+     * Saves the given report within its own transaction, and then
+     * notifies the listener.
+     *
+     * @param report The report.
+     */
+
+    private void persist
+        (ReportBase report)
+    {
+        boolean success=false;
+        try {
+            updatePositionLedger(PersistentReport.save(report));
+            success=true;
+            Messages.RHS_PERSISTED_REPLY.info(this,report);
+        } catch (PersistenceException ex) {
+            Messages.RHS_PERSIST_ERROR.error(this,ex,report);
+        } finally {
+            invokeListener(report,success);
+        }
+    }
 
 
     // ReportHistoryServices.
@@ -67,15 +574,17 @@ public class AsyncSaveReportHistoryServices
         throws ReportPersistenceException
     {
         super.init(idFactory,jmsManager,reportSavedListener);
+        mStopping=false;
         try {
+            mConverter=new JMSBinaryMessageConverter();
             mToPersistQueue=getJmsManager().getOutgoingJmsFactory().
-                createJmsTemplateX(PERSIST_QUEUE,false);
-            getJmsManager().getIncomingJmsFactory().registerHandlerTMX
-                (new QueueHandler(),PERSIST_QUEUE,false);
+                createJmsTemplateB(PERSIST_QUEUE,false);
         } catch (JAXBException ex) {
             throw new ReportPersistenceException
                 (ex,Messages.RHS_CANNOT_CREATE_QUEUE);
         }
+        mPersister=new Persister();
+        mPersister.start();
     }
 
     @Override
@@ -92,21 +601,34 @@ public class AsyncSaveReportHistoryServices
                 invokeListener(report,false);
             }
         }
-        Messages.RHS_ENQUEUED_REPLY.info(this,report);        
+        Messages.RHS_ENQUEUED_REPLY.info(this,report);
         getToPersistQueue().convertAndSend(report);
     }
 
-
-    // INSTANCE METHODS.
-
     /**
-     * Returns the receiver's persist queue sender.
-     *
-     * @return The sender.
+     * Stops receiving reports from the persist queue, and waits until
+     * the batch being received has been saved. Reports that remain in
+     * the persist queue are received once the services are
+     * initialized again.
      */
 
-    private JmsOperations getToPersistQueue()
+    public void stop()
     {
-        return mToPersistQueue;
+        mStopping=true;
+        if (mPersister==null) {
+            return;
+        }
+        boolean interrupted=false;
+        while (mPersister.isAlive()) {
+            try {
+                mPersister.join();
+            } catch (InterruptedException ex) {
+                interrupted=true;
+            }
+        }
+        mPersister=null;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
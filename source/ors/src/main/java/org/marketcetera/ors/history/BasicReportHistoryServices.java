@@ -1,6 +1,8 @@
 package org.marketcetera.ors.history;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -28,11 +30,43 @@ public class BasicReportHistoryServices
     implements ReportHistoryServices
 {
 
+    // CLASS DATA.
+
+    /**
+     * The default maximum number of closed order chains tracked
+     * individually by the position ledger.
+     */
+
+    public static final int DEFAULT_POSITION_LEDGER_MAX_CLOSED_CHAINS=
+        PositionLedger.DEFAULT_MAX_CLOSED_CHAINS;
+
+    /**
+     * The default maximum number of orders in the principal index.
+     */
+
+    public static final int DEFAULT_PRINCIPAL_INDEX_MAX_SIZE=100000;
+
+    /**
+     * The default maximum age, in seconds, of an order in the
+     * principal index.
+     */
+
+    public static final long DEFAULT_PRINCIPAL_INDEX_MAX_AGE=24*60*60;
+
+
     // INSTANCE DATA.
 
     private LongIDFactory mReportIDFactory;
     private JmsManager mJmsManager;
     private ReportSavedListener mReportSavedListener;
+    private boolean mPositionLedgerEnabled;
+    private boolean mPositionLedgerCheckEnabled;
+    private int mPositionLedgerMaxClosedChains=
+        DEFAULT_POSITION_LEDGER_MAX_CLOSED_CHAINS;
+    private volatile PositionLedger mPositionLedger;
+    private int mPrincipalIndexMaxSize=DEFAULT_PRINCIPAL_INDEX_MAX_SIZE;
+    private long mPrincipalIndexMaxAge=DEFAULT_PRINCIPAL_INDEX_MAX_AGE;
+    private PrincipalIndex mPrincipalIndex;
 
 
     // CONSTRUCTORS.
@@ -44,6 +78,202 @@ public class BasicReportHistoryServices
     public BasicReportHistoryServices() {}
 
 
+    // PROPERTIES.
+
+    /**
+     * Sets whether "as of now" position queries are answered by an
+     * in-memory position ledger, which is loaded from the database
+     * during {@link #init(IDFactory,JmsManager,ReportSavedListener)}
+     * and updated as reports are saved. Queries for earlier dates
+     * are always answered by the database.
+     *
+     * @param positionLedgerEnabled True if the ledger should be used.
+     */
+
+    public void setPositionLedgerEnabled
+        (boolean positionLedgerEnabled)
+    {
+        mPositionLedgerEnabled=positionLedgerEnabled;
+    }
+
+    /**
+     * Returns whether "as of now" position queries are answered by
+     * an in-memory position ledger.
+     *
+     * @return True if the ledger is used.
+     */
+
+    public boolean isPositionLedgerEnabled()
+    {
+        return mPositionLedgerEnabled;
+    }
+
+    /**
+     * Sets whether position queries answered by the position ledger
+     * are also answered by the database and the two results
+     * compared. A mismatch is logged and the database result is
+     * returned.
+     *
+     * @param positionLedgerCheckEnabled True if results should be
+     * compared.
+     */
+
+    public void setPositionLedgerCheckEnabled
+        (boolean positionLedgerCheckEnabled)
+    {
+        mPositionLedgerCheckEnabled=positionLedgerCheckEnabled;
+    }
+
+    /**
+     * Returns whether position queries answered by the position
+     * ledger are also answered by the database and the two results
+     * compared.
+     *
+     * @return True if results are compared.
+     */
+
+    public boolean isPositionLedgerCheckEnabled()
+    {
+        return mPositionLedgerCheckEnabled;
+    }
+
+    /**
+     * Sets the maximum number of closed order chains tracked
+     * individually by the position ledger. Closed chains always
+     * contribute to the ledger's positions, but a late report for a
+     * closed chain is only applied correctly while the chain is
+     * tracked. At startup, closed chains are loaded in aggregate and
+     * are not tracked.
+     *
+     * @param positionLedgerMaxClosedChains The number of chains.
+     */
+
+    public void setPositionLedgerMaxClosedChains
+        (int positionLedgerMaxClosedChains)
+    {
+        mPositionLedgerMaxClosedChains=positionLedgerMaxClosedChains;
+    }
+
+    /**
+     * Returns the maximum number of closed order chains tracked
+     * individually by the position ledger.
+     *
+     * @return The number of chains.
+     */
+
+    public int getPositionLedgerMaxClosedChains()
+    {
+        return mPositionLedgerMaxClosedChains;
+    }
+
+    /**
+     * Sets the maximum number of orders whose principals are kept in
+     * the in-memory principal index, which is loaded with the reports
+     * sent today during
+     * {@link #init(IDFactory,JmsManager,ReportSavedListener)} and
+     * updated as reports are saved. The principals of orders that are
+     * not in the index are retrieved from the database.
+     *
+     * @param principalIndexMaxSize The number of orders. The index is
+     * disabled if it's zero or negative.
+     */
+
+    public void setPrincipalIndexMaxSize
+        (int principalIndexMaxSize)
+    {
+        mPrincipalIndexMaxSize=principalIndexMaxSize;
+    }
+
+    /**
+     * Returns the maximum number of orders whose principals are kept
+     * in the in-memory principal index.
+     *
+     * @return The number of orders.
+     */
+
+    public int getPrincipalIndexMaxSize()
+    {
+        return mPrincipalIndexMaxSize;
+    }
+
+    /**
+     * Sets the maximum age of an order in the in-memory principal
+     * index.
+     *
+     * @param principalIndexMaxAge The age, in seconds. Orders do not
+     * expire if it's zero or negative.
+     */
+
+    public void setPrincipalIndexMaxAge
+        (long principalIndexMaxAge)
+    {
+        mPrincipalIndexMaxAge=principalIndexMaxAge;
+    }
+
+    /**
+     * Returns the maximum age of an order in the in-memory principal
+     * index.
+     *
+     * @return The age, in seconds.
+     */
+
+    public long getPrincipalIndexMaxAge()
+    {
+        return mPrincipalIndexMaxAge;
+    }
+
+    /**
+     * Returns the number of orders in the principal index.
+     *
+     * @return The count, zero if the index is disabled.
+     */
+
+    public int getPrincipalIndexSize()
+    {
+        PrincipalIndex index=mPrincipalIndex;
+        return (index==null)?0:index.size();
+    }
+
+    /**
+     * Returns the number of principal lookups answered by the
+     * principal index.
+     *
+     * @return The count, zero if the index is disabled.
+     */
+
+    public long getPrincipalIndexHits()
+    {
+        PrincipalIndex index=mPrincipalIndex;
+        return (index==null)?0:index.getHits();
+    }
+
+    /**
+     * Returns the number of principal lookups that had to be answered
+     * by the database because the order was not in the principal
+     * index.
+     *
+     * @return The count, zero if the index is disabled.
+     */
+
+    public long getPrincipalIndexMisses()
+    {
+        PrincipalIndex index=mPrincipalIndex;
+        return (index==null)?0:index.getMisses();
+    }
+
+    /**
+     * Returns the number of orders evicted from the principal index.
+     *
+     * @return The count, zero if the index is disabled.
+     */
+
+    public long getPrincipalIndexEvictions()
+    {
+        PrincipalIndex index=mPrincipalIndex;
+        return (index==null)?0:index.getEvictions();
+    }
+
+
     // ReportHistoryServices.
 
     @Override
@@ -56,6 +286,36 @@ public class BasicReportHistoryServices
         mReportIDFactory=new LongIDFactory(idFactory);
         mJmsManager=jmsManager;
         mReportSavedListener=reportSavedListener;
+        if (isPositionLedgerEnabled()) {
+            PositionLedger ledger=new PositionLedger
+                (Math.max(0,getPositionLedgerMaxClosedChains()));
+            try {
+                Messages.RHS_POSITION_LEDGER_LOADED.info
+                    (this,ExecutionReportSummary.loadPositionLedger(ledger));
+            } catch (PersistenceException ex) {
+                throw new ReportPersistenceException
+                    (ex,Messages.RHS_CANNOT_LOAD_POSITION_LEDGER);
+            }
+            mPositionLedger=ledger;
+        }
+        if (getPrincipalIndexMaxSize()>0) {
+            PrincipalIndex index=new PrincipalIndex
+                (getPrincipalIndexMaxSize(),getPrincipalIndexMaxAge()*1000);
+            Calendar today=Calendar.getInstance();
+            today.set(Calendar.HOUR_OF_DAY,0);
+            today.set(Calendar.MINUTE,0);
+            today.set(Calendar.SECOND,0);
+            today.set(Calendar.MILLISECOND,0);
+            try {
+                Messages.RHS_PRINCIPAL_INDEX_LOADED.info
+                    (this,PersistentReport.loadPrincipals
+                     (index,today.getTime()));
+            } catch (PersistenceException ex) {
+                // The index is only a cache: start with an empty one.
+                Messages.RHS_CANNOT_LOAD_PRINCIPAL_INDEX.warn(this,ex);
+            }
+            mPrincipalIndex=index;
+        }
     }
 
     @Override
@@ -69,14 +329,25 @@ public class BasicReportHistoryServices
             query.setViewerFilter(inUser);
         }
         query.setEntityOrder(MultiPersistentReportQuery.BY_ID);
+        return toReports(query.fetch());
+    }
 
-        List<PersistentReport> reportList = query.fetch();
-        ReportBaseImpl [] reports = new ReportBaseImpl[reportList.size()];
-        int i = 0;
-        for(PersistentReport report: reportList) {
-            reports[i++] = (ReportBaseImpl) report.toReport();
+    @Override
+    public ReportBaseImpl[] getReportsSince
+        (SimpleUser inUser,
+         Date inDate,
+         ReportID inAfterReportID,
+         int inMaxReports)
+            throws PersistenceException, ReportPersistenceException {
+        MultiPersistentReportQuery query = MultiPersistentReportQuery.all();
+        query.setSendingTimeAfterFilter(inDate);
+        if (!inUser.isSuperuser()) {
+            query.setViewerFilter(inUser);
         }
-        return reports;
+        query.setReportIDAfterFilter(inAfterReportID);
+        query.setEntityOrder(MultiPersistentReportQuery.BY_ID);
+        query.setMaxResult(inMaxReports);
+        return toReports(query.fetch());
     }
 
     @Override
@@ -86,8 +357,17 @@ public class BasicReportHistoryServices
          Equity inEquity)
         throws PersistenceException
     {
-        return ExecutionReportSummary.getEquityPositionAsOf
-            (inUser,inDate,inEquity);
+        PositionLedger ledger=getPositionLedger(inDate);
+        if (ledger==null) {
+            return ExecutionReportSummary.getEquityPositionAsOf
+                (inUser,inDate,inEquity);
+        }
+        BigDecimal position=ledger.getPosition(getViewerID(inUser),inEquity);
+        if (!isPositionLedgerCheckEnabled()) {
+            return position;
+        }
+        return check(inEquity,position,ExecutionReportSummary.
+                     getEquityPositionAsOf(inUser,inDate,inEquity));
     }
 
     @Override
@@ -96,7 +376,17 @@ public class BasicReportHistoryServices
          Date inDate)
         throws PersistenceException
     {
-        return ExecutionReportSummary.getAllEquityPositionsAsOf(inUser,inDate);
+        PositionLedger ledger=getPositionLedger(inDate);
+        if (ledger==null) {
+            return ExecutionReportSummary.getAllEquityPositionsAsOf(inUser,inDate);
+        }
+        Map<PositionKey<Equity>,BigDecimal> positions=ledger.getPositions
+            (getViewerID(inUser),Equity.class);
+        if (!isPositionLedgerCheckEnabled()) {
+            return positions;
+        }
+        return check(Equity.class,positions,ExecutionReportSummary.
+                     getAllEquityPositionsAsOf(inUser,inDate));
     }
     /* (non-Javadoc)
      * @see org.marketcetera.ors.history.ReportHistoryServices#getAllFuturePositionsAsOf(org.marketcetera.ors.security.SimpleUser, java.util.Date)
@@ -106,8 +396,18 @@ public class BasicReportHistoryServices
                                                                          Date inDate)
             throws PersistenceException
     {
-        return ExecutionReportSummary.getAllFuturePositionsAsOf(inUser,
-                                                                inDate);
+        PositionLedger ledger=getPositionLedger(inDate);
+        if (ledger==null) {
+            return ExecutionReportSummary.getAllFuturePositionsAsOf(inUser,
+                                                                    inDate);
+        }
+        Map<PositionKey<Future>,BigDecimal> positions=ledger.getPositions
+            (getViewerID(inUser),Future.class);
+        if (!isPositionLedgerCheckEnabled()) {
+            return positions;
+        }
+        return check(Future.class,positions,ExecutionReportSummary.
+                     getAllFuturePositionsAsOf(inUser,inDate));
     }
     /* (non-Javadoc)
      * @see org.marketcetera.ors.history.ReportHistoryServices#getFuturePositionAsOf(org.marketcetera.ors.security.SimpleUser, java.util.Date, org.marketcetera.trade.Future)
@@ -118,9 +418,18 @@ public class BasicReportHistoryServices
                                             Future inFuture)
             throws PersistenceException
     {
-        return ExecutionReportSummary.getFuturePositionAsOf(inUser,
-                                                            inDate,
-                                                            inFuture);
+        PositionLedger ledger=getPositionLedger(inDate);
+        if (ledger==null) {
+            return ExecutionReportSummary.getFuturePositionAsOf(inUser,
+                                                                inDate,
+                                                                inFuture);
+        }
+        BigDecimal position=ledger.getPosition(getViewerID(inUser),inFuture);
+        if (!isPositionLedgerCheckEnabled()) {
+            return position;
+        }
+        return check(inFuture,position,ExecutionReportSummary.
+                     getFuturePositionAsOf(inUser,inDate,inFuture));
     }     
     @Override
     public BigDecimal getOptionPositionAsOf
@@ -128,8 +437,17 @@ public class BasicReportHistoryServices
          final Date inDate,
          final Option inOption)
         throws PersistenceException {
-        return ExecutionReportSummary.getOptionPositionAsOf(inUser,
-                inDate, inOption);
+        PositionLedger ledger=getPositionLedger(inDate);
+        if (ledger==null) {
+            return ExecutionReportSummary.getOptionPositionAsOf(inUser,
+                    inDate, inOption);
+        }
+        BigDecimal position=ledger.getPosition(getViewerID(inUser),inOption);
+        if (!isPositionLedgerCheckEnabled()) {
+            return position;
+        }
+        return check(inOption,position,ExecutionReportSummary.
+                     getOptionPositionAsOf(inUser,inDate,inOption));
     }
 
     @Override
@@ -137,7 +455,17 @@ public class BasicReportHistoryServices
         (final SimpleUser inUser,
          final Date inDate)
         throws PersistenceException {
-        return ExecutionReportSummary.getAllOptionPositionsAsOf(inUser, inDate);
+        PositionLedger ledger=getPositionLedger(inDate);
+        if (ledger==null) {
+            return ExecutionReportSummary.getAllOptionPositionsAsOf(inUser, inDate);
+        }
+        Map<PositionKey<Option>,BigDecimal> positions=ledger.getPositions
+            (getViewerID(inUser),Option.class);
+        if (!isPositionLedgerCheckEnabled()) {
+            return positions;
+        }
+        return check(Option.class,positions,ExecutionReportSummary.
+                     getAllOptionPositionsAsOf(inUser,inDate));
     }
 
     @Override
@@ -146,7 +474,17 @@ public class BasicReportHistoryServices
          final Date inDate,
          final String... inSymbols)
         throws PersistenceException {
-        return ExecutionReportSummary.getOptionPositionsAsOf(inUser, inDate, inSymbols);
+        PositionLedger ledger=getPositionLedger(inDate);
+        if (ledger==null) {
+            return ExecutionReportSummary.getOptionPositionsAsOf(inUser, inDate, inSymbols);
+        }
+        Map<PositionKey<Option>,BigDecimal> positions=ledger.getPositions
+            (getViewerID(inUser),Option.class,inSymbols);
+        if (!isPositionLedgerCheckEnabled()) {
+            return positions;
+        }
+        return check(Arrays.asList(inSymbols),positions,ExecutionReportSummary.
+                     getOptionPositionsAsOf(inUser,inDate,inSymbols));
     }
     @Override
     public void save
@@ -156,7 +494,7 @@ public class BasicReportHistoryServices
         boolean success=false;
         try {
             assignID(report);
-            PersistentReport.save(report);
+            updatePositionLedger(PersistentReport.save(report));
             success=true;
             Messages.RHS_PERSISTED_REPLY.info(this,report);
         } finally {
@@ -169,7 +507,17 @@ public class BasicReportHistoryServices
         (OrderID orderID)
         throws PersistenceException
     {
-        return PersistentReport.getPrincipals(orderID);
+        PrincipalIndex index=mPrincipalIndex;
+        if (index==null) {
+            return PersistentReport.getPrincipals(orderID);
+        }
+        Principals principals=index.get(orderID);
+        if (principals!=null) {
+            return principals;
+        }
+        principals=PersistentReport.getPrincipals(orderID);
+        index.put(orderID,principals,System.currentTimeMillis());
+        return principals;
     }
 
 
@@ -181,7 +529,7 @@ public class BasicReportHistoryServices
      * @return The factory.
      */
 
-    protected LongIDFactory getReportIDFactory()
+    public LongIDFactory getReportIDFactory()
     {
         return mReportIDFactory;
     }
@@ -210,6 +558,127 @@ public class BasicReportHistoryServices
         return mReportSavedListener;
     }
 
+    /**
+     * Returns the receiver's position ledger, if it may be used to
+     * answer a position query as of the given date.
+     *
+     * @param date The date.
+     *
+     * @return The ledger. It is null if the ledger is disabled or
+     * the query must be answered by the database.
+     */
+
+    PositionLedger getPositionLedger
+        (Date date)
+    {
+        PositionLedger ledger=mPositionLedger;
+        if ((ledger==null) || !ledger.covers(date)) {
+            return null;
+        }
+        return ledger;
+    }
+
+    /**
+     * Applies the given saved execution report summary to the
+     * receiver's position ledger, if one is in use. If the ledger
+     * needs the contribution of the chain's earlier reports, such as
+     * when it does not track the summary's order chain, it is
+     * retrieved from the database and the summary is applied again,
+     * so that it is replaced rather than counted twice. The ledger
+     * checks whether it is needed while applying the summary, so that
+     * concurrent saves of the same chain are accounted for. If it
+     * cannot be retrieved, the ledger is no longer used.
+     *
+     * @param summary The summary. It may be null.
+     */
+
+    void updatePositionLedger
+        (ExecutionReportSummary summary)
+    {
+        PositionLedger ledger=mPositionLedger;
+        if ((ledger==null) || (summary==null)) {
+            return;
+        }
+        if (ledger.apply(summary,null,false)) {
+            return;
+        }
+        PositionLedger.Contribution untracked;
+        try {
+            untracked=ExecutionReportSummary.
+                getPositionLedgerContribution
+                (summary.getRootID(),summary.getId());
+        } catch (PersistenceException ex) {
+            Messages.RHS_POSITION_LEDGER_DISABLED.warn
+                (this,ex,summary.getRootID());
+            mPositionLedger=null;
+            return;
+        }
+        ledger.apply(summary,untracked,true);
+    }
+
+    /**
+     * Compares the position query result computed by the position
+     * ledger against the one computed by the database, logging any
+     * mismatch.
+     *
+     * @param query The query parameters, used for logging.
+     * @param ledgerResult The result computed by the ledger.
+     * @param databaseResult The result computed by the database.
+     *
+     * @return The database result.
+     */
+
+    private static <T> T check
+        (Object query,
+         T ledgerResult,
+         T databaseResult)
+    {
+        if (!PositionLedger.matches(ledgerResult,databaseResult)) {
+            Messages.RHS_POSITION_LEDGER_MISMATCH.warn
+                (BasicReportHistoryServices.class,
+                 query,ledgerResult,databaseResult);
+        }
+        return databaseResult;
+    }
+
+    /**
+     * Returns the ID of the viewer whose reports are visible to the
+     * given user.
+     *
+     * @param user The user.
+     *
+     * @return The ID. It is null if the user may view all reports.
+     */
+
+    private static UserID getViewerID
+        (SimpleUser user)
+    {
+        return user.isSuperuser()?null:user.getUserID();
+    }
+
+    /**
+     * Converts the given persistent reports into reports.
+     *
+     * @param reportList The persistent reports.
+     *
+     * @return The reports, in the same order.
+     *
+     * @throws ReportPersistenceException Thrown if a report cannot be
+     * converted.
+     */
+
+    private static ReportBaseImpl[] toReports
+        (List<PersistentReport> reportList)
+        throws ReportPersistenceException
+    {
+        ReportBaseImpl[] reports=new ReportBaseImpl[reportList.size()];
+        int i=0;
+        for (PersistentReport report:reportList) {
+            reports[i++]=(ReportBaseImpl)report.toReport();
+        }
+        return reports;
+    }
+
     /**
      * Sets the ID of the given report.
      *
@@ -234,7 +703,10 @@ public class BasicReportHistoryServices
     /**
      * Invokes the listener which should be notified after the given
      * report has been saved. The given flag indicates whether saving
-     * completed successfully or not.
+     * completed successfully or not. The report's principals are
+     * added to the principal index, if one is in use, before the
+     * listener is notified: the listener may then discard its own
+     * record of the principals.
      *
      * @param report The report.
      * @param status True if saving completed successfully.
@@ -244,6 +716,13 @@ public class BasicReportHistoryServices
         (ReportBase report,
          boolean status)
     {
+        PrincipalIndex index=mPrincipalIndex;
+        if (index!=null) {
+            index.put(report.getOrderID(),
+                      new Principals(report.getActorID(),
+                                     report.getViewerID()),
+                      System.currentTimeMillis());
+        }
         if (getReportSavedListener()!=null) {
             getReportSavedListener().reportSaved(report,status);
         }
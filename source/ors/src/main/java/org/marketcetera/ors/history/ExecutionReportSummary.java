@@ -62,11 +62,42 @@ import org.marketcetera.util.misc.ClassVersion;
                 @ColumnResult(name = "account"),
                 @ColumnResult(name = "actor"),
                 @ColumnResult(name = "position")
+                    }),
+    @SqlResultSetMapping(name = "positionLedgerEntries",
+            columns = {
+                @ColumnResult(name = "id"),
+                @ColumnResult(name = "rootID"),
+                @ColumnResult(name = "securityType"),
+                @ColumnResult(name = "symbol"),
+                @ColumnResult(name = "expiry"),
+                @ColumnResult(name = "strikePrice"),
+                @ColumnResult(name = "optionType"),
+                @ColumnResult(name = "account"),
+                @ColumnResult(name = "actor"),
+                @ColumnResult(name = "viewer"),
+                @ColumnResult(name = "side"),
+                @ColumnResult(name = "cumQuantity"),
+                @ColumnResult(name = "sendingTime")
+                    }),
+    @SqlResultSetMapping(name = "positionLedgerClosedTotals",
+            columns = {
+                @ColumnResult(name = "securityType"),
+                @ColumnResult(name = "symbol"),
+                @ColumnResult(name = "expiry"),
+                @ColumnResult(name = "strikePrice"),
+                @ColumnResult(name = "optionType"),
+                @ColumnResult(name = "account"),
+                @ColumnResult(name = "actor"),
+                @ColumnResult(name = "viewer"),
+                @ColumnResult(name = "position"),
+                @ColumnResult(name = "sendingTime")
                     })
         })
 // CD 26-Apr-2012 ORS-84
 // The position queries should ignore PENDING ERs. This is done by excluding ORS with particular order status values.
 // Hibernate maps enums to 0-based index values, so 7, 11, and 15 map to values in the OrderStatus enum, the PENDING values.
+// Likewise, the position ledger queries treat 3, 5, 9 and 13 (FILLED, CANCELED, REJECTED and EXPIRED) as closed.
+// DONE_FOR_DAY (4) is not closed since good till cancel orders resume on the next day.
 @NamedNativeQueries({
     @NamedNativeQuery(name = "eqPositionForSymbol",query = "select " +
             "sum(case when e.side = :sideBuy then e.cumQuantity else -e.cumQuantity end) as position " +
@@ -147,7 +178,43 @@ import org.marketcetera.util.misc.ClassVersion;
             "and e.id = " +
             "(select max(s.id) from execreports s where s.rootID = e.rootID and s.orderStatus not in (7,11,15)) " +
             "group by symbol, expiry, strikePrice, optionType, account, actor having position <> 0",
-            resultSetMapping = "optAllPositions")
+            resultSetMapping = "optAllPositions"),
+    @NamedNativeQuery(name = "positionLedgerEntries",query = "select " +
+            "e.id as id, e.rootID as rootID, e.securityType as securityType, e.symbol as symbol, " +
+            "e.expiry as expiry, e.strikePrice as strikePrice, e.optionType as optionType, " +
+            "e.account as account, r.actor_id as actor, e.viewer_id as viewer, e.side as side, " +
+            "e.cumQuantity as cumQuantity, e.sendingTime as sendingTime " +
+            "from execreports e " +
+            "join reports r on (e.report_id=r.id) " +
+            "where e.orderStatus not in (3,5,9,13) " +
+            "and e.id = " +
+            "(select max(s.id) from execreports s where s.rootID = e.rootID and s.orderStatus not in (7,11,15))",
+            resultSetMapping = "positionLedgerEntries"),
+    @NamedNativeQuery(name = "positionLedgerClosedTotals",query = "select " +
+            "e.securityType as securityType, e.symbol as symbol, e.expiry as expiry, " +
+            "e.strikePrice as strikePrice, e.optionType as optionType, e.account as account, " +
+            "r.actor_id as actor, e.viewer_id as viewer, " +
+            "sum(case when e.side = :sideBuy then e.cumQuantity else -e.cumQuantity end) as position, " +
+            "max(e.sendingTime) as sendingTime " +
+            "from execreports e " +
+            "join reports r on (e.report_id=r.id) " +
+            "where e.orderStatus in (3,5,9,13) " +
+            "and e.id = " +
+            "(select max(s.id) from execreports s where s.rootID = e.rootID and s.orderStatus not in (7,11,15)) " +
+            "group by securityType, symbol, expiry, strikePrice, optionType, account, actor, viewer",
+            resultSetMapping = "positionLedgerClosedTotals"),
+    @NamedNativeQuery(name = "positionLedgerPrevious",query = "select " +
+            "e.id as id, e.rootID as rootID, e.securityType as securityType, e.symbol as symbol, " +
+            "e.expiry as expiry, e.strikePrice as strikePrice, e.optionType as optionType, " +
+            "e.account as account, r.actor_id as actor, e.viewer_id as viewer, e.side as side, " +
+            "e.cumQuantity as cumQuantity, e.sendingTime as sendingTime " +
+            "from execreports e " +
+            "join reports r on (e.report_id=r.id) " +
+            "where e.rootID = :rootID " +
+            "and e.id < :id " +
+            "and e.orderStatus not in (7,11,15) " +
+            "order by e.id desc",
+            resultSetMapping = "positionLedgerEntries")
         })
 
 class ExecutionReportSummary extends EntityBase {
@@ -558,6 +625,119 @@ class ExecutionReportSummary extends EntityBase {
 
     }
 
+    /**
+     * Loads the latest non-pending execution report of each open order
+     * chain, and the aggregate positions of the closed order chains,
+     * into the given position ledger.
+     *
+     * @param inLedger the ledger.
+     *
+     * @return the number of open order chains loaded.
+     *
+     * @throws PersistenceException if there were errors retrieving the
+     * execution reports.
+     */
+    static int loadPositionLedger(final PositionLedger inLedger)
+        throws PersistenceException {
+        return executeRemote(new Transaction<Integer>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Integer execute(EntityManager em, PersistContext context) {
+                Query query = em.createNamedQuery("positionLedgerEntries");  //$NON-NLS-1$
+                List<?> list = query.getResultList();
+                Object[] columns;
+                for(Object o: list) {
+                    columns = (Object[]) o;
+                    inLedger.apply(new OrderID((String)columns[1]),
+                                   null,
+                                   (Date)columns[12],
+                                   toContribution(columns),
+                                   null);
+                }
+                query = em.createNamedQuery("positionLedgerClosedTotals");  //$NON-NLS-1$
+                query.setParameter("sideBuy", Side.Buy.ordinal());  //$NON-NLS-1$
+                for(Object o: query.getResultList()) {
+                    columns = (Object[]) o;
+                    inLedger.applyClosed((columns[0]==null)?null:
+                                         SecurityType.values()[((Number)columns[0]).intValue()],
+                                         (String)columns[1],
+                                         (String)columns[2],
+                                         (BigDecimal)columns[3],
+                                         (columns[4]==null)?null:
+                                         OptionType.values()[((Number)columns[4]).intValue()],
+                                         (String)columns[5],
+                                         (columns[6]==null)?null:columns[6].toString(),
+                                         (columns[7]==null)?null:
+                                         new UserID(((Number)columns[7]).longValue()),
+                                         (BigDecimal)columns[8],
+                                         (Date)columns[9]);
+                }
+                return list.size();
+            }
+        }, null);
+    }
+
+    /**
+     * Returns the contribution to the position ledger of the latest
+     * non-pending execution report of the given order chain that was
+     * saved before the given one.
+     *
+     * @param inRootID the root order ID of the order chain.
+     * @param inID the ID of the summary saved after the one sought.
+     *
+     * @return the contribution, null if there is no such report.
+     *
+     * @throws PersistenceException if there were errors retrieving the
+     * execution report.
+     */
+    static PositionLedger.Contribution getPositionLedgerContribution
+        (final OrderID inRootID,
+         final long inID)
+        throws PersistenceException {
+        return executeRemote(new Transaction<PositionLedger.Contribution>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public PositionLedger.Contribution execute(EntityManager em, PersistContext context) {
+                Query query = em.createNamedQuery("positionLedgerPrevious");  //$NON-NLS-1$
+                query.setParameter("rootID", inRootID.getValue());  //$NON-NLS-1$
+                query.setParameter("id", inID);  //$NON-NLS-1$
+                query.setMaxResults(1);
+                List<?> list = query.getResultList();
+                if(list.isEmpty()) {
+                    return null;
+                }
+                return toContribution((Object[]) list.get(0));
+            }
+        }, null);
+    }
+
+    /**
+     * Returns the contribution to the position ledger of the given
+     * row of the <code>positionLedgerEntries</code> result set.
+     *
+     * @param inColumns the columns of the row.
+     *
+     * @return the contribution.
+     */
+    private static PositionLedger.Contribution toContribution(Object[] inColumns) {
+        return PositionLedger.contribution(((Number)inColumns[0]).longValue(),
+                                           (inColumns[2]==null)?null:
+                                           SecurityType.values()[((Number)inColumns[2]).intValue()],
+                                           (String)inColumns[3],
+                                           (String)inColumns[4],
+                                           (BigDecimal)inColumns[5],
+                                           (inColumns[6]==null)?null:
+                                           OptionType.values()[((Number)inColumns[6]).intValue()],
+                                           (String)inColumns[7],
+                                           (inColumns[8]==null)?null:inColumns[8].toString(),
+                                           (inColumns[9]==null)?null:
+                                           new UserID(((Number)inColumns[9]).longValue()),
+                                           Side.values()[((Number)inColumns[10]).intValue()],
+                                           (BigDecimal)inColumns[11]);
+    }
+
     /**
      * Creates an instance.
      *
@@ -43,4 +43,24 @@ public interface Messages {
         new I18NMessage1P(LOGGER,"rhs_persisted_reply"); //$NON-NLS-1$
     static final I18NMessage1P RHS_PERSIST_ERROR=
         new I18NMessage1P(LOGGER,"rhs_persist_error"); //$NON-NLS-1$
+    static final I18NMessage1P RHS_PERSIST_BATCH_ERROR=
+        new I18NMessage1P(LOGGER,"rhs_persist_batch_error"); //$NON-NLS-1$
+    static final I18NMessage0P RHS_PERSIST_QUEUE_ERROR=
+        new I18NMessage0P(LOGGER,"rhs_persist_queue_error"); //$NON-NLS-1$
+    static final I18NMessage1P RHS_PERSIST_QUEUE_CONVERSION_ERROR=
+        new I18NMessage1P(LOGGER,"rhs_persist_queue_conversion_error"); //$NON-NLS-1$
+    static final I18NMessage0P RHS_PERSIST_QUEUE_BROWSE_ERROR=
+        new I18NMessage0P(LOGGER,"rhs_persist_queue_browse_error"); //$NON-NLS-1$
+    static final I18NMessage1P RHS_POSITION_LEDGER_LOADED=
+        new I18NMessage1P(LOGGER,"rhs_position_ledger_loaded"); //$NON-NLS-1$
+    static final I18NMessage0P RHS_CANNOT_LOAD_POSITION_LEDGER=
+        new I18NMessage0P(LOGGER,"rhs_cannot_load_position_ledger"); //$NON-NLS-1$
+    static final I18NMessage1P RHS_POSITION_LEDGER_DISABLED=
+        new I18NMessage1P(LOGGER,"rhs_position_ledger_disabled"); //$NON-NLS-1$
+    static final I18NMessage3P RHS_POSITION_LEDGER_MISMATCH=
+        new I18NMessage3P(LOGGER,"rhs_position_ledger_mismatch"); //$NON-NLS-1$
+    static final I18NMessage1P RHS_PRINCIPAL_INDEX_LOADED=
+        new I18NMessage1P(LOGGER,"rhs_principal_index_loaded"); //$NON-NLS-1$
+    static final I18NMessage0P RHS_CANNOT_LOAD_PRINCIPAL_INDEX=
+        new I18NMessage0P(LOGGER,"rhs_cannot_load_principal_index"); //$NON-NLS-1$
 }
\ No newline at end of file
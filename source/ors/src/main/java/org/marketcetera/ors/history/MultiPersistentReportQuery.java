@@ -1,6 +1,7 @@
 package org.marketcetera.ors.history;
 
 import org.marketcetera.ors.security.SimpleUser;
+import org.marketcetera.trade.ReportID;
 import org.marketcetera.util.misc.ClassVersion;
 import org.marketcetera.persist.*;
 import static org.marketcetera.persist.JPQLConstants.*;
@@ -40,6 +41,19 @@ class MultiPersistentReportQuery extends MultipleEntityQuery {
                 getSendingTimeAfterFilter(), true);
         addFilterIfNotNull(queryString, PersistentReport.ATTRIBUTE_VIEWER,
                 getViewerFilter());
+        if(getReportIDAfterFilter() != null) {
+            //Match the reports saved after the report with the given ID,
+            //that is, the reports with greater entity IDs.
+            String filterParameter = "reportIDAfterFilter";  //$NON-NLS-1$
+            andWhereExpression(queryString, ENTITY_ALIAS, DOT,
+                    PersistentReport.ATTRIBUTE_ID, S, GREATER_THAN, S, L,
+                    SELECT, S, "s", DOT, PersistentReport.ATTRIBUTE_ID, S,  //$NON-NLS-1$
+                    FROM, S, PersistentReport.ENTITY_NAME, S, "s", S,  //$NON-NLS-1$
+                    WHERE, S, "s", DOT, PersistentReport.ATTRIBUTE_REPORT_ID, S,  //$NON-NLS-1$
+                    EQUALS, S, PARAMETER_PREFIX, filterParameter, R);
+            setParameter(filterParameter,
+                    getReportIDAfterFilter().longValue());
+        }
     }
     /**
      * Creates a query that returns all the instances.
@@ -109,6 +123,32 @@ class MultiPersistentReportQuery extends MultipleEntityQuery {
         mViewerFilter = inViewerFilter;
     }
 
+    /**
+     * Gets the value of report ID after filter. If specified, it only
+     * matches reports saved after the report with the specified ID.
+     *
+     * @return the report ID after filter value.
+     */
+    ReportID getReportIDAfterFilter() {
+        return mReportIDAfterFilter;
+    }
+
+    /**
+     * Sets the value of report ID after filter. Combined with the
+     * {@link #BY_ID} ordering and a maximum result, it allows the
+     * reports to be fetched one page at a time, each page starting
+     * after the last report of the previous page. Report IDs are not
+     * assigned in the order in which reports are saved, so pages are
+     * not ordered by report ID: a report saved after a page was
+     * fetched could otherwise be skipped by the next page.
+     *
+     * @param inReportIDAfterFilter the report ID after filter value.
+     * Can be null.
+     */
+    void setReportIDAfterFilter(ReportID inReportIDAfterFilter) {
+        mReportIDAfterFilter = inReportIDAfterFilter;
+    }
+
     /**
      * Deletes the instances matched by this query.
      *
@@ -128,6 +168,7 @@ class MultiPersistentReportQuery extends MultipleEntityQuery {
 
     public Date mSendingTimeAfterFilter;
     public SimpleUser mViewerFilter;
+    public ReportID mReportIDAfterFilter;
     public static final String[] FETCH_JOIN_ATTRIBUTE_NAMES=new String[] {
         PersistentReport.ATTRIBUTE_ACTOR,
         PersistentReport.ATTRIBUTE_VIEWER,
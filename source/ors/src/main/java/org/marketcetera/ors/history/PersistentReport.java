@@ -12,6 +12,7 @@ import org.marketcetera.trade.*;
 import org.marketcetera.event.HasFIXMessage;
 
 import javax.persistence.*;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -32,21 +33,72 @@ import quickfix.InvalidMessage;
 @Entity
 @Table(name = "reports")
 
-@NamedQuery(name = "forOrderID",
-    query = "select e from PersistentReport e " +
-            "where e.orderID = :orderID")
+@NamedQueries({
+    @NamedQuery(name = "forOrderID",
+        query = "select e from PersistentReport e " +
+                "where e.orderID = :orderID"),
+    @NamedQuery(name = "principalsSince",
+        query = "select e.orderID.value, a.id, v.id, e.sendingTime " +
+                "from PersistentReport e " +
+                "left join e.actor a left join e.viewer v " +
+                "where e.sendingTime >= :sendingTime order by e.id")
+})
 class PersistentReport extends EntityBase {
     /**
      * Saves the supplied report to the database.
      *
      * @param inReport The report to be saved.
      *
+     * @return the execution report summary saved along with the
+     * report, null if the report is not an execution report.
+     *
      * @throws PersistenceException if there were errors saving the
      * report to the database.
      */
-    static void save(ReportBase inReport) throws PersistenceException {
+    static ExecutionReportSummary save(ReportBase inReport) throws PersistenceException {
         PersistentReport report = new PersistentReport(inReport);
         report.saveRemote(null);
+        return report.mSummary;
+    }
+
+    /**
+     * Saves the supplied reports to the database within a single
+     * transaction. Either all the reports are saved, or none is.
+     *
+     * @param inReports The reports to be saved.
+     *
+     * @return the execution report summaries saved along with the
+     * reports, in the same order as the reports. The summary of a
+     * report that is not an execution report is null.
+     *
+     * @throws PersistenceException if there were errors saving the
+     * reports to the database.
+     */
+    static List<ExecutionReportSummary> save(List<? extends ReportBase> inReports)
+            throws PersistenceException {
+        final List<PersistentReport> reports =
+                new ArrayList<PersistentReport>(inReports.size());
+        for(ReportBase report: inReports) {
+            reports.add(new PersistentReport(report));
+        }
+        return executeRemote(new Transaction<List<ExecutionReportSummary>>() {
+            private static final long serialVersionUID=1L;
+
+            @Override
+            public List<ExecutionReportSummary> execute
+                (EntityManager em,
+                 PersistContext context)
+                throws PersistenceException
+            {
+                List<ExecutionReportSummary> summaries =
+                        new ArrayList<ExecutionReportSummary>(reports.size());
+                for(PersistentReport report: reports) {
+                    report.saveLocal(em, context);
+                    summaries.add(report.mSummary);
+                }
+                return summaries;
+            }
+        },null);
     }
 
     /**
@@ -88,6 +140,63 @@ class PersistentReport extends EntityBase {
         },null);
     }
 
+    /**
+     * Adds the principals of the orders of the reports sent since the
+     * given time to the given index, in the order in which the
+     * reports were saved.
+     *
+     * @param inIndex the index.
+     * @param inSince the time.
+     *
+     * @return the number of reports loaded.
+     *
+     * @throws PersistenceException if there were errors retrieving the
+     * reports.
+     */
+    static int loadPrincipals(final PrincipalIndex inIndex,
+                              final Date inSince)
+        throws PersistenceException
+    {
+        return executeRemote(new Transaction<Integer>() {
+            private static final long serialVersionUID=1L;
+
+            @Override
+            public Integer execute
+                (EntityManager em,
+                 PersistContext context)
+            {
+                Query query=em.createNamedQuery("principalsSince"); //$NON-NLS-1$
+                query.setParameter("sendingTime",inSince); //$NON-NLS-1$
+                List<?> list=query.getResultList();
+                Object[] columns;
+                for(Object o: list) {
+                    columns=(Object[])o;
+                    inIndex.put(new OrderID((String)columns[0]),
+                                new Principals(toUserID(columns[1]),
+                                               toUserID(columns[2])),
+                                ((Date)columns[3]).getTime());
+                }
+                return list.size();
+            }
+        },null);
+    }
+
+    /**
+     * Returns the user ID with the given value.
+     *
+     * @param inID the value, as retrieved from the database. May be
+     * null.
+     *
+     * @return the user ID, null if the value is null.
+     */
+    private static UserID toUserID(Object inID)
+    {
+        if (inID==null) {
+            return null;
+        }
+        return new UserID(((Number)inID).longValue());
+    }
+
     /**
      * Creates an instance, given a report.
      *
@@ -179,9 +288,11 @@ class PersistentReport extends EntityBase {
         PersistentReport mergedReport = (PersistentReport) merged;
         //Save the summary if the report is an execution report.
         if(mergedReport.getReportType() == ReportType.ExecutionReport) {
-            new ExecutionReportSummary(
+            ExecutionReportSummary summary = new ExecutionReportSummary(
                     (ExecutionReport) mReportBase,
-                    mergedReport).localSave(em, context);
+                    mergedReport);
+            summary.localSave(em, context);
+            mSummary = summary;
         }
     }
 
@@ -321,6 +432,10 @@ class PersistentReport extends EntityBase {
      * The attribute viewer used in JPQL queries
      */
     static final String ATTRIBUTE_VIEWER = "viewer";  //$NON-NLS-1$
+    /**
+     * The attribute report ID used in JPQL queries
+     */
+    static final String ATTRIBUTE_REPORT_ID = "reportIDAsLong";  //$NON-NLS-1$
     /**
      * The entity name as is used in various JPQL Queries
      */
@@ -336,5 +451,6 @@ class PersistentReport extends EntityBase {
     private Date mSendingTime;
     private ReportType mReportType;
     private ReportBase mReportBase;
+    private transient ExecutionReportSummary mSummary;
     private static final long serialVersionUID = 1;
 }
@@ -0,0 +1,746 @@
+package org.marketcetera.ors.history;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+import org.marketcetera.core.position.PositionKey;
+import org.marketcetera.core.position.PositionKeyFactory;
+import org.marketcetera.trade.*;
+import org.marketcetera.util.misc.ClassVersion;
+
+/* $License$ */
+/**
+ * Maintains the current aggregate positions implied by the execution
+ * reports saved by the ORS, so that "as of now" position queries can
+ * be answered without aggregating the <code>execreports</code> table.
+ *
+ * <p>The ledger mirrors the semantics of the position queries in
+ * {@link ExecutionReportSummary}: each order chain (identified by its
+ * root order ID) contributes the signed cumulative quantity of its
+ * latest non-pending execution report. Contributions are aggregated
+ * per viewer and per (instrument,account,actor) tuple.
+ *
+ * <p>The ledger only reflects the reports applied to it. A query can
+ * only be answered by the ledger if its date is not prior to the
+ * {@link #getLatestSendingTime() latest sending time} seen; earlier
+ * dates must be answered by the database.
+ *
+ * <p>The ledger tracks the latest report of every open order chain.
+ * Once a chain is closed (filled, canceled, rejected or expired) its
+ * contribution remains in the aggregate positions, but only the most
+ * recently closed chains, up to a maximum number, are tracked
+ * individually, so that a late report for one of them replaces its
+ * contribution. Orders done for the day are not closed, since good
+ * till cancel orders resume on the next day. The contribution of a
+ * closed chain that is not tracked, such as one loaded at startup or
+ * one no longer tracked, must be supplied along with a later report
+ * for that chain, so that it is replaced rather than counted twice;
+ * see {@link #apply(ExecutionReportSummary, Contribution, boolean)}.
+ *
+ * <p>Reports may be applied in a different order than the one in
+ * which they were saved. When a chain that is not tracked becomes
+ * tracked, the earlier contribution it replaces may belong to a report
+ * that was saved but not yet applied. The ledger remembers that
+ * contribution, so that if its report is applied later, it is counted
+ * in place of the contribution of the report before it.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+class PositionLedger {
+
+    /**
+     * The default maximum number of closed order chains tracked
+     * individually.
+     */
+    static final int DEFAULT_MAX_CLOSED_CHAINS = 10000;
+
+    /**
+     * The ID used when there is no contribution.
+     */
+    private static final long NO_ID = Long.MIN_VALUE;
+
+    /**
+     * Creates an instance that tracks up to
+     * {@link #DEFAULT_MAX_CLOSED_CHAINS} closed order chains.
+     */
+    PositionLedger() {
+        this(DEFAULT_MAX_CLOSED_CHAINS);
+    }
+
+    /**
+     * Creates an instance.
+     *
+     * @param inMaxClosedChains the maximum number of closed order
+     * chains tracked individually.
+     */
+    PositionLedger(final int inMaxClosedChains) {
+        if (inMaxClosedChains < 0) {
+            throw new IllegalArgumentException(String.valueOf(inMaxClosedChains));
+        }
+        mClosedChains = new LinkedHashMap<OrderID, Contribution>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<OrderID, Contribution> inEldest) {
+                return size() > inMaxClosedChains;
+            }
+        };
+    }
+
+    /**
+     * Applies the given saved execution report summary to the ledger.
+     *
+     * @param inSummary the summary, as saved. May be null, in which
+     * case the ledger is unchanged.
+     */
+    void apply(ExecutionReportSummary inSummary) {
+        apply(inSummary, null, true);
+    }
+
+    /**
+     * Applies the given saved execution report summary to the ledger.
+     * The contribution of the latest earlier non-pending report of the
+     * summary's order chain is needed if the chain is not tracked, or
+     * if it replaced the contribution of the summary's report before
+     * that report was applied. If it is needed but was not retrieved,
+     * the ledger is unchanged and false is returned: the caller should
+     * retrieve it and apply the summary again.
+     *
+     * @param inSummary the summary, as saved. May be null, in which
+     * case the ledger is unchanged.
+     * @param inUntracked the contribution of the latest earlier
+     * non-pending report of the summary's order chain. May be null if
+     * there is no such report or it was not retrieved.
+     * @param inRetrieved true if the earlier contribution was
+     * retrieved.
+     *
+     * @return false if the earlier contribution is needed but was not
+     * retrieved, true otherwise.
+     */
+    boolean apply(ExecutionReportSummary inSummary,
+                  Contribution inUntracked,
+                  boolean inRetrieved) {
+        if (inSummary == null) {
+            return true;
+        }
+        UserID actorID = inSummary.getReport() == null ? null :
+                inSummary.getReport().getActorID();
+        return apply(inSummary.getRootID(),
+              inSummary.getOrderStatus(),
+              inSummary.getSendingTime(),
+              contribution(inSummary.getId(),
+                           inSummary.getSecurityType(),
+                           inSummary.getSymbol(),
+                           inSummary.getExpiry(),
+                           inSummary.getStrikePrice(),
+                           inSummary.getOptionType(),
+                           inSummary.getAccount(),
+                           actorID == null ? null : String.valueOf(actorID.getValue()),
+                           inSummary.getViewerID(),
+                           inSummary.getSide(),
+                           inSummary.getCumQuantity()),
+              inUntracked,
+              inRetrieved);
+    }
+
+    /**
+     * Applies the given execution report summary fields to the ledger.
+     * Reports for an order chain that are older than the one already
+     * applied for that chain, as well as pending reports, are ignored.
+     *
+     * @param inID the summary ID.
+     * @param inRootID the root order ID of the order chain.
+     * @param inSecurityType the security type. May be null.
+     * @param inSymbol the symbol.
+     * @param inExpiry the expiry. May be null.
+     * @param inStrikePrice the strike price. May be null.
+     * @param inOptionType the option type. May be null.
+     * @param inAccount the account. May be null.
+     * @param inActor the actor ID. May be null.
+     * @param inViewerID the viewer ID. May be null.
+     * @param inSide the side.
+     * @param inCumQuantity the cumulative quantity.
+     * @param inOrderStatus the order status. May be null.
+     * @param inSendingTime the sending time.
+     */
+    void apply(long inID,
+               OrderID inRootID,
+               SecurityType inSecurityType,
+               String inSymbol,
+               String inExpiry,
+               BigDecimal inStrikePrice,
+               OptionType inOptionType,
+               String inAccount,
+               String inActor,
+               UserID inViewerID,
+               Side inSide,
+               BigDecimal inCumQuantity,
+               OrderStatus inOrderStatus,
+               Date inSendingTime) {
+        apply(inRootID,
+              inOrderStatus,
+              inSendingTime,
+              contribution(inID, inSecurityType, inSymbol, inExpiry,
+                           inStrikePrice, inOptionType, inAccount, inActor,
+                           inViewerID, inSide, inCumQuantity),
+              null);
+    }
+
+    /**
+     * Applies the given contribution of an execution report to the
+     * ledger. Reports for an order chain that are older than the one
+     * already applied for that chain, as well as pending reports, are
+     * ignored.
+     *
+     * @param inRootID the root order ID of the order chain.
+     * @param inOrderStatus the order status. May be null.
+     * @param inSendingTime the sending time.
+     * @param inCurrent the contribution of the report.
+     * @param inUntracked the contribution of the latest earlier
+     * non-pending report of the chain, used if the chain is not
+     * tracked. May be null if there is no such report.
+     */
+    void apply(OrderID inRootID,
+               OrderStatus inOrderStatus,
+               Date inSendingTime,
+               Contribution inCurrent,
+               Contribution inUntracked) {
+        apply(inRootID, inOrderStatus, inSendingTime, inCurrent,
+              inUntracked, true);
+    }
+
+    /**
+     * Applies the given contribution of an execution report to the
+     * ledger, as {@link #apply(ExecutionReportSummary, Contribution, boolean)}
+     * does.
+     *
+     * @param inRootID the root order ID of the order chain.
+     * @param inOrderStatus the order status. May be null.
+     * @param inSendingTime the sending time.
+     * @param inCurrent the contribution of the report.
+     * @param inUntracked the contribution of the latest earlier
+     * non-pending report of the chain. May be null if there is no such
+     * report or it was not retrieved.
+     * @param inRetrieved true if the earlier contribution was
+     * retrieved.
+     *
+     * @return false if the earlier contribution is needed but was not
+     * retrieved, true otherwise.
+     */
+    synchronized boolean apply(OrderID inRootID,
+                               OrderStatus inOrderStatus,
+                               Date inSendingTime,
+                               Contribution inCurrent,
+                               Contribution inUntracked,
+                               boolean inRetrieved) {
+        if (isPending(inOrderStatus) || inRootID == null) {
+            updateLatestSendingTime(inSendingTime);
+            return true;
+        }
+        Contribution tracked = mChains.get(inRootID);
+        if (tracked == null) {
+            tracked = mClosedChains.get(inRootID);
+        }
+        boolean uncounted = tracked != null &&
+                tracked.mUncountedID == inCurrent.mID;
+        if ((tracked == null || uncounted) && !inRetrieved) {
+            return false;
+        }
+        updateLatestSendingTime(inSendingTime);
+        if (uncounted) {
+            //the report's contribution was replaced by a later one
+            //before the report was applied: count it in place of the
+            //earlier contribution it replaces
+            tracked.mUncountedID = inUntracked == null ? NO_ID : inUntracked.mID;
+            add(inCurrent, inCurrent.mQuantity);
+            if (inUntracked != null) {
+                add(inUntracked, inUntracked.mQuantity.negate());
+            }
+            return true;
+        }
+        Contribution previous = tracked == null ? inUntracked : tracked;
+        if (previous != null && previous.mID >= inCurrent.mID) {
+            return true;
+        }
+        if (tracked != null) {
+            inCurrent.mUncountedID = tracked.mUncountedID;
+        } else if (inUntracked != null) {
+            inCurrent.mUncountedID = inUntracked.mID;
+        }
+        if (isClosed(inOrderStatus)) {
+            mChains.remove(inRootID);
+            mClosedChains.remove(inRootID);
+            mClosedChains.put(inRootID, inCurrent);
+        } else {
+            mClosedChains.remove(inRootID);
+            mChains.put(inRootID, inCurrent);
+        }
+        if (previous != null) {
+            add(previous, previous.mQuantity.negate());
+        }
+        add(inCurrent, inCurrent.mQuantity);
+        return true;
+    }
+
+    /**
+     * Records the given sending time if it is the latest one seen.
+     *
+     * @param inSendingTime the sending time. May be null.
+     */
+    private void updateLatestSendingTime(Date inSendingTime) {
+        if (inSendingTime != null &&
+                (mLatestSendingTime == null ||
+                 inSendingTime.after(mLatestSendingTime))) {
+            mLatestSendingTime = inSendingTime;
+        }
+    }
+
+    /**
+     * Adds the given aggregate contribution of closed order chains to
+     * the ledger. The chains are not tracked individually.
+     *
+     * @param inSecurityType the security type. May be null.
+     * @param inSymbol the symbol.
+     * @param inExpiry the expiry. May be null.
+     * @param inStrikePrice the strike price. May be null.
+     * @param inOptionType the option type. May be null.
+     * @param inAccount the account. May be null.
+     * @param inActor the actor ID. May be null.
+     * @param inViewerID the viewer ID. May be null.
+     * @param inPosition the signed aggregate cumulative quantity.
+     * @param inSendingTime the latest sending time of the chains.
+     */
+    synchronized void applyClosed(SecurityType inSecurityType,
+                                  String inSymbol,
+                                  String inExpiry,
+                                  BigDecimal inStrikePrice,
+                                  OptionType inOptionType,
+                                  String inAccount,
+                                  String inActor,
+                                  UserID inViewerID,
+                                  BigDecimal inPosition,
+                                  Date inSendingTime) {
+        if (inSendingTime != null &&
+                (mLatestSendingTime == null ||
+                 inSendingTime.after(mLatestSendingTime))) {
+            mLatestSendingTime = inSendingTime;
+        }
+        PositionKey<?> position = positionKey(inSecurityType, inSymbol,
+                inExpiry, inStrikePrice, inOptionType, inAccount, inActor);
+        Contribution contribution = new Contribution(-1,
+                inViewerID,
+                position == null ? null : instrumentKey(inSecurityType,
+                        inSymbol, inExpiry, inStrikePrice, inOptionType),
+                position,
+                scale(inPosition == null ? BigDecimal.ZERO : inPosition));
+        add(contribution, contribution.mQuantity);
+    }
+
+    /**
+     * Returns true if the latest report of the given order chain is
+     * tracked by this ledger. If it is not, a later report for the
+     * chain must be applied along with the contribution of the
+     * chain's latest earlier report, if any.
+     *
+     * @param inRootID the root order ID of the order chain.
+     *
+     * @return true if the chain is tracked.
+     */
+    synchronized boolean isTracked(OrderID inRootID) {
+        return mChains.containsKey(inRootID) ||
+                mClosedChains.containsKey(inRootID);
+    }
+
+    /**
+     * Returns the latest sending time of all the reports applied to
+     * this ledger.
+     *
+     * @return the sending time, null if no reports have been applied.
+     */
+    synchronized Date getLatestSendingTime() {
+        return mLatestSendingTime;
+    }
+
+    /**
+     * Returns true if this ledger can answer a position query as of
+     * the given date.
+     *
+     * @param inDate the date.
+     *
+     * @return true if the ledger can answer the query.
+     */
+    synchronized boolean covers(Date inDate) {
+        return inDate != null && (mLatestSendingTime == null ||
+                !inDate.before(mLatestSendingTime));
+    }
+
+    /**
+     * Returns the number of order chains tracked individually by this
+     * ledger: all the open chains and the most recently closed ones.
+     *
+     * @return the number of order chains.
+     */
+    synchronized int size() {
+        return mChains.size() + mClosedChains.size();
+    }
+
+    /**
+     * Returns the aggregate position of the given instrument, across
+     * all accounts and actors, visible to the given viewer.
+     *
+     * @param inViewerID the viewer ID, null if the position of all
+     * viewers should be returned.
+     * @param inInstrument the instrument.
+     *
+     * @return the aggregate position.
+     */
+    synchronized BigDecimal getPosition(UserID inViewerID,
+                                        Instrument inInstrument) {
+        Totals totals = getTotals(inViewerID);
+        if (totals == null) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal position = totals.mInstruments.get(instrumentKey(inInstrument));
+        return position == null ? BigDecimal.ZERO : position;
+    }
+
+    /**
+     * Returns the non-zero aggregate positions of each
+     * (instrument,account,actor) tuple of the given instrument type,
+     * visible to the given viewer.
+     *
+     * @param inViewerID the viewer ID, null if the positions of all
+     * viewers should be returned.
+     * @param inType the instrument type.
+     * @param inSymbols the symbols to which the positions should be
+     * restricted. If empty, positions for all symbols are returned.
+     *
+     * @return the position map.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized <T extends Instrument> Map<PositionKey<T>, BigDecimal> getPositions
+            (UserID inViewerID,
+             Class<T> inType,
+             String... inSymbols) {
+        HashMap<PositionKey<T>, BigDecimal> map =
+                new HashMap<PositionKey<T>, BigDecimal>();
+        Totals totals = getTotals(inViewerID);
+        if (totals == null) {
+            return map;
+        }
+        Set<String> symbols = inSymbols.length == 0 ? null :
+                new HashSet<String>(Arrays.asList(inSymbols));
+        for (Map.Entry<PositionKey<?>, BigDecimal> entry :
+                totals.mPositions.entrySet()) {
+            Instrument instrument = entry.getKey().getInstrument();
+            if (inType.isInstance(instrument) &&
+                    (symbols == null || symbols.contains(instrument.getSymbol()))) {
+                map.put((PositionKey<T>) entry.getKey(), entry.getValue());
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Returns true if the given position query results are equal.
+     * Positions are compared numerically.
+     *
+     * @param inLedger the result computed by the ledger.
+     * @param inDatabase the result computed by the database.
+     *
+     * @return true if the results are equal.
+     */
+    static boolean matches(Object inLedger,
+                           Object inDatabase) {
+        if (inLedger instanceof BigDecimal && inDatabase instanceof BigDecimal) {
+            return ((BigDecimal) inLedger).compareTo((BigDecimal) inDatabase) == 0;
+        }
+        if (inLedger instanceof Map<?, ?> && inDatabase instanceof Map<?, ?>) {
+            Map<?, ?> ledger = (Map<?, ?>) inLedger;
+            Map<?, ?> database = (Map<?, ?>) inDatabase;
+            if (ledger.size() != database.size()) {
+                return false;
+            }
+            for (Map.Entry<?, ?> entry : ledger.entrySet()) {
+                if (!matches(entry.getValue(), database.get(entry.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return inLedger == null ? inDatabase == null : inLedger.equals(inDatabase);
+    }
+
+    /**
+     * Adds the given quantity to the totals affected by the given
+     * contribution.
+     *
+     * @param inContribution the contribution.
+     * @param inQuantity the quantity.
+     */
+    private void add(Contribution inContribution,
+                     BigDecimal inQuantity) {
+        if (inContribution.mInstrument == null ||
+                inQuantity.signum() == 0) {
+            return;
+        }
+        mAllViewers.add(inContribution, inQuantity);
+        if (inContribution.mViewerID != null) {
+            Totals totals = mViewers.get(inContribution.mViewerID);
+            if (totals == null) {
+                totals = new Totals();
+                mViewers.put(inContribution.mViewerID, totals);
+            }
+            totals.add(inContribution, inQuantity);
+        }
+    }
+
+    /**
+     * Returns the totals visible to the given viewer.
+     *
+     * @param inViewerID the viewer ID, null for all viewers.
+     *
+     * @return the totals, null if there are none.
+     */
+    private Totals getTotals(UserID inViewerID) {
+        return inViewerID == null ? mAllViewers : mViewers.get(inViewerID);
+    }
+
+    /**
+     * Returns true if the given status is one of the pending statuses
+     * that are ignored by position calculations.
+     *
+     * @param inStatus the status.
+     *
+     * @return true if the status is pending.
+     */
+    static boolean isPending(OrderStatus inStatus) {
+        return inStatus == OrderStatus.PendingCancel ||
+                inStatus == OrderStatus.PendingNew ||
+                inStatus == OrderStatus.PendingReplace;
+    }
+
+    /**
+     * Returns true if the given status is one after which no further
+     * execution reports are expected for an order chain. Orders done
+     * for the day are not closed, since they may resume on the next
+     * day.
+     *
+     * @param inStatus the status. May be null.
+     *
+     * @return true if the status is closed.
+     */
+    static boolean isClosed(OrderStatus inStatus) {
+        return inStatus != null &&
+                inStatus != OrderStatus.Unknown &&
+                inStatus != OrderStatus.DoneForDay &&
+                !inStatus.isCancellable();
+    }
+
+    /**
+     * Returns the given value with the scale used by the database, so
+     * that ledger values compare equal to database values.
+     *
+     * @param inValue the value.
+     *
+     * @return the scaled value.
+     */
+    private static BigDecimal scale(BigDecimal inValue) {
+        return inValue.setScale(ExecutionReportSummary.DECIMAL_SCALE,
+                RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Returns the key used to aggregate positions of the given
+     * instrument in single instrument queries.
+     *
+     * @param inInstrument the instrument.
+     *
+     * @return the key.
+     */
+    private static List<?> instrumentKey(Instrument inInstrument) {
+        InstrumentSummaryFields<?> fields =
+                InstrumentSummaryFields.SELECTOR.forInstrument(inInstrument);
+        return instrumentKey(inInstrument.getSecurityType(),
+                inInstrument.getSymbol(),
+                fields.getExpiry(inInstrument),
+                fields.getStrikePrice(inInstrument),
+                fields.getOptionType(inInstrument));
+    }
+
+    /**
+     * Returns the key used to aggregate positions in single instrument
+     * queries. As with the database queries, equities and futures are
+     * aggregated by symbol only.
+     *
+     * @return the key, null if positions of the given security type
+     * are not tracked.
+     */
+    private static List<?> instrumentKey(SecurityType inSecurityType,
+                                         String inSymbol,
+                                         String inExpiry,
+                                         BigDecimal inStrikePrice,
+                                         OptionType inOptionType) {
+        if (inSecurityType == null || inSecurityType == SecurityType.CommonStock) {
+            return Arrays.asList(SecurityType.CommonStock, inSymbol);
+        }
+        if (inSecurityType == SecurityType.Future) {
+            return Arrays.asList(SecurityType.Future, inSymbol);
+        }
+        if (inSecurityType == SecurityType.Option) {
+            return Arrays.asList(SecurityType.Option, inSymbol, inExpiry,
+                    inStrikePrice == null ? null : scale(inStrikePrice),
+                    inOptionType);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the position key of the given tuple, as returned by
+     * the database queries.
+     *
+     * @return the key, null if positions of the given security type
+     * are not tracked.
+     */
+    private static PositionKey<?> positionKey(SecurityType inSecurityType,
+                                              String inSymbol,
+                                              String inExpiry,
+                                              BigDecimal inStrikePrice,
+                                              OptionType inOptionType,
+                                              String inAccount,
+                                              String inActor) {
+        if (inSecurityType == null || inSecurityType == SecurityType.CommonStock) {
+            return PositionKeyFactory.createEquityKey(inSymbol, inAccount, inActor);
+        }
+        if (inSecurityType == SecurityType.Future) {
+            return PositionKeyFactory.createFutureKey(inSymbol, inExpiry,
+                    inAccount, inActor);
+        }
+        if (inSecurityType == SecurityType.Option && inStrikePrice != null) {
+            return PositionKeyFactory.createOptionKey(inSymbol, inExpiry,
+                    scale(inStrikePrice), inOptionType, inAccount, inActor);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the contribution of the given execution report fields.
+     *
+     * @param inID the summary ID.
+     * @param inSecurityType the security type. May be null.
+     * @param inSymbol the symbol.
+     * @param inExpiry the expiry. May be null.
+     * @param inStrikePrice the strike price. May be null.
+     * @param inOptionType the option type. May be null.
+     * @param inAccount the account. May be null.
+     * @param inActor the actor ID. May be null.
+     * @param inViewerID the viewer ID. May be null.
+     * @param inSide the side.
+     * @param inCumQuantity the cumulative quantity. May be null.
+     *
+     * @return the contribution.
+     */
+    static Contribution contribution(long inID,
+                                     SecurityType inSecurityType,
+                                     String inSymbol,
+                                     String inExpiry,
+                                     BigDecimal inStrikePrice,
+                                     OptionType inOptionType,
+                                     String inAccount,
+                                     String inActor,
+                                     UserID inViewerID,
+                                     Side inSide,
+                                     BigDecimal inCumQuantity) {
+        BigDecimal quantity = scale(inCumQuantity == null ?
+                BigDecimal.ZERO : inCumQuantity);
+        if (inSide != Side.Buy) {
+            quantity = quantity.negate();
+        }
+        PositionKey<?> position = positionKey(inSecurityType, inSymbol,
+                inExpiry, inStrikePrice, inOptionType, inAccount, inActor);
+        return new Contribution(inID,
+                inViewerID,
+                position == null ? null : instrumentKey(inSecurityType,
+                        inSymbol, inExpiry, inStrikePrice, inOptionType),
+                position,
+                quantity);
+    }
+
+    /**
+     * The contribution of an order chain to the ledger.
+     */
+    static class Contribution {
+        Contribution(long inID,
+                     UserID inViewerID,
+                     List<?> inInstrument,
+                     PositionKey<?> inPosition,
+                     BigDecimal inQuantity) {
+            mID = inID;
+            mViewerID = inViewerID;
+            mInstrument = inInstrument;
+            mPosition = inPosition;
+            mQuantity = inQuantity;
+        }
+        private final long mID;
+        private final UserID mViewerID;
+        private final List<?> mInstrument;
+        private final PositionKey<?> mPosition;
+        private final BigDecimal mQuantity;
+        /**
+         * The ID of the earlier contribution this one replaced when
+         * its order chain became tracked, if that contribution's
+         * report may not have been applied yet.
+         */
+        private long mUncountedID = NO_ID;
+    }
+
+    /**
+     * The aggregate positions visible to a viewer.
+     */
+    private static class Totals {
+        /**
+         * Adds the given quantity to the positions of the given
+         * contribution.
+         *
+         * @param inContribution the contribution.
+         * @param inQuantity the quantity.
+         */
+        void add(Contribution inContribution,
+                 BigDecimal inQuantity) {
+            add(mInstruments, inContribution.mInstrument, inQuantity);
+            add(mPositions, inContribution.mPosition, inQuantity);
+        }
+        private static <K> void add(Map<K, BigDecimal> inMap,
+                                    K inKey,
+                                    BigDecimal inQuantity) {
+            BigDecimal value = inMap.get(inKey);
+            value = value == null ? inQuantity : value.add(inQuantity);
+            if (value.signum() == 0) {
+                inMap.remove(inKey);
+            } else {
+                inMap.put(inKey, value);
+            }
+        }
+        private final Map<List<?>, BigDecimal> mInstruments =
+                new HashMap<List<?>, BigDecimal>();
+        private final Map<PositionKey<?>, BigDecimal> mPositions =
+                new HashMap<PositionKey<?>, BigDecimal>();
+    }
+
+    /**
+     * The latest contribution of each open order chain.
+     */
+    private final Map<OrderID, Contribution> mChains =
+            new HashMap<OrderID, Contribution>();
+    /**
+     * The latest contribution of the most recently closed order
+     * chains, in the order in which they were closed.
+     */
+    private final Map<OrderID, Contribution> mClosedChains;
+    private final Totals mAllViewers = new Totals();
+    private final Map<UserID, Totals> mViewers = new HashMap<UserID, Totals>();
+    private Date mLatestSendingTime;
+}
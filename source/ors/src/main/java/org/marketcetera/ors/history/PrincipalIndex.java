@@ -0,0 +1,220 @@
+package org.marketcetera.ors.history;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.marketcetera.ors.Principals;
+import org.marketcetera.trade.OrderID;
+import org.marketcetera.util.misc.ClassVersion;
+
+/* $License$ */
+/**
+ * An in-memory index of the principals of the orders whose reports
+ * have been saved, so that the principals of an order can be found
+ * without querying the <code>reports</code> table.
+ *
+ * <p>The principals of an order never change once its first report
+ * has been saved, hence an entry is never stale. The index is bounded
+ * instead: entries are evicted in the order in which they were added,
+ * once the index holds more than its maximum number of entries, or
+ * once an entry is older than the maximum age. Only the principals of
+ * orders evicted from the index have to be retrieved from the
+ * database.
+ *
+ * <p>Lookups and additions may be performed concurrently, without
+ * locking.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+class PrincipalIndex {
+
+    /**
+     * Creates an instance.
+     *
+     * @param inMaxSize the maximum number of entries.
+     * @param inMaxAge the maximum age of an entry, in ms. Entries
+     * never expire if it's zero or negative.
+     */
+    PrincipalIndex(int inMaxSize,
+                   long inMaxAge) {
+        if (inMaxSize <= 0) {
+            throw new IllegalArgumentException();
+        }
+        mMaxSize = inMaxSize;
+        mMaxAge = inMaxAge;
+    }
+
+    /**
+     * Returns the principals of the order with the given ID.
+     *
+     * @param inOrderID the order ID.
+     *
+     * @return the principals, null if the order is not in the index.
+     */
+    Principals get(OrderID inOrderID) {
+        Entry entry = inOrderID == null ? null : mEntries.get(inOrderID);
+        if (entry == null) {
+            mMisses.incrementAndGet();
+            return null;
+        }
+        mHits.incrementAndGet();
+        return entry.mPrincipals;
+    }
+
+    /**
+     * Adds the principals of the order with the given ID to the index,
+     * unless the index already holds the same principals for it, and
+     * evicts the entries that exceed the bounds of the index.
+     *
+     * @param inOrderID the order ID. May be null, in which case the
+     * index is unchanged.
+     * @param inPrincipals the principals. They are ignored if they are
+     * null or both are unknown.
+     * @param inTime the time at which the order was seen, in ms.
+     */
+    void put(OrderID inOrderID,
+             Principals inPrincipals,
+             long inTime) {
+        if (inOrderID == null || inPrincipals == null ||
+                (inPrincipals.getActorID() == null &&
+                 inPrincipals.getViewerID() == null)) {
+            return;
+        }
+        Entry existing = mEntries.get(inOrderID);
+        if (existing != null && existing.mPrincipals.equals(inPrincipals)) {
+            return;
+        }
+        Entry entry = new Entry(inOrderID, inPrincipals, inTime);
+        existing = mEntries.put(inOrderID, entry);
+        mOrder.add(entry);
+        if (existing == null) {
+            mSize.incrementAndGet();
+        } else {
+            discardReplaced();
+        }
+        evict(inTime);
+    }
+
+    /**
+     * Returns the number of orders in the index.
+     *
+     * @return the number of orders.
+     */
+    int size() {
+        return mSize.get();
+    }
+
+    /**
+     * Returns the number of lookups that found the order in the index.
+     *
+     * @return the number of hits.
+     */
+    long getHits() {
+        return mHits.get();
+    }
+
+    /**
+     * Returns the number of lookups that did not find the order in the
+     * index.
+     *
+     * @return the number of misses.
+     */
+    long getMisses() {
+        return mMisses.get();
+    }
+
+    /**
+     * Returns the number of orders evicted from the index.
+     *
+     * @return the number of evictions.
+     */
+    long getEvictions() {
+        return mEvictions.get();
+    }
+
+    /**
+     * Evicts the oldest entries while the index holds too many
+     * entries, or the oldest entry has expired.
+     *
+     * @param inNow the current time, in ms.
+     */
+    private void evict(long inNow) {
+        Entry oldest;
+        while ((oldest = mOrder.peek()) != null &&
+                (mSize.get() > mMaxSize ||
+                 (mMaxAge > 0 && inNow - oldest.mTime > mMaxAge))) {
+            if (!mOrder.remove(oldest)) {
+                //another thread evicted it
+                continue;
+            }
+            //an entry replaced by a later one is only removed from the
+            //eviction order
+            if (mEntries.remove(oldest.mOrderID, oldest)) {
+                mSize.decrementAndGet();
+                mEvictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Records that an entry was replaced, and discards the replaced
+     * entries from the eviction order once they outnumber the entries
+     * in the index. Otherwise, replaced entries queued behind an entry
+     * that is neither too old nor in excess would stay in the eviction
+     * order.
+     */
+    private void discardReplaced() {
+        int replaced = mReplaced.incrementAndGet();
+        if (replaced <= mSize.get() ||
+                !mReplaced.compareAndSet(replaced, 0)) {
+            return;
+        }
+        for(Iterator<Entry> i = mOrder.iterator(); i.hasNext();) {
+            Entry entry = i.next();
+            if (mEntries.get(entry.mOrderID) != entry) {
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * An entry of the index.
+     */
+    private static class Entry {
+        Entry(OrderID inOrderID,
+              Principals inPrincipals,
+              long inTime) {
+            mOrderID = inOrderID;
+            mPrincipals = inPrincipals;
+            mTime = inTime;
+        }
+        private final OrderID mOrderID;
+        private final Principals mPrincipals;
+        private final long mTime;
+    }
+
+    private final int mMaxSize;
+    private final long mMaxAge;
+    private final ConcurrentMap<OrderID, Entry> mEntries =
+            new ConcurrentHashMap<OrderID, Entry>();
+    /**
+     * The entries in the order in which they were added.
+     */
+    private final Queue<Entry> mOrder = new ConcurrentLinkedQueue<Entry>();
+    private final AtomicInteger mSize = new AtomicInteger();
+    /**
+     * The number of entries replaced since the eviction order was last
+     * purged of them.
+     */
+    private final AtomicInteger mReplaced = new AtomicInteger();
+    private final AtomicLong mHits = new AtomicLong();
+    private final AtomicLong mMisses = new AtomicLong();
+    private final AtomicLong mEvictions = new AtomicLong();
+}
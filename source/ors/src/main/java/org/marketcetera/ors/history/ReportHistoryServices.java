@@ -65,6 +65,38 @@ public interface ReportHistoryServices {
          Date inDate)
         throws PersistenceException, ReportPersistenceException;
 
+    /**
+     * Returns one page of the reports received after the supplied
+     * date-time value, and which are visible to the given user. The
+     * reports are ordered as saved, like those returned by {@link
+     * #getReportsSince(SimpleUser,Date)}; the next page may be
+     * retrieved by supplying the report ID of the last report in this
+     * page.
+     *
+     * @param inUser the user making the query. Cannot be null.
+     * @param inDate the date-time value. Cannot be null.
+     * @param inAfterReportID the page only includes reports saved
+     * after the report with this ID. If null, the page starts with
+     * the first report.
+     * @param inMaxReports the maximum number of reports in the
+     * page. If it is not positive, the page includes all the
+     * remaining reports.
+     *
+     * @return the reports in the page. The page has fewer than the
+     * maximum number of reports only if there are no more reports.
+     *
+     * @throws PersistenceException if there were persistence errors
+     * fetching the reports.
+     * @throws ReportPersistenceException if the data retrieved had
+     * unexpected errors.
+     */
+    public ReportBaseImpl[] getReportsSince
+        (SimpleUser inUser,
+         Date inDate,
+         ReportID inAfterReportID,
+         int inMaxReports)
+        throws PersistenceException, ReportPersistenceException;
+
     /**
      * Returns the position of the equity based on all reports
      * received for it before or on the supplied date, and which are visible
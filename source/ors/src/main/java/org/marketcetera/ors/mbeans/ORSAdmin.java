@@ -1,11 +1,23 @@
 package org.marketcetera.ors.mbeans;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.marketcetera.core.ClassVersion;
 import org.marketcetera.core.IDFactory;
 import org.marketcetera.core.NoMoreIDsException;
+import org.marketcetera.ors.LocalIDFactory;
+import org.marketcetera.ors.LongIDFactory;
+import org.marketcetera.ors.QuickFIXApplication;
+import org.marketcetera.ors.ReportCache;
+import org.marketcetera.ors.SimpleOrderInfoCache;
 import org.marketcetera.ors.UserManager;
 import org.marketcetera.ors.brokers.Broker;
 import org.marketcetera.ors.brokers.Brokers;
+import org.marketcetera.ors.config.SpringConfig;
+import org.marketcetera.ors.history.AsyncSaveReportHistoryServices;
+import org.marketcetera.ors.history.BasicReportHistoryServices;
+import org.marketcetera.ors.history.ReportHistoryServices;
 import org.marketcetera.quickfix.IQuickFIXSender;
 import org.marketcetera.trade.BrokerID;
 import org.marketcetera.util.log.SLF4JLoggerProxy;
@@ -28,6 +40,8 @@ public class ORSAdmin implements ORSAdminMBean {
     protected IQuickFIXSender quickFIXSender;
     private IDFactory idFactory;
     private UserManager userManager;
+    private QuickFIXApplication qfApp;
+    private ReportHistoryServices historyServices;
 
     public ORSAdmin(Brokers brokers,
                     IQuickFIXSender qfSender,
@@ -40,6 +54,28 @@ public class ORSAdmin implements ORSAdminMBean {
         this.userManager = userManager;
     }
 
+    /**
+     * Sets the QuickFIX/J application whose per-session message
+     * processing statistics are reported. If not set, no broker
+     * message statistics are reported.
+     *
+     * @param qfApp the application.
+     */
+    public void setQuickFIXApplication(QuickFIXApplication qfApp) {
+        this.qfApp = qfApp;
+    }
+
+    /**
+     * Sets the report history services whose persistence, ID and
+     * principal index statistics are reported. If not set, these
+     * statistics are reported as zero.
+     *
+     * @param historyServices the services.
+     */
+    public void setReportHistoryServices(ReportHistoryServices historyServices) {
+        this.historyServices = historyServices;
+    }
+
     @Override
     public void sendPasswordReset(String broker, String oldPassword, String newPassword) {
         Broker b=brokers.getBroker(new BrokerID(broker));
@@ -69,6 +105,211 @@ public class ORSAdmin implements ORSAdminMBean {
         userManager.sync();
     }
 
+    @Override
+    public Map<String,Integer> getBrokerMessageQueueDepths()
+    {
+        if(qfApp == null) {
+            return new HashMap<String,Integer>();
+        }
+        return byBroker(qfApp.getSessionQueueDepths());
+    }
+
+    @Override
+    public Map<String,Long> getBrokerMessageMeanLatencies()
+    {
+        if(qfApp == null) {
+            return new HashMap<String,Long>();
+        }
+        return byBroker(qfApp.getSessionMeanProcessingLatencies());
+    }
+
+    @Override
+    public Map<String,Long> getBrokerMessageMaxLatencies()
+    {
+        if(qfApp == null) {
+            return new HashMap<String,Long>();
+        }
+        return byBroker(qfApp.getSessionMaxProcessingLatencies());
+    }
+
+    @Override
+    public long getOrderIDBlocksExhausted()
+    {
+        if(!(idFactory instanceof LocalIDFactory)) {
+            return 0;
+        }
+        return ((LocalIDFactory)idFactory).getExhaustedBlocks();
+    }
+
+    @Override
+    public long getOrderIDBlockStalls()
+    {
+        if(!(idFactory instanceof LocalIDFactory)) {
+            return 0;
+        }
+        return ((LocalIDFactory)idFactory).getBlockStalls();
+    }
+
+    @Override
+    public long getReportIDBlocksExhausted()
+    {
+        LongIDFactory reportIDFactory = getReportIDFactory();
+        if(reportIDFactory == null) {
+            return 0;
+        }
+        return reportIDFactory.getExhaustedBlocks();
+    }
+
+    @Override
+    public long getReportIDBlockStalls()
+    {
+        LongIDFactory reportIDFactory = getReportIDFactory();
+        if(reportIDFactory == null) {
+            return 0;
+        }
+        return reportIDFactory.getBlockStalls();
+    }
+
+    @Override
+    public int getReportPersistBacklog()
+    {
+        if(!(historyServices instanceof AsyncSaveReportHistoryServices)) {
+            return 0;
+        }
+        return ((AsyncSaveReportHistoryServices)historyServices).getPendingReports();
+    }
+
+    @Override
+    public long getReportPersistLag()
+    {
+        if(!(historyServices instanceof AsyncSaveReportHistoryServices)) {
+            return 0;
+        }
+        return ((AsyncSaveReportHistoryServices)historyServices).getPersistLag();
+    }
+
+    @Override
+    public long getReportPersistMeanBatchSize()
+    {
+        if(!(historyServices instanceof AsyncSaveReportHistoryServices)) {
+            return 0;
+        }
+        return ((AsyncSaveReportHistoryServices)historyServices).getMeanBatchSize();
+    }
+
+    @Override
+    public int getReportPersistMaxBatchSize()
+    {
+        if(!(historyServices instanceof AsyncSaveReportHistoryServices)) {
+            return 0;
+        }
+        return ((AsyncSaveReportHistoryServices)historyServices).getMaxObservedBatchSize();
+    }
+
+    @Override
+    public int getPrincipalIndexSize()
+    {
+        if(!(historyServices instanceof BasicReportHistoryServices)) {
+            return 0;
+        }
+        return ((BasicReportHistoryServices)historyServices).getPrincipalIndexSize();
+    }
+
+    @Override
+    public long getPrincipalIndexHits()
+    {
+        if(!(historyServices instanceof BasicReportHistoryServices)) {
+            return 0;
+        }
+        return ((BasicReportHistoryServices)historyServices).getPrincipalIndexHits();
+    }
+
+    @Override
+    public long getPrincipalIndexMisses()
+    {
+        if(!(historyServices instanceof BasicReportHistoryServices)) {
+            return 0;
+        }
+        return ((BasicReportHistoryServices)historyServices).getPrincipalIndexMisses();
+    }
+
+    @Override
+    public long getPrincipalIndexEvictions()
+    {
+        if(!(historyServices instanceof BasicReportHistoryServices)) {
+            return 0;
+        }
+        return ((BasicReportHistoryServices)historyServices).getPrincipalIndexEvictions();
+    }
+
+    @Override
+    public int getReportCacheSize()
+    {
+        return ReportCache.INSTANCE.getSize();
+    }
+
+    @Override
+    public long getReportCacheEstimatedBytes()
+    {
+        return ReportCache.INSTANCE.getEstimatedBytes();
+    }
+
+    @Override
+    public long getReportCacheEvictions()
+    {
+        return ReportCache.INSTANCE.getEvictions();
+    }
+
+    @Override
+    public int getOrderInfoCacheSize()
+    {
+        SimpleOrderInfoCache orderInfoCache = getOrderInfoCache();
+        if(orderInfoCache == null) {
+            return 0;
+        }
+        return orderInfoCache.getSize();
+    }
+
+    @Override
+    public long getOrderInfoCacheEvictions()
+    {
+        SimpleOrderInfoCache orderInfoCache = getOrderInfoCache();
+        if(orderInfoCache == null) {
+            return 0;
+        }
+        return orderInfoCache.getEvictions();
+    }
+
+    private SimpleOrderInfoCache getOrderInfoCache() {
+        SpringConfig cfg = SpringConfig.getSingleton();
+        if(cfg == null ||
+           !(cfg.getOrderInfoCache() instanceof SimpleOrderInfoCache)) {
+            return null;
+        }
+        return (SimpleOrderInfoCache)cfg.getOrderInfoCache();
+    }
+
+    private LongIDFactory getReportIDFactory() {
+        if(!(historyServices instanceof BasicReportHistoryServices)) {
+            return null;
+        }
+        return ((BasicReportHistoryServices)historyServices).getReportIDFactory();
+    }
+
+    /**
+     * Re-keys the given per-session values by broker ID. Sessions
+     * that do not belong to a known broker are keyed by session ID.
+     */
+    private <T> Map<String,T> byBroker(Map<SessionID,T> inValues) {
+        Map<String,T> values = new HashMap<String,T>();
+        for(Map.Entry<SessionID,T> entry : inValues.entrySet()) {
+            Broker b = brokers == null ? null : brokers.getBroker(entry.getKey());
+            values.put(b == null ? entry.getKey().toString() : b.getBrokerID().getValue(),
+                       entry.getValue());
+        }
+        return values;
+    }
+
     private String getNextID() {
         try {
             return idFactory.getNext();
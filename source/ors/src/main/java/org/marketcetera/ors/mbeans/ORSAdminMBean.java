@@ -1,5 +1,7 @@
 package org.marketcetera.ors.mbeans;
 
+import java.util.Map;
+
 import org.marketcetera.core.ClassVersion;
 
 /**
@@ -20,4 +22,147 @@ public interface ORSAdminMBean {
      */
 
     public void syncSessions();
+
+    /**
+     * Returns the number of messages received from each broker that
+     * are awaiting processing, keyed by broker ID.
+     */
+
+    public Map<String,Integer> getBrokerMessageQueueDepths();
+
+    /**
+     * Returns the mean time, in microseconds, between the receipt of a
+     * message from each broker and the completion of its processing,
+     * keyed by broker ID.
+     */
+
+    public Map<String,Long> getBrokerMessageMeanLatencies();
+
+    /**
+     * Returns the maximum time, in microseconds, between the receipt of
+     * a message from each broker and the completion of its processing,
+     * keyed by broker ID.
+     */
+
+    public Map<String,Long> getBrokerMessageMaxLatencies();
+
+    /**
+     * Returns the number of order ID blocks whose IDs have all been
+     * assigned.
+     */
+
+    public long getOrderIDBlocksExhausted();
+
+    /**
+     * Returns the number of times the assignment of an order ID had
+     * to wait for the retrieval of a block of IDs.
+     */
+
+    public long getOrderIDBlockStalls();
+
+    /**
+     * Returns the number of report ID blocks whose IDs have all been
+     * assigned.
+     */
+
+    public long getReportIDBlocksExhausted();
+
+    /**
+     * Returns the number of times the assignment of a report ID had
+     * to wait for the retrieval of a block of IDs.
+     */
+
+    public long getReportIDBlockStalls();
+
+    /**
+     * Returns the number of reports in the persist queue, when reports
+     * are saved asynchronously, or -1 if the queue cannot be browsed.
+     */
+
+    public int getReportPersistBacklog();
+
+    /**
+     * Returns the time, in milliseconds, since the oldest report that
+     * has not yet been saved was sent to the persist queue, when
+     * reports are saved asynchronously, or -1 if the queue cannot be
+     * browsed.
+     */
+
+    public long getReportPersistLag();
+
+    /**
+     * Returns the mean number of reports saved per database
+     * transaction, when reports are saved asynchronously.
+     */
+
+    public long getReportPersistMeanBatchSize();
+
+    /**
+     * Returns the largest number of reports saved in one database
+     * transaction, when reports are saved asynchronously.
+     */
+
+    public int getReportPersistMaxBatchSize();
+
+    /**
+     * Returns the number of orders whose principals are held in
+     * memory.
+     */
+
+    public int getPrincipalIndexSize();
+
+    /**
+     * Returns the number of order principal lookups answered from
+     * memory.
+     */
+
+    public long getPrincipalIndexHits();
+
+    /**
+     * Returns the number of order principal lookups that were not
+     * answered from memory.
+     */
+
+    public long getPrincipalIndexMisses();
+
+    /**
+     * Returns the number of orders whose principals were evicted from
+     * memory.
+     */
+
+    public long getPrincipalIndexEvictions();
+
+    /**
+     * Returns the number of latest execution reports cached by order
+     * ID.
+     */
+
+    public int getReportCacheSize();
+
+    /**
+     * Returns the estimated number of bytes used by the cached latest
+     * execution reports.
+     */
+
+    public long getReportCacheEstimatedBytes();
+
+    /**
+     * Returns the number of latest execution reports of closed orders
+     * evicted from the cache.
+     */
+
+    public long getReportCacheEvictions();
+
+    /**
+     * Returns the number of entries in the order information cache.
+     */
+
+    public int getOrderInfoCacheSize();
+
+    /**
+     * Returns the number of order information cache entries evicted
+     * before they could be removed.
+     */
+
+    public long getOrderInfoCacheEvictions();
 }
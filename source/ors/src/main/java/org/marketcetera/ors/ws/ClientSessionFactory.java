@@ -1,8 +1,10 @@
 package org.marketcetera.ors.ws;
 
 import javax.xml.bind.JAXBException;
+import org.marketcetera.client.ClientVersion;
 import org.marketcetera.client.jms.JmsManager;
 import org.marketcetera.client.jms.JmsUtils;
+import org.marketcetera.core.Util;
 import org.marketcetera.ors.UserManager;
 import org.marketcetera.ors.info.SystemInfo;
 import org.marketcetera.ors.security.SimpleUser;
@@ -110,8 +112,16 @@ public class ClientSessionFactory
         SimpleUser dbUser;
         String topicName=JmsUtils.getReplyTopicName(id);
         try {
-            jmsOps=getJmsManager().getOutgoingJmsFactory().createJmsTemplateX
-                (topicName,true);
+            // Clients that advertise the binary wire format get their
+            // replies in that format; all others get XML.
+            if (ClientVersion.APP_ID_NAME_BINARY.equals
+                (Util.getName(context.getAppId()))) {
+                jmsOps=getJmsManager().getOutgoingJmsFactory().
+                    createJmsTemplateB(topicName,true);
+            } else {
+                jmsOps=getJmsManager().getOutgoingJmsFactory().
+                    createJmsTemplateX(topicName,true);
+            }
         } catch (JAXBException ex) {
             throw new I18NRuntimeException
                 (ex,new I18NBoundMessage1P
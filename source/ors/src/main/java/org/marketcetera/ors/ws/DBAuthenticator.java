@@ -63,7 +63,8 @@ public class DBAuthenticator
     static boolean compatibleApp
         (String clientName)
     {
-        return ClientVersion.APP_ID_NAME.equals(clientName);
+        return ClientVersion.APP_ID_NAME.equals(clientName) ||
+            ClientVersion.APP_ID_NAME_BINARY.equals(clientName);
     }
 
     // Authenticator.
@@ -136,6 +136,18 @@ public class ServiceImpl
             (session.getUser(),date);
     }
 
+    private ReportBaseImpl[] getReportsSincePageImpl
+        (ClientSession session,
+         Date date,
+         ReportID afterReportID,
+         int maxReports)
+        throws ReportPersistenceException,
+               PersistenceException
+    {
+        return getHistoryServices().getReportsSince
+            (session.getUser(),date,afterReportID,maxReports);
+    }
+
     private BigDecimal getEquityPositionAsOfImpl
         (ClientSession session,
          Date date,
@@ -318,6 +330,29 @@ public class ServiceImpl
             }}).execute(context);
     }
 
+    @Override
+    public ReportBaseImpl[] getReportsSincePage
+        (ClientContext context,
+         final DateWrapper date,
+         final ReportID afterReportID,
+         final int maxReports)
+        throws RemoteException
+    {
+        return (new RemoteCaller<ClientSession,ReportBaseImpl[]>
+                (getSessionManager()) {
+            @Override
+            protected ReportBaseImpl[] call
+                (ClientContext context,
+                 SessionHolder<ClientSession> sessionHolder)
+                throws ReportPersistenceException,
+                       PersistenceException
+            {
+                return getReportsSincePageImpl
+                    (sessionHolder.getSession(),date.getRaw(),
+                     afterReportID,maxReports);
+            }}).execute(context);
+    }
+
     @Override
     public BigDecimal getEquityPositionAsOf
         (ClientContext context,
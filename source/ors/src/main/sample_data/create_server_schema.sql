@@ -36,6 +36,7 @@ CREATE TABLE reports (
     actor_id BIGINT,
     PRIMARY KEY (id),
     INDEX idx_sendingTime (sendingTime),
+    INDEX idx_reportID (reportID),
     INDEX idx_orderID (orderID),
     INDEX idx_viewer_id (viewer_id),
     CONSTRAINT fk_reports_actor_id FOREIGN KEY (actor_id)
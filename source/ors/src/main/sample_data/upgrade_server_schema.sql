@@ -0,0 +1,5 @@
+-- Upgrades a database created by an earlier version of
+-- create_server_schema.sql. Each statement may be run on its own.
+
+-- Paged report history retrieval looks up reports by report ID.
+CREATE INDEX idx_reportID ON reports (reportID);
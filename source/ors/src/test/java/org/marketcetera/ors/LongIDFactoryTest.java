@@ -1,7 +1,18 @@
 package org.marketcetera.ors;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Test;
+import org.marketcetera.core.IDFactory;
 import org.marketcetera.core.InMemoryIDFactory;
+import org.marketcetera.core.NoMoreIDsException;
+import org.marketcetera.module.ExpectedFailure;
 import org.marketcetera.util.test.TestCaseBase;
 
 import static org.junit.Assert.*;
@@ -30,5 +41,75 @@ public class LongIDFactoryTest
         for (long i=1;i<=LongIDFactory.LOCAL_ID_COUNT+10;i++) {
             assertEquals(first+i,longIdFactory.getNext());
         }
+        assertEquals(1,longIdFactory.getExhaustedBlocks());
+    }
+
+    @Test
+    public void concurrent()
+        throws Exception
+    {
+        InMemoryIDFactory idFactory=new InMemoryIDFactory(0);
+        idFactory.init();
+        final LongIDFactory longIdFactory=new LongIDFactory(idFactory);
+        final int threads=8;
+        final int perThread=(int)(LongIDFactory.LOCAL_ID_COUNT*5);
+        ExecutorService executor=Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Long>>> results=
+                new ArrayList<Future<List<Long>>>();
+            for (int i=0;i<threads;i++) {
+                results.add(executor.submit(new Callable<List<Long>>() {
+                    @Override
+                    public List<Long> call()
+                        throws Exception
+                    {
+                        List<Long> ids=new ArrayList<Long>(perThread);
+                        for (int j=0;j<perThread;j++) {
+                            ids.add(longIdFactory.getNext());
+                        }
+                        return ids;
+                    }
+                }));
+            }
+            Set<Long> ids=new HashSet<Long>();
+            for (Future<List<Long>> result:results) {
+                ids.addAll(result.get());
+            }
+            assertEquals(threads*perThread,ids.size());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads*5-1,longIdFactory.getExhaustedBlocks());
+    }
+
+    @Test
+    public void blockFailure()
+        throws Exception
+    {
+        final IDFactory idFactory=new InMemoryIDFactory(0) {
+            private boolean mFail=true;
+            @Override
+            public synchronized String getNext()
+                throws NoMoreIDsException
+            {
+                if (mFail) {
+                    mFail=false;
+                    throw new NoMoreIDsException(new Exception());
+                }
+                return super.getNext();
+            }
+        };
+        final LongIDFactory longIdFactory=new LongIDFactory(idFactory);
+        new ExpectedFailure<NoMoreIDsException>() {
+            @Override
+            protected void run()
+                throws Exception
+            {
+                longIdFactory.getNext();
+            }
+        };
+        // The retrieval is retried.
+        assertEquals(0,longIdFactory.getNext());
+        assertEquals(1,longIdFactory.getNext());
     }
 }
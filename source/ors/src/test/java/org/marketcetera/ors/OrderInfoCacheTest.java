@@ -40,6 +40,48 @@ public class OrderInfoCacheTest
         assertNull(cache.get(TEST_ORDER_ID1));
     }
 
+    @Test
+    public void eviction()
+        throws Exception
+    {
+        SimpleOrderInfoCache cache=new SimpleOrderInfoCache();
+        assertEquals(SimpleOrderInfoCache.DEFAULT_MAX_SIZE,
+                     cache.getMaxSize());
+        assertEquals(SimpleOrderInfoCache.DEFAULT_MAX_AGE,
+                     cache.getMaxAge());
+        cache.setMaxSize(2);
+
+        SimpleOrderInfo info1=
+            cache.put(TEST_ORDER_ID1,null,TEST_ACTOR_ID1);
+        SimpleOrderInfo info2=
+            cache.put(TEST_ORDER_ID2,null,TEST_ACTOR_ID1);
+        assertEquals(2,cache.getSize());
+        OrderID orderID3=new OrderID("o3");
+        SimpleOrderInfo info3=cache.put(orderID3,null,TEST_ACTOR_ID2);
+        assertEquals(2,cache.getSize());
+        assertEquals(1,cache.getEvictions());
+        assertNull(cache.get(TEST_ORDER_ID1));
+        assertSame(info2,cache.get(TEST_ORDER_ID2));
+        assertSame(info3,cache.get(orderID3));
+
+        // Removed entries are not evicted.
+        cache.remove(TEST_ORDER_ID2);
+        cache.put(TEST_ORDER_ID1,null,TEST_ACTOR_ID1);
+        assertEquals(2,cache.getSize());
+        assertEquals(1,cache.getEvictions());
+        assertSame(info3,cache.get(orderID3));
+        assertNotSame(info1,cache.get(TEST_ORDER_ID1));
+
+        // Old entries are evicted.
+        cache.setMaxSize(0);
+        cache.setMaxAge(1);
+        Thread.sleep(1100);
+        cache.put(TEST_ORDER_ID2,null,TEST_ACTOR_ID1);
+        assertEquals(1,cache.getSize());
+        assertEquals(3,cache.getEvictions());
+        assertNotNull(cache.get(TEST_ORDER_ID2));
+    }
+
     @Test
     public void entryFieldRetrieval()
     {
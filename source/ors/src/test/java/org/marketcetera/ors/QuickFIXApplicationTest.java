@@ -4,6 +4,9 @@ package org.marketcetera.ors;
 import junit.framework.Test;
 import org.marketcetera.core.*;
 import org.marketcetera.ors.QuickFIXApplication;
+import org.marketcetera.ors.brokers.Brokers;
+import org.marketcetera.ors.brokers.SpringBroker;
+import org.marketcetera.ors.brokers.SpringBrokers;
 import org.marketcetera.quickfix.*;
 import org.marketcetera.spring.MockJmsTemplate;
 import org.marketcetera.trade.Equity;
@@ -18,7 +21,12 @@ import quickfix.UnsupportedMessageType;
 import quickfix.field.*;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Verifies that we don't error out of the sending functions
@@ -189,6 +197,99 @@ public class QuickFIXApplicationTest extends FIXVersionedTestCase {
         assertEquals("Reject should've been copied to JMS", 1, jmsTemplate.getSentMessages().size()); //$NON-NLS-1$
     }
 
+    /** Messages of each session must be processed in the order in which
+     * they were received, by a single processor, and the statistics must
+     * account for all of them
+     */
+    public void testPerSessionOrderingAndStatistics() throws Exception {
+        SpringBrokers springBrokers = new SpringBrokers();
+        springBrokers.setBrokers(new ArrayList<SpringBroker>());
+        QuickFIXApplication qfApp = new QuickFIXApplication(null, new Brokers(springBrokers, null), null, null, null, null, null, null, 4);
+        assertEquals(4, qfApp.getMessageProcessorCount());
+
+        Map<SessionID,List<Integer>> order = new HashMap<SessionID,List<Integer>>();
+        Map<SessionID,Set<Thread>> threads = new HashMap<SessionID,Set<Thread>>();
+        SessionID[] sessions = new SessionID[8];
+        for (int i = 0; i < sessions.length; i++) {
+            sessions[i] = new SessionID(FIXVersion.FIX42.toString(), "sender", "target" + i); //$NON-NLS-1$ //$NON-NLS-2$
+            order.put(sessions[i], new ArrayList<Integer>());
+            threads.put(sessions[i], new HashSet<Thread>());
+        }
+        int messageCount = 500;
+        for (int i = 0; i < messageCount; i++) {
+            for (SessionID session : sessions) {
+                qfApp.fromAdmin(new RecordingMessage(session, i, order, threads), session);
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!isDrained(qfApp) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("messages were not processed in time", isDrained(qfApp)); //$NON-NLS-1$
+        assertEquals(sessions.length, qfApp.getSessionQueueDepths().size());
+        Set<Thread> allThreads = new HashSet<Thread>();
+        synchronized (order) {
+            for (SessionID session : sessions) {
+                List<Integer> received = order.get(session);
+                assertEquals(messageCount, received.size());
+                for (int i = 0; i < messageCount; i++) {
+                    assertEquals(session.toString(), i, received.get(i).intValue());
+                }
+                assertEquals(session.toString(), 1, threads.get(session).size());
+                allThreads.addAll(threads.get(session));
+                long mean = qfApp.getSessionMeanProcessingLatencies().get(session);
+                long max = qfApp.getSessionMaxProcessingLatencies().get(session);
+                assertTrue(mean >= 0);
+                assertTrue(mean <= max);
+            }
+        }
+
+        qfApp.stop();
+        for (Thread thread : allThreads) {
+            assertFalse(thread.getName(), thread.isAlive());
+        }
+    }
+
+    private static boolean isDrained(QuickFIXApplication qfApp) {
+        for (int depth : qfApp.getSessionQueueDepths().values()) {
+            if (depth != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Records the order in which messages are examined by the processors,
+     * and by which processor thread
+     */
+    private static class RecordingMessage extends Message {
+        private final SessionID session;
+        private final int sequence;
+        private final Map<SessionID,List<Integer>> order;
+        private final Map<SessionID,Set<Thread>> threads;
+        private boolean recorded;
+
+        private RecordingMessage(SessionID session, int sequence, Map<SessionID,List<Integer>> order, Map<SessionID,Set<Thread>> threads) {
+            this.session = session;
+            this.sequence = sequence;
+            this.order = order;
+            this.threads = threads;
+        }
+
+        @Override
+        public Header getHeader() {
+            if (session != null && !recorded) {
+                recorded = true;
+                synchronized (order) {
+                    order.get(session).add(sequence);
+                    threads.get(session).add(Thread.currentThread());
+                }
+            }
+            return super.getHeader();
+        }
+    }
+
     public static class MockQuickFIXApplication extends QuickFIXApplication {
 
         public MockQuickFIXApplication(JmsOperations jmsOperations)
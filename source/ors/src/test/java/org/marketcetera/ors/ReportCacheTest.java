@@ -0,0 +1,305 @@
+package org.marketcetera.ors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.math.BigDecimal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.marketcetera.quickfix.FIXVersion;
+import org.marketcetera.trade.BrokerID;
+import org.marketcetera.trade.Equity;
+import org.marketcetera.trade.ExecutionReport;
+import org.marketcetera.trade.Factory;
+import org.marketcetera.trade.OrderStatus;
+import org.marketcetera.trade.Originator;
+import org.marketcetera.trade.Side;
+
+import quickfix.Message;
+import quickfix.field.OrigClOrdID;
+
+/* $License$ */
+
+/**
+ * Tests {@link ReportCache}.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+public class ReportCacheTest
+{
+    /**
+     * Run before each test.
+     */
+    @Before
+    public void setup()
+    {
+        ReportCache.INSTANCE.clear();
+    }
+    /**
+     * Run after each test.
+     */
+    @After
+    public void cleanup()
+    {
+        ReportCache.INSTANCE.clear();
+        ReportCache.INSTANCE.setMaxSize(ReportCache.DEFAULT_MAX_SIZE);
+        ReportCache.INSTANCE.setClosedReportLife(ReportCache.DEFAULT_CLOSED_REPORT_LIFE);
+        ReportCache.INSTANCE.setOpenReportLife(ReportCache.DEFAULT_OPEN_REPORT_LIFE);
+        ReportCache.INSTANCE.setOffHeap(false);
+    }
+    /**
+     * Tests caching and retrieving the latest report of an order.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void testCache()
+            throws Exception
+    {
+        assertNull(ReportCache.INSTANCE.getLatestReportFor(null));
+        assertNull(ReportCache.INSTANCE.getLatestReportFor("o1"));
+        ExecutionReport report1 = createReport("o1",
+                                               OrderStatus.New);
+        ReportCache.INSTANCE.cache(report1);
+        assertSame(report1,
+                   ReportCache.INSTANCE.getLatestReportFor("o1"));
+        ExecutionReport report2 = createReport("o1",
+                                               OrderStatus.PartiallyFilled);
+        ReportCache.INSTANCE.cache(report2);
+        assertSame(report2,
+                   ReportCache.INSTANCE.getLatestReportFor("o1"));
+        assertEquals(1,
+                     ReportCache.INSTANCE.getSize());
+        assertEquals(2048,
+                     ReportCache.INSTANCE.getEstimatedBytes());
+        ReportCache.INSTANCE.clear();
+        assertNull(ReportCache.INSTANCE.getLatestReportFor("o1"));
+        assertEquals(0,
+                     ReportCache.INSTANCE.getSize());
+        assertEquals(0,
+                     ReportCache.INSTANCE.getEstimatedBytes());
+    }
+    /**
+     * Tests that only the reports of closed orders are evicted when the cache is full.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void testMaxSize()
+            throws Exception
+    {
+        ReportCache.INSTANCE.setMaxSize(2);
+        ReportCache.INSTANCE.cache(createReport("o1",
+                                                OrderStatus.Filled));
+        ReportCache.INSTANCE.cache(createReport("o2",
+                                                OrderStatus.New));
+        ReportCache.INSTANCE.cache(createReport("o3",
+                                                OrderStatus.Canceled));
+        assertEquals(2,
+                     ReportCache.INSTANCE.getSize());
+        assertEquals(1,
+                     ReportCache.INSTANCE.getEvictions());
+        assertNull(ReportCache.INSTANCE.getLatestReportFor("o1"));
+        assertNotNull(ReportCache.INSTANCE.getLatestReportFor("o2"));
+        assertNotNull(ReportCache.INSTANCE.getLatestReportFor("o3"));
+        // open orders are kept regardless of the maximum
+        ReportCache.INSTANCE.cache(createReport("o4",
+                                                OrderStatus.New));
+        ReportCache.INSTANCE.cache(createReport("o5",
+                                                OrderStatus.PendingNew));
+        assertEquals(3,
+                     ReportCache.INSTANCE.getSize());
+        assertEquals(2,
+                     ReportCache.INSTANCE.getEvictions());
+        assertNull(ReportCache.INSTANCE.getLatestReportFor("o3"));
+        assertNotNull(ReportCache.INSTANCE.getLatestReportFor("o2"));
+        assertNotNull(ReportCache.INSTANCE.getLatestReportFor("o5"));
+    }
+    /**
+     * Tests that the reports of closed orders are evicted once they are too old.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void testClosedReportLife()
+            throws Exception
+    {
+        ReportCache.INSTANCE.setClosedReportLife(100);
+        ReportCache.INSTANCE.cache(createReport("o1",
+                                                OrderStatus.Rejected));
+        ReportCache.INSTANCE.cache(createReport("o2",
+                                                OrderStatus.New));
+        Thread.sleep(200);
+        ReportCache.INSTANCE.cache(createReport("o3",
+                                                OrderStatus.Filled));
+        assertNull(ReportCache.INSTANCE.getLatestReportFor("o1"));
+        assertNotNull(ReportCache.INSTANCE.getLatestReportFor("o2"));
+        assertNotNull(ReportCache.INSTANCE.getLatestReportFor("o3"));
+        assertEquals(1,
+                     ReportCache.INSTANCE.getEvictions());
+    }
+    /**
+     * Tests that the report of an order done for the day is not evicted as a closed order.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void testDoneForDay()
+            throws Exception
+    {
+        ReportCache.INSTANCE.setClosedReportLife(100);
+        ReportCache.INSTANCE.cache(createReport("o1",
+                                                OrderStatus.DoneForDay));
+        Thread.sleep(200);
+        ReportCache.INSTANCE.cache(createReport("o2",
+                                                OrderStatus.Filled));
+        assertNotNull(ReportCache.INSTANCE.getLatestReportFor("o1"));
+        assertEquals(0,
+                     ReportCache.INSTANCE.getEvictions());
+    }
+    /**
+     * Tests that the report of an order is evicted once the order has been replaced.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void testSuperseded()
+            throws Exception
+    {
+        ReportCache.INSTANCE.setClosedReportLife(100);
+        ReportCache.INSTANCE.cache(createReport("o1",
+                                                OrderStatus.New));
+        // the replace may still be rejected
+        ReportCache.INSTANCE.cache(createReport("o2",
+                                                "o1",
+                                                OrderStatus.PendingReplace));
+        Thread.sleep(200);
+        ReportCache.INSTANCE.cache(createReport("o3",
+                                                OrderStatus.New));
+        assertNotNull(ReportCache.INSTANCE.getLatestReportFor("o1"));
+        // the replace is accepted
+        ReportCache.INSTANCE.cache(createReport("o2",
+                                                "o1",
+                                                OrderStatus.New));
+        assertNull(ReportCache.INSTANCE.getLatestReportFor("o1"));
+        assertNotNull(ReportCache.INSTANCE.getLatestReportFor("o2"));
+        assertNotNull(ReportCache.INSTANCE.getLatestReportFor("o3"));
+        assertEquals(1,
+                     ReportCache.INSTANCE.getEvictions());
+    }
+    /**
+     * Tests that the reports of orders that are not closed are evicted once they are too old.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void testOpenReportLife()
+            throws Exception
+    {
+        ReportCache.INSTANCE.setOpenReportLife(100);
+        ReportCache.INSTANCE.cache(createReport("o1",
+                                                OrderStatus.New));
+        ReportCache.INSTANCE.cache(createReport("o2",
+                                                OrderStatus.DoneForDay));
+        Thread.sleep(200);
+        ReportCache.INSTANCE.cache(createReport("o3",
+                                                OrderStatus.PartiallyFilled));
+        assertNull(ReportCache.INSTANCE.getLatestReportFor("o1"));
+        assertNull(ReportCache.INSTANCE.getLatestReportFor("o2"));
+        assertNotNull(ReportCache.INSTANCE.getLatestReportFor("o3"));
+        assertEquals(2,
+                     ReportCache.INSTANCE.getEvictions());
+        assertEquals(1,
+                     ReportCache.INSTANCE.getSize());
+    }
+    /**
+     * Tests storing reports off-heap.
+     *
+     * @throws Exception if an unexpected error occurs
+     */
+    @Test
+    public void testOffHeap()
+            throws Exception
+    {
+        ReportCache.INSTANCE.setOffHeap(true);
+        ExecutionReport report = createReport("o1",
+                                              OrderStatus.PartiallyFilled);
+        ReportCache.INSTANCE.cache(report);
+        ExecutionReport cachedReport = ReportCache.INSTANCE.getLatestReportFor("o1");
+        assertEquals(report.getOrderID(),
+                     cachedReport.getOrderID());
+        assertEquals(report.getOrderStatus(),
+                     cachedReport.getOrderStatus());
+        assertEquals(report.getCumulativeQuantity(),
+                     cachedReport.getCumulativeQuantity());
+        assertEquals(report.getLastPrice(),
+                     cachedReport.getLastPrice());
+        long bytes = ReportCache.INSTANCE.getEstimatedBytes();
+        assertEquals(true,
+                     bytes > 0 && bytes != 2048);
+        ReportCache.INSTANCE.setOffHeap(false);
+        ReportCache.INSTANCE.cache(report);
+        assertSame(report,
+                   ReportCache.INSTANCE.getLatestReportFor("o1"));
+        assertEquals(2048,
+                     ReportCache.INSTANCE.getEstimatedBytes());
+    }
+    /**
+     * Creates an <code>ExecutionReport</code> with the given attributes.
+     *
+     * @param inOrderId a <code>String</code> value
+     * @param inOrderStatus an <code>OrderStatus</code> value
+     * @return an <code>ExecutionReport</code> value
+     * @throws Exception if an unexpected error occurs
+     */
+    private static ExecutionReport createReport(String inOrderId,
+                                                OrderStatus inOrderStatus)
+            throws Exception
+    {
+        return createReport(inOrderId,
+                            null,
+                            inOrderStatus);
+    }
+    /**
+     * Creates an <code>ExecutionReport</code> with the given attributes.
+     *
+     * @param inOrderId a <code>String</code> value
+     * @param inOriginalOrderId a <code>String</code> value or <code>null</code>
+     * @param inOrderStatus an <code>OrderStatus</code> value
+     * @return an <code>ExecutionReport</code> value
+     * @throws Exception if an unexpected error occurs
+     */
+    private static ExecutionReport createReport(String inOrderId,
+                                                String inOriginalOrderId,
+                                                OrderStatus inOrderStatus)
+            throws Exception
+    {
+        Message message = FIXVersion.FIX_SYSTEM.getMessageFactory().newExecutionReport(inOrderId,
+                                                                                       inOrderId,
+                                                                                       "exec1",
+                                                                                       inOrderStatus.getFIXValue(),
+                                                                                       Side.Buy.getFIXValue(),
+                                                                                       new BigDecimal("100"),
+                                                                                       new BigDecimal("10.5"),
+                                                                                       new BigDecimal("50"),
+                                                                                       new BigDecimal("10.25"),
+                                                                                       new BigDecimal("50"),
+                                                                                       new BigDecimal("10.25"),
+                                                                                       new Equity("METC"),
+                                                                                       "account",
+                                                                                       "text");
+        if(inOriginalOrderId != null) {
+            message.setField(new OrigClOrdID(inOriginalOrderId));
+        }
+        return Factory.getInstance().createExecutionReport(message,
+                                                           new BrokerID("broker"),
+                                                           Originator.Server,
+                                                           null,
+                                                           null);
+    }
+}
@@ -110,6 +110,27 @@ public class PersistentReportTest extends ReportsTestBase {
         assertEquals(sViewerID,p.getViewerID());
     }
 
+    /**
+     * Verify that the principals of the reports sent since a given
+     * time are loaded into a principal index.
+     *
+     * @throws Exception if there were errors
+     */
+    @Test
+    public void loadPrincipals() throws Exception {
+        OrderCancelReject reject = createCancelReject();
+        sServices.save(reject);
+        PrincipalIndex index = new PrincipalIndex(10, 0);
+        assertEquals(1, PersistentReport.loadPrincipals(index, new Date(0)));
+        assertEquals(new Principals(sActorID, sViewerID),
+                index.get(reject.getOrderID()));
+        //reports sent before the given time are not loaded
+        index = new PrincipalIndex(10, 0);
+        assertEquals(0, PersistentReport.loadPrincipals(index,
+                new Date(reject.getSendingTime().getTime() + 60000)));
+        assertNull(index.get(reject.getOrderID()));
+    }
+
     /**
      * Verify that execution report is saved and retrieved correctly.
      *
@@ -169,6 +190,43 @@ public class PersistentReportTest extends ReportsTestBase {
         assertEquals(0, query.fetch().size());
     }
 
+    /**
+     * Verifies that reports saved as a batch are saved in a single
+     * transaction.
+     *
+     * @throws Exception if there were errors
+     */
+    @Test
+    public void batchSave() throws Exception {
+        OrderCancelReject reject1 = assignID(createCancelReject());
+        ExecutionReport report2 = assignID(createExecReport("o1", null,
+                getInstrument(), Side.Buy, OrderStatus.PartiallyFilled,
+                BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE));
+        ExecutionReport report3 = assignID(createExecReport("o1", null,
+                getInstrument(), Side.Buy, OrderStatus.Filled,
+                BigDecimal.ONE, BigDecimal.ONE, BigDecimal.TEN, BigDecimal.ONE));
+        //A failed batch saves nothing
+        final List<ReportBase> failed = Arrays.<ReportBase>asList(reject1,
+                report2, removeSendingTime(assignID(createCancelReject())));
+        nonNullCVCheck("sendingTime", new Callable<Object>(){
+            public Object call() throws Exception {
+                PersistentReport.save(failed);
+                return null;
+            }
+        });
+        MultiPersistentReportQuery query = MultiPersistentReportQuery.all();
+        assertEquals(0, query.fetchCount());
+        //A successful batch saves all its reports
+        List<ExecutionReportSummary> summaries = PersistentReport.save(
+                Arrays.<ReportBase>asList(reject1, report2, report3));
+        assertEquals(3, summaries.size());
+        assertNull(summaries.get(0));
+        assertNotNull(summaries.get(1));
+        assertNotNull(summaries.get(2));
+        assertEquals(3, query.fetchCount());
+        assertRetrievedReports(query.fetch(), reject1, report2, report3);
+    }
+
     /**
      * Verifies that the ReportID assigned to the reports are always increasing
      * sequentially.
@@ -353,4 +411,11 @@ public class PersistentReportTest extends ReportsTestBase {
         return mInstrument;
     }
     private final Instrument mInstrument;
+
+    private static <T extends ReportBase> T assignID(T inReport) throws Exception {
+        ReportBaseImpl.assignReportID((ReportBaseImpl) inReport,
+                new ReportID(((BasicReportHistoryServices) sServices).
+                        getReportIDFactory().getNext()));
+        return inReport;
+    }
 }
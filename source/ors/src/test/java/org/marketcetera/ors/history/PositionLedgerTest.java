@@ -0,0 +1,295 @@
+package org.marketcetera.ors.history;
+
+import org.marketcetera.util.misc.ClassVersion;
+import org.marketcetera.core.position.PositionKey;
+import org.marketcetera.core.position.PositionKeyFactory;
+import org.marketcetera.trade.*;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/* $License$ */
+/**
+ * Tests {@link PositionLedger}.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+public class PositionLedgerTest {
+    @Test
+    public void latestReportPerChain() {
+        PositionLedger ledger = new PositionLedger();
+        equity(ledger, 1, "o1", Side.Buy, "100", OrderStatus.PartiallyFilled, 1);
+        equity(ledger, 2, "o1", Side.Buy, "150", OrderStatus.Filled, 2);
+        //older reports are ignored
+        equity(ledger, 1, "o1", Side.Buy, "100", OrderStatus.PartiallyFilled, 1);
+        //pending reports are ignored
+        equity(ledger, 3, "o1", Side.Buy, "0", OrderStatus.PendingCancel, 3);
+        equity(ledger, 4, "o2", Side.Sell, "50", OrderStatus.Filled, 4);
+        assertEquals(2, ledger.size());
+        assertPosition("100", ledger.getPosition(null, new Equity("IBM")));
+        assertPosition("150", ledger.getPosition(VIEWER, new Equity("IBM")));
+        assertPosition("-50", ledger.getPosition(OTHER_VIEWER, new Equity("IBM")));
+        assertPosition("0", ledger.getPosition(new UserID(99), new Equity("IBM")));
+        assertPosition("0", ledger.getPosition(null, new Equity("MSFT")));
+        assertEquals(new Date(4), ledger.getLatestSendingTime());
+    }
+
+    @Test
+    public void allPositions() {
+        PositionLedger ledger = new PositionLedger();
+        equity(ledger, 1, "o1", Side.Buy, "100", OrderStatus.Filled, 1);
+        ledger.apply(2, new OrderID("o2"), SecurityType.Option, "IBM",
+                "20101010", BigDecimal.TEN, OptionType.Call, "acc", "1",
+                VIEWER, Side.SellShort, new BigDecimal("5"),
+                OrderStatus.Filled, new Date(2));
+        ledger.apply(3, new OrderID("o3"), SecurityType.Future, "ES",
+                "201012", null, null, null, null,
+                VIEWER, Side.Buy, new BigDecimal("2"),
+                OrderStatus.Filled, new Date(3));
+        Map<PositionKey<Equity>, BigDecimal> equities =
+                ledger.getPositions(null, Equity.class);
+        assertEquals(1, equities.size());
+        assertPosition("100", equities.get(
+                PositionKeyFactory.createEquityKey("IBM", "acc", "1")));
+        Map<PositionKey<Option>, BigDecimal> options =
+                ledger.getPositions(VIEWER, Option.class);
+        assertEquals(1, options.size());
+        assertPosition("-5", options.get(PositionKeyFactory.createOptionKey(
+                "IBM", "20101010", new BigDecimal("10.00000"),
+                OptionType.Call, "acc", "1")));
+        assertPosition("-5", ledger.getPosition(VIEWER,
+                new Option("IBM", "20101010", BigDecimal.TEN, OptionType.Call)));
+        assertTrue(ledger.getPositions(VIEWER, Option.class, "MSFT").isEmpty());
+        assertEquals(1, ledger.getPositions(VIEWER, Option.class, "IBM").size());
+        assertEquals(1, ledger.getPositions(VIEWER, Future.class).size());
+        assertTrue(ledger.getPositions(OTHER_VIEWER, Future.class).isEmpty());
+    }
+
+    @Test
+    public void closedPositions() {
+        PositionLedger ledger = new PositionLedger();
+        equity(ledger, 1, "o1", Side.Buy, "100", OrderStatus.Filled, 1);
+        equity(ledger, 2, "o2", Side.Sell, "100", OrderStatus.Filled, 2);
+        assertPosition("0", ledger.getPosition(null, new Equity("IBM")));
+        assertTrue(ledger.getPositions(null, Equity.class).isEmpty());
+    }
+
+    @Test
+    public void boundedClosedChains() {
+        PositionLedger ledger = new PositionLedger(1);
+        equity(ledger, 1, "o1", Side.Buy, "100", OrderStatus.Filled, 1);
+        equity(ledger, 2, "o3", Side.Buy, "10", OrderStatus.PartiallyFilled, 2);
+        equity(ledger, 3, "o2", Side.Sell, "50", OrderStatus.Filled, 3);
+        //o1 is no longer tracked but still contributes
+        assertEquals(2, ledger.size());
+        assertPosition("60", ledger.getPosition(null, new Equity("IBM")));
+        //a late report for a tracked closed chain replaces it
+        equity(ledger, 4, "o2", Side.Sell, "60", OrderStatus.Filled, 4);
+        assertPosition("50", ledger.getPosition(null, new Equity("IBM")));
+        //closing an open chain keeps its contribution
+        equity(ledger, 5, "o3", Side.Buy, "20", OrderStatus.Canceled, 5);
+        assertEquals(1, ledger.size());
+        assertPosition("60", ledger.getPosition(null, new Equity("IBM")));
+        assertPosition("100", ledger.getPosition(VIEWER, new Equity("IBM")));
+        assertPosition("-40", ledger.getPosition(OTHER_VIEWER, new Equity("IBM")));
+    }
+
+    @Test
+    public void closedTotals() {
+        PositionLedger ledger = new PositionLedger();
+        ledger.applyClosed(SecurityType.CommonStock, "IBM", null, null, null,
+                "acc", "1", VIEWER, new BigDecimal("-30"), new Date(7));
+        equity(ledger, 1, "o1", Side.Buy, "100", OrderStatus.New, 1);
+        assertEquals(1, ledger.size());
+        assertPosition("70", ledger.getPosition(null, new Equity("IBM")));
+        assertPosition("70", ledger.getPosition(VIEWER, new Equity("IBM")));
+        assertEquals(new Date(7), ledger.getLatestSendingTime());
+    }
+
+    @Test
+    public void doneForDayIsOpen() {
+        PositionLedger ledger = new PositionLedger(0);
+        equity(ledger, 1, "o1", Side.Buy, "100", OrderStatus.DoneForDay, 1);
+        assertEquals(1, ledger.size());
+        assertTrue(ledger.isTracked(new OrderID("o1")));
+        //the order resumes on the next day
+        equity(ledger, 2, "o1", Side.Buy, "150", OrderStatus.Filled, 2);
+        assertEquals(0, ledger.size());
+        assertPosition("150", ledger.getPosition(null, new Equity("IBM")));
+    }
+
+    @Test
+    public void untrackedChains() {
+        PositionLedger ledger = new PositionLedger(0);
+        //a closed chain loaded at startup
+        ledger.applyClosed(SecurityType.CommonStock, "IBM", null, null, null,
+                "acc", "1", VIEWER, new BigDecimal("100"), new Date(3));
+        assertFalse(ledger.isTracked(new OrderID("o1")));
+        //a late report replaces the earlier contribution
+        ledger.apply(new OrderID("o1"), OrderStatus.Filled, new Date(5),
+                contribution(5, "120"), contribution(3, "100"));
+        assertFalse(ledger.isTracked(new OrderID("o1")));
+        assertPosition("120", ledger.getPosition(null, new Equity("IBM")));
+        assertPosition("120", ledger.getPosition(VIEWER, new Equity("IBM")));
+        //a report older than the earlier contribution is ignored
+        ledger.apply(new OrderID("o1"), OrderStatus.Filled, new Date(4),
+                contribution(4, "110"), contribution(5, "120"));
+        assertPosition("120", ledger.getPosition(null, new Equity("IBM")));
+        //a new chain has no earlier contribution
+        ledger.apply(new OrderID("o1"), OrderStatus.Filled, new Date(6),
+                contribution(6, "10"), null);
+        assertPosition("130", ledger.getPosition(null, new Equity("IBM")));
+    }
+
+    @Test
+    public void lateEarlierReport() {
+        PositionLedger ledger = new PositionLedger();
+        OrderID root = new OrderID("o1");
+        PositionLedger.Contribution untracked = contribution(3, "100");
+        //a chain loaded at startup
+        ledger.applyClosed(SecurityType.CommonStock, "IBM", null, null, null,
+                "acc", "1", VIEWER, new BigDecimal("100"), new Date(3));
+        //the later of two saved reports is applied first, replacing the
+        //earlier one, which has not been applied yet
+        PositionLedger.Contribution second = contribution(11, "120");
+        assertFalse(ledger.apply(root, OrderStatus.PartiallyFilled,
+                new Date(11), second, null, false));
+        assertTrue(ledger.apply(root, OrderStatus.PartiallyFilled,
+                new Date(11), second, contribution(10, "110"), true));
+        assertTrue(ledger.isTracked(root));
+        //the earlier report is counted in place of the one it replaces
+        PositionLedger.Contribution first = contribution(10, "110");
+        assertFalse(ledger.apply(root, OrderStatus.PartiallyFilled,
+                new Date(10), first, null, false));
+        assertTrue(ledger.apply(root, OrderStatus.PartiallyFilled,
+                new Date(10), first, untracked, true));
+        assertPosition("120", ledger.getPosition(null, new Equity("IBM")));
+        //once counted, it is ignored
+        assertTrue(ledger.apply(root, OrderStatus.PartiallyFilled,
+                new Date(10), contribution(10, "110"), null, false));
+        assertPosition("120", ledger.getPosition(null, new Equity("IBM")));
+    }
+
+    @Test
+    public void concurrentSaves() throws Exception {
+        final int chains = 1000;
+        final PositionLedger ledger = new PositionLedger();
+        //chains loaded at startup
+        ledger.applyClosed(SecurityType.CommonStock, "IBM", null, null, null,
+                "acc", "1", VIEWER, new BigDecimal(100 * chains), new Date(1));
+        //both reports of each chain are saved, and then applied
+        //concurrently, in any order
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread first = new Thread() {
+            @Override
+            public void run() {
+                await(start);
+                for (int i = 0; i < chains; i++) {
+                    applyRetrieving(ledger, i, 3 * i + 2, "110", 3 * i + 1, "100");
+                }
+            }
+        };
+        Thread second = new Thread() {
+            @Override
+            public void run() {
+                await(start);
+                for (int i = 0; i < chains; i++) {
+                    applyRetrieving(ledger, i, 3 * i + 3, "120", 3 * i + 2, "110");
+                }
+            }
+        };
+        first.start();
+        second.start();
+        start.countDown();
+        first.join();
+        second.join();
+        assertEquals(chains, ledger.size());
+        assertPosition(String.valueOf(120 * chains),
+                ledger.getPosition(null, new Equity("IBM")));
+    }
+
+    @Test
+    public void covers() {
+        PositionLedger ledger = new PositionLedger();
+        assertTrue(ledger.covers(new Date(0)));
+        assertFalse(ledger.covers(null));
+        equity(ledger, 1, "o1", Side.Buy, "100", OrderStatus.Filled, 10);
+        assertTrue(ledger.covers(new Date(10)));
+        assertTrue(ledger.covers(new Date(11)));
+        assertFalse(ledger.covers(new Date(9)));
+    }
+
+    @Test
+    public void matches() {
+        assertTrue(PositionLedger.matches(new BigDecimal("1.00000"), BigDecimal.ONE));
+        assertFalse(PositionLedger.matches(BigDecimal.ONE, BigDecimal.TEN));
+        PositionKey<Equity> key = PositionKeyFactory.createEquityKey("IBM", null, null);
+        assertTrue(PositionLedger.matches(
+                java.util.Collections.singletonMap(key, BigDecimal.ONE),
+                java.util.Collections.singletonMap(key, new BigDecimal("1.0"))));
+        assertFalse(PositionLedger.matches(
+                java.util.Collections.singletonMap(key, BigDecimal.ONE),
+                java.util.Collections.emptyMap()));
+    }
+
+    private static void equity(PositionLedger inLedger,
+                               long inID,
+                               String inRootID,
+                               Side inSide,
+                               String inCumQuantity,
+                               OrderStatus inStatus,
+                               long inSendingTime) {
+        inLedger.apply(inID, new OrderID(inRootID), SecurityType.CommonStock,
+                "IBM", null, null, null, "acc", "1",
+                inRootID.equals("o1") ? VIEWER : OTHER_VIEWER, inSide,
+                new BigDecimal(inCumQuantity), inStatus, new Date(inSendingTime));
+    }
+
+    /**
+     * Applies a report of the given chain, retrieving the earlier
+     * report if the ledger needs it, as the report history services
+     * do.
+     */
+    private static void applyRetrieving(PositionLedger inLedger,
+                                        int inChain,
+                                        long inID,
+                                        String inCumQuantity,
+                                        long inEarlierID,
+                                        String inEarlierCumQuantity) {
+        OrderID root = new OrderID("o" + inChain);
+        if (!inLedger.apply(root, OrderStatus.PartiallyFilled,
+                new Date(inID), contribution(inID, inCumQuantity), null, false)) {
+            inLedger.apply(root, OrderStatus.PartiallyFilled, new Date(inID),
+                    contribution(inID, inCumQuantity),
+                    contribution(inEarlierID, inEarlierCumQuantity), true);
+        }
+    }
+
+    private static void await(CountDownLatch inLatch) {
+        try {
+            inLatch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static PositionLedger.Contribution contribution(long inID,
+                                                            String inCumQuantity) {
+        return PositionLedger.contribution(inID, SecurityType.CommonStock,
+                "IBM", null, null, null, "acc", "1", VIEWER, Side.Buy,
+                new BigDecimal(inCumQuantity));
+    }
+
+    private static void assertPosition(String inExpected, BigDecimal inActual) {
+        assertEquals(0, new BigDecimal(inExpected).compareTo(inActual));
+    }
+
+    private static final UserID VIEWER = new UserID(1);
+    private static final UserID OTHER_VIEWER = new UserID(2);
+}
@@ -0,0 +1,92 @@
+package org.marketcetera.ors.history;
+
+import org.marketcetera.util.misc.ClassVersion;
+import org.marketcetera.ors.Principals;
+import org.marketcetera.trade.OrderID;
+import org.marketcetera.trade.UserID;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/* $License$ */
+/**
+ * Tests {@link PrincipalIndex}.
+ *
+ * @version $Id$
+ * @since 2.1.4
+ */
+@ClassVersion("$Id$")
+public class PrincipalIndexTest {
+    @Test
+    public void lookups() {
+        PrincipalIndex index = new PrincipalIndex(10, 0);
+        assertNull(index.get(new OrderID("o1")));
+        assertNull(index.get(null));
+        index.put(new OrderID("o1"), PRINCIPALS, 1);
+        //unknown principals are not indexed
+        index.put(new OrderID("o2"), Principals.UNKNOWN, 1);
+        index.put(null, PRINCIPALS, 1);
+        index.put(new OrderID("o3"), null, 1);
+        assertEquals(1, index.size());
+        assertEquals(PRINCIPALS, index.get(new OrderID("o1")));
+        assertNull(index.get(new OrderID("o2")));
+        assertEquals(1, index.getHits());
+        assertEquals(3, index.getMisses());
+        //the same principals are not added twice
+        index.put(new OrderID("o1"), new Principals(ACTOR, VIEWER), 2);
+        assertEquals(1, index.size());
+        //different principals replace the old ones
+        Principals other = new Principals(ACTOR, null);
+        index.put(new OrderID("o1"), other, 3);
+        assertEquals(1, index.size());
+        assertEquals(other, index.get(new OrderID("o1")));
+        assertEquals(0, index.getEvictions());
+    }
+
+    @Test
+    public void maxSize() {
+        PrincipalIndex index = new PrincipalIndex(3, 0);
+        for(int i = 1; i <= 5; i++) {
+            index.put(new OrderID("o" + i), PRINCIPALS, i);
+        }
+        assertEquals(3, index.size());
+        assertEquals(2, index.getEvictions());
+        assertNull(index.get(new OrderID("o1")));
+        assertNull(index.get(new OrderID("o2")));
+        assertEquals(PRINCIPALS, index.get(new OrderID("o3")));
+        assertEquals(PRINCIPALS, index.get(new OrderID("o5")));
+        //a replaced entry is not evicted in place of its replacement
+        Principals other = new Principals(null, VIEWER);
+        index.put(new OrderID("o3"), other, 6);
+        index.put(new OrderID("o6"), PRINCIPALS, 7);
+        assertEquals(3, index.size());
+        assertEquals(3, index.getEvictions());
+        assertEquals(other, index.get(new OrderID("o3")));
+        assertNull(index.get(new OrderID("o4")));
+        assertEquals(PRINCIPALS, index.get(new OrderID("o6")));
+    }
+
+    @Test
+    public void maxAge() {
+        PrincipalIndex index = new PrincipalIndex(10, 100);
+        index.put(new OrderID("o1"), PRINCIPALS, 1000);
+        index.put(new OrderID("o2"), PRINCIPALS, 1050);
+        index.put(new OrderID("o3"), PRINCIPALS, 1100);
+        assertEquals(3, index.size());
+        index.put(new OrderID("o4"), PRINCIPALS, 1101);
+        assertEquals(3, index.size());
+        assertNull(index.get(new OrderID("o1")));
+        index.put(new OrderID("o5"), PRINCIPALS, 1300);
+        assertEquals(1, index.size());
+        assertEquals(PRINCIPALS, index.get(new OrderID("o5")));
+        assertEquals(4, index.getEvictions());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidMaxSize() {
+        new PrincipalIndex(0, 0);
+    }
+
+    private static final UserID ACTOR = new UserID(1);
+    private static final UserID VIEWER = new UserID(2);
+    private static final Principals PRINCIPALS = new Principals(ACTOR, VIEWER);
+}
@@ -67,6 +67,26 @@ public abstract class ReportHistoryTestBase<I extends Instrument> extends Report
         assertEquals(0,sServices.getReportsSince(sActor,after).length);
         assertEquals(0,sServices.getReportsSince(sExtraUser,after).length);
 
+        //Fetch the reports one page at a time
+        ReportBaseImpl[] all = sServices.getReportsSince(sActor,before);
+        ReportID afterID = null;
+        int count = 0;
+        while (true) {
+            ReportBaseImpl[] page = sServices.getReportsSince(sActor,before,afterID,3);
+            for(ReportBaseImpl report: page) {
+                assertEquals(all[count++].getReportID(), report.getReportID());
+            }
+            if(page.length < 3) {
+                break;
+            }
+            afterID = page[page.length - 1].getReportID();
+        }
+        assertEquals(22,count);
+        assertEquals(22,sServices.getReportsSince(sActor,before,null,0).length);
+        assertEquals(0,sServices.getReportsSince(sActor,before,
+                all[all.length - 1].getReportID(),3).length);
+        assertEquals(0,sServices.getReportsSince(sViewer,after,null,3).length);
+
         assertBigDecimalEquals
             (mExpectedPosition, getInstrumentPosition(after,instrument));
         assertBigDecimalEquals
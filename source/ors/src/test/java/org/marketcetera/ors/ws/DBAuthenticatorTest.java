@@ -46,6 +46,8 @@ public class DBAuthenticatorTest
         assertFalse(DBAuthenticator.compatibleApp(""));
         assertFalse(DBAuthenticator.compatibleApp("x"));
         assertTrue(DBAuthenticator.compatibleApp(ClientVersion.APP_ID_NAME));
+        assertTrue(DBAuthenticator.compatibleApp
+                   (ClientVersion.APP_ID_NAME_BINARY));
     }
 
     @Test
@@ -14,6 +14,7 @@ import org.marketcetera.client.Client;
 import org.marketcetera.client.ClientInitException;
 import org.marketcetera.client.ClientManager;
 import org.marketcetera.client.ConnectionException;
+import org.marketcetera.client.ReportPageRetriever;
 import org.marketcetera.core.instruments.UnderlyingSymbolSupport;
 import org.marketcetera.core.position.ImmutablePositionSupport;
 import org.marketcetera.core.position.PositionEngine;
@@ -60,25 +61,31 @@ public class RetrieveTradingHistoryJob extends Job {
 						.getTradeReportsHistory();
 				final Date lastOccurrence = time.getLastOccurrence();
 				try {
-					tradeReportsHistory.resetMessages(new Callable<ReportBase[]>() {
+					// each page is added to the history as soon as it is retrieved
+					tradeReportsHistory.resetMessagesByPage(new Callable<ReportBase[]>() {
+
+						private ReportPageRetriever mPages;
 
 						@Override
 						public ReportBase[] call() {
-							Client client;
-							try {
-								client = ClientManager.getInstance();
-							} catch (ClientInitException e) {
-								// no longer connected
-								SLF4JLoggerProxy
-										.debug(this,
-												"Aborting history retrieval since server connection is not available"); //$NON-NLS-1$
-								return new ReportBase[0];
+							if (mPages == null) {
+								Client client;
+								try {
+									client = ClientManager.getInstance();
+								} catch (ClientInitException e) {
+									// no longer connected
+									SLF4JLoggerProxy
+											.debug(this,
+													"Aborting history retrieval since server connection is not available"); //$NON-NLS-1$
+									return null;
+								}
+								mPages = new ReportPageRetriever(client, lastOccurrence);
 							}
 							try {
-								return client.getReportsSince(lastOccurrence);
+								return mPages.next();
 							} catch (ConnectionException e) {
 								Messages.RETRIEVE_TRADING_HISTORY_JOB_ERROR.error(this, e);
-								return new ReportBase[0];
+								return null;
 							}
 						}
 					});
@@ -22,6 +22,7 @@ import org.marketcetera.core.ApplicationVersion;
 import org.marketcetera.core.Util;
 import org.marketcetera.core.publisher.IPublisher;
 import org.marketcetera.core.publisher.ISubscriber;
+import org.marketcetera.core.publisher.OverflowPolicy;
 import org.marketcetera.core.publisher.PublisherEngine;
 import org.marketcetera.module.*;
 import org.marketcetera.saclient.SAClientVersion;
@@ -537,9 +538,14 @@ public class StrategyAgent
     private volatile ClassPathXmlApplicationContext mContext;
     private volatile Server<ClientSession> mServer;
     /**
-     * used to publish data received to interested subscribers
+     * used to publish data received to interested subscribers in the order in which it is received
      */
-    private final PublisherEngine dataPublisher = new PublisherEngine();
+    private final PublisherEngine dataPublisher = new PublisherEngine(DATA_QUEUE_CAPACITY,
+                                                                      OverflowPolicy.BLOCK);
+    /**
+     * the maximum number of data items awaiting delivery to subscribers
+     */
+    private static final int DATA_QUEUE_CAPACITY = 10000;
     /**
      * extra context classes to add to the server context
      */
@@ -0,0 +1,614 @@
+package org.marketcetera.util.log;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.marketcetera.util.misc.ClassVersion;
+
+/**
+ * Moves the formatting and output of internationalized log messages
+ * off the threads that log them. Once the dispatcher is started, each
+ * message logged via an {@link I18NLoggerProxy} at an enabled level
+ * is placed, along with its parameters, in a bounded ring, and a
+ * single background thread formats and outputs the messages in the
+ * order in which they were placed in the ring. If the ring is full,
+ * the logging thread waits until the background thread frees a slot,
+ * so that messages stay in order.
+ *
+ * <p>Placing a message in the ring requires no locks: the ring's
+ * slots are allocated when the dispatcher is started and reused
+ * thereafter. Message parameters which are strings, numbers of the
+ * standard immutable types, booleans, characters or enumerated values
+ * are placed in the ring as is; dates are copied, and all other
+ * parameters are converted to strings by the logging thread, since
+ * they may be modified once they are logged. Hence the message
+ * parameters are only copied into a new array if some parameter is
+ * converted or copied. The message is formatted in the locale that
+ * is active, per {@link ActiveLocale}, at the time it is logged.</p>
+ *
+ * <p>Log messages are output by the background thread; hence the
+ * thread name and caller location recorded by the logging system
+ * refer to that thread, not the logging thread. Messages logged by
+ * the background thread itself, for example by a logging appender,
+ * are logged synchronously.</p>
+ *
+ * <p>The dispatcher is started when this class is loaded if the
+ * system property {@link #CAPACITY_PROPERTY} is set to a positive
+ * integer, and it is stopped, after logging all pending messages,
+ * when the JVM shuts down.</p>
+ *
+ * @since 2.1.4
+ * @version $Id$
+ */
+
+/* $License$ */
+
+@ClassVersion("$Id$")
+public final class AsyncLogDispatcher
+{
+
+    // CLASS DATA.
+
+    /**
+     * The name of the system property which, if set to a positive
+     * integer, causes the dispatcher to be started, with a ring of
+     * (at least) that many slots, when this class is loaded.
+     */
+
+    public static final String CAPACITY_PROPERTY=
+        "log.async.capacity"; //$NON-NLS-1$
+
+    /**
+     * The number of slots in the ring unless otherwise specified.
+     */
+
+    public static final int DEFAULT_CAPACITY=
+        8192;
+
+    /**
+     * The name of the background thread.
+     */
+
+    private static final String THREAD_NAME=
+        "AsyncLogDispatcher"; //$NON-NLS-1$
+
+    /**
+     * Hard-coded message text for failures of the background thread,
+     * which cannot rely on the message maps.
+     */
+
+    private static final String UNEXPECTED_EXCEPTION=
+        "Abnormal exception: asynchronous logging failed"; //$NON-NLS-1$
+
+    /**
+     * The time the background thread waits for new messages when the
+     * ring is empty, in ns.
+     */
+
+    private static final long IDLE_WAIT=
+        1000000L;
+
+    /**
+     * The time a logging thread waits for a free slot when the ring
+     * is full, in ns.
+     */
+
+    private static final long FULL_WAIT=
+        100000L;
+
+    /**
+     * The logging levels.
+     */
+
+    static enum Level
+    {
+        ERROR,
+        WARN,
+        INFO,
+        DEBUG,
+        TRACE
+    }
+
+    /**
+     * A slot of the ring.
+     */
+
+    @ClassVersion("$Id$")
+    private static final class Slot
+    {
+
+        // INSTANCE DATA.
+
+        /*
+         * The sequence number of the slot: equal to the slot's
+         * position when the slot is free for that position, and one
+         * past the slot's position when the slot holds the message
+         * at that position. Writing it publishes the other fields.
+         */
+
+        private volatile long mSequence;
+        private Level mLevel;
+        private String mProxy;
+        private Object mCategory;
+        private Throwable mThrowable;
+        private I18NMessageProvider mProvider;
+        private I18NMessage mMessage;
+        private Object[] mParams;
+        private Locale mLocale;
+
+
+        // CONSTRUCTORS.
+
+        /**
+         * Creates a new slot, free for the given position.
+         *
+         * @param position The position.
+         */
+
+        Slot
+            (long position)
+        {
+            mSequence=position;
+        }
+
+
+        // INSTANCE METHODS.
+
+        /**
+         * Releases the references held by the receiver.
+         */
+
+        void clear()
+        {
+            mProxy=null;
+            mCategory=null;
+            mThrowable=null;
+            mProvider=null;
+            mMessage=null;
+            mParams=null;
+            mLocale=null;
+        }
+    }
+
+    private static final AtomicLong sOverflows=
+        new AtomicLong();
+    private static volatile AsyncLogDispatcher sInstance;
+    private static Thread sShutdownHook;
+
+    static {
+        Integer capacity=Integer.getInteger(CAPACITY_PROPERTY);
+        if ((capacity!=null) && (capacity>0)) {
+            start(capacity);
+        }
+    }
+
+
+    // INSTANCE DATA.
+
+    private final Slot[] mSlots;
+    private final int mMask;
+    private final AtomicLong mTail=
+        new AtomicLong();
+    private long mHead;
+    private final Thread mThread;
+    private volatile boolean mStopping;
+
+
+    // CONSTRUCTORS.
+
+    /**
+     * Creates a new dispatcher with a ring of the given number of
+     * slots.
+     *
+     * @param capacity The number of slots, a power of two no smaller
+     * than 2.
+     */
+
+    private AsyncLogDispatcher
+        (int capacity)
+    {
+        mSlots=new Slot[capacity];
+        for (int i=0;i<capacity;i++) {
+            mSlots[i]=new Slot(i);
+        }
+        mMask=capacity-1;
+        mThread=new Thread(THREAD_NAME) {
+            @Override
+            public void run()
+            {
+                dispatchAll();
+            }
+        };
+        mThread.setDaemon(true);
+    }
+
+
+    // CLASS METHODS.
+
+    /**
+     * Starts the dispatcher with a ring of the given number of slots,
+     * rounded up to a power of two. If the dispatcher is already
+     * running, it is stopped first.
+     *
+     * @param capacity The number of slots.
+     *
+     * @throws IllegalArgumentException Thrown if the number of slots
+     * is not positive.
+     */
+
+    public static synchronized void start
+        (int capacity)
+    {
+        if (capacity<=0) {
+            throw new IllegalArgumentException();
+        }
+        stop();
+        int size=2;
+        while ((size<capacity) && (size<(1<<30))) {
+            size<<=1;
+        }
+        AsyncLogDispatcher dispatcher=new AsyncLogDispatcher(size);
+        dispatcher.mThread.start();
+        sInstance=dispatcher;
+        if (sShutdownHook==null) {
+            sShutdownHook=new Thread() {
+                @Override
+                public void run()
+                {
+                    stop();
+                }
+            };
+            Runtime.getRuntime().addShutdownHook(sShutdownHook);
+        }
+    }
+
+    /**
+     * Starts the dispatcher with a ring of {@link #DEFAULT_CAPACITY}
+     * slots. If the dispatcher is already running, it is stopped
+     * first.
+     */
+
+    public static void start()
+    {
+        start(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Stops the dispatcher, if it is running, after its background
+     * thread logs all pending messages. Messages logged after this
+     * method returns are logged synchronously; messages logged while
+     * this method executes, including those waiting for a free slot,
+     * may be logged out of order or lost.
+     */
+
+    public static synchronized void stop()
+    {
+        AsyncLogDispatcher dispatcher=sInstance;
+        if (dispatcher==null) {
+            return;
+        }
+        sInstance=null;
+        dispatcher.mStopping=true;
+        LockSupport.unpark(dispatcher.mThread);
+        boolean interrupted=false;
+        while (dispatcher.mThread.isAlive()) {
+            try {
+                dispatcher.mThread.join();
+            } catch (InterruptedException ex) {
+                interrupted=true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns true if the dispatcher is running.
+     *
+     * @return True if so.
+     */
+
+    public static boolean isStarted()
+    {
+        return (sInstance!=null);
+    }
+
+    /**
+     * Returns the number of messages whose logging thread had to wait
+     * for a free slot, while the dispatcher was running, because its
+     * ring was full.
+     *
+     * @return The number of messages.
+     */
+
+    public static long getOverflowCount()
+    {
+        return sOverflows.get();
+    }
+
+    /**
+     * Places the given parameterized message and throwable, logged
+     * under the given logging category at the given level via the
+     * given logging proxy, in the ring of the running dispatcher.
+     *
+     * @param level The level.
+     * @param proxy The proxy.
+     * @param category The category.
+     * @param throwable The throwable. It may be null.
+     * @param provider The message provider.
+     * @param message The message.
+     * @param params The message parameters.
+     *
+     * @return True if the message was placed in the ring, false if
+     * the dispatcher is not running, is stopping, its background
+     * thread has terminated, or the caller is the dispatcher's
+     * background thread, in which case the caller should log the
+     * message itself.
+     */
+
+    static boolean dispatch
+        (Level level,
+         String proxy,
+         Object category,
+         Throwable throwable,
+         I18NMessageProvider provider,
+         I18NMessage message,
+         Object[] params)
+    {
+        AsyncLogDispatcher dispatcher=sInstance;
+        if ((dispatcher==null) ||
+            (Thread.currentThread()==dispatcher.mThread)) {
+            return false;
+        }
+        return dispatcher.offer(level,proxy,category,throwable,
+                                provider,message,snapshot(params));
+    }
+
+    /**
+     * Returns the given message parameters, with each parameter that
+     * may be modified once it is logged replaced by a copy or by its
+     * string representation.
+     *
+     * @param params The message parameters. It may be null.
+     *
+     * @return The parameters: the given array if no parameter was
+     * replaced, a new array otherwise.
+     */
+
+    static Object[] snapshot
+        (Object[] params)
+    {
+        if (params==null) {
+            return null;
+        }
+        Object[] result=params;
+        for (int i=0;i<params.length;i++) {
+            Object param=params[i];
+            if (isImmutable(param)) {
+                continue;
+            }
+            if (result==params) {
+                result=params.clone();
+            }
+            if (param instanceof Date) {
+                result[i]=((Date)param).clone();
+            } else {
+                result[i]=String.valueOf(param);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if the given message parameter cannot be modified
+     * once it is logged.
+     *
+     * @param param The parameter. It may be null.
+     *
+     * @return True if so.
+     */
+
+    private static boolean isImmutable
+        (Object param)
+    {
+        return ((param==null) ||
+                (param instanceof String) ||
+                (param instanceof Integer) ||
+                (param instanceof Long) ||
+                (param instanceof Double) ||
+                (param instanceof Float) ||
+                (param instanceof Short) ||
+                (param instanceof Byte) ||
+                (param instanceof BigDecimal) ||
+                (param instanceof BigInteger) ||
+                (param instanceof Boolean) ||
+                (param instanceof Character) ||
+                (param instanceof Enum<?>));
+    }
+
+
+    // INSTANCE METHODS.
+
+    /**
+     * Places the given message in the receiver's ring, waiting for a
+     * free slot if the ring is full.
+     *
+     * @see #dispatch(Level,String,Object,Throwable,I18NMessageProvider,I18NMessage,Object[])
+     */
+
+    private boolean offer
+        (Level level,
+         String proxy,
+         Object category,
+         Throwable throwable,
+         I18NMessageProvider provider,
+         I18NMessage message,
+         Object[] params)
+    {
+        boolean waited=false;
+        long position=mTail.get();
+        while (true) {
+            if (mStopping || !mThread.isAlive()) {
+                return false;
+            }
+            Slot slot=mSlots[(int)(position&mMask)];
+            long difference=slot.mSequence-position;
+            if (difference<0) {
+                // The slot still holds the message one lap behind.
+                if (!waited) {
+                    sOverflows.incrementAndGet();
+                    waited=true;
+                }
+                LockSupport.parkNanos(FULL_WAIT);
+                position=mTail.get();
+                continue;
+            }
+            if ((difference==0) &&
+                mTail.compareAndSet(position,position+1)) {
+                slot.mLevel=level;
+                slot.mProxy=proxy;
+                slot.mCategory=category;
+                slot.mThrowable=throwable;
+                slot.mProvider=provider;
+                slot.mMessage=message;
+                slot.mParams=params;
+                slot.mLocale=ActiveLocale.getLocale();
+                slot.mSequence=position+1;
+                return true;
+            }
+            position=mTail.get();
+        }
+    }
+
+    /**
+     * Logs all the messages published in the receiver's ring, in
+     * order.
+     *
+     * @return True if any messages were logged.
+     */
+
+    private boolean drain()
+    {
+        boolean drained=false;
+        while (true) {
+            Slot slot=mSlots[(int)(mHead&mMask)];
+            if (slot.mSequence!=mHead+1) {
+                return drained;
+            }
+            try {
+                log(slot);
+            } catch (Throwable t) {
+                reportFailure(t);
+            }
+            slot.clear();
+            slot.mSequence=mHead+mMask+1;
+            mHead++;
+            drained=true;
+        }
+    }
+
+    /**
+     * Logs the messages published in the receiver's ring as they are
+     * published, until the receiver is stopped and its ring is
+     * empty. This method is executed by the receiver's background
+     * thread.
+     */
+
+    private void dispatchAll()
+    {
+        while (true) {
+            boolean stopping=mStopping;
+            try {
+                if (drain()) {
+                    continue;
+                }
+            } catch (Throwable t) {
+                reportFailure(t);
+                continue;
+            }
+            if (mTail.get()!=mHead) {
+                // A message is being placed in the ring.
+                Thread.yield();
+                continue;
+            }
+            if (stopping) {
+                return;
+            }
+            LockSupport.parkNanos(IDLE_WAIT);
+        }
+    }
+
+    /**
+     * Logs the given failure of the background thread, if possible,
+     * without letting any further failure terminate the thread.
+     *
+     * @param t The failure.
+     */
+
+    private void reportFailure
+        (Throwable t)
+    {
+        try {
+            SLF4JLoggerProxy.error(this,UNEXPECTED_EXCEPTION,t);
+        } catch (Throwable ignored) {
+            // Nothing else can be done.
+        }
+    }
+
+    /**
+     * Formats and outputs the message held by the given slot.
+     *
+     * @param slot The slot.
+     */
+
+    private static void log
+        (Slot slot)
+    {
+        String text=slot.mProvider.getText
+            (slot.mLocale,slot.mMessage,slot.mParams);
+        String proxy=slot.mProxy;
+        Object category=slot.mCategory;
+        Throwable throwable=slot.mThrowable;
+        switch (slot.mLevel) {
+        case ERROR:
+            if (throwable==null) {
+                SLF4JLoggerProxy.errorProxy(proxy,category,text);
+            } else {
+                SLF4JLoggerProxy.errorProxy(proxy,category,text,throwable);
+            }
+            break;
+        case WARN:
+            if (throwable==null) {
+                SLF4JLoggerProxy.warnProxy(proxy,category,text);
+            } else {
+                SLF4JLoggerProxy.warnProxy(proxy,category,text,throwable);
+            }
+            break;
+        case INFO:
+            if (throwable==null) {
+                SLF4JLoggerProxy.infoProxy(proxy,category,text);
+            } else {
+                SLF4JLoggerProxy.infoProxy(proxy,category,text,throwable);
+            }
+            break;
+        case DEBUG:
+            if (throwable==null) {
+                SLF4JLoggerProxy.debugProxy(proxy,category,text);
+            } else {
+                SLF4JLoggerProxy.debugProxy(proxy,category,text,throwable);
+            }
+            break;
+        default:
+            if (throwable==null) {
+                SLF4JLoggerProxy.traceProxy(proxy,category,text);
+            } else {
+                SLF4JLoggerProxy.traceProxy(proxy,category,text,throwable);
+            }
+        }
+    }
+
+}
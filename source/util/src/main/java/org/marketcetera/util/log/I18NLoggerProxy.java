@@ -6,6 +6,11 @@ import org.marketcetera.util.misc.ClassVersion;
 
 /**
  * A logger which supports internationalized messages.
+ *
+ * <p>While an {@link AsyncLogDispatcher} is running, messages are
+ * formatted and output by its background thread; message parameters
+ * which may be modified once they are logged are converted to strings
+ * by the logging thread.</p>
  * 
  * @author tlerios@marketcetera.com
  * @since 0.5.0
@@ -126,6 +131,11 @@ public class I18NLoggerProxy
         if (!SLF4JLoggerProxy.isErrorEnabled(category)) {
             return;
         }
+        if (AsyncLogDispatcher.dispatch
+            (AsyncLogDispatcher.Level.ERROR,proxy,category,throwable,
+             getMessageProvider(),message,params)) {
+            return;
+        }
         SLF4JLoggerProxy.errorProxy
             (proxy,category,getMessageProvider().getText(message,params),
              throwable);
@@ -173,6 +183,11 @@ public class I18NLoggerProxy
         if (!SLF4JLoggerProxy.isErrorEnabled(category)) {
             return;
         }
+        if (AsyncLogDispatcher.dispatch
+            (AsyncLogDispatcher.Level.ERROR,proxy,category,null,
+             getMessageProvider(),message,params)) {
+            return;
+        }
         SLF4JLoggerProxy.errorProxy
             (proxy,category,getMessageProvider().getText(message,params));
     }
@@ -256,6 +271,11 @@ public class I18NLoggerProxy
         if (!SLF4JLoggerProxy.isWarnEnabled(category)) {
             return;
         }
+        if (AsyncLogDispatcher.dispatch
+            (AsyncLogDispatcher.Level.WARN,proxy,category,throwable,
+             getMessageProvider(),message,params)) {
+            return;
+        }
         SLF4JLoggerProxy.warnProxy
             (proxy,category,getMessageProvider().getText(message,params),
              throwable);
@@ -303,6 +323,11 @@ public class I18NLoggerProxy
         if (!SLF4JLoggerProxy.isWarnEnabled(category)) {
             return;
         }
+        if (AsyncLogDispatcher.dispatch
+            (AsyncLogDispatcher.Level.WARN,proxy,category,null,
+             getMessageProvider(),message,params)) {
+            return;
+        }
         SLF4JLoggerProxy.warnProxy
             (proxy,category,getMessageProvider().getText(message,params));
     }
@@ -389,6 +414,11 @@ public class I18NLoggerProxy
         if (!SLF4JLoggerProxy.isInfoEnabled(category)) {
             return;
         }
+        if (AsyncLogDispatcher.dispatch
+            (AsyncLogDispatcher.Level.INFO,proxy,category,throwable,
+             getMessageProvider(),message,params)) {
+            return;
+        }
         SLF4JLoggerProxy.infoProxy
             (proxy,category,getMessageProvider().getText(message,params),
              throwable);
@@ -436,6 +466,11 @@ public class I18NLoggerProxy
         if (!SLF4JLoggerProxy.isInfoEnabled(category)) {
             return;
         }
+        if (AsyncLogDispatcher.dispatch
+            (AsyncLogDispatcher.Level.INFO,proxy,category,null,
+             getMessageProvider(),message,params)) {
+            return;
+        }
         SLF4JLoggerProxy.infoProxy
             (proxy,category,getMessageProvider().getText(message,params));
     }
@@ -520,6 +555,11 @@ public class I18NLoggerProxy
         if (!SLF4JLoggerProxy.isDebugEnabled(category)) {
             return;
         }
+        if (AsyncLogDispatcher.dispatch
+            (AsyncLogDispatcher.Level.DEBUG,proxy,category,throwable,
+             getMessageProvider(),message,params)) {
+            return;
+        }
         SLF4JLoggerProxy.debugProxy
             (proxy,category,getMessageProvider().getText(message,params),
              throwable);
@@ -567,6 +607,11 @@ public class I18NLoggerProxy
         if (!SLF4JLoggerProxy.isDebugEnabled(category)) {
             return;
         }
+        if (AsyncLogDispatcher.dispatch
+            (AsyncLogDispatcher.Level.DEBUG,proxy,category,null,
+             getMessageProvider(),message,params)) {
+            return;
+        }
         SLF4JLoggerProxy.debugProxy
             (proxy,category,getMessageProvider().getText(message,params));
     }
@@ -651,6 +696,11 @@ public class I18NLoggerProxy
         if (!SLF4JLoggerProxy.isTraceEnabled(category)) {
             return;
         }
+        if (AsyncLogDispatcher.dispatch
+            (AsyncLogDispatcher.Level.TRACE,proxy,category,throwable,
+             getMessageProvider(),message,params)) {
+            return;
+        }
         SLF4JLoggerProxy.traceProxy
             (proxy,category,getMessageProvider().getText(message,params),
              throwable);
@@ -698,6 +748,11 @@ public class I18NLoggerProxy
         if (!SLF4JLoggerProxy.isTraceEnabled(category)) {
             return;
         }
+        if (AsyncLogDispatcher.dispatch
+            (AsyncLogDispatcher.Level.TRACE,proxy,category,null,
+             getMessageProvider(),message,params)) {
+            return;
+        }
         SLF4JLoggerProxy.traceProxy
             (proxy,category,getMessageProvider().getText(message,params));
     }
@@ -5,6 +5,8 @@ import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.text.MessageFormat;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.apache.commons.i18n.MessageManager;
 import org.apache.commons.i18n.MessageNotFoundException;
 import org.apache.commons.i18n.ResourceBundleMessageProvider;
@@ -25,6 +27,11 @@ import org.marketcetera.util.misc.ClassVersion;
  * classloader as during serialization, and hence may be unable to
  * access the same message files as were available during
  * serialization. If this happens, deserialization will fail.</p>
+ *
+ * <p>The text of each message is parsed once per locale, upon its
+ * first retrieval, and the parsed form is reused by later
+ * retrievals. The parsed forms are discarded if the default JVM
+ * locale changes, since it determines the fallback locale.</p>
  * 
  * @author tlerios@marketcetera.com
  * @since 0.5.0
@@ -69,10 +76,45 @@ public class I18NMessageProvider
     private static final String CORRUPTED_STORE=
         "Corrupted/unavailable message map"; //$NON-NLS-1$
 
+    /**
+     * The parsed forms of the messages retrieved while the default
+     * JVM locale was a given one, keyed by locale and message.
+     */
+
+    @ClassVersion("$Id$")
+    private static final class FormatCache
+    {
+
+        // INSTANCE DATA.
+
+        private final Locale mDefaultLocale;
+        private final ConcurrentMap
+            <Locale,ConcurrentMap<I18NMessage,MessageFormat>> mFormats=
+            new ConcurrentHashMap
+            <Locale,ConcurrentMap<I18NMessage,MessageFormat>>();
+
+
+        // CONSTRUCTORS.
+
+        /**
+         * Creates a new, empty cache.
+         *
+         * @param defaultLocale The default JVM locale.
+         */
+
+        FormatCache
+            (Locale defaultLocale)
+        {
+            mDefaultLocale=defaultLocale;
+        }
+    }
+
 
     // INSTANCE DATA.
 
     private String mProviderId;
+    private transient ResourceBundleMessageProvider mProvider;
+    private transient volatile FormatCache mFormatCache;
 
 
     // CONSTRUCTORS.
@@ -144,6 +186,7 @@ public class I18NMessageProvider
                 (getBaseName(),classLoader);
         }
         MessageManager.addMessageProvider(getProviderId(),provider);
+        mProvider=provider;
     }
 
     /**
@@ -168,6 +211,55 @@ public class I18NMessageProvider
         return getProviderId()+MESSAGE_FILE_EXTENSION;
     }
 
+    /**
+     * Returns the parsed form of the given message in the given
+     * locale, parsing and caching it if it has not been retrieved
+     * before.
+     *
+     * @param locale The locale.
+     * @param message The message.
+     *
+     * @return The parsed form. Callers must synchronize on it while
+     * using it.
+     *
+     * @throws MessageNotFoundException Thrown if the message cannot
+     * be found.
+     */
+
+    private MessageFormat getFormat
+        (Locale locale,
+         I18NMessage message)
+        throws MessageNotFoundException
+    {
+        FormatCache cache=mFormatCache;
+        Locale defaultLocale=Locale.getDefault();
+        if ((cache==null) || !cache.mDefaultLocale.equals(defaultLocale)) {
+            cache=new FormatCache(defaultLocale);
+            mFormatCache=cache;
+        }
+        ConcurrentMap<I18NMessage,MessageFormat> formats=
+            cache.mFormats.get(locale);
+        if (formats==null) {
+            formats=new ConcurrentHashMap<I18NMessage,MessageFormat>();
+            ConcurrentMap<I18NMessage,MessageFormat> existing=
+                cache.mFormats.putIfAbsent(locale,formats);
+            if (existing!=null) {
+                formats=existing;
+            }
+        }
+        MessageFormat format=formats.get(message);
+        if (format==null) {
+            format=new MessageFormat
+                (mProvider.getText
+                 (message.getMessageId(),message.getEntryId(),locale));
+            MessageFormat existing=formats.putIfAbsent(message,format);
+            if (existing!=null) {
+                format=existing;
+            }
+        }
+        return format;
+    }
+
     /**
      * Java deserialization. Reads a receiver instance from the given
      * stream.
@@ -216,8 +308,14 @@ public class I18NMessageProvider
         String entryId=message.getEntryId();
         try {
             //throw new IllegalArgumentException(); // EXTREME TEST 2.
-            return MessageManager.getText
-                (getProviderId(),messageId,entryId,params,locale);
+            if (mProvider==null) {
+                return MessageManager.getText
+                    (getProviderId(),messageId,entryId,params,locale);
+            }
+            MessageFormat format=getFormat(locale,message);
+            synchronized (format) {
+                return format.format(params);
+            }
         } catch (Exception ex) {
             ExceptUtils.interrupt(ex);
 
@@ -33,10 +33,25 @@ public class NamedThreadFactory implements ThreadFactory {
      * created by this factory. Cannot be null.
      */
     public NamedThreadFactory(String inNamePrefix) {
+        this(inNamePrefix, false);
+    }
+
+    /**
+     * Creates an instance that will create threads whose names begin with
+     * the specified prefix, and that are optionally daemon threads.
+     * Daemon threads do not prevent the JVM from exiting.
+     *
+     * @param inNamePrefix the prefix to use for naming every thread
+     * created by this factory. Cannot be null.
+     * @param inDaemon true if the created threads should be daemon
+     * threads.
+     */
+    public NamedThreadFactory(String inNamePrefix, boolean inDaemon) {
         if(inNamePrefix == null) {
             throw new NullPointerException();
         }
         mNamePrefix = inNamePrefix;
+        mDaemon = inDaemon;
         mDelegate =  Executors.defaultThreadFactory();
     }
 
@@ -44,9 +59,13 @@ public class NamedThreadFactory implements ThreadFactory {
     public Thread newThread(Runnable r) {
         Thread t = mDelegate.newThread(r);
         t.setName(mNamePrefix + mThreadNumber.getAndIncrement());
+        if(mDaemon) {
+            t.setDaemon(true);
+        }
         return t;
     }
     private final String mNamePrefix;
+    private final boolean mDaemon;
     private final AtomicInteger mThreadNumber = new AtomicInteger(1);
     private final ThreadFactory mDelegate;
 }
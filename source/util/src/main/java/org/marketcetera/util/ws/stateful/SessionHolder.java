@@ -1,5 +1,6 @@
 package org.marketcetera.util.ws.stateful;
 
+import java.util.concurrent.atomic.AtomicLong;
 import org.marketcetera.util.misc.ClassVersion;
 import org.marketcetera.util.ws.stateless.StatelessClientContext;
 
@@ -22,12 +23,24 @@ import org.marketcetera.util.ws.stateless.StatelessClientContext;
 public class SessionHolder<T>
 {
 
+    // CLASS DATA.
+
+    /**
+     * The access timestamp of a holder whose session has expired or
+     * was removed.
+     */
+
+    static final long EXPIRED=
+        -1;
+
+
     // INSTANCE DATA.
 
     private final String mUser;
     private final StatelessClientContext mCreationContext;
-    private long mLastAccess;
-    private T mSession;
+    private final AtomicLong mLastAccess=
+        new AtomicLong();
+    private volatile T mSession;
 
 
     // CONSTRUCTORS.
@@ -75,23 +88,72 @@ public class SessionHolder<T>
 
     /**
      * Sets the receiver's most recent access timestamp to the present
-     * time.
+     * time, unless the receiver's session has expired.
+     *
+     * @return True if the access was recorded, false if the session
+     * has expired.
+     */
+
+    boolean markAccess()
+    {
+        long now=System.currentTimeMillis();
+        while (true) {
+            long lastAccess=mLastAccess.get();
+            if (lastAccess==EXPIRED) {
+                return false;
+            }
+            if ((lastAccess>=now) ||
+                mLastAccess.compareAndSet(lastAccess,now)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Sets the receiver's most recent access timestamp to the present
+     * time, even if the receiver's session has expired.
+     */
+
+    void activate()
+    {
+        mLastAccess.set(System.currentTimeMillis());
+    }
+
+    /**
+     * Expires the receiver's session, provided it was not accessed
+     * since the given access timestamp.
+     *
+     * @param lastAccess The timestamp.
+     *
+     * @return True if the session was expired.
+     */
+
+    boolean expire
+        (long lastAccess)
+    {
+        return ((lastAccess!=EXPIRED) &&
+                mLastAccess.compareAndSet(lastAccess,EXPIRED));
+    }
+
+    /**
+     * Expires the receiver's session.
      */
 
-    void markAccess()
+    void expire()
     {
-        mLastAccess=System.currentTimeMillis();
+        mLastAccess.set(EXPIRED);
     }
 
     /**
      * Returns the receiver's most recent access timestamp.
      *
-     * @return The timestamp.
+     * @return The timestamp, or {@link #EXPIRED} if the receiver's
+     * session has expired.
      */
 
     long getLastAccess()
     {
-        return mLastAccess;
+        return mLastAccess.get();
     }
 
     /**
@@ -1,8 +1,12 @@
 package org.marketcetera.util.ws.stateful;
 
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.marketcetera.util.misc.ClassVersion;
 import org.marketcetera.util.ws.tags.NodeId;
 import org.marketcetera.util.ws.tags.SessionId;
@@ -12,9 +16,19 @@ import org.marketcetera.util.ws.tags.SessionId;
  * session holders ({@link SessionHolder}), and (optionally)
  * automatically expires sessions (map entries) which remain unused
  * for a time interval that exceeds the session lifespan. This
- * expiration is performed at regular intervals by a reaper thread,
- * initiated during construction as part of the caller's thread group;
- * the interval between scans is normally 5% of the session lifespan.
+ * expiration is performed by a reaper thread, initiated during
+ * construction as part of the caller's thread group.
+ *
+ * <p>Sessions are looked up and renewed without locking. The reaper
+ * does not scan all sessions: it waits on a delay queue for the
+ * earliest time at which a session may expire, and then either
+ * expires the session or, if the session was accessed in the
+ * meantime, requeues it with its renewed expiration time. A holder
+ * whose session expired or was removed is marked as such, so that a
+ * concurrent lookup which found it treats it as absent.</p>
+ *
+ * <p>The receiver also maintains simple statistics on the number of
+ * active and expired sessions, and on the latency of lookups.</p>
  * 
  * @author tlerios@marketcetera.com
  * @since 1.0.0
@@ -31,8 +45,13 @@ public class SessionManager<T>
 
     /**
      * The maximum sleep interval between reaper scans, in ms.
+     *
+     * @deprecated The reaper no longer scans sessions at regular
+     * intervals; it expires each session when its lifespan elapses.
      */
 
+    @Deprecated
+
     public static final long MAX_SCAN_INTERVAL=
         60*1000;
 
@@ -50,47 +69,135 @@ public class SessionManager<T>
     private NodeId mServerId;
     private final long mSessionLife;
     private final SessionFactory<T> mSessionFactory;
-    private final HashMap<SessionId,SessionHolder<T>> mMap=
-        new HashMap<SessionId,SessionHolder<T>>();
+    private final ConcurrentMap<SessionId,SessionHolder<T>> mMap=
+        new ConcurrentHashMap<SessionId,SessionHolder<T>>();
+    private final DelayQueue<Expiration> mExpirations=
+        new DelayQueue<Expiration>();
+    private final AtomicLong mExpiredSessionCount=
+        new AtomicLong();
+    private final AtomicLong mLookupCount=
+        new AtomicLong();
+    private final AtomicLong mLookupNanos=
+        new AtomicLong();
+    private final AtomicLong mMaxLookupNanos=
+        new AtomicLong();
 
     /**
-     * The reaper.
+     * The earliest time at which a session may expire.
      */
 
     @ClassVersion("$Id$")
-    final class Reaper
-        extends Thread
+    final class Expiration
+        implements Delayed
     {
 
         // INSTANCE DATA.
 
-        private long mScanInterval;
+        private final SessionId mId;
+        private final SessionHolder<T> mHolder;
+        private final long mTime;
 
 
         // CONSTRUCTORS.
 
         /**
-         * Creates a new reaper.
+         * Creates a new expiration for the given holder, associated
+         * with the given session ID, based on the holder's most recent
+         * access timestamp.
+         *
+         * @param id The session ID.
+         * @param holder The holder.
          */
 
-        public Reaper()
+        Expiration
+            (SessionId id,
+             SessionHolder<T> holder)
         {
-            super(Thread.currentThread().getThreadGroup(),
-                  Messages.REAPER_THREAD_NAME.getText());
-            setDaemon(true);
-            mScanInterval=Math.min
-                (MAX_SCAN_INTERVAL,(long)(getLifespan()*0.05));
+            mId=id;
+            mHolder=holder;
+            mTime=holder.getLastAccess()+getLifespan();
+        }
+
+
+        // INSTANCE METHODS.
+
+        /**
+         * Returns the receiver's session ID.
+         *
+         * @return The ID.
+         */
+
+        SessionId getId()
+        {
+            return mId;
         }
 
         /**
-         * Returns the time interval between scans, in ms.
+         * Returns the receiver's holder.
          *
-         * @return The interval.
+         * @return The holder.
          */
 
-        private long getScanInterval()
+        SessionHolder<T> getHolder()
+        {
+            return mHolder;
+        }
+
+        /**
+         * Returns the time at which the receiver's session expires,
+         * unless accessed after the receiver was created.
+         *
+         * @return The time, in ms.
+         */
+
+        long getTime()
+        {
+            return mTime;
+        }
+
+
+        // Delayed.
+
+        @Override
+        public long getDelay
+            (TimeUnit unit)
+        {
+            return unit.convert
+                (getTime()-System.currentTimeMillis(),TimeUnit.MILLISECONDS);
+        }
+
+
+        // Comparable.
+
+        @Override
+        public int compareTo
+            (Delayed other)
+        {
+            long otherTime=((Expiration)other).getTime();
+            return (getTime()<otherTime)?-1:((getTime()==otherTime)?0:1);
+        }
+    }
+
+    /**
+     * The reaper.
+     */
+
+    @ClassVersion("$Id$")
+    final class Reaper
+        extends Thread
+    {
+
+        // CONSTRUCTORS.
+
+        /**
+         * Creates a new reaper.
+         */
+
+        public Reaper()
         {
-            return mScanInterval;
+            super(Thread.currentThread().getThreadGroup(),
+                  Messages.REAPER_THREAD_NAME.getText());
+            setDaemon(true);
         }
 
 
@@ -100,29 +207,38 @@ public class SessionManager<T>
         public void run()
         {
             while (true) {
-                long cutoff=System.currentTimeMillis()-getLifespan();
-                synchronized (getMap()) {
-                    for (Iterator<Map.Entry<SessionId,SessionHolder<T>>> i=
-                             getMap().entrySet().iterator();i.hasNext();) {
-                        Map.Entry<SessionId,SessionHolder<T>> entry=i.next();
-                        if (entry.getValue().getLastAccess()<=cutoff) {
-                            Messages.REAPER_EXPIRED_SESSION.info
-                                (this,entry.getKey(),
-                                 entry.getValue().getCreationContext());
-                            if (getSessionFactory()!=null) {
-                                getSessionFactory().removedSession
-                                    (entry.getValue().getSession());
-                            }
-                            i.remove();
-                        }
-                    }
-                }
+                Expiration expiration;
                 try {
-                    Thread.sleep(getScanInterval());
+                    expiration=getExpirations().take();
                 } catch (InterruptedException ex) {
                     Messages.REAPER_TERMINATED.info(this,ex,getServerId());
                     return;
                 }
+                SessionId id=expiration.getId();
+                SessionHolder<T> holder=expiration.getHolder();
+                if (getMap().get(id)!=holder) {
+                    // Removed or replaced since the expiration was queued.
+                    continue;
+                }
+                long lastAccess=holder.getLastAccess();
+                if ((lastAccess+getLifespan()>System.currentTimeMillis()) ||
+                    !holder.expire(lastAccess)) {
+                    // Accessed since the expiration was queued, or
+                    // removed in the meantime.
+                    if (getMap().get(id)==holder) {
+                        getExpirations().add(new Expiration(id,holder));
+                    }
+                    continue;
+                }
+                if (!getMap().remove(id,holder)) {
+                    continue;
+                }
+                mExpiredSessionCount.incrementAndGet();
+                Messages.REAPER_EXPIRED_SESSION.info
+                    (this,id,holder.getCreationContext());
+                if (getSessionFactory()!=null) {
+                    getSessionFactory().removedSession(holder.getSession());
+                }
             }
         }
     }
@@ -240,11 +356,84 @@ public class SessionManager<T>
      * @return The map.
      */
 
-    private HashMap<SessionId,SessionHolder<T>> getMap()
+    private ConcurrentMap<SessionId,SessionHolder<T>> getMap()
     {
         return mMap;
     }
 
+    /**
+     * Returns the receiver's queue of session expirations.
+     *
+     * @return The queue.
+     */
+
+    private DelayQueue<Expiration> getExpirations()
+    {
+        return mExpirations;
+    }
+
+    /**
+     * Returns the number of sessions currently held by the receiver.
+     *
+     * @return The number of sessions.
+     */
+
+    public int getActiveSessionCount()
+    {
+        return getMap().size();
+    }
+
+    /**
+     * Returns the number of sessions expired by the receiver.
+     *
+     * @return The number of sessions.
+     */
+
+    public long getExpiredSessionCount()
+    {
+        return mExpiredSessionCount.get();
+    }
+
+    /**
+     * Returns the number of lookups performed via {@link
+     * #get(SessionId)}.
+     *
+     * @return The number of lookups.
+     */
+
+    public long getLookupCount()
+    {
+        return mLookupCount.get();
+    }
+
+    /**
+     * Returns the average latency of lookups performed via {@link
+     * #get(SessionId)}.
+     *
+     * @return The latency, in ns. It is zero if there were no lookups.
+     */
+
+    public long getAverageLookupNanos()
+    {
+        long count=getLookupCount();
+        if (count==0) {
+            return 0;
+        }
+        return mLookupNanos.get()/count;
+    }
+
+    /**
+     * Returns the maximum latency of lookups performed via {@link
+     * #get(SessionId)}.
+     *
+     * @return The latency, in ns.
+     */
+
+    public long getMaxLookupNanos()
+    {
+        return mMaxLookupNanos.get();
+    }
+
     /**
      * Adds the given holder, associated with the given session ID, to
      * the receiver. This addition counts as an access that renews the
@@ -258,14 +447,15 @@ public class SessionManager<T>
         (SessionId id,
          SessionHolder<T> holder)
     {
-        synchronized (getMap()) {
-            holder.markAccess();
-            if (getSessionFactory()!=null) {
-                holder.setSession
-                    (getSessionFactory().createSession
-                     (holder.getCreationContext(),holder.getUser(),id));
-            }
-            getMap().put(id,holder);
+        holder.activate();
+        if (getSessionFactory()!=null) {
+            holder.setSession
+                (getSessionFactory().createSession
+                 (holder.getCreationContext(),holder.getUser(),id));
+        }
+        getMap().put(id,holder);
+        if (getLifespan()!=INFINITE_SESSION_LIFESPAN) {
+            getExpirations().add(new Expiration(id,holder));
         }
     }
 
@@ -277,26 +467,31 @@ public class SessionManager<T>
      * @param id The session ID.
      *
      * @return The holder. It is null if there is no holder for the
-     * given ID.
+     * given ID, or if its session expired or was removed during the
+     * lookup.
      */
 
     public SessionHolder<T> get
         (SessionId id)
     {
-        synchronized (getMap()) {
-            SessionHolder<T> holder=getMap().get(id);
-            if (holder==null) {
-                return null;
-            }
-            holder.markAccess();
-            return holder;
+        long start=System.nanoTime();
+        SessionHolder<T> holder=getMap().get(id);
+        if ((holder!=null) && !holder.markAccess()) {
+            holder=null;
         }
+        long latency=System.nanoTime()-start;
+        mLookupCount.incrementAndGet();
+        mLookupNanos.addAndGet(latency);
+        long max;
+        while ((latency>(max=mMaxLookupNanos.get())) &&
+               !mMaxLookupNanos.compareAndSet(max,latency)) {}
+        return holder;
     }
 
     /**
      * Removes the holder that the receiver associates with the given
-     * session ID. This method is a no-op if no such association
-     * exists.
+     * session ID, along with its pending expiration. This method is a
+     * no-op if no such association exists.
      *
      * @param id The session ID.
      */
@@ -304,11 +499,19 @@ public class SessionManager<T>
     public void remove
         (SessionId id)
     {
-        synchronized (getMap()) {
-            SessionHolder<T> holder=getMap().remove(id);
-            if ((holder!=null) && (getSessionFactory()!=null)) {
-                getSessionFactory().removedSession(holder.getSession());
+        SessionHolder<T> holder=getMap().remove(id);
+        if (holder==null) {
+            return;
+        }
+        holder.expire();
+        Iterator<Expiration> i=getExpirations().iterator();
+        while (i.hasNext()) {
+            if (i.next().getHolder()==holder) {
+                i.remove();
             }
         }
+        if (getSessionFactory()!=null) {
+            getSessionFactory().removedSession(holder.getSession());
+        }
     }
 }
@@ -0,0 +1,326 @@
+package org.marketcetera.util.log;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.marketcetera.util.test.TestCaseBase;
+
+import static org.junit.Assert.*;
+
+/**
+ * @since 2.1.4
+ * @version $Id$
+ */
+
+/* $License$ */
+
+public class AsyncLogDispatcherTest
+    extends TestCaseBase
+{
+    private static final String TEST_CATEGORY=
+        "TestCategory";
+    private static final String BLOCKING_CATEGORY=
+        "BlockingCategory";
+    private static final String TEST_MSG_EN=
+        "Test here (expected): 'a'";
+    private static final String TEST_MSG_FR=
+        "Test voil\u00E0 (attendu): 'a'";
+    private static final Exception TEST_THROWABLE=
+        new IllegalArgumentException("Test exception (expected)");
+    private static final String TEST_LOCATION=
+        AsyncLogDispatcherTest.class.getName();
+
+
+    /**
+     * An appender whose output blocks until it is released.
+     */
+
+    private static final class BlockingAppender
+        extends AppenderSkeleton
+    {
+        final CountDownLatch mAppending=new CountDownLatch(1);
+        final CountDownLatch mRelease=new CountDownLatch(1);
+
+        @Override
+        protected void append
+            (LoggingEvent event)
+        {
+            mAppending.countDown();
+            try {
+                mRelease.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public boolean requiresLayout()
+        {
+            return false;
+        }
+
+        @Override
+        public void close()
+        {
+            // Nothing to release.
+        }
+    }
+
+    /**
+     * An appender whose output always fails with an error.
+     */
+
+    private static final class FailingAppender
+        extends AppenderSkeleton
+    {
+        @Override
+        protected void append
+            (LoggingEvent event)
+        {
+            throw new Error("Test error (expected)");
+        }
+
+        @Override
+        public boolean requiresLayout()
+        {
+            return false;
+        }
+
+        @Override
+        public void close()
+        {
+            // Nothing to release.
+        }
+    }
+
+    /**
+     * A message parameter which may be modified once it is logged.
+     */
+
+    private static final class MutableParam
+    {
+        String mValue="a";
+
+        @Override
+        public String toString()
+        {
+            return mValue;
+        }
+    }
+
+
+    /**
+     * Logs a message which blocks the background thread of the
+     * running dispatcher until the returned appender is released.
+     *
+     * @return The appender.
+     */
+
+    private static BlockingAppender blockDispatcher()
+        throws Exception
+    {
+        BlockingAppender appender=new BlockingAppender();
+        Logger logger=Logger.getLogger(BLOCKING_CATEGORY);
+        logger.setAdditivity(false);
+        logger.addAppender(appender);
+        setLevel(BLOCKING_CATEGORY,Level.INFO);
+        TestMessages.LOGGER.info
+            (BLOCKING_CATEGORY,TestMessages.LOG_MSG,"b");
+        appender.mAppending.await();
+        return appender;
+    }
+
+
+    @Before
+    public void setupAsyncLogDispatcherTest()
+    {
+        ActiveLocale.setProcessLocale(Locale.ROOT);
+        setLevel(TEST_CATEGORY,Level.TRACE);
+    }
+
+    @After
+    public void tearDownAsyncLogDispatcherTest()
+    {
+        AsyncLogDispatcher.stop();
+        Logger logger=Logger.getLogger(BLOCKING_CATEGORY);
+        logger.removeAllAppenders();
+        logger.setAdditivity(true);
+    }
+
+
+    @Test
+    public void lifecycle()
+    {
+        assertFalse(AsyncLogDispatcher.isStarted());
+        AsyncLogDispatcher.start();
+        assertTrue(AsyncLogDispatcher.isStarted());
+        AsyncLogDispatcher.start(1);
+        assertTrue(AsyncLogDispatcher.isStarted());
+        AsyncLogDispatcher.stop();
+        assertFalse(AsyncLogDispatcher.isStarted());
+        AsyncLogDispatcher.stop();
+        assertFalse(AsyncLogDispatcher.isStarted());
+        try {
+            AsyncLogDispatcher.start(0);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // Expected.
+        }
+        assertFalse(AsyncLogDispatcher.isStarted());
+    }
+
+    @Test
+    public void dispatching()
+    {
+        AsyncLogDispatcher.start();
+        TestMessages.LOGGER.error
+            (TEST_CATEGORY,TEST_THROWABLE,TestMessages.LOG_MSG,"a");
+        TestMessages.LOGGER.warn
+            (TEST_CATEGORY,TestMessages.LOG_MSG,"a");
+        ActiveLocale.setProcessLocale(Locale.FRENCH);
+        TestMessages.LOGGER.info
+            (TEST_CATEGORY,TestMessages.LOG_MSG,"a");
+        ActiveLocale.setProcessLocale(Locale.ROOT);
+        TestMessages.LOGGER.debug
+            (TEST_CATEGORY,TEST_THROWABLE,TestMessages.LOG_MSG,"a");
+        TestMessages.LOGGER.trace
+            (TEST_CATEGORY,TestMessages.LOG_MSG,"a");
+        setLevel(TEST_CATEGORY,Level.OFF);
+        TestMessages.LOGGER.error
+            (TEST_CATEGORY,TestMessages.LOG_MSG,"a");
+        AsyncLogDispatcher.stop();
+
+        Iterator<LoggingEvent> events=getAppender().getEvents().iterator();
+        LoggingEvent event=events.next();
+        assertEvent(event,Level.ERROR,TEST_CATEGORY,TEST_MSG_EN,null);
+        assertSame(TEST_THROWABLE,event.getThrowableInformation().getThrowable());
+        assertEvent(events.next(),Level.WARN,TEST_CATEGORY,TEST_MSG_EN,null);
+        assertEvent(events.next(),Level.INFO,TEST_CATEGORY,TEST_MSG_FR,null);
+        event=events.next();
+        assertEvent(event,Level.DEBUG,TEST_CATEGORY,TEST_MSG_EN,null);
+        assertSame(TEST_THROWABLE,event.getThrowableInformation().getThrowable());
+        assertEvent(events.next(),Level.TRACE,TEST_CATEGORY,TEST_MSG_EN,null);
+        assertFalse(events.hasNext());
+
+        // Once stopped, messages are logged synchronously.
+        getAppender().clear();
+        setLevel(TEST_CATEGORY,Level.TRACE);
+        TestMessages.LOGGER.info
+            (TEST_CATEGORY,TestMessages.LOG_MSG,"a");
+        assertSingleEvent
+            (Level.INFO,TEST_CATEGORY,TEST_MSG_EN,TEST_LOCATION);
+    }
+
+    @Test
+    public void overflow()
+        throws Exception
+    {
+        long overflows=AsyncLogDispatcher.getOverflowCount();
+        AsyncLogDispatcher.start(2);
+        BlockingAppender appender=blockDispatcher();
+        // The first slot is still held by the message being output.
+        TestMessages.LOGGER.info
+            (TEST_CATEGORY,TestMessages.LOG_MSG,"c");
+        Thread thread=new Thread() {
+            @Override
+            public void run()
+            {
+                TestMessages.LOGGER.info
+                    (TEST_CATEGORY,TestMessages.LOG_MSG,"d");
+            }
+        };
+        thread.start();
+        thread.join(200);
+        // The ring is full: the logging thread waits for a free slot
+        // instead of logging ahead of the pending message.
+        assertTrue(thread.isAlive());
+        assertEquals(overflows+1,AsyncLogDispatcher.getOverflowCount());
+        assertNoEvents();
+        appender.mRelease.countDown();
+        thread.join();
+        AsyncLogDispatcher.stop();
+
+        Iterator<LoggingEvent> events=getAppender().getEvents().iterator();
+        assertEvent(events.next(),Level.INFO,TEST_CATEGORY,
+                    "Test here (expected): 'c'",null);
+        assertEvent(events.next(),Level.INFO,TEST_CATEGORY,
+                    "Test here (expected): 'd'",null);
+        assertFalse(events.hasNext());
+    }
+
+    @Test
+    public void failedOutput()
+    {
+        Logger logger=Logger.getLogger(BLOCKING_CATEGORY);
+        logger.setAdditivity(false);
+        logger.addAppender(new FailingAppender());
+        setLevel(BLOCKING_CATEGORY,Level.INFO);
+        AsyncLogDispatcher.start();
+        TestMessages.LOGGER.info
+            (BLOCKING_CATEGORY,TestMessages.LOG_MSG,"b");
+        // The background thread survives the error and outputs the
+        // next message.
+        TestMessages.LOGGER.info
+            (TEST_CATEGORY,TestMessages.LOG_MSG,"a");
+        AsyncLogDispatcher.stop();
+
+        boolean found=false;
+        for (LoggingEvent event:getAppender().getEvents()) {
+            if (TEST_CATEGORY.equals(event.getLoggerName())) {
+                assertEvent(event,Level.INFO,TEST_CATEGORY,TEST_MSG_EN,null);
+                found=true;
+            }
+        }
+        assertTrue(found);
+    }
+
+    @Test
+    public void snapshot()
+    {
+        Object[] params=new Object[] {
+            "a",1,2L,new BigDecimal("3.5"),true,'c',
+            TimeUnit.SECONDS,null};
+        assertSame(params,AsyncLogDispatcher.snapshot(params));
+        assertNull(AsyncLogDispatcher.snapshot(null));
+
+        Date date=new Date(1);
+        MutableParam param=new MutableParam();
+        params=new Object[] {"a",date,param};
+        Object[] snapshot=AsyncLogDispatcher.snapshot(params);
+        assertNotSame(params,snapshot);
+        assertSame(param,params[2]);
+        assertSame("a",snapshot[0]);
+        assertEquals(date,snapshot[1]);
+        assertNotSame(date,snapshot[1]);
+        assertEquals("a",snapshot[2]);
+    }
+
+    @Test
+    public void modifiedParam()
+        throws Exception
+    {
+        AsyncLogDispatcher.start();
+        BlockingAppender appender=blockDispatcher();
+        MutableParam param=new MutableParam();
+        TestMessages.LOGGER.info
+            (TEST_CATEGORY,TestMessages.LOG_MSG,param);
+        // The message is output with the parameter as it was logged.
+        param.mValue="z";
+        appender.mRelease.countDown();
+        AsyncLogDispatcher.stop();
+
+        Iterator<LoggingEvent> events=getAppender().getEvents().iterator();
+        assertEvent(events.next(),Level.INFO,TEST_CATEGORY,TEST_MSG_EN,null);
+        assertFalse(events.hasNext());
+    }
+}
@@ -0,0 +1,121 @@
+package org.marketcetera.util.log;
+
+import java.util.Locale;
+import org.apache.log4j.Level;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.marketcetera.util.test.TestCaseBase;
+
+/**
+ * Compares the time taken by threads that log internationalized
+ * messages at the info level, when info messages are disabled, when
+ * they are output synchronously, and when they are output via an
+ * {@link AsyncLogDispatcher}.
+ *
+ * <p>{@link #jitCompilation()} is run to allow JIT compilation of the
+ * exercised code; the other tests log the time taken to log {@link
+ * #NUM_ITERATIONS} messages.</p>
+ *
+ * @since 2.1.4
+ * @version $Id$
+ */
+
+/* $License$ */
+
+public class AsyncLogPerformanceTest
+    extends TestCaseBase
+{
+    private static final String TEST_CATEGORY=
+        "TestCategory";
+    private static final int NUM_ITERATIONS=
+        50000;
+
+
+    private static long runLogging()
+    {
+        long start=System.nanoTime();
+        for (int i=0;i<NUM_ITERATIONS;i++) {
+            TestMessages.LOGGER.info
+                (TEST_CATEGORY,TestMessages.LOG_MSG,"a");
+        }
+        return System.nanoTime()-start;
+    }
+
+    private static void report
+        (String name,
+         long callerNanos,
+         long totalNanos)
+    {
+        SLF4JLoggerProxy.info
+            (AsyncLogPerformanceTest.class,
+             "{}: {} messages in {}ms ({} per second) in the logging "+ //$NON-NLS-1$
+             "thread, output in {}ms", //$NON-NLS-1$
+             name,NUM_ITERATIONS,callerNanos/1000000,
+             NUM_ITERATIONS*1000000000L/Math.max(1,callerNanos),
+             totalNanos/1000000);
+    }
+
+
+    @Before
+    public void setupAsyncLogPerformanceTest()
+    {
+        ActiveLocale.setProcessLocale(Locale.ROOT);
+    }
+
+    @After
+    public void tearDownAsyncLogPerformanceTest()
+    {
+        AsyncLogDispatcher.stop();
+    }
+
+
+    /**
+     * This test does not test anything. It's just executed first to
+     * let the JIT compilation kick in.
+     */
+
+    @Test
+    public void jitCompilation()
+    {
+        setLevel(TEST_CATEGORY,Level.INFO);
+        runLogging();
+        AsyncLogDispatcher.start(NUM_ITERATIONS);
+        runLogging();
+        AsyncLogDispatcher.stop();
+        getAppender().clear();
+    }
+
+    @Test
+    public void disabled()
+    {
+        setLevel(TEST_CATEGORY,Level.WARN);
+        long time=runLogging();
+        assertNoEvents();
+        report("disabled",time,time); //$NON-NLS-1$
+    }
+
+    @Test
+    public void synchronous()
+    {
+        setLevel(TEST_CATEGORY,Level.INFO);
+        long time=runLogging();
+        assertEventCount(NUM_ITERATIONS);
+        getAppender().clear();
+        report("synchronous",time,time); //$NON-NLS-1$
+    }
+
+    @Test
+    public void asynchronous()
+    {
+        setLevel(TEST_CATEGORY,Level.INFO);
+        AsyncLogDispatcher.start(NUM_ITERATIONS);
+        long start=System.nanoTime();
+        long time=runLogging();
+        AsyncLogDispatcher.stop();
+        long total=System.nanoTime()-start;
+        assertEventCount(NUM_ITERATIONS);
+        getAppender().clear();
+        report("asynchronous",time,total); //$NON-NLS-1$
+    }
+}
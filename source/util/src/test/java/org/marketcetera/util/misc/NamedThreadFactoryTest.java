@@ -26,6 +26,19 @@ public class NamedThreadFactoryTest {
         new NamedThreadFactory(null);
     }
 
+    /**
+     * Verifies that the factory creates daemon threads when asked to.
+     */
+    @Test
+    public void daemon() {
+        assertFalse(new NamedThreadFactory("prefix", false).newThread(
+                new TestRunnable()).isDaemon());
+        Thread thread = new NamedThreadFactory("prefix", true).newThread(
+                new TestRunnable());
+        assertTrue(thread.isDaemon());
+        assertEquals("prefix1", thread.getName());
+    }
+
     /**
      * Verifies the class' behavior when supplied a valid prefix.
      *
@@ -47,7 +47,20 @@ public class SessionHolderTest
         long time=holder.getLastAccess();
         assertTrue(time>0);
         Thread.sleep(100);
-        holder.markAccess();
+        assertTrue(holder.markAccess());
         assertTrue(holder.getLastAccess()>time);
+
+        // An access since the given timestamp prevents expiration.
+        assertFalse(holder.expire(time));
+        time=holder.getLastAccess();
+        assertTrue(holder.expire(time));
+        assertEquals(SessionHolder.EXPIRED,holder.getLastAccess());
+        assertFalse(holder.markAccess());
+        assertFalse(holder.expire(SessionHolder.EXPIRED));
+
+        holder.activate();
+        assertTrue(holder.getLastAccess()>0);
+        holder.expire();
+        assertFalse(holder.markAccess());
     }
 }
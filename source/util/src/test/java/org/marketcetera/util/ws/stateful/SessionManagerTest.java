@@ -222,6 +222,50 @@ public class SessionManagerTest
         assertNull(s.get(TEST_SESSION_ID));
     }
 
+    @Test
+    public void statistics()
+        throws Exception
+    {
+        SessionManager<Integer> s=new SessionManager<Integer>(TEST_LIFESPAN);
+        assertEquals(0,s.getActiveSessionCount());
+        assertEquals(0,s.getExpiredSessionCount());
+        assertEquals(0,s.getLookupCount());
+        assertEquals(0,s.getAverageLookupNanos());
+        assertEquals(0,s.getMaxLookupNanos());
+
+        SessionHolder<Integer> h=
+            new SessionHolder<Integer>(TEST_USER,TEST_CONTEXT);
+        s.put(TEST_SESSION_ID,h);
+        SessionHolder<Integer> hD=
+            new SessionHolder<Integer>(TEST_USER,TEST_CONTEXT);
+        s.put(TEST_SESSION_ID_D,hD);
+        assertEquals(2,s.getActiveSessionCount());
+        assertSame(h,s.get(TEST_SESSION_ID));
+        assertNull(s.get(SessionId.generate()));
+        assertEquals(2,s.getLookupCount());
+        assertTrue(s.getMaxLookupNanos()>=s.getAverageLookupNanos());
+
+        // Only the session which is not accessed expires.
+
+        for (int i=0;i<4;i++) {
+            Thread.sleep(TEST_LIFESPAN/2);
+            assertSame(h,s.get(TEST_SESSION_ID));
+        }
+        assertEquals(1,s.getActiveSessionCount());
+        assertEquals(1,s.getExpiredSessionCount());
+        assertNull(s.get(TEST_SESSION_ID_D));
+
+        // A removed session does not expire, and its holder is no
+        // longer renewed.
+
+        s.remove(TEST_SESSION_ID);
+        assertEquals(0,s.getActiveSessionCount());
+        assertEquals(SessionHolder.EXPIRED,h.getLastAccess());
+        assertFalse(h.markAccess());
+        Thread.sleep(TEST_LIFESPAN*2);
+        assertEquals(1,s.getExpiredSessionCount());
+    }
+
     @Test
     public void termination()
         throws Exception